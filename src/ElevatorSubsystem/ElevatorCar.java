@@ -2,6 +2,7 @@ package ElevatorSubsystem;
 
 import common.exceptions.ElevatorStateException;
 import common.messages.elevator.ElevatorStatusMessage;
+import common.messages.scheduler.SchedulerElevatorCommand;
 
 /**
  * Entity representing an elevator car, composed of subcomponents for major
@@ -51,6 +52,12 @@ public class ElevatorCar {
 	 */
 	private boolean isResolvingError = false;
 
+	/**
+	 * The target floor of the MOVE_TO trip in progress, or NO_TARGET_FLOOR. Set by
+	 * the elevator's scheduler work queue, read by the floor work queue.
+	 */
+	private volatile int targetFloor = SchedulerElevatorCommand.NO_TARGET_FLOOR;
+
 	/**
 	 * The elevator car
 	 *
@@ -186,6 +193,33 @@ public class ElevatorCar {
 		this.floorNumber = floorNumber;
 	}
 
+	/**
+	 * Get the target floor of the MOVE_TO trip in progress
+	 *
+	 * @return the target floor, or NO_TARGET_FLOOR
+	 */
+	public int getTargetFloor() {
+		return targetFloor;
+	}
+
+	/**
+	 * Set the target floor of the MOVE_TO trip in progress
+	 *
+	 * @param targetFloor the target floor, or NO_TARGET_FLOOR to end the trip
+	 */
+	public void setTargetFloor(int targetFloor) {
+		this.targetFloor = targetFloor;
+	}
+
+	/**
+	 * Return a flag indicating whether the car is on a MOVE_TO trip
+	 *
+	 * @return true if the car is on a trip
+	 */
+	public boolean isOnTrip() {
+		return targetFloor != SchedulerElevatorCommand.NO_TARGET_FLOOR;
+	}
+
 	/**
 	 * Return a flag indicating whether the car is currently resolving an error
 	 *
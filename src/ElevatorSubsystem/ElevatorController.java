@@ -11,6 +11,7 @@ import common.messages.SchedulerElevatorTargetedMessage;
 import common.messages.elevator.ElevatorStatusMessage;
 import common.remote_procedure.SubsystemCommunicationRPC;
 import common.remote_procedure.SubsystemComponentType;
+import common.work_management.SubsystemExecutor;
 
 /**
  * Controller class that instantiates the required entities for managing the
@@ -84,6 +85,7 @@ public class ElevatorController {
 		// initialize elevator cars
 		elevators = new HashMap<Integer, ElevatorCar>();
 		ArrayList<ElevatorSchedulerMessageWorkQueue> elevatorSchedulerWorkQueues = new ArrayList();
+		Map<Integer, ElevatorSchedulerMessageWorkQueue> elevatorWorkQueues = new HashMap<>();
 		for (int i = 0; i < NUMBER_OF_ELEVATORS; i++) {
 			ElevatorDoor door = new ElevatorDoor(doorOpenCloseTime);
 			ElevatorMotor motor = new ElevatorMotor(MAX_ELEVATOR_SPEED, ELEVATOR_ACCELERATION);
@@ -99,52 +101,65 @@ public class ElevatorController {
 							floorSubsystemCommunication,
 							car)
 					);
+			elevatorWorkQueues.put(carId, elevatorSchedulerWorkQueues.get(carId));
 		}
 
 		// only one floor message queue necessary (no significant consuming/blocking tasks)
-		floorMessageQueue = new ElevatorFloorMessageWorkQueue(schedulerSubsystemCommunication, elevators);
+		floorMessageQueue = new ElevatorFloorMessageWorkQueue(schedulerSubsystemCommunication, elevators,
+				elevatorWorkQueues);
 		
-		// initialize the message receiving threads
-		(new Thread() {
-			@Override
-			public void run() {
-				// wait for floor messages
-				while (true) {
-					Message message;
-					try {
-						message = floorSubsystemCommunication.receiveMessage();
-						floorMessageQueue.enqueueMessage(message);
-					} catch (Exception e) {
-						// TODO Auto-generated catch block
-						e.printStackTrace();
+		// In a simulation, the messages are handed over as they are delivered
+		if (SubsystemExecutor.isSimulated()) {
+			try {
+				floorSubsystemCommunication.setReceiver(floorMessageQueue::enqueueMessage);
+				schedulerSubsystemCommunication.setReceiver(message -> elevatorSchedulerWorkQueues
+						.get(((SchedulerElevatorTargetedMessage) message).getElevatorId()).enqueueMessage(message));
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		} else {
+			// initialize the message receiving threads
+			SubsystemExecutor.startLoop("ElevatorController-floor-receive", new Runnable() {
+				@Override
+				public void run() {
+					// wait for floor messages
+					while (true) {
+						Message message;
+						try {
+							message = floorSubsystemCommunication.receiveMessage();
+							floorMessageQueue.enqueueMessage(message);
+						} catch (Exception e) {
+							// TODO Auto-generated catch block
+							e.printStackTrace();
+						}
 					}
 				}
-			}
-		}).start();
-
-		(new Thread() {
-			@Override
-			public void run() {
-				// wait for scheduler messages
-				while (true) {
-					SchedulerElevatorTargetedMessage message;
-					try {
-						message = (SchedulerElevatorTargetedMessage) schedulerSubsystemCommunication.receiveMessage();
-						(elevatorSchedulerWorkQueues.get(message.getElevatorId())).enqueueMessage(message);
-					} catch (Exception e) {
-						// TODO Auto-generated catch block
-						e.printStackTrace();
+			});
+
+			SubsystemExecutor.startLoop("ElevatorController-scheduler-receive", new Runnable() {
+				@Override
+				public void run() {
+					// wait for scheduler messages
+					while (true) {
+						SchedulerElevatorTargetedMessage message;
+						try {
+							message = (SchedulerElevatorTargetedMessage) schedulerSubsystemCommunication.receiveMessage();
+							(elevatorSchedulerWorkQueues.get(message.getElevatorId())).enqueueMessage(message);
+						} catch (Exception e) {
+							// TODO Auto-generated catch block
+							e.printStackTrace();
+						}
 					}
 				}
-			}
-		}).start();
+			});
+		}
 
 		for (int i = 0; i < NUMBER_OF_ELEVATORS; i++) {
 			// send initial status message to scheduler
 			ElevatorCar car = elevators.get(i);
 			ElevatorStatusMessage status = car.createStatusMessage();
 			try {
-				schedulerSubsystemCommunication.sendMessage(status);
+				schedulerSubsystemCommunication.sendAsync(status);
 			} catch (Exception e) {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
@@ -1,22 +1,65 @@
 package ElevatorSubsystem;
 
+import java.util.concurrent.CountDownLatch;
+
+import common.work_management.HashedWheelTimer;
+import common.work_management.SubsystemExecutor;
+
 /**
  * This class represents the elevator door
  *
+ * The door moves asynchronously: starting a motion puts the door in OPENING or
+ * CLOSING, and the door timer completes the motion once the door open/close
+ * time has passed, then runs the given completion. The thread that started the
+ * motion is free in the meantime. openDoor and closeDoor wait for the motion to
+ * complete.
+ *
  * @author paulokenne, ryanfife, favourolotu
  *
  */
 public class ElevatorDoor {
 
+	/**
+	 * The states of the door
+	 */
+	public enum DoorState {
+
+		/**
+		 * The door is opening
+		 */
+		OPENING,
+
+		/**
+		 * The door is open
+		 */
+		OPEN,
+
+		/**
+		 * The door is closing
+		 */
+		CLOSING,
+
+		/**
+		 * The door is closed
+		 */
+		CLOSED
+	}
+
+	/**
+	 * The timer completing the door motions of all the elevators, outside a
+	 * simulation
+	 */
+	private static final HashedWheelTimer DOOR_TIMER = new HashedWheelTimer("ElevatorDoorTimer", 10, 512);
+
 	/**
 	 * The door open/close time in milliseconds
 	 */
 	private double doorOpenCloseTime;
 
 	/**
-	 * A flag that indicates if the door is open
+	 * The state of the door
 	 */
-	private boolean isOpen = false;
+	private volatile DoorState state = DoorState.CLOSED;
 
 	/**
 	 * A ElevatorDoor constructor
@@ -28,71 +71,145 @@ public class ElevatorDoor {
 	}
 
 	/**
-	 * Return a flag indicating if the door is open
+	 * Return a flag indicating if the door is open. A door that is moving is not
+	 * closed, so it is open.
 	 *
 	 * @return true if open and false otherwise
 	 */
 	public boolean isOpen() {
-		return isOpen;
+		return state != DoorState.CLOSED;
 	}
 
 	/**
-	 * Open the elevator door
+	 * Return a flag indicating if the door is opening or closing
+	 *
+	 * @return true if moving and false otherwise
 	 */
-	public void openDoor() {
-		if (!this.isOpen) {
-			try {
-				Thread.sleep((long) this.doorOpenCloseTime);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-			isOpen = true;
-		}
+	public boolean isMoving() {
+		return state == DoorState.OPENING || state == DoorState.CLOSING;
 	}
 
 	/**
-	 * Close the elevator door with an error override
+	 * Return the state of the door
 	 *
-	 * @return true if successful and false otherwise
+	 * @return the state
 	 */
-	public boolean closeDoor() {
-		if (this.isOpen) {
-			try {
-				Thread.sleep((long) this.doorOpenCloseTime);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-			isOpen = false;
+	public DoorState getState() {
+		return state;
+	}
+
+	/**
+	 * Start opening the door, if it is closed. The completion runs on the door
+	 * timer once the door is open.
+	 *
+	 * @param onOpened the completion
+	 * @return true if the door started opening, and false if it is not closed, in
+	 *         which case the completion does not run
+	 */
+	public synchronized boolean startOpening(Runnable onOpened) {
+		if (state != DoorState.CLOSED) {
+			return false;
 		}
 
+		state = DoorState.OPENING;
+		completeMotion(DoorState.OPEN, onOpened);
 		return true;
 	}
 
 	/**
-	 * Close the elevator door with an error override
+	 * Start closing the door, if it is open. The completion runs on the door timer
+	 * once the motion is over.
 	 *
-	 * @param errorOverride the error override
-	 * @return true if successful and false otherwise
+	 * @param onClosed the completion
+	 * @return true if the door started closing, and false if it is not open, in
+	 *         which case the completion does not run
 	 */
-	public boolean closeDoor(ElevatorAutoFixing autoFixing) {
+	public boolean startClosing(Runnable onClosed) {
+		return startClosing(ElevatorAutoFixing.AUTO_FIXING_SUCCESS, onClosed);
+	}
 
-		if (this.isOpen) {
+	/**
+	 * Start closing the door with an error override, if it is open. With a failing
+	 * auto fixing, the door goes back to open once the motion is over. The
+	 * completion runs on the door timer once the motion is over.
+	 *
+	 * @param autoFixing the auto fixing
+	 * @param onClosed   the completion
+	 * @return true if the door started closing, and false if it is not open, in
+	 *         which case the completion does not run
+	 */
+	public synchronized boolean startClosing(ElevatorAutoFixing autoFixing, Runnable onClosed) {
+		if (state != DoorState.OPEN) {
+			return false;
+		}
 
-			switch (autoFixing) {
+		state = DoorState.CLOSING;
+		completeMotion(autoFixing == ElevatorAutoFixing.AUTO_FIXING_FAILURE ? DoorState.OPEN : DoorState.CLOSED,
+				onClosed);
+		return true;
+	}
 
-			case AUTO_FIXING_SUCCESS:
-				closeDoor();
-				return true;
+	/**
+	 * Schedule the end of the current motion
+	 *
+	 * @param finalState   the state of the door once the motion is over
+	 * @param onCompletion the completion
+	 */
+	private void completeMotion(DoorState finalState, Runnable onCompletion) {
+		SubsystemExecutor.getTimer(DOOR_TIMER).schedule(() -> {
+			synchronized (ElevatorDoor.this) {
+				state = finalState;
+			}
+			onCompletion.run();
+		}, (long) doorOpenCloseTime);
+	}
 
-			case AUTO_FIXING_FAILURE:
-				closeDoor();
-				this.isOpen = true;
-				return false;
+	/**
+	 * Open the elevator door, waiting for it to open
+	 */
+	public void openDoor() {
+		CountDownLatch motion = new CountDownLatch(1);
+		if (startOpening(motion::countDown)) {
+			awaitMotion(motion);
+		}
+	}
 
-			}
+	/**
+	 * Close the elevator door, waiting for it to close
+	 *
+	 * @return true if successful and false otherwise
+	 */
+	public boolean closeDoor() {
+		return closeDoor(ElevatorAutoFixing.AUTO_FIXING_SUCCESS);
+	}
+
+	/**
+	 * Close the elevator door with an error override, waiting for the motion to be
+	 * over
+	 *
+	 * @param autoFixing the auto fixing
+	 * @return true if successful and false otherwise
+	 */
+	public boolean closeDoor(ElevatorAutoFixing autoFixing) {
+		CountDownLatch motion = new CountDownLatch(1);
+		if (startClosing(autoFixing, motion::countDown)) {
+			awaitMotion(motion);
 		}
 
-		return true;
+		return !isOpen();
+	}
+
+	/**
+	 * Wait for a door motion to be over
+	 *
+	 * @param motion the latch counted down at the end of the motion
+	 */
+	private void awaitMotion(CountDownLatch motion) {
+		try {
+			motion.await();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
 	}
 
 	/**
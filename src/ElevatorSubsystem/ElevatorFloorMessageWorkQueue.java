@@ -1,5 +1,6 @@
 package ElevatorSubsystem;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Logger;
 
@@ -25,10 +26,30 @@ public class ElevatorFloorMessageWorkQueue extends MessageWorkQueue {
 
 	private Map<Integer, ElevatorCar> elevators;
 
+	/**
+	 * The scheduler work queue of each elevator, which runs the trips of the
+	 * elevator
+	 */
+	private Map<Integer, ElevatorSchedulerMessageWorkQueue> elevatorWorkQueues;
+
 	public ElevatorFloorMessageWorkQueue(SubsystemCommunicationRPC schedulerSubsystemCommunication,
 			Map<Integer, ElevatorCar> elevators) {
+		this(schedulerSubsystemCommunication, elevators, new HashMap<>());
+	}
+
+	/**
+	 * An ElevatorFloorMessageWorkQueue constructor
+	 *
+	 * @param schedulerSubsystemCommunication the elevator scheduler communication
+	 * @param elevators                       the elevators
+	 * @param elevatorWorkQueues              the scheduler work queue of each
+	 *                                        elevator
+	 */
+	public ElevatorFloorMessageWorkQueue(SubsystemCommunicationRPC schedulerSubsystemCommunication,
+			Map<Integer, ElevatorCar> elevators, Map<Integer, ElevatorSchedulerMessageWorkQueue> elevatorWorkQueues) {
 		this.schedulerSubsystemCommunication = schedulerSubsystemCommunication;
 		this.elevators = elevators;
+		this.elevatorWorkQueues = elevatorWorkQueues;
 	}
 
 	/**
@@ -49,9 +70,16 @@ public class ElevatorFloorMessageWorkQueue extends MessageWorkQueue {
 				car.setFloorNumber(floorNumber);
 
 				logger.info("(ELEVATOR) Elevator " + carId + " has reached floor: " + floorNumber);
+
+				// The elevator's work queue runs its trip on, floor after floor
+				if (car.isOnTrip() && elevatorWorkQueues.containsKey(carId)) {
+					elevatorWorkQueues.get(carId).enqueueMessage(arrivalMessage);
+					break;
+				}
+
 				ElevatorStatusMessage arrivalStatus = car.createStatusMessage();
 
-				schedulerSubsystemCommunication.sendMessage(arrivalStatus);
+				schedulerSubsystemCommunication.sendAsync(arrivalStatus);
 				break;
 
 			case ELEVATOR_DROP_PASSENGER_REQUEST:
@@ -67,7 +95,7 @@ public class ElevatorFloorMessageWorkQueue extends MessageWorkQueue {
 				}
 
 				// Receive the message sent and set the errorOverride flag if needed
-				schedulerSubsystemCommunication.sendMessage(message);
+				schedulerSubsystemCommunication.sendAsync(message);
 				break;
 
 			default:
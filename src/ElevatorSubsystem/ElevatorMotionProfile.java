@@ -0,0 +1,195 @@
+/**
+ *
+ */
+package ElevatorSubsystem;
+
+import FloorSubsystem.FloorSubsystem;
+
+/**
+ * This class computes the motion of an elevator car along its shaft, with a
+ * trapezoidal velocity profile: the car accelerates at the acceleration of its
+ * motor up to its top speed, cruises, and slows down at the same rate to stop
+ * at a floor. A run of several floors is therefore shorter than as many runs
+ * of one floor, as the car passes the floors between at speed.
+ *
+ * The top speed is capped to the highest speed the car can stop from within a
+ * floor, the limit SystemValidationUtil.validateElevatorMaxSpeed checks, so a
+ * car passing a floor can always stop at the next one.
+ *
+ * @author paulokenne
+ *
+ */
+public class ElevatorMotionProfile {
+
+	/**
+	 * The top speed of the car, in meters per second
+	 */
+	private double topSpeed;
+
+	/**
+	 * The acceleration of the car, in meters per second squared. Zero means the
+	 * car reaches its top speed at once.
+	 */
+	private double acceleration;
+
+	/**
+	 * The distance between two adjacent floors, in meters
+	 */
+	private double floorToFloorDistance;
+
+	/**
+	 * An ElevatorMotionProfile constructor for the given motor, between the floors
+	 * of the building
+	 *
+	 * @param motor the motor
+	 */
+	public ElevatorMotionProfile(ElevatorMotor motor) {
+		this(motor.getTopSpeed(), motor.getAcceleration(), FloorSubsystem.FLOOR_TO_FLOOR_DISTANCE);
+	}
+
+	/**
+	 * An ElevatorMotionProfile constructor
+	 *
+	 * @param topSpeed             the top speed of the car, in meters per second
+	 * @param acceleration         the acceleration of the car, in meters per
+	 *                             second squared, or 0 to reach the top speed at
+	 *                             once
+	 * @param floorToFloorDistance the distance between two adjacent floors, in
+	 *                             meters
+	 */
+	public ElevatorMotionProfile(double topSpeed, double acceleration, double floorToFloorDistance) {
+		this.acceleration = Math.max(0, acceleration);
+		this.floorToFloorDistance = floorToFloorDistance;
+		this.topSpeed = this.acceleration > 0
+				? Math.min(topSpeed, Math.sqrt(2 * this.acceleration * floorToFloorDistance))
+				: topSpeed;
+	}
+
+	/**
+	 * @return the top speed of the car, in meters per second, capped to the speed
+	 *         it can stop from within a floor
+	 */
+	public double getTopSpeed() {
+		return topSpeed;
+	}
+
+	/**
+	 * @return the acceleration of the car, in meters per second squared
+	 */
+	public double getAcceleration() {
+		return acceleration;
+	}
+
+	/**
+	 * Return the time the car takes to travel the given number of floors from a
+	 * stop to a stop
+	 *
+	 * @param numberOfFloors the number of floors
+	 * @return the time, in milliseconds
+	 */
+	public double getTravelMilliseconds(int numberOfFloors) {
+		return getArrivalMilliseconds(0, numberOfFloors);
+	}
+
+	/**
+	 * Return the time the car, passing its current floor at the given velocity,
+	 * takes to stop at the floor the given number of floors ahead
+	 *
+	 * @param currentVelocity the velocity of the car at its current floor, in
+	 *                        meters per second
+	 * @param numberOfFloors  the number of floors ahead
+	 * @return the time, in milliseconds
+	 */
+	public double getArrivalMilliseconds(double currentVelocity, int numberOfFloors) {
+		if (numberOfFloors <= 0) {
+			return 0;
+		}
+		return 1000 * getStoppingSeconds(numberOfFloors * floorToFloorDistance, currentVelocity);
+	}
+
+	/**
+	 * Return the time the car takes to reach the next floor
+	 *
+	 * @param enteringVelocity the velocity of the car at the floor it leaves, in
+	 *                         meters per second
+	 * @param isStopping       true if the car stops at the next floor, false if it
+	 *                         passes it
+	 * @return the time, in milliseconds
+	 */
+	public double getFloorMilliseconds(double enteringVelocity, boolean isStopping) {
+		if (isStopping) {
+			return 1000 * getStoppingSeconds(floorToFloorDistance, enteringVelocity);
+		}
+		return 1000 * getPassingSeconds(floorToFloorDistance, enteringVelocity);
+	}
+
+	/**
+	 * Return the velocity of the car at the next floor
+	 *
+	 * @param enteringVelocity the velocity of the car at the floor it leaves, in
+	 *                         meters per second
+	 * @param isStopping       true if the car stops at the next floor, false if it
+	 *                         passes it
+	 * @return the velocity, in meters per second
+	 */
+	public double getNextFloorVelocity(double enteringVelocity, boolean isStopping) {
+		if (isStopping) {
+			return 0;
+		}
+		if (acceleration <= 0) {
+			return topSpeed;
+		}
+		return Math.min(topSpeed, Math.sqrt(enteringVelocity * enteringVelocity
+				+ 2 * acceleration * floorToFloorDistance));
+	}
+
+	/**
+	 * Return the time the car takes to cover the given distance and stop: it
+	 * accelerates to its top speed, or as close to it as the distance lets it,
+	 * cruises and slows down
+	 *
+	 * @param distance         the distance, in meters
+	 * @param enteringVelocity the velocity of the car at the start, in meters per
+	 *                         second
+	 * @return the time, in seconds
+	 */
+	private double getStoppingSeconds(double distance, double enteringVelocity) {
+		if (acceleration <= 0) {
+			return distance / topSpeed;
+		}
+
+		double peakVelocity = Math.min(topSpeed,
+				Math.sqrt((2 * acceleration * distance + enteringVelocity * enteringVelocity) / 2));
+		double acceleratingDistance = (peakVelocity * peakVelocity - enteringVelocity * enteringVelocity)
+				/ (2 * acceleration);
+		double slowingDownDistance = peakVelocity * peakVelocity / (2 * acceleration);
+		double cruisingDistance = Math.max(0, distance - acceleratingDistance - slowingDownDistance);
+
+		return (peakVelocity - enteringVelocity) / acceleration + cruisingDistance / peakVelocity
+				+ peakVelocity / acceleration;
+	}
+
+	/**
+	 * Return the time the car takes to cover the given distance without stopping:
+	 * it accelerates to its top speed, or as close to it as the distance lets it,
+	 * and cruises
+	 *
+	 * @param distance         the distance, in meters
+	 * @param enteringVelocity the velocity of the car at the start, in meters per
+	 *                         second
+	 * @return the time, in seconds
+	 */
+	private double getPassingSeconds(double distance, double enteringVelocity) {
+		if (acceleration <= 0) {
+			return distance / topSpeed;
+		}
+
+		double reachedVelocity = Math.min(topSpeed,
+				Math.sqrt(enteringVelocity * enteringVelocity + 2 * acceleration * distance));
+		double acceleratingDistance = (reachedVelocity * reachedVelocity - enteringVelocity * enteringVelocity)
+				/ (2 * acceleration);
+
+		return (reachedVelocity - enteringVelocity) / acceleration
+				+ Math.max(0, distance - acceleratingDistance) / reachedVelocity;
+	}
+}
@@ -52,6 +52,19 @@ public class ElevatorMotor implements Serializable {
 		this.topSpeed = topSpeed;
 	}
 
+	/**
+	 * A copy constructor that takes a snapshot of the given motor
+	 *
+	 * @param motor the motor to copy
+	 */
+	public ElevatorMotor(ElevatorMotor motor) {
+		this.topSpeed = motor.topSpeed;
+		this.direction = motor.direction;
+		this.acceleration = motor.acceleration;
+		this.isRunning = motor.isRunning;
+		this.currentVelocity = motor.currentVelocity;
+	}
+
 	/**
 	 * Get the top speed
 	 *
@@ -109,5 +122,6 @@ public class ElevatorMotor implements Serializable {
 	public void turnOff() {
 		this.direction = Direction.IDLE;
 		this.isRunning = false;
+		this.currentVelocity = 0;
 	}
 }
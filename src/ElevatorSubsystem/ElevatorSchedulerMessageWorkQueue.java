@@ -1,13 +1,18 @@
 package ElevatorSubsystem;
 
+import java.util.ArrayDeque;
 import java.util.logging.Logger;
 
 import FloorSubsystem.FloorInputFault;
+import common.Direction;
 import common.LoggerWrapper;
 import common.exceptions.ElevatorStateException;
 import common.messages.Message;
+import common.messages.MessageType;
+import common.messages.elevator.ElevatorFloorArrivalMessage;
 import common.messages.elevator.ElevatorFloorSignalRequestMessage;
 import common.messages.elevator.ElevatorLeavingFloorMessage;
+import common.messages.scheduler.ElevatorCommand;
 import common.messages.scheduler.SchedulerElevatorCommand;
 import common.remote_procedure.SubsystemCommunicationRPC;
 import common.work_management.MessageWorkQueue;
@@ -16,6 +21,19 @@ import common.work_management.MessageWorkQueue;
  * This class serves the elevator related requests received from the scheduler
  * subsystem.
  *
+ * The door motions do not block the worker. A command that moves the door
+ * starts the motion and leaves its continuation, which runs when the door
+ * enqueues an ELEVATOR_DOOR_EVENT. Until then, the commands that depend on the
+ * door are deferred in their order, while status requests and shut downs are
+ * served right away.
+ *
+ * A MOVE_TO command sends the elevator on a trip to its target floor. The floor
+ * work queue hands the arrivals of the trip to this work queue, which reports
+ * the position to the scheduler and moves on to the next floor without waiting
+ * for a command, until the elevator reaches the target floor. A RETARGET
+ * command changes the target floor of the trip: the elevator stops at the new
+ * target floor, or at the next floor if it has passed it already.
+ *
  * @author Ryan Fife
  */
 public class ElevatorSchedulerMessageWorkQueue extends MessageWorkQueue {
@@ -41,6 +59,23 @@ public class ElevatorSchedulerMessageWorkQueue extends MessageWorkQueue {
 	 */
 	private ElevatorCar elevator;
 
+	/**
+	 * The continuation of the door motion in progress, or null if the door is not
+	 * moving. Only used by the worker.
+	 */
+	private Runnable doorMotionContinuation;
+
+	/**
+	 * The commands received during the door motion in progress, in their order.
+	 * Only used by the worker.
+	 */
+	private ArrayDeque<SchedulerElevatorCommand> deferredCommands = new ArrayDeque<>();
+
+	/**
+	 * The motion profile of the elevator, which gives its velocity at each floor
+	 */
+	private ElevatorMotionProfile motionProfile;
+
 	/**
 	 * The ElevatorSchedulerMessageWorkQueue constructor
 	 *
@@ -53,6 +88,7 @@ public class ElevatorSchedulerMessageWorkQueue extends MessageWorkQueue {
 		this.schedulerSubsystemCommunication = schedulerSubsystemCommunication;
 		this.floorSubsystemCommunication = floorSubsystemCommunication;
 		this.elevator = elevator;
+		this.motionProfile = new ElevatorMotionProfile(elevator.getMotor());
 	}
 
 	/**
@@ -67,14 +103,30 @@ public class ElevatorSchedulerMessageWorkQueue extends MessageWorkQueue {
 			switch (message.getMessageType()) {
 
 			case ELEVATOR_STATUS_REQUEST:
-				schedulerSubsystemCommunication.sendMessage(elevator.createStatusMessage());
+				schedulerSubsystemCommunication.sendAsync(elevator.createStatusMessage());
 				break;
 
 			case SCHEDULER_ELEVATOR_COMMAND:
 				SchedulerElevatorCommand schedulerCommand = (SchedulerElevatorCommand) message;
+
+				// The door commands wait for the door motion in progress, but a shut down
+				// does not
+				if (schedulerCommand.getCommand() != ElevatorCommand.SHUT_DOWN
+						&& (doorMotionContinuation != null || !deferredCommands.isEmpty())) {
+					deferredCommands.add(schedulerCommand);
+					break;
+				}
 				handleElevatorCommand(schedulerCommand);
 				break;
 
+			case ELEVATOR_DOOR_EVENT:
+				handleDoorEvent();
+				break;
+
+			case FLOOR_ARRIVAL_MESSAGE:
+				handleTripArrival(((ElevatorFloorArrivalMessage) message).getFloorId());
+				break;
+
 			default:
 				break;
 			}
@@ -83,17 +135,65 @@ public class ElevatorSchedulerMessageWorkQueue extends MessageWorkQueue {
 		}
 	}
 
+	/**
+	 * Continue the command that moved the door, then handle the deferred commands
+	 * until one moves the door again
+	 */
+	private void handleDoorEvent() {
+		Runnable continuation = doorMotionContinuation;
+		doorMotionContinuation = null;
+		if (continuation != null) {
+			continuation.run();
+		}
+
+		while (doorMotionContinuation == null && !deferredCommands.isEmpty()) {
+			handleElevatorCommand(deferredCommands.poll());
+		}
+	}
+
+	/**
+	 * Start opening the door. The continuation runs on the worker once the door is
+	 * open, or right away if the door was not closed.
+	 *
+	 * @param continuation the continuation
+	 */
+	private void openDoor(Runnable continuation) {
+		if (elevator.getDoor().startOpening(this::enqueueDoorEvent)) {
+			doorMotionContinuation = continuation;
+		} else {
+			continuation.run();
+		}
+	}
+
+	/**
+	 * Start closing the door with an error override. The continuation runs on the
+	 * worker once the motion is over, or right away if the door was not open.
+	 *
+	 * @param autoFixing   the auto fixing
+	 * @param continuation the continuation
+	 */
+	private void closeDoor(ElevatorAutoFixing autoFixing, Runnable continuation) {
+		if (elevator.getDoor().startClosing(autoFixing, this::enqueueDoorEvent)) {
+			doorMotionContinuation = continuation;
+		} else {
+			continuation.run();
+		}
+	}
+
+	/**
+	 * Notify the worker that the door completed its motion
+	 */
+	private void enqueueDoorEvent() {
+		enqueueMessage(new Message(MessageType.ELEVATOR_DOOR_EVENT));
+	}
+
 	/**
 	 * This method handles elevator commands
 	 *
 	 * @param command - The command received from the scheduler
 	 */
 	private void handleElevatorCommand(SchedulerElevatorCommand command) {
-		ElevatorLeavingFloorMessage leavingMessage;
-		ElevatorFloorSignalRequestMessage comingMessage;
-
 		int elevatorId = elevator.getId();
-		int carFloorNumber = elevator.getFloorNumber();
 
 		try {
 			switch (command.getCommand()) {
@@ -101,68 +201,55 @@ public class ElevatorSchedulerMessageWorkQueue extends MessageWorkQueue {
 				if (!elevator.getDoor().isOpen()) {
 					logger.fine("(ELEVATOR) Elevator " + elevatorId + " stopping");
 					elevator.getMotor().turnOff();
-				} else {
+				} else if (elevator.getMotor().getIsRunning()) {
+					// An idle elevator waiting with its doors open is already stopped, a
+					// passenger calling it at its floor is not an error
 					elevator.setErrorState(new ElevatorStateException(null, "Attempted to stop while doors open"));
 				}
 				break;
 			case CLOSE_DOORS:
 				logger.fine("(ELEVATOR) Elevator " + elevatorId + " door closing");
-				elevator.getDoor().closeDoor();
+				closeDoor(ElevatorAutoFixing.AUTO_FIXING_SUCCESS, () -> {
+				});
 
 				break;
 			case OPEN_DOORS:
 				if (!elevator.getMotor().getIsRunning()) {
 					logger.fine("(ELEVATOR) Elevator " + elevatorId + " door opening");
-					elevator.getDoor().openDoor();
+					openDoor(this::sendDoorStatus);
 				} else {
 					elevator.setErrorState(
 							new ElevatorStateException(null, "Attempted to open doors while motor running"));
+					sendDoorStatus();
 				}
-
-				schedulerSubsystemCommunication
-						.sendMessage(elevator.createCommandNonIssuingStatusMessage().forGuiOnly());
 				break;
 			case MOVE_UP:
 				logger.fine("(ELEVATOR) Elevator " + elevatorId + " door closing");
-				boolean isCloseDoorProcessSuccess = closeDoorProcess();
-
-				if (!isCloseDoorProcessSuccess)
-					return;
-
-				logger.fine("(ELEVATOR) Elevator " + elevatorId + " moving up");
-				elevator.getMotor().goUp();
-
-				leavingMessage = new ElevatorLeavingFloorMessage(elevatorId, carFloorNumber);
-				comingMessage = new ElevatorFloorSignalRequestMessage(elevator.getId(), carFloorNumber + 1,
-						elevator.getMotor(), true);
-
-				floorSubsystemCommunication.sendMessage(leavingMessage);
-				floorSubsystemCommunication.sendMessage(comingMessage);
-
+				elevator.setTargetFloor(SchedulerElevatorCommand.NO_TARGET_FLOOR);
+				closeDoorProcess(() -> move(true));
 				break;
 			case MOVE_DOWN:
 				logger.fine("(ELEVATOR) Elevator " + elevatorId + " door closing");
-				boolean isDoorClosed = closeDoorProcess();
-
-				if (!isDoorClosed)
-					return;
-
-				logger.fine("(ELEVATOR) Elevator " + elevatorId + " moving down");
-				elevator.getMotor().goDown();
-
-				leavingMessage = new ElevatorLeavingFloorMessage(elevatorId, carFloorNumber);
-				comingMessage = new ElevatorFloorSignalRequestMessage(elevatorId, carFloorNumber - 1,
-						elevator.getMotor(), true);
-
-				floorSubsystemCommunication.sendMessage(leavingMessage);
-				floorSubsystemCommunication.sendMessage(comingMessage);
-
+				elevator.setTargetFloor(SchedulerElevatorCommand.NO_TARGET_FLOOR);
+				closeDoorProcess(() -> move(false));
+				break;
+			case MOVE_TO:
+				moveTo(command.getTargetFloor());
+				break;
+			case RETARGET:
+				// A trip that already ended is not resumed, the scheduler issues the next
+				// command when it gets the status of the end of the trip
+				if (elevator.isOnTrip()) {
+					logger.fine("(ELEVATOR) Elevator " + elevatorId + " now moving to floor " + command.getTargetFloor());
+					elevator.setTargetFloor(command.getTargetFloor());
+				}
 				break;
 
 			case SHUT_DOWN:
+				elevator.setTargetFloor(SchedulerElevatorCommand.NO_TARGET_FLOOR);
 				elevator.setInService(false);
 				elevator.setErrorState(command.getException());
-				schedulerSubsystemCommunication.sendMessage(elevator.createCommandNonIssuingStatusMessage());
+				schedulerSubsystemCommunication.sendAsync(elevator.createCommandNonIssuingStatusMessage());
 				break;
 
 			case RESTART:
@@ -177,27 +264,127 @@ public class ElevatorSchedulerMessageWorkQueue extends MessageWorkQueue {
 	}
 
 	/**
-	 * The close door process
+	 * Send the GUI the status of the elevator after a door motion
+	 */
+	private void sendDoorStatus() {
+		try {
+			schedulerSubsystemCommunication.sendAsync(elevator.createCommandNonIssuingStatusMessage().forGuiOnly());
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Send the elevator on a trip to the given floor
+	 *
+	 * @param targetFloor the target floor
+	 */
+	private void moveTo(int targetFloor) {
+		int elevatorId = elevator.getId();
+
+		// Already there, the scheduler issues the next command
+		if (targetFloor == elevator.getFloorNumber()) {
+			schedulerSubsystemCommunication.sendAsync(elevator.createStatusMessage());
+			return;
+		}
+
+		logger.fine("(ELEVATOR) Elevator " + elevatorId + " door closing to move to floor " + targetFloor);
+		elevator.setTargetFloor(targetFloor);
+		closeDoorProcess(() -> move(targetFloor > elevator.getFloorNumber()));
+	}
+
+	/**
+	 * Handle the arrival of the elevator at a floor of its trip: report the
+	 * position and move on, or end the trip at the target floor and let the
+	 * scheduler issue the next command
+	 *
+	 * @param floorNumber the floor the elevator arrived at
+	 */
+	private void handleTripArrival(int floorNumber) {
+		int targetFloor = elevator.getTargetFloor();
+		boolean isGoingUp = elevator.getMotor().getDirection() == Direction.UP;
+		boolean isTargetAhead = isGoingUp ? targetFloor > floorNumber : targetFloor < floorNumber;
+
+		try {
+			if (!elevator.isOnTrip() || !elevator.getInService()
+					|| (!isTargetAhead && elevator.getMotor().getCurrentVelocity() == 0)) {
+				elevator.setTargetFloor(SchedulerElevatorCommand.NO_TARGET_FLOOR);
+				schedulerSubsystemCommunication.sendAsync(elevator.createStatusMessage());
+				return;
+			}
+
+			// Retargeted to a floor the car passed at speed: it stops at the next floor
+			// and the scheduler sends it back
+			if (!isTargetAhead) {
+				elevator.setTargetFloor(isGoingUp ? floorNumber + 1 : floorNumber - 1);
+			}
+
+			schedulerSubsystemCommunication.sendAsync(elevator.createCommandNonIssuingStatusMessage());
+			move(isGoingUp);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Move the elevator to the next floor, and notify the floors it leaves and
+	 * comes to
 	 *
-	 * @param elevator   the elevator
-	 * @param elevatorId the elevator id
-	 * @return true if the close door process and false otherwise
+	 * @param isGoingUp true to move up and false to move down
 	 */
-	private boolean closeDoorProcess() {
+	private void move(boolean isGoingUp) {
+		int elevatorId = elevator.getId();
+		int carFloorNumber = elevator.getFloorNumber();
+		int nextFloorNumber = isGoingUp ? carFloorNumber + 1 : carFloorNumber - 1;
+
+		try {
+			if (isGoingUp) {
+				logger.fine("(ELEVATOR) Elevator " + elevatorId + " moving up");
+				elevator.getMotor().goUp();
+			} else {
+				logger.fine("(ELEVATOR) Elevator " + elevatorId + " moving down");
+				elevator.getMotor().goDown();
+			}
+
+			// The car passes the next floor only if its trip goes beyond it
+			int targetFloor = elevator.getTargetFloor();
+			boolean isStopping = !elevator.isOnTrip()
+					|| (isGoingUp ? targetFloor <= nextFloorNumber : targetFloor >= nextFloorNumber);
+
+			ElevatorLeavingFloorMessage leavingMessage = new ElevatorLeavingFloorMessage(elevatorId, carFloorNumber);
+			ElevatorFloorSignalRequestMessage comingMessage = new ElevatorFloorSignalRequestMessage(elevatorId,
+					nextFloorNumber, elevator.getMotor(), isStopping);
+
+			// The floor times the arrival from the velocity the car leaves with
+			ElevatorMotor motor = elevator.getMotor();
+			motor.setCurrentVelocity(motionProfile.getNextFloorVelocity(motor.getCurrentVelocity(), isStopping));
+
+			floorSubsystemCommunication.sendAsync(leavingMessage);
+			floorSubsystemCommunication.sendAsync(comingMessage);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * The close door process. The move runs once the door is closed, unless the
+	 * elevator cannot close it or was shut down while it was closing.
+	 *
+	 * @param move the move to make once the door is closed
+	 */
+	private void closeDoorProcess(Runnable move) {
 
 		int elevatorId = elevator.getId();
 		int currentFloorNumber = elevator.getFloorNumber();
 
 		if (elevator.getErrorState() == null) {
-			elevator.getDoor().closeDoor();
-			try {
-				schedulerSubsystemCommunication
-						.sendMessage(elevator.createCommandNonIssuingStatusMessage().forGuiOnly());
-			} catch (Exception e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
-			return true;
+			closeDoor(ElevatorAutoFixing.AUTO_FIXING_SUCCESS, () -> {
+				sendDoorStatus();
+				if (elevator.getInService()) {
+					move.run();
+				}
+			});
+			return;
 		}
 
 		if (elevator.getErrorState().getFault() == FloorInputFault.DOOR_STUCK_OPEN_FAULT) {
@@ -206,31 +393,64 @@ public class ElevatorSchedulerMessageWorkQueue extends MessageWorkQueue {
 			// Notify the scheduler that the elevator is resolving an issue
 			elevator.setResolvingError(true);
 			try {
-				schedulerSubsystemCommunication.sendMessage(elevator.createCommandNonIssuingStatusMessage());
+				schedulerSubsystemCommunication.sendAsync(elevator.createCommandNonIssuingStatusMessage());
 			} catch (Exception e) {
 			}
 
-			ElevatorAutoFixing autoFixing = elevator.getAutoFixing();
+			closeStuckDoor(1, move);
+			return;
+		}
+
+		// If we are here, it means we have an error state that is not door stuck open
+		// Because we have an error state, the door should be out of service and
+		// the door-close operation will not work.
+		try
+
+		{
+			elevator.setInService(false);
+			// Update the scheduler of the error
+			schedulerSubsystemCommunication.sendAsync(elevator.createCommandNonIssuingStatusMessage());
+		} catch (Exception e) {
+		}
+	}
+
+	/**
+	 * Try to close a door stuck open, retrying until the fault retry attempts are
+	 * exhausted
+	 *
+	 * @param attempt the attempt, from 1
+	 * @param move    the move to make once the door is closed
+	 */
+	private void closeStuckDoor(int attempt, Runnable move) {
+		int elevatorId = elevator.getId();
 
-			// Try to close the elevator
-			for (int i = 0; i < FAULT_RETRY_ATTEMPTS; i++) {
-				boolean isDoorClosed = elevator.getDoor().closeDoor(autoFixing);
+		closeDoor(elevator.getAutoFixing(), () -> {
 
-				if (isDoorClosed) {
-					elevator.setErrorState(null);
-					elevator.setResolvingError(false);
+			// The elevator may have been shut down while the door was closing
+			if (!elevator.getInService()) {
+				elevator.setResolvingError(false);
+				return;
+			}
 
-					logger.severe("(Elevator) Elevator " + elevatorId + " has resolved the issue and closed the door.");
+			if (!elevator.getDoor().isOpen()) {
+				elevator.setErrorState(null);
+				elevator.setResolvingError(false);
 
-					// Notify the scheduler that the elevator has resolved the issue
-					try {
-						schedulerSubsystemCommunication.sendMessage(elevator.createCommandNonIssuingStatusMessage());
-					} catch (Exception e) {
-					}
+				logger.severe("(Elevator) Elevator " + elevatorId + " has resolved the issue and closed the door.");
 
-					return true;
+				// Notify the scheduler that the elevator has resolved the issue
+				try {
+					schedulerSubsystemCommunication.sendAsync(elevator.createCommandNonIssuingStatusMessage());
+				} catch (Exception e) {
 				}
 
+				move.run();
+				return;
+			}
+
+			if (attempt < FAULT_RETRY_ATTEMPTS) {
+				closeStuckDoor(attempt + 1, move);
+				return;
 			}
 
 			// Being here indicates that the elevator exhausted the fault retry attempts.
@@ -243,26 +463,9 @@ public class ElevatorSchedulerMessageWorkQueue extends MessageWorkQueue {
 			logger.severe("(Elevator) Elevator " + elevatorId
 					+ " exhausted its retry attempts to close the door. Shutting down....");
 			try {
-				schedulerSubsystemCommunication.sendMessage(elevator.createCommandNonIssuingStatusMessage());
+				schedulerSubsystemCommunication.sendAsync(elevator.createCommandNonIssuingStatusMessage());
 			} catch (Exception e) {
 			}
-
-			return false;
-		}
-
-		// If we are here, it means we have an error state that is not door stuck open
-		// Because we have an error state, the door should be out of service and
-		// the door-close operation will not work.
-		try
-
-		{
-			elevator.setInService(false);
-			// Update the scheduler of the error
-			schedulerSubsystemCommunication.sendMessage(elevator.createCommandNonIssuingStatusMessage());
-		} catch (Exception e) {
-		}
-
-		return false;
-
+		});
 	}
 }
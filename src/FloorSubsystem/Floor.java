@@ -97,7 +97,7 @@ public class Floor {
 				elevatorMotor,
 				elevatorFloorToFloorTimeMilliseconds,
 				elevatorUDP, schedulerUDP,
-				produceFloorFault);
+				isFloorFinalDestination, produceFloorFault);
 	}
 
 	/**
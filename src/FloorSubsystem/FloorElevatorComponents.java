@@ -3,14 +3,21 @@
  */
 package FloorSubsystem;
 
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
+import ElevatorSubsystem.ElevatorMotionProfile;
 import ElevatorSubsystem.ElevatorMotor;
 import common.Direction;
 import common.LoggerWrapper;
 import common.messages.elevator.ElevatorFloorArrivalMessage;
 import common.messages.floor.ElevatorNotArrived;
 import common.remote_procedure.SubsystemCommunicationRPC;
+import common.work_management.HashedWheelTimer;
+import common.work_management.ScheduledTask;
+import common.work_management.SubsystemExecutor;
 
 /**
  * This class represents the floor elevator components which include the arrival
@@ -21,6 +28,24 @@ import common.remote_procedure.SubsystemCommunicationRPC;
  */
 public class FloorElevatorComponents {
 
+	/**
+	 * The resolution of the arrival timer
+	 */
+	public static final long ARRIVAL_TIMER_TICK_MILLISECONDS = 10;
+
+	/**
+	 * The timer of the arrival notifications of every floor and elevator, so the
+	 * floor subsystem runs a single thread however many elevators are moving.
+	 * Used outside a simulation.
+	 */
+	private static final HashedWheelTimer ARRIVAL_TIMER = new HashedWheelTimer("FloorArrivalTimer",
+			ARRIVAL_TIMER_TICK_MILLISECONDS, 512);
+
+	/**
+	 * The pending arrival notifications of each elevator, at any floor
+	 */
+	private static final Map<Integer, Set<ArrivalNotification>> PENDING_ARRIVALS = new ConcurrentHashMap<>();
+
 	private Logger logger = LoggerWrapper.getLogger();
 
 	/**
@@ -103,8 +128,15 @@ public class FloorElevatorComponents {
 	/**
 	 * Notifies the elevator that it has arrived at the elevator.
 	 *
+	 * The elevator reaches the floor after the time its motion profile gives for
+	 * the floor, scaled so that a run of one floor from a stop to a stop takes the
+	 * configured floor to floor time: a car passing the floor at speed gets there
+	 * sooner than one starting or stopping.
+	 *
 	 * @param elevatorId                       the elevator id
 	 * @param elevatorMotor                    the elevator motor
+	 * @param elevatorFloorToFloorTimeSeconds  the time of a run of one floor, from
+	 *                                         a stop to a stop
 	 * @param elevatorSubsystemReceiverChannel the elevator subsystem receiver
 	 *                                         channel
 	 * 
@@ -116,43 +148,162 @@ public class FloorElevatorComponents {
 	 */
 	public void notifyElevatorAtFloorArrival(int floorNumber, ElevatorMotor elevatorMotor, double elevatorFloorToFloorTimeSeconds,
 			SubsystemCommunicationRPC elevatorUDP, SubsystemCommunicationRPC schedulerUDP,
-			boolean produceFloorFault) {
+			boolean isFloorFinalDestination, boolean produceFloorFault) {
+
+		long arrivalDelayMilliseconds = getArrivalDelayMilliseconds(elevatorMotor, elevatorFloorToFloorTimeSeconds,
+				isFloorFinalDestination);
+		logger.fine("(FLOOR_SUBSYSTEM) Elevator " + elevatorId + " sensor for floor " + floorNumber
+				+ " is waiting for " + arrivalDelayMilliseconds + "ms.");
 
 		// Notify the elevator when it has arrived
-		Thread notifyElevatorThread = new Thread() {
-
-			@Override
-			public void run() {
-				long sleepTimeMilli = (long) elevatorFloorToFloorTimeSeconds;
-				try {
-					logger.fine("(FLOOR_SUBSYSTEM) Elevator " + elevatorId + " sensor for floor " + floorNumber
-							+ " is waiting for " + sleepTimeMilli + "ms.");
-					Thread.sleep(sleepTimeMilli);
-				} catch (InterruptedException e) {
-					System.out.println(e);
-				}
+		ArrivalNotification arrivalNotification = new ArrivalNotification(floorNumber, elevatorMotor, elevatorUDP,
+				schedulerUDP, produceFloorFault);
+		PENDING_ARRIVALS.computeIfAbsent(elevatorId, id -> ConcurrentHashMap.newKeySet()).add(arrivalNotification);
+		arrivalNotification.timeout = SubsystemExecutor.getTimer(ARRIVAL_TIMER).schedule(arrivalNotification,
+				arrivalDelayMilliseconds);
+	}
 
+	/**
+	 * Return the time the elevator takes to reach the floor
+	 *
+	 * @param elevatorMotor                   the elevator motor, as the elevator
+	 *                                        left its previous floor
+	 * @param elevatorFloorToFloorTimeSeconds the time of a run of one floor, from
+	 *                                        a stop to a stop
+	 * @param isFloorFinalDestination         the flag indicating whether the
+	 *                                        elevator stops at the floor
+	 * @return the time, in milliseconds
+	 */
+	private long getArrivalDelayMilliseconds(ElevatorMotor elevatorMotor, double elevatorFloorToFloorTimeSeconds,
+			boolean isFloorFinalDestination) {
+		if (elevatorMotor == null || elevatorMotor.getTopSpeed() <= 0) {
+			return (long) elevatorFloorToFloorTimeSeconds;
+		}
 
-				try {
-					if (produceFloorFault) {
-						logger.fine("(FLOOR_SUBSYSTEM) Elevator " + elevatorId + " never reached floor " + floorNumber);
-						ElevatorNotArrived brokenMsg = new ElevatorNotArrived(floorNumber, elevatorId);
+		ElevatorMotionProfile motionProfile = new ElevatorMotionProfile(elevatorMotor);
+		return Math.round(elevatorFloorToFloorTimeSeconds
+				* motionProfile.getFloorMilliseconds(elevatorMotor.getCurrentVelocity(), isFloorFinalDestination)
+				/ motionProfile.getTravelMilliseconds(1));
+	}
 
-						schedulerUDP.sendMessage(brokenMsg);
-					} else {
-						logger.fine("(FLOOR_SUBSYSTEM) Elevator " + elevatorId + " has reached the floor " + floorNumber);
-						elevatorArrivedAtFloor(elevatorMotor.getDirection(), floorNumber);
-						ElevatorFloorArrivalMessage notifyMsg = new ElevatorFloorArrivalMessage(elevatorId, floorNumber);
+	/**
+	 * Cancel the pending arrival notifications of the given elevator, at every
+	 * floor
+	 *
+	 * @param elevatorId the elevator id
+	 */
+	public static void cancelArrivals(int elevatorId) {
+		Set<ArrivalNotification> pendingArrivals = PENDING_ARRIVALS.get(elevatorId);
+		if (pendingArrivals == null) {
+			return;
+		}
 
-						elevatorUDP.sendMessage(notifyMsg);
-					}
-				} catch (Exception e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				}
+		for (ArrivalNotification arrivalNotification : pendingArrivals) {
+			arrivalNotification.cancel();
+			pendingArrivals.remove(arrivalNotification);
+		}
+	}
+
+	/**
+	 * This private class is an arrival notification, run by the arrival timer
+	 * once the elevator has had the time to reach the floor
+	 *
+	 * @author paulokenne
+	 *
+	 */
+	private class ArrivalNotification implements Runnable {
+
+		/**
+		 * The floor number
+		 */
+		private int floorNumber;
+
+		/**
+		 * The elevator motor
+		 */
+		private ElevatorMotor elevatorMotor;
+
+		/**
+		 * The communication with the elevator subsystem
+		 */
+		private SubsystemCommunicationRPC elevatorUDP;
+
+		/**
+		 * The communication with the scheduler
+		 */
+		private SubsystemCommunicationRPC schedulerUDP;
+
+		/**
+		 * A flag indicating whether the elevator never reaches the floor
+		 */
+		private boolean produceFloorFault;
+
+		/**
+		 * The timeout of the notification
+		 */
+		private volatile ScheduledTask timeout;
+
+		/**
+		 * A flag indicating whether the notification was cancelled
+		 */
+		private volatile boolean isCancelled = false;
+
+		/**
+		 * An ArrivalNotification constructor
+		 *
+		 * @param floorNumber       the floor number
+		 * @param elevatorMotor     the elevator motor
+		 * @param elevatorUDP       the communication with the elevator subsystem
+		 * @param schedulerUDP      the communication with the scheduler
+		 * @param produceFloorFault a flag indicating whether the elevator never
+		 *                          reaches the floor
+		 */
+		private ArrivalNotification(int floorNumber, ElevatorMotor elevatorMotor, SubsystemCommunicationRPC elevatorUDP,
+				SubsystemCommunicationRPC schedulerUDP, boolean produceFloorFault) {
+			this.floorNumber = floorNumber;
+			this.elevatorMotor = elevatorMotor;
+			this.elevatorUDP = elevatorUDP;
+			this.schedulerUDP = schedulerUDP;
+			this.produceFloorFault = produceFloorFault;
+		}
+
+		/**
+		 * Cancel the notification, unless it has already run
+		 */
+		private void cancel() {
+			isCancelled = true;
+			ScheduledTask scheduledTimeout = timeout;
+			if (scheduledTimeout != null) {
+				scheduledTimeout.cancel();
+			}
+		}
+
+		@Override
+		public void run() {
+			PENDING_ARRIVALS.get(elevatorId).remove(this);
+			if (isCancelled) {
+				return;
 			}
-		};
 
-		notifyElevatorThread.start();
+			try {
+				if (produceFloorFault) {
+					logger.fine("(FLOOR_SUBSYSTEM) Elevator " + elevatorId + " never reached floor " + floorNumber);
+					ElevatorNotArrived brokenMsg = new ElevatorNotArrived(floorNumber, elevatorId);
+
+					schedulerUDP.sendAsync(brokenMsg);
+
+					// The elevator is shut down, so it will not reach any other floor
+					cancelArrivals(elevatorId);
+				} else {
+					logger.fine("(FLOOR_SUBSYSTEM) Elevator " + elevatorId + " has reached the floor " + floorNumber);
+					elevatorArrivedAtFloor(elevatorMotor.getDirection(), floorNumber);
+					ElevatorFloorArrivalMessage notifyMsg = new ElevatorFloorArrivalMessage(elevatorId, floorNumber);
+
+					elevatorUDP.sendAsync(notifyMsg);
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
 	}
 }
@@ -127,7 +127,7 @@ public class FloorSchedulerMessageWorkQueue extends MessageWorkQueue {
 					elevatorId, request.getLampButtonDirection(), floorFault, elevatorAutoFixing, floorInputId);
 
 			try {
-				elevatorSubsystemCommunication.sendMessage(elevatorTransportRequest);
+				elevatorSubsystemCommunication.sendAsync(elevatorTransportRequest);
 			} catch (Exception e) {
 				e.printStackTrace();
 			}
@@ -144,7 +144,7 @@ public class FloorSchedulerMessageWorkQueue extends MessageWorkQueue {
 			synchronized (floorDataCollection) {
 				floorDataCollection.removeIf(floorInputData -> passengerDropoffCompletedMessage
 						.getFloorInputDataId() == floorInputData.getInputDataId());
-
+				floorDataCollection.notifyAll();
 			}
 			break;
 
@@ -5,6 +5,8 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Logger;
 
 import common.LoggerWrapper;
@@ -13,7 +15,10 @@ import common.messages.Message;
 import common.messages.floor.ElevatorFloorRequest;
 import common.remote_procedure.SubsystemCommunicationRPC;
 import common.remote_procedure.SubsystemComponentType;
+import common.work_management.Clock;
 import common.work_management.MessageWorkQueue;
+import common.work_management.SubsystemExecutor;
+import common.work_management.TaskTimer;
 
 /**
  * This class simulates the FloorSubsystem thread
@@ -24,10 +29,24 @@ public class FloorSubsystem {
 
 	private Logger logger = LoggerWrapper.getLogger();
 	/**
-	 * Delay between sending requests from the floor input file to the scheduler.
-	 * For more real life simulation purposes.
+	 * The system property that sets how many times faster than recorded the
+	 * requests of the input file are replayed, such as 1, 10 or 100. 1 by
+	 * default.
 	 */
-	private static final int SIMULATED_INPUT_DELAY_MS = 10000;
+	public static final String REPLAY_SPEED_UP_PROPERTY = "elevator.replaySpeedUp";
+
+	/**
+	 * The length of a day, by which an arrival time earlier than the one before it
+	 * is pushed back, as the trace went past midnight
+	 */
+	private static final long DAY_MILLISECONDS = 24 * 60 * 60 * 1000;
+
+	/**
+	 * How many times faster than recorded the requests of the input file are
+	 * replayed
+	 */
+	private volatile double replaySpeedUp = validateReplaySpeedUp(
+			Double.parseDouble(System.getProperty(REPLAY_SPEED_UP_PROPERTY, "1")));
 
 	/**
 	 * The number of floors
@@ -137,56 +156,162 @@ public class FloorSubsystem {
 		// initialize the message receiving threads
 		setUpMessageQueueing(floorElevatorUDP, elevatorMessageQueue);
 		setUpMessageQueueing(floorSchedulerUDP, schedulerMessageQueue);
-		(new Thread() {
+
+		// In a simulation, the requests are sent by the simulation's timer
+		if (SubsystemExecutor.isSimulated()) {
+			scheduleFloorRequests();
+			return;
+		}
+
+		SubsystemExecutor.startLoop("FloorSubsystem-input", new Runnable() {
 			@SuppressWarnings("unchecked")
 			@Override
 			public void run() {
-				// wait for scheduler messages
-
-				for (SimulationFloorInputData floorInputData : (ArrayList<SimulationFloorInputData>) floorDataCollection
-						.clone()) {
-
-					ElevatorFloorRequest elevatorFloorRequest = new ElevatorFloorRequest(
-							floorInputData.getCurrentFloor(), floorInputData.getFloorDirectionButton(),
-							floorInputData.getInputDataId(), floorInputData.getFault(), floorInputData.getFaultFloor());
-
-					// Updating the floor properties(User interacting with the floor button)
-					int floorId = floorInputData.getCurrentFloor();
-					floors[floorId].pressFloorButton(floorInputData.getFloorDirectionButton());
+				ArrayList<SimulationFloorInputData> floorRequests = (ArrayList<SimulationFloorInputData>) floorDataCollection
+						.clone();
+				long[] replayTimesMilliseconds = getReplayTimesMilliseconds(floorRequests);
+
+				// Send each request at its arrival time in the trace, sped up
+				Clock clock = SubsystemExecutor.getClock();
+				long startTime = clock.nanoTime();
+				long maxLatenessNanoseconds = 0;
+				for (int i = 0; i < floorRequests.size(); i++) {
+					long sendTime = startTime + (long) (replayTimesMilliseconds[i] * 1_000_000 / replaySpeedUp);
+					long remainingNanoseconds;
+					while ((remainingNanoseconds = sendTime - clock.nanoTime()) > 0) {
+						LockSupport.parkNanos(remainingNanoseconds);
+					}
+					maxLatenessNanoseconds = Math.max(maxLatenessNanoseconds, -remainingNanoseconds);
 
 					// sending the job to the scheduler
 					try {
-						floorSchedulerUDP.sendMessage(elevatorFloorRequest);
-						Thread.sleep(SIMULATED_INPUT_DELAY_MS);
+						sendFloorRequest(floorRequests.get(i));
 					} catch (Exception e) {
-						// TODO Auto-generated catch block
 						e.printStackTrace();
 					}
 				}
 
+				logger.info("(FLOOR_SUBSYSTEM) Replayed " + floorRequests.size() + " requests at " + replaySpeedUp
+						+ "x, at most " + maxLatenessNanoseconds / 1_000_000 + "ms late");
 			}
-		}).start();
+		});
 
-		(new Thread() {
+		SubsystemExecutor.startLoop("FloorSubsystem-execution-time", new Runnable() {
 			@Override
 			public void run() {
-				long startTime = System.nanoTime();
-				while (true) {
-					synchronized (floorDataCollection) {
-						if (floorDataCollection.isEmpty()) {
-							break;
+				Clock clock = SubsystemExecutor.getClock();
+				long startTime = clock.nanoTime();
+				synchronized (floorDataCollection) {
+					while (!floorDataCollection.isEmpty()) {
+						try {
+							floorDataCollection.wait();
+						} catch (InterruptedException e) {
+							return;
 						}
 					}
 				}
 				/* … The code being measured ends … */
-				long endTime = System.nanoTime();
+				long endTime = clock.nanoTime();
 
 				// get the difference between the two nano time valuess
 				long timeElapsed = endTime - startTime;
 
 				logger.info("Execution time in milliseconds: " + timeElapsed / 1000000);
 			}
-		}).start();
+		});
+	}
+
+	/**
+	 * Schedule the requests of the input file on the simulation's timer, at their
+	 * arrival times in the trace. The virtual clock needs no speed up.
+	 */
+	private void scheduleFloorRequests() {
+		TaskTimer timer = SubsystemExecutor.getTimer(null);
+		synchronized (floorDataCollection) {
+			long[] replayTimesMilliseconds = getReplayTimesMilliseconds(floorDataCollection);
+			for (int i = 0; i < floorDataCollection.size(); i++) {
+				SimulationFloorInputData floorInputData = floorDataCollection.get(i);
+				timer.schedule(() -> sendFloorRequest(floorInputData), replayTimesMilliseconds[i]);
+			}
+		}
+	}
+
+	/**
+	 * Return the arrival times of the given requests, relative to the arrival of
+	 * the first one. An arrival time earlier than the one before it is taken to
+	 * be on the next day.
+	 *
+	 * @param floorRequests the requests, in the order of the input file
+	 * @return the arrival times, in milliseconds since the start of the trace
+	 */
+	public static long[] getReplayTimesMilliseconds(List<SimulationFloorInputData> floorRequests) {
+		long[] replayTimesMilliseconds = new long[floorRequests.size()];
+		long dayMilliseconds = 0;
+		for (int i = 0; i < floorRequests.size(); i++) {
+			long arrivalTimeMilliseconds = floorRequests.get(i).getArrivalTimeMilliseconds();
+			if (i > 0 && arrivalTimeMilliseconds < floorRequests.get(i - 1).getArrivalTimeMilliseconds()) {
+				dayMilliseconds += DAY_MILLISECONDS;
+			}
+			replayTimesMilliseconds[i] = arrivalTimeMilliseconds + dayMilliseconds
+					- floorRequests.get(0).getArrivalTimeMilliseconds();
+		}
+		return replayTimesMilliseconds;
+	}
+
+	/**
+	 * Set how many times faster than recorded the requests of the input file are
+	 * replayed, instead of the REPLAY_SPEED_UP_PROPERTY
+	 *
+	 * @param replaySpeedUp the speed up, such as 1, 10 or 100
+	 * @throws IllegalArgumentException if the speed up is not positive and finite
+	 */
+	public void setReplaySpeedUp(double replaySpeedUp) {
+		this.replaySpeedUp = validateReplaySpeedUp(replaySpeedUp);
+	}
+
+	/**
+	 * Validate a replay speed up. A speed up that is not positive and finite would
+	 * overflow the send times of the requests.
+	 *
+	 * @param replaySpeedUp the speed up
+	 * @return the speed up
+	 * @throws IllegalArgumentException if the speed up is not positive and finite
+	 */
+	public static double validateReplaySpeedUp(double replaySpeedUp) {
+		if (!(replaySpeedUp > 0) || Double.isInfinite(replaySpeedUp)) {
+			throw new IllegalArgumentException(
+					"The replay speed up must be positive and finite, not " + replaySpeedUp + ".");
+		}
+		return replaySpeedUp;
+	}
+
+	/**
+	 * Press the floor button of the given request and send the request to the
+	 * scheduler
+	 *
+	 * @param floorInputData the request
+	 */
+	private void sendFloorRequest(SimulationFloorInputData floorInputData) {
+		ElevatorFloorRequest elevatorFloorRequest = new ElevatorFloorRequest(floorInputData.getCurrentFloor(),
+				floorInputData.getFloorDirectionButton(), floorInputData.getInputDataId(), floorInputData.getFault(),
+				floorInputData.getFaultFloor());
+
+		// Updating the floor properties(User interacting with the floor button)
+		int floorId = floorInputData.getCurrentFloor();
+		floors[floorId].pressFloorButton(floorInputData.getFloorDirectionButton());
+
+		floorSchedulerUDP.sendAsync(elevatorFloorRequest);
+	}
+
+	/**
+	 * Return the number of requests of the input file not dropped off yet
+	 *
+	 * @return the number of requests
+	 */
+	public int getPendingRequestCount() {
+		synchronized (floorDataCollection) {
+			return floorDataCollection.size();
+		}
 	}
 
 	/**
@@ -203,7 +328,18 @@ public class FloorSubsystem {
 	 * @param workQueue
 	 */
 	private void setUpMessageQueueing(SubsystemCommunicationRPC communication, MessageWorkQueue workQueue) {
-		(new Thread() {
+		// In a simulation, the messages are handed over as they are delivered
+		if (SubsystemExecutor.isSimulated()) {
+			try {
+				communication.setReceiver(workQueue::enqueueMessage);
+			} catch (Exception e) {
+				System.out.println(e);
+				System.exit(1);
+			}
+			return;
+		}
+
+		SubsystemExecutor.startLoop("FloorSubsystem-receive", new Runnable() {
 			@Override
 			public void run() {
 				while (true) {
@@ -216,7 +352,7 @@ public class FloorSubsystem {
 					}
 				}
 			}
-		}).start();
+		});
 	}
 	
 	public static void main(String[] args) {
@@ -0,0 +1,28 @@
+/**
+ *
+ */
+package Scheduler;
+
+import common.messages.ElevatorJobMessage;
+
+/**
+ * This interface is a strategy choosing the elevator that serves a passenger
+ * pick up request.
+ *
+ * @author paulokenne
+ *
+ */
+public interface DispatchStrategy {
+
+	/**
+	 * Select the elevator to serve the given pick up job, among the elevators that
+	 * are ready for a job. The scheduler holds no lock while it selects, so the
+	 * strategy only sees snapshots of the elevators.
+	 *
+	 * @param elevators the snapshots of the elevators
+	 * @param job       the pick up job
+	 * @return the snapshot of the selected elevator, or null if no elevator is
+	 *         ready for a job
+	 */
+	ElevatorJobSnapshot selectElevator(ElevatorJobSnapshot[] elevators, ElevatorJobMessage job);
+}
@@ -1,8 +1,10 @@
 package Scheduler;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
 
@@ -10,6 +12,9 @@ import FloorSubsystem.FloorSubsystem;
 import common.Direction;
 import common.LoggerWrapper;
 import common.messages.ElevatorJobMessage;
+import common.messages.SchedulerElevatorTargetedMessage;
+import common.messages.scheduler.SchedulerElevatorCommand;
+import common.remote_procedure.SubsystemCommunicationRPC;
 
 /**
  * This class represents the job management for an elevator.
@@ -20,9 +25,9 @@ import common.messages.ElevatorJobMessage;
 public class ElevatorJobManagement {
 	private Logger logger = LoggerWrapper.getLogger();
 	/**
-	 * The elevator's jobs
+	 * The elevator's jobs, indexed by direction and floor
 	 */
-	private Set<ElevatorJobMessage> elevatorJobs = new HashSet<>();
+	private ElevatorJobStore elevatorJobs = new ElevatorJobStore();
 
 	/**
 	 * The elevator's current floor
@@ -56,6 +61,30 @@ public class ElevatorJobManagement {
 	 */
 	private boolean isRunningCommand = false;
 
+	/**
+	 * The target floor of the MOVE_TO command the elevator is running, or
+	 * SchedulerElevatorCommand.NO_TARGET_FLOOR
+	 */
+	private int tripTargetFloor = SchedulerElevatorCommand.NO_TARGET_FLOOR;
+
+	/**
+	 * The commands waiting to be sent to the elevator, in the order they were
+	 * decided
+	 */
+	private ArrayDeque<SchedulerElevatorTargetedMessage> outgoingCommands = new ArrayDeque<>();
+
+	/**
+	 * The snapshot of the last change, published for the dispatch strategies
+	 */
+	private volatile ElevatorJobSnapshot publishedSnapshot;
+
+	/**
+	 * A flag indicating whether the jobs changed since the last published
+	 * snapshot. Until they do, the next snapshot shares the stop masks of the last
+	 * one.
+	 */
+	private boolean areJobsChanged = true;
+
 	/**
 	 * THe constructor for ElevatorJobManagement
 	 *
@@ -63,6 +92,7 @@ public class ElevatorJobManagement {
 	 */
 	public ElevatorJobManagement(int elevatorId) {
 		this.elevatorId = elevatorId;
+		publishSnapshot();
 	}
 
 	/**
@@ -72,6 +102,8 @@ public class ElevatorJobManagement {
 	 */
 	public void addJob(ElevatorJobMessage elevatorJob) {
 		elevatorJobs.add(elevatorJob);
+		areJobsChanged = true;
+		publishSnapshot();
 	}
 
 	/**
@@ -89,12 +121,60 @@ public class ElevatorJobManagement {
 	}
 
 	/**
-	 * Return the elevator jobs
+	 * Queue a command to the elevator. Called under the lock of the elevator, so
+	 * the commands are queued in the order they are decided.
+	 *
+	 * @param command the command
+	 */
+	public void queueCommand(SchedulerElevatorTargetedMessage command) {
+		synchronized (outgoingCommands) {
+			outgoingCommands.add(command);
+		}
+	}
+
+	/**
+	 * Send the queued commands, in order, without taking the lock of the
+	 * elevator. The commands queued by the two scheduler work handlers are sent
+	 * one at a time, so they reach the elevator in the order they were decided.
+	 *
+	 * @param communication the scheduler elevator communication
+	 */
+	public void sendQueuedCommands(SubsystemCommunicationRPC communication) {
+		synchronized (outgoingCommands) {
+			SchedulerElevatorTargetedMessage command;
+			while ((command = outgoingCommands.poll()) != null) {
+				try {
+					communication.sendAsync(command);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the target floor of the MOVE_TO command the elevator is running, or
+	 *         SchedulerElevatorCommand.NO_TARGET_FLOOR
+	 */
+	public int getTripTargetFloor() {
+		return tripTargetFloor;
+	}
+
+	/**
+	 * @param tripTargetFloor the target floor of the MOVE_TO command the elevator
+	 *                        is running, or SchedulerElevatorCommand.NO_TARGET_FLOOR
+	 */
+	public void setTripTargetFloor(int tripTargetFloor) {
+		this.tripTargetFloor = tripTargetFloor;
+	}
+
+	/**
+	 * Return a read-only view of the elevator jobs
 	 *
 	 * @return the elevatorJobs
 	 */
 	public Set<ElevatorJobMessage> getElevatorJobs() {
-		return elevatorJobs;
+		return elevatorJobs.getJobs();
 	}
 
 	/**
@@ -139,7 +219,11 @@ public class ElevatorJobManagement {
 	 * @param elevatorDirection
 	 */
 	public void setElevatorDirection(Direction elevatorDirection) {
+		if (this.elevatorDirection == elevatorDirection) {
+			return;
+		}
 		this.elevatorDirection = elevatorDirection;
+		publishSnapshot();
 	}
 
 	/**
@@ -148,7 +232,11 @@ public class ElevatorJobManagement {
 	 * @param readyForJob the readyForJob to set
 	 */
 	public void setReadyForJob(boolean readyForJob) {
+		if (this.readyForJob == readyForJob) {
+			return;
+		}
 		this.readyForJob = readyForJob;
+		publishSnapshot();
 	}
 
 	/**
@@ -177,6 +265,7 @@ public class ElevatorJobManagement {
 	 *                         error
 	 */
 	public void setErrorState(Exception errorState, boolean isResolvingError) {
+		boolean wasReadyForJob = readyForJob;
 
 		if (isResolvingError == false) {
 			if (errorState != null) {
@@ -191,8 +280,12 @@ public class ElevatorJobManagement {
 		// If the elevator is resolving an error, we will leave the elevator in-service
 		// flag (readyForJob) as is.
 
-		// Set the error state
+		// Set the error state. The dispatch strategies do not read it, so a snapshot
+		// is only published when the in-service flag changes.
 		this.errorState = errorState;
+		if (readyForJob != wasReadyForJob) {
+			publishSnapshot();
+		}
 	}
 
 	/**
@@ -203,28 +296,7 @@ public class ElevatorJobManagement {
 	 *
 	 */
 	public int getLargestDestinationFloorInElevatorDirection() {
-		if (elevatorJobs.isEmpty()) {
-			return -1;
-		}
-
-		int largestDestinationFloor = -1;
-
-		Iterator<ElevatorJobMessage> elevatorJobsIterator = elevatorJobs.iterator();
-
-		while (elevatorJobsIterator.hasNext()) {
-			ElevatorJobMessage currentelevatorJob = elevatorJobsIterator.next();
-			int jobDestinationFloor = currentelevatorJob.getDestinationFloor();
-
-			// Find jobs that are in same direction as the elevator. We will
-			// then check that the job destination floor is above than the current
-			// largest destination floor. If so, we will replace the current smallest
-			// destination floor.
-			if (currentelevatorJob.getDirection() == elevatorDirection
-					&& jobDestinationFloor > largestDestinationFloor) {
-				largestDestinationFloor = jobDestinationFloor;
-			}
-		}
-		return largestDestinationFloor;
+		return elevatorJobs.getLargestFloor(elevatorDirection);
 	}
 
 	/**
@@ -239,24 +311,103 @@ public class ElevatorJobManagement {
 			return -1;
 		}
 
-		int smallestDestinationFloor = FloorSubsystem.NUMBER_OF_FLOORS;
+		// Without jobs in the elevator direction, the number of floors is returned
+		int smallestDestinationFloor = elevatorJobs.getSmallestFloor(elevatorDirection);
+		return smallestDestinationFloor == -1 ? FloorSubsystem.NUMBER_OF_FLOORS : smallestDestinationFloor;
+	}
 
-		Iterator<ElevatorJobMessage> elevatorJobsIterator = elevatorJobs.iterator();
-		while (elevatorJobsIterator.hasNext()) {
-			ElevatorJobMessage currentelevatorJob = elevatorJobsIterator.next();
-			int jobDestinationFloor = currentelevatorJob.getDestinationFloor();
+	/**
+	 * Get the nearest target floor of the jobs in the elevator direction: the
+	 * nearest one ahead of the elevator, or else the nearest one behind it.
+	 *
+	 * @return the nearest target floor, or -1 if there are no jobs in the elevator
+	 *         direction
+	 */
+	public int getNearestTargetFloor() {
+		int nearestTargetFloor = -1;
+		switch (elevatorDirection) {
+
+		case UP:
+			nearestTargetFloor = elevatorJobs.getFloorAtOrAbove(Direction.UP, currentFloorNumber);
+			if (nearestTargetFloor == -1) {
+				nearestTargetFloor = elevatorJobs.getFloorAtOrBelow(Direction.UP, currentFloorNumber);
+			}
+			break;
 
-			// Find jobs that are in same direction as the elevator. We will
-			// then check that the job destination floor is smaller than the current
-			// smallest destination floor. If so, we will replace the current smallest
-			// destination floor.
-			if (currentelevatorJob.getDirection() == elevatorDirection
-					&& jobDestinationFloor < smallestDestinationFloor) {
-				smallestDestinationFloor = jobDestinationFloor;
+		case DOWN:
+			nearestTargetFloor = elevatorJobs.getFloorAtOrBelow(Direction.DOWN, currentFloorNumber);
+			if (nearestTargetFloor == -1) {
+				nearestTargetFloor = elevatorJobs.getFloorAtOrAbove(Direction.DOWN, currentFloorNumber);
 			}
+			break;
+
+		default:
+			break;
+		}
+
+		return nearestTargetFloor;
+	}
+
+	/**
+	 * Take an immutable snapshot of the elevator for the dispatch strategies. The
+	 * caller must hold the lock of this job management.
+	 *
+	 * @return the snapshot
+	 */
+	public ElevatorJobSnapshot snapshot() {
+		return snapshot(copyStopMasks());
+	}
+
+	/**
+	 * Take a snapshot of the elevator with the given stop masks
+	 *
+	 * @param stopMasks the stop masks, never modified afterwards
+	 * @return the snapshot
+	 */
+	private ElevatorJobSnapshot snapshot(Map<Direction, BitSet> stopMasks) {
+		return new ElevatorJobSnapshot(elevatorId, currentFloorNumber, elevatorDirection, readyForJob,
+				elevatorJobs.size(), stopMasks);
+	}
+
+	/**
+	 * Copy the stop masks of the jobs of each direction
+	 *
+	 * @return the copies
+	 */
+	private Map<Direction, BitSet> copyStopMasks() {
+		EnumMap<Direction, BitSet> stopMasks = new EnumMap<>(Direction.class);
+		for (Direction direction : Direction.values()) {
+			stopMasks.put(direction, elevatorJobs.copyStopMask(direction));
 		}
+		return stopMasks;
+	}
 
-		return smallestDestinationFloor;
+	/**
+	 * Publish a snapshot of the elevator's current state, for the dispatch
+	 * strategies to read without taking the lock. Every change the dispatch
+	 * strategies see is published, under the lock of the change; the setters
+	 * do not publish a value that did not change.
+	 *
+	 * The stop masks are only copied when the jobs changed, so the status
+	 * messages, which move the elevator without changing its jobs, do not copy
+	 * them.
+	 */
+	private void publishSnapshot() {
+		if (areJobsChanged || publishedSnapshot == null) {
+			publishedSnapshot = snapshot(copyStopMasks());
+			areJobsChanged = false;
+		} else {
+			publishedSnapshot = snapshot(publishedSnapshot.getStopMasks());
+		}
+	}
+
+	/**
+	 * Get the last published snapshot. No lock is needed.
+	 *
+	 * @return the published snapshot
+	 */
+	public ElevatorJobSnapshot getPublishedSnapshot() {
+		return publishedSnapshot;
 	}
 
 	/**
@@ -268,19 +419,7 @@ public class ElevatorJobManagement {
 	 * @return the jobs at a given floor number
 	 */
 	public ArrayList<ElevatorJobMessage> getPrimaryJobsAtFloor(int floorNumber) {
-		ArrayList<ElevatorJobMessage> jobsAtFloorNumber = new ArrayList<>();
-
-		Iterator<ElevatorJobMessage> elevatorJobsIterator = elevatorJobs.iterator();
-
-		while (elevatorJobsIterator.hasNext()) {
-			ElevatorJobMessage currentelevatorJob = elevatorJobsIterator.next();
-
-			if (currentelevatorJob.getDestinationFloor() == floorNumber) {
-				jobsAtFloorNumber.add(currentelevatorJob);
-			}
-		}
-
-		return jobsAtFloorNumber;
+		return elevatorJobs.getJobsAtFloor(floorNumber);
 	}
 
 	/**
@@ -289,7 +428,14 @@ public class ElevatorJobManagement {
 	 * @param ElevatorJobMessage
 	 */
 	public void removeJobs(ArrayList<ElevatorJobMessage> jobs) {
-		elevatorJobs.removeAll(jobs);
+		if (jobs.isEmpty()) {
+			return;
+		}
+		for (ElevatorJobMessage job : jobs) {
+			elevatorJobs.remove(job);
+		}
+		areJobsChanged = true;
+		publishSnapshot();
 	}
 
 	/**
@@ -307,7 +453,11 @@ public class ElevatorJobManagement {
 	 * @param currentFloorNumber the currentFloorNumber to set
 	 */
 	public void setCurrentFloorNumber(int currentFloorNumber) {
+		if (this.currentFloorNumber == currentFloorNumber) {
+			return;
+		}
 		this.currentFloorNumber = currentFloorNumber;
+		publishSnapshot();
 	}
 
 	/**
@@ -318,7 +468,7 @@ public class ElevatorJobManagement {
 	 * @return true if the elevator has primary jobs; otherwise, return false
 	 */
 	public boolean hasPrimaryJobs() {
-		return elevatorJobs.stream().anyMatch(elevatorJobs -> elevatorJobs.getDirection() == elevatorDirection);
+		return elevatorJobs.getNumberOfJobs(elevatorDirection) > 0;
 	}
 
 	/**
@@ -348,7 +498,7 @@ public class ElevatorJobManagement {
 		}
 
 		// Return true if we have secondary jobs
-		return elevatorJobs.stream().anyMatch(elevatorJobs -> elevatorJobs.getDirection() == oppositeElevatorDirection);
+		return elevatorJobs.getNumberOfJobs(oppositeElevatorDirection) > 0;
 	}
 
 	/**
@@ -379,8 +529,7 @@ public class ElevatorJobManagement {
 	 * @return the number of primary jobs
 	 */
 	public int getNumberOfPrimaryJobs() {
-		return (int) elevatorJobs.stream().filter(elevatorJobs -> elevatorJobs.getDirection() == elevatorDirection)
-				.count();
+		return elevatorJobs.getNumberOfJobs(elevatorDirection);
 	}
 
 	/**
@@ -0,0 +1,159 @@
+/**
+ *
+ */
+package Scheduler;
+
+import java.util.BitSet;
+import java.util.Map;
+
+import common.Direction;
+
+/**
+ * This class is an immutable snapshot of the state of an elevator job
+ * management that the dispatch strategies score: the position, direction and
+ * readiness of the elevator, and the stop masks of its jobs.
+ *
+ * As a snapshot never changes, the elevators can be scored in parallel and
+ * without holding their locks.
+ *
+ * @author paulokenne
+ *
+ */
+public final class ElevatorJobSnapshot {
+
+	/**
+	 * The elevator id
+	 */
+	private final int elevatorId;
+
+	/**
+	 * The elevator's current floor
+	 */
+	private final int currentFloorNumber;
+
+	/**
+	 * The direction the elevator plans to travel
+	 */
+	private final Direction elevatorDirection;
+
+	/**
+	 * A flag indicating whether the elevator is ready for a job
+	 */
+	private final boolean readyForJob;
+
+	/**
+	 * The number of jobs
+	 */
+	private final int numberOfJobs;
+
+	/**
+	 * The stop masks of the jobs of each direction, never modified
+	 */
+	private final Map<Direction, BitSet> stopMasks;
+
+	/**
+	 * The ElevatorJobSnapshot constructor
+	 *
+	 * @param elevatorId         the elevator id
+	 * @param currentFloorNumber the elevator's current floor
+	 * @param elevatorDirection  the direction the elevator plans to travel
+	 * @param readyForJob        a flag indicating whether the elevator is ready for
+	 *                           a job
+	 * @param numberOfJobs       the number of jobs
+	 * @param stopMasks          copies of the stop masks of each direction
+	 */
+	ElevatorJobSnapshot(int elevatorId, int currentFloorNumber, Direction elevatorDirection, boolean readyForJob,
+			int numberOfJobs, Map<Direction, BitSet> stopMasks) {
+		this.elevatorId = elevatorId;
+		this.currentFloorNumber = currentFloorNumber;
+		this.elevatorDirection = elevatorDirection;
+		this.readyForJob = readyForJob;
+		this.numberOfJobs = numberOfJobs;
+		this.stopMasks = stopMasks;
+	}
+
+	/**
+	 * Get the stop masks, for a newer snapshot of the same jobs to share
+	 *
+	 * @return the stop masks, which must not be modified
+	 */
+	Map<Direction, BitSet> getStopMasks() {
+		return stopMasks;
+	}
+
+	/**
+	 * @return the elevator id
+	 */
+	public int getElevatorId() {
+		return elevatorId;
+	}
+
+	/**
+	 * @return the elevator's current floor
+	 */
+	public int getCurrentFloorNumber() {
+		return currentFloorNumber;
+	}
+
+	/**
+	 * @return the direction the elevator plans to travel
+	 */
+	public Direction getElevatorDirection() {
+		return elevatorDirection;
+	}
+
+	/**
+	 * @return true if the elevator is ready for a job
+	 */
+	public boolean isReadyForJob() {
+		return readyForJob;
+	}
+
+	/**
+	 * @return true if the elevator is running a job
+	 */
+	public boolean isRunningJob() {
+		return elevatorDirection != Direction.IDLE;
+	}
+
+	/**
+	 * @return the number of jobs
+	 */
+	public int getNumberOfJobs() {
+		return numberOfJobs;
+	}
+
+	/**
+	 * Get the smallest destination floor of the jobs of the given direction
+	 *
+	 * @param direction the direction
+	 * @return the smallest destination floor, or -1 if there are no such jobs
+	 */
+	public int getSmallestDestinationFloor(Direction direction) {
+		return stopMasks.get(direction).nextSetBit(0);
+	}
+
+	/**
+	 * Get the largest destination floor of the jobs of the given direction
+	 *
+	 * @param direction the direction
+	 * @return the largest destination floor, or -1 if there are no such jobs
+	 */
+	public int getLargestDestinationFloor(Direction direction) {
+		return stopMasks.get(direction).length() - 1;
+	}
+
+	/**
+	 * Get the number of floors between the given floors, both included, where the
+	 * elevator stops for jobs of the given direction
+	 *
+	 * @param direction the direction
+	 * @param fromFloor one end of the floors
+	 * @param toFloor   the other end of the floors
+	 * @return the number of stops
+	 */
+	public int getNumberOfStopsBetween(Direction direction, int fromFloor, int toFloor) {
+		return ElevatorJobStore.countStops(stopMasks.get(direction), Math.min(fromFloor, toFloor),
+				Math.max(fromFloor, toFloor));
+	}
+}
@@ -0,0 +1,247 @@
+/**
+ *
+ */
+package Scheduler;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import FloorSubsystem.FloorSubsystem;
+import common.Direction;
+import common.messages.ElevatorJobMessage;
+
+/**
+ * This class stores the jobs of an elevator indexed by direction and floor.
+ *
+ * The jobs of each direction are kept in buckets by floor, with a stop mask
+ * holding one bit per floor that has jobs. The nearest floor with jobs above or
+ * below any floor is a nextSetBit or previousSetBit of the mask, which scans a
+ * word per 64 floors and allocates nothing, and the jobs at a floor are found
+ * in O(1) per direction, without scanning every job. The number of jobs of each
+ * direction is maintained as the jobs are added and removed.
+ *
+ * @author paulokenne
+ *
+ */
+public class ElevatorJobStore {
+
+	/**
+	 * The directions, indexed by ordinal
+	 */
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	/**
+	 * The jobs
+	 */
+	private Set<ElevatorJobMessage> jobs = new HashSet<>();
+
+	/**
+	 * A read-only view of the jobs
+	 */
+	private Set<ElevatorJobMessage> jobsView = Collections.unmodifiableSet(jobs);
+
+	/**
+	 * The jobs of each direction, by floor
+	 */
+	private Map<Direction, Map<Integer, Set<ElevatorJobMessage>>> jobsByFloor = new EnumMap<>(Direction.class);
+
+	/**
+	 * The stop mask of each direction, with the bits of the floors that have jobs
+	 */
+	private Map<Direction, BitSet> stopMasks = new EnumMap<>(Direction.class);
+
+	/**
+	 * The number of jobs of each direction, indexed by direction ordinal
+	 */
+	private int[] jobCounts = new int[DIRECTIONS.length];
+
+	/**
+	 * The ElevatorJobStore constructor
+	 */
+	public ElevatorJobStore() {
+		for (Direction direction : DIRECTIONS) {
+			jobsByFloor.put(direction, new HashMap<>());
+			stopMasks.put(direction, new BitSet(FloorSubsystem.NUMBER_OF_FLOORS));
+		}
+	}
+
+	/**
+	 * Add a job, unless an equal job is already stored
+	 *
+	 * @param job the job
+	 * @return true if the job was added
+	 */
+	public boolean add(ElevatorJobMessage job) {
+		if (!jobs.add(job)) {
+			return false;
+		}
+
+		jobsByFloor.get(job.getDirection()).computeIfAbsent(job.getDestinationFloor(), floor -> new LinkedHashSet<>())
+				.add(job);
+		stopMasks.get(job.getDirection()).set(job.getDestinationFloor());
+		jobCounts[job.getDirection().ordinal()]++;
+		return true;
+	}
+
+	/**
+	 * Remove a job
+	 *
+	 * @param job the job
+	 * @return true if the job was stored
+	 */
+	public boolean remove(ElevatorJobMessage job) {
+		if (!jobs.remove(job)) {
+			return false;
+		}
+
+		Map<Integer, Set<ElevatorJobMessage>> directionJobs = jobsByFloor.get(job.getDirection());
+		Set<ElevatorJobMessage> floorJobs = directionJobs.get(job.getDestinationFloor());
+		floorJobs.remove(job);
+		if (floorJobs.isEmpty()) {
+			directionJobs.remove(job.getDestinationFloor());
+			stopMasks.get(job.getDirection()).clear(job.getDestinationFloor());
+		}
+		jobCounts[job.getDirection().ordinal()]--;
+		return true;
+	}
+
+	/**
+	 * Return the jobs at the given floor, whatever their direction
+	 *
+	 * @param floorNumber the floor number
+	 * @return the jobs at the floor
+	 */
+	public ArrayList<ElevatorJobMessage> getJobsAtFloor(int floorNumber) {
+		ArrayList<ElevatorJobMessage> floorJobs = new ArrayList<>();
+		for (Direction direction : DIRECTIONS) {
+			Set<ElevatorJobMessage> directionFloorJobs = jobsByFloor.get(direction).get(floorNumber);
+			if (directionFloorJobs != null) {
+				floorJobs.addAll(directionFloorJobs);
+			}
+		}
+		return floorJobs;
+	}
+
+	/**
+	 * Return the smallest destination floor of the jobs of the given direction
+	 *
+	 * @param direction the direction
+	 * @return the smallest floor, or -1 if the direction has no jobs
+	 */
+	public int getSmallestFloor(Direction direction) {
+		return stopMasks.get(direction).nextSetBit(0);
+	}
+
+	/**
+	 * Return the largest destination floor of the jobs of the given direction
+	 *
+	 * @param direction the direction
+	 * @return the largest floor, or -1 if the direction has no jobs
+	 */
+	public int getLargestFloor(Direction direction) {
+		return stopMasks.get(direction).length() - 1;
+	}
+
+	/**
+	 * Return the nearest destination floor at or above the given floor of the jobs
+	 * of the given direction
+	 *
+	 * @param direction   the direction
+	 * @param floorNumber the floor number
+	 * @return the floor, or -1 if there is none
+	 */
+	public int getFloorAtOrAbove(Direction direction, int floorNumber) {
+		return stopMasks.get(direction).nextSetBit(Math.max(0, floorNumber));
+	}
+
+	/**
+	 * Return the nearest destination floor at or below the given floor of the jobs
+	 * of the given direction
+	 *
+	 * @param direction   the direction
+	 * @param floorNumber the floor number
+	 * @return the floor, or -1 if there is none
+	 */
+	public int getFloorAtOrBelow(Direction direction, int floorNumber) {
+		return floorNumber < 0 ? -1 : stopMasks.get(direction).previousSetBit(floorNumber);
+	}
+
+	/**
+	 * Return the number of floors between the given floors, both included, with
+	 * jobs of the given direction
+	 *
+	 * @param direction the direction
+	 * @param lowFloor  the lowest floor
+	 * @param highFloor the highest floor
+	 * @return the number of floors with jobs
+	 */
+	public int getNumberOfStops(Direction direction, int lowFloor, int highFloor) {
+		return countStops(stopMasks.get(direction), lowFloor, highFloor);
+	}
+
+	/**
+	 * Return a copy of the stop mask of the given direction
+	 *
+	 * @param direction the direction
+	 * @return the copy of the stop mask
+	 */
+	public BitSet copyStopMask(Direction direction) {
+		return (BitSet) stopMasks.get(direction).clone();
+	}
+
+	/**
+	 * Return the number of floors between the given floors, both included, set in
+	 * the given stop mask
+	 *
+	 * @param stopMask  the stop mask
+	 * @param lowFloor  the lowest floor
+	 * @param highFloor the highest floor
+	 * @return the number of floors set
+	 */
+	static int countStops(BitSet stopMask, int lowFloor, int highFloor) {
+		int numberOfStops = 0;
+		for (int floor = stopMask.nextSetBit(Math.max(0, lowFloor)); floor >= 0
+				&& floor <= highFloor; floor = stopMask.nextSetBit(floor + 1)) {
+			numberOfStops++;
+		}
+		return numberOfStops;
+	}
+
+	/**
+	 * Return the number of jobs of the given direction
+	 *
+	 * @param direction the direction
+	 * @return the number of jobs
+	 */
+	public int getNumberOfJobs(Direction direction) {
+		return jobCounts[direction.ordinal()];
+	}
+
+	/**
+	 * @return the number of jobs
+	 */
+	public int size() {
+		return jobs.size();
+	}
+
+	/**
+	 * @return true if there are no jobs
+	 */
+	public boolean isEmpty() {
+		return jobs.isEmpty();
+	}
+
+	/**
+	 * @return a read-only view of the jobs
+	 */
+	public Set<ElevatorJobMessage> getJobs() {
+		return jobsView;
+	}
+}
@@ -0,0 +1,142 @@
+/**
+ *
+ */
+package Scheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import common.messages.Message;
+import common.messages.MessageType;
+import common.messages.elevator.ElevatorStatusMessage;
+import common.messages.elevator.ElevatorTransportRequest;
+
+/**
+ * This class collapses the stale elevator status messages of a batch. When an
+ * elevator is backlogged, a status message followed by a newer status of the
+ * same elevator only carries a floor and direction that the newer one
+ * overwrites.
+ *
+ * A status message is only collapsed when it does not ask the scheduler to
+ * issue the next command, carries no error and is not resolving one, and the
+ * newer status updates at least as much: a GUI-only status never replaces one
+ * that updates the scheduler. A job for the elevator between the two keeps the
+ * older status, as the job is handled against it.
+ *
+ * These rules need the messages of an elevator in the order they arrived: the
+ * MessageWorkQueue keeps the status messages and drop off requests of an
+ * elevator in that order, whatever their lanes.
+ *
+ * @author paulokenne
+ *
+ */
+public class ElevatorStatusCoalescer {
+
+	/**
+	 * The newest kept status message of each elevator, from the end of the batch
+	 * back to the message being looked at
+	 */
+	private HashMap<Integer, ElevatorStatusMessage> newerStatusMessages = new HashMap<>();
+
+	/**
+	 * The flags indicating which messages of the batch are collapsed
+	 */
+	private boolean[] isCollapsed = new boolean[0];
+
+	/**
+	 * The kept messages of the batch
+	 */
+	private ArrayList<Message> coalescedMessages = new ArrayList<>();
+
+	/**
+	 * The number of status messages collapsed
+	 */
+	private volatile long collapsedMessages = 0;
+
+	/**
+	 * The number of GUI-only status messages collapsed
+	 */
+	private volatile long collapsedGUIOnlyMessages = 0;
+
+	/**
+	 * Return the messages of the batch that are not collapsed, in their order.
+	 * The returned list is reused by the next call.
+	 *
+	 * @param messages the batch of messages
+	 * @return the kept messages
+	 */
+	public List<Message> coalesce(List<Message> messages) {
+		if (isCollapsed.length < messages.size()) {
+			isCollapsed = new boolean[messages.size()];
+		}
+		newerStatusMessages.clear();
+
+		boolean hasCollapsedMessages = false;
+		for (int i = messages.size() - 1; i >= 0; i--) {
+			Message message = messages.get(i);
+			isCollapsed[i] = false;
+
+			if (message.getMessageType() == MessageType.ELEVATOR_STATUS_MESSAGE) {
+				ElevatorStatusMessage statusMessage = (ElevatorStatusMessage) message;
+				ElevatorStatusMessage newerStatusMessage = newerStatusMessages.get(statusMessage.getElevatorId());
+
+				if (newerStatusMessage != null && isCollapsible(statusMessage)
+						&& (statusMessage.isGUIOnly() || !newerStatusMessage.isGUIOnly())) {
+					isCollapsed[i] = true;
+					hasCollapsedMessages = true;
+					collapsedMessages++;
+					if (statusMessage.isGUIOnly()) {
+						collapsedGUIOnlyMessages++;
+					}
+				} else {
+					newerStatusMessages.put(statusMessage.getElevatorId(), statusMessage);
+				}
+
+			} else if (message instanceof ElevatorTransportRequest) {
+				newerStatusMessages.remove(((ElevatorTransportRequest) message).getElevatorId());
+			} else {
+				// The message may concern any elevator
+				newerStatusMessages.clear();
+			}
+		}
+
+		if (!hasCollapsedMessages) {
+			return messages;
+		}
+
+		coalescedMessages.clear();
+		for (int i = 0; i < messages.size(); i++) {
+			if (!isCollapsed[i]) {
+				coalescedMessages.add(messages.get(i));
+			}
+		}
+		return coalescedMessages;
+	}
+
+	/**
+	 * Return whether the given status message may be replaced by a newer status
+	 * of the same elevator
+	 *
+	 * @param statusMessage the status message
+	 * @return true if the message may be collapsed
+	 */
+	private boolean isCollapsible(ElevatorStatusMessage statusMessage) {
+		return !statusMessage.shouldIssueNextCommand() && statusMessage.getErrorState() == null
+				&& !statusMessage.isResolvingError();
+	}
+
+	/**
+	 * @return the number of status messages collapsed
+	 */
+	public long getCollapsedMessages() {
+		return collapsedMessages;
+	}
+
+	/**
+	 * @return the number of GUI-only status messages collapsed
+	 */
+	public long getCollapsedGUIOnlyMessages() {
+		return collapsedGUIOnlyMessages;
+	}
+}
@@ -0,0 +1,89 @@
+/**
+ *
+ */
+package Scheduler;
+
+import common.messages.ElevatorJobMessage;
+
+/**
+ * This class is the dispatch strategy that assigns jobs to the most free and
+ * closest elevator: among the elevators going in the direction of the job, or
+ * idle, the one with the fewest jobs, and then the closest one.
+ *
+ * @author paulokenne
+ *
+ */
+public class LoadBalancingDispatchStrategy implements DispatchStrategy {
+
+	@Override
+	public ElevatorJobSnapshot selectElevator(ElevatorJobSnapshot[] elevators, ElevatorJobMessage job) {
+
+		// We will assume that the first in-service elevator we find is the most free
+		// and closest elevator. We will then iterate through the elevators, comparing
+		// them to find the ideal elevator.
+		ElevatorJobSnapshot assumedBestElevator = null;
+		for (int i = 0; i < elevators.length; i++) {
+
+			if (elevators[i].isReadyForJob()) {
+				assumedBestElevator = elevators[i];
+				break;
+			}
+		}
+
+		if (assumedBestElevator == null) {
+			return null;
+		}
+
+		// Going through the elevators to find the ideal elevator
+		for (int i = 0; i < elevators.length; i++) {
+			ElevatorJobSnapshot currentElevator = elevators[i];
+
+			// If the current elevator is not ready for a job, there is no
+			// reason to compare it with the assumed best elevator
+			if (!currentElevator.isReadyForJob())
+				continue;
+
+			boolean doesCurrentElevatorHaveEqualJobs = currentElevator
+					.getNumberOfJobs() == assumedBestElevator.getNumberOfJobs();
+			boolean doesCurrentElevatorHaveLessJobs = currentElevator
+					.getNumberOfJobs() < assumedBestElevator.getNumberOfJobs();
+
+			boolean isCurrentElevatorInValidDirection = !currentElevator.isRunningJob()
+					|| currentElevator.getElevatorDirection() == job.getDirection();
+			boolean isAssumedBestElevatorInValidDirection = !assumedBestElevator.isRunningJob()
+					|| assumedBestElevator.getElevatorDirection() == job.getDirection();
+
+			int currentElevatorFloorDistance = Math
+					.abs(currentElevator.getCurrentFloorNumber() - job.getDestinationFloor());
+			int assumedBestFloorDistance = Math
+					.abs(assumedBestElevator.getCurrentFloorNumber() - job.getDestinationFloor());
+			boolean isCurrentElevatorFloorDistanceSmaller = currentElevatorFloorDistance < assumedBestFloorDistance;
+
+			// If the assumed best elevator is not going in a valid direction and the
+			// current elevator is, we will change the assumed best elevator
+			if (!isAssumedBestElevatorInValidDirection && isCurrentElevatorInValidDirection) {
+				assumedBestElevator = currentElevator;
+			}
+
+			// If we both elevators have valid directions, we change the assumed best
+			// elevator based on other factors
+			else if (isAssumedBestElevatorInValidDirection && isCurrentElevatorInValidDirection) {
+
+				// if the current elevator is less busy, we will change the assumed best
+				// elevator
+				if (doesCurrentElevatorHaveLessJobs) {
+					assumedBestElevator = currentElevator;
+				}
+				// if the current elevator is equally busy, we will change the assumed best
+				// elevator if the current elevator is closer.
+				else if (doesCurrentElevatorHaveEqualJobs && isCurrentElevatorFloorDistanceSmaller) {
+					assumedBestElevator = currentElevator;
+				}
+
+			}
+
+		}
+
+		return assumedBestElevator;
+	}
+}
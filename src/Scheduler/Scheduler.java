@@ -8,6 +8,7 @@ import common.messages.Message;
 import common.remote_procedure.SubsystemCommunicationRPC;
 import common.remote_procedure.SubsystemComponentType;
 import common.work_management.MessageWorkQueue;
+import common.work_management.SubsystemExecutor;
 
 /**
  * This represents the scheduler which manages the elevator and floor subsystem.
@@ -46,9 +47,35 @@ public class Scheduler {
 	private SchedulerFloorWorkHandler schedulerFloorWorkhandler;
 
 	/**
-	 * The Scheduler constructor
+	 * The Scheduler constructor, assigning the pick up requests to the most free
+	 * and closest elevator
 	 */
 	public Scheduler(int numberOfElevators) {
+		this(numberOfElevators, new LoadBalancingDispatchStrategy());
+	}
+
+	/**
+	 * The Scheduler constructor
+	 *
+	 * @param numberOfElevators the number of elevators
+	 * @param dispatchStrategy  the strategy choosing the elevator of a pick up
+	 *                          request
+	 */
+	public Scheduler(int numberOfElevators, DispatchStrategy dispatchStrategy) {
+		this(numberOfElevators, dispatchStrategy, false);
+	}
+
+	/**
+	 * The Scheduler constructor
+	 *
+	 * @param numberOfElevators     the number of elevators
+	 * @param dispatchStrategy      the strategy choosing the elevator of a pick up
+	 *                              request
+	 * @param isMovingToTargetFloor true to send the elevators to their target
+	 *                              floors with a single MOVE_TO command, false to
+	 *                              move them a floor at a time
+	 */
+	public Scheduler(int numberOfElevators, DispatchStrategy dispatchStrategy, boolean isMovingToTargetFloor) {
 
 		elevatorJobManagements = new ElevatorJobManagement[numberOfElevators];
 		for (int i = 0; i < elevatorJobManagements.length; i++) {
@@ -59,7 +86,10 @@ public class Scheduler {
 				schedulerElevatorCommunication, elevatorJobManagements);
 
 		this.schedulerFloorWorkhandler = new SchedulerFloorWorkHandler(schedulerFloorCommunication,
-				schedulerElevatorCommunication, elevatorJobManagements);
+				schedulerElevatorCommunication, elevatorJobManagements, dispatchStrategy);
+
+		schedulerElevatorWorkHandler.setMovingToTargetFloor(isMovingToTargetFloor);
+		schedulerFloorWorkhandler.setMovingToTargetFloor(isMovingToTargetFloor);
 	}
 
 
@@ -78,7 +108,18 @@ public class Scheduler {
 	 * @param workQueue
 	 */
 	private void setUpMessageQueueing(SubsystemCommunicationRPC communication, MessageWorkQueue workQueue) {
-		(new Thread() {
+		// In a simulation, the messages are handed over as they are delivered
+		if (SubsystemExecutor.isSimulated()) {
+			try {
+				communication.setReceiver(workQueue::enqueueMessage);
+			} catch (Exception e) {
+				System.out.println(e);
+				System.exit(1);
+			}
+			return;
+		}
+
+		SubsystemExecutor.startLoop("Scheduler-receive", new Runnable() {
 			@Override
 			public void run() {
 				while (true) {
@@ -91,6 +132,6 @@ public class Scheduler {
 					}
 				}
 			}
-		}).start();
+		});
 	}
 }
@@ -3,6 +3,7 @@
  */
 package Scheduler;
 
+import java.util.List;
 import java.util.logging.Logger;
 
 import common.LoggerWrapper;
@@ -10,6 +11,7 @@ import common.messages.ElevatorJobMessage;
 import common.messages.Message;
 import common.messages.elevator.ElevatorStatusMessage;
 import common.messages.elevator.ElevatorTransportRequest;
+import common.messages.scheduler.SchedulerElevatorCommand;
 import common.remote_procedure.SubsystemCommunicationRPC;
 import common.remote_procedure.SubsystemComponentType;
 
@@ -26,6 +28,11 @@ public class SchedulerElevatorWorkHandler extends SchedulerWorkHandler {
 	private SubsystemCommunicationRPC schedulerGUICommunication = new SubsystemCommunicationRPC(
 			SubsystemComponentType.SCHEDULER, SubsystemComponentType.GUI);
 
+	/**
+	 * The coalescer of the stale status messages in a batch
+	 */
+	private ElevatorStatusCoalescer statusCoalescer = new ElevatorStatusCoalescer();
+
 	/**
 	 * The SchedulerFloorMessageWorkQueue constructor
 	 *
@@ -39,6 +46,32 @@ public class SchedulerElevatorWorkHandler extends SchedulerWorkHandler {
 		super(schedulerFloorCommunication, schedulerElevatorCommunication, elevatorJobManagements);
 	}
 
+	/**
+	 * Handle a batch of messages, after collapsing its stale status messages. Each
+	 * message only takes the lock of the elevator it is about, so a flood of
+	 * status messages does not hold back the dispatch of the other elevators.
+	 *
+	 * @param messages the batch of messages
+	 */
+	@Override
+	protected void handleBatch(List<Message> messages) {
+		super.handleBatch(statusCoalescer.coalesce(messages));
+	}
+
+	/**
+	 * @return the number of stale status messages collapsed
+	 */
+	public long getCollapsedStatusMessages() {
+		return statusCoalescer.getCollapsedMessages();
+	}
+
+	/**
+	 * @return the number of stale GUI-only status messages collapsed
+	 */
+	public long getCollapsedGUIOnlyStatusMessages() {
+		return statusCoalescer.getCollapsedGUIOnlyMessages();
+	}
+
 	@Override
 	protected void handleMessage(Message message) {
 
@@ -46,23 +79,24 @@ public class SchedulerElevatorWorkHandler extends SchedulerWorkHandler {
 		switch (message.getMessageType()) {
 
 		case ELEVATOR_STATUS_MESSAGE:
-			synchronized (elevatorJobManagements) {
 
-				// Send the status message received to the GUI
-				try {
-					schedulerGUICommunication.sendMessage(message);
-				} catch (Exception e) {
-					e.printStackTrace();
-				}
+			// Send the status message received to the GUI
+			try {
+				schedulerGUICommunication.sendAsync(message);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
 
-				ElevatorStatusMessage elevatorStatusMessage = (ElevatorStatusMessage) message;
+			ElevatorStatusMessage elevatorStatusMessage = (ElevatorStatusMessage) message;
 
-				// Do not proceed if the status message is solely for the GUI
-				if (elevatorStatusMessage.isGUIOnly()) {
-					return;
-				}
+			// Do not proceed if the status message is solely for the GUI
+			if (elevatorStatusMessage.isGUIOnly()) {
+				return;
+			}
+
+			elevatorId = elevatorStatusMessage.getElevatorId();
 
-				elevatorId = elevatorStatusMessage.getElevatorId();
+			synchronized (elevatorJobManagements[elevatorId]) {
 
 				elevatorJobManagements[elevatorId].setCurrentFloorNumber(elevatorStatusMessage.getFloorNumber());
 
@@ -84,6 +118,7 @@ public class SchedulerElevatorWorkHandler extends SchedulerWorkHandler {
 				}
 
 				elevatorJobManagements[elevatorId].setRunningCommand(false);
+				elevatorJobManagements[elevatorId].setTripTargetFloor(SchedulerElevatorCommand.NO_TARGET_FLOOR);
 
 				// If the elevator is ready for job and is currently running jobs, issue the
 				// next command
@@ -100,7 +135,7 @@ public class SchedulerElevatorWorkHandler extends SchedulerWorkHandler {
 			ElevatorTransportRequest dropPassengerRequest = ((ElevatorTransportRequest) message);
 			elevatorId = dropPassengerRequest.getElevatorId();
 
-			synchronized (elevatorJobManagements) {
+			synchronized (elevatorJobManagements[elevatorId]) {
 
 				// If the elevators has no jobs (direction is IDLE), we will update the elevator
 				// direction
@@ -119,6 +154,9 @@ public class SchedulerElevatorWorkHandler extends SchedulerWorkHandler {
 
 				executeNextElevatorCommand(elevatorJobManagements[elevatorId]);
 
+				// A moving elevator stops on its way if the drop off floor is nearer
+				retargetElevatorTrip(elevatorJobManagements[elevatorId]);
+
 			}
 
 			break;
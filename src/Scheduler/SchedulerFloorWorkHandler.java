@@ -30,7 +30,13 @@ public class SchedulerFloorWorkHandler extends SchedulerWorkHandler {
 	private Logger logger = LoggerWrapper.getLogger();
 
 	/**
-	 * The SchedulerFloorMessageWorkQueue constructor
+	 * The strategy choosing the elevator of a pick up request
+	 */
+	private DispatchStrategy dispatchStrategy;
+
+	/**
+	 * The SchedulerFloorMessageWorkQueue constructor, assigning the pick up
+	 * requests to the most free and closest elevator
 	 *
 	 * @param schedulerFloorCommunication    the scheduler floor UDP communication
 	 * @param schedulerElevatorCommunication the scheduler elevator UDP
@@ -40,7 +46,25 @@ public class SchedulerFloorWorkHandler extends SchedulerWorkHandler {
 	 */
 	public SchedulerFloorWorkHandler(SubsystemCommunicationRPC schedulerFloorCommunication,
 			SubsystemCommunicationRPC schedulerElevatorCommunication, ElevatorJobManagement[] elevatorJobManagements) {
+		this(schedulerFloorCommunication, schedulerElevatorCommunication, elevatorJobManagements,
+				new LoadBalancingDispatchStrategy());
+	}
+
+	/**
+	 * The SchedulerFloorMessageWorkQueue constructor
+	 *
+	 * @param schedulerFloorCommunication    the scheduler floor UDP communication
+	 * @param schedulerElevatorCommunication the scheduler elevator UDP
+	 *                                       communication
+	 * @param elevatorJobManagements         the elevator job managements
+	 * @param dispatchStrategy               the strategy choosing the elevator of
+	 *                                       a pick up request
+	 */
+	public SchedulerFloorWorkHandler(SubsystemCommunicationRPC schedulerFloorCommunication,
+			SubsystemCommunicationRPC schedulerElevatorCommunication, ElevatorJobManagement[] elevatorJobManagements,
+			DispatchStrategy dispatchStrategy) {
 		super(schedulerFloorCommunication, schedulerElevatorCommunication, elevatorJobManagements);
+		this.dispatchStrategy = dispatchStrategy;
 	}
 
 	@Override
@@ -63,11 +87,12 @@ public class SchedulerFloorWorkHandler extends SchedulerWorkHandler {
 				ElevatorStateException exception = new ElevatorStateException(FloorInputFault.STUCK_AT_FLOOR_FAULT,
 						stuckMessage.getFloorNumber(), "Elevator is stuck");
 
-				synchronized (elevatorJobManagements) {
-					elevatorJobManagements[stuckMessage.getElevatorId()].setErrorState(exception);
+				ElevatorJobManagement stuckElevatorJobManagement = elevatorJobManagements[stuckMessage.getElevatorId()];
+				synchronized (stuckElevatorJobManagement) {
+					stuckElevatorJobManagement.setErrorState(exception);
 				}
 
-				schedulerElevatorCommunication.sendMessage(new SchedulerElevatorCommand(ElevatorCommand.SHUT_DOWN,
+				schedulerElevatorCommunication.sendAsync(new SchedulerElevatorCommand(ElevatorCommand.SHUT_DOWN,
 						stuckMessage.getElevatorId(), exception));
 
 			} catch (Exception e) {
@@ -91,32 +116,19 @@ public class SchedulerFloorWorkHandler extends SchedulerWorkHandler {
 		if (elevatorJobManagements.length == 0) {
 			return;
 		}
-		// Considering load balancing, we will assign jobs to the most free and closest
-		// elevator.
-		//
-		// We will assume that the first in-service elevator we find is the most free
-		// and closest elevator. We will then iterate through the elevators, comparing
-		// them to find the ideal elevator.
+		// The dispatch strategy chooses the elevator among the in-service elevators,
+		// scoring the published snapshots of the elevators without taking their locks.
+		// Only the assignment to the chosen elevator holds its lock, and the messages
+		// it produces are sent once the lock is released.
 		//
 		// If there are no in-service elevators, we will discard the request as we do
 		// not know how long a elevator may be out of service.
-
-		// Finding an in-service elevator
-		ElevatorJobManagement assumedBestElevatorJobManagement = null;
-
-		synchronized (elevatorJobManagements) {
-
-			for (int i = 0; i < elevatorJobManagements.length; i++) {
-
-				if (elevatorJobManagements[i].isReadyForJob()) {
-					assumedBestElevatorJobManagement = elevatorJobManagements[i];
-					break;
-				}
-			}
+		while (true) {
+			ElevatorJobSnapshot selectedElevator = dispatchStrategy.selectElevator(takeSnapshots(), elevatorFloorJob);
 
 			// If we do not have an in-service elevator, we will discard the request and
 			// provide a log
-			if (assumedBestElevatorJobManagement == null) {
+			if (selectedElevator == null) {
 				logger.fine(
 						"No Elevator is available...Scheduler is ingoring the received Passenger-Pick-Up REQUEST @ Floor "
 								+ elevatorFloorJob.getDestinationFloor());
@@ -124,94 +136,51 @@ public class SchedulerFloorWorkHandler extends SchedulerWorkHandler {
 				// Consider the job addressed
 				try {
 					schedulerFloorCommunication
-							.sendMessage(new PassengerDropoffCompletedMessage(elevatorFloorJob.getFloorInputId()));
+							.sendAsync(new PassengerDropoffCompletedMessage(elevatorFloorJob.getFloorInputId()));
 				} catch (Exception e) {
 					e.printStackTrace();
 				}
 				return;
 			}
 
-			// Going through the elevators to find the ideal elevator
-			for (int i = 0; i < elevatorJobManagements.length; i++) {
-				ElevatorJobManagement currentElevatorJobManagement = elevatorJobManagements[i];
+			ElevatorJobManagement assumedBestElevatorJobManagement = elevatorJobManagements[selectedElevator
+					.getElevatorId()];
+			synchronized (assumedBestElevatorJobManagement) {
 
-				// If the current elevator job management is not ready for a job, there is no
-				// reason to compare it with the assumed best elevator
-				if (!currentElevatorJobManagement.isReadyForJob())
+				// If the elevator went out of service since its snapshot, we choose again
+				if (!assumedBestElevatorJobManagement.isReadyForJob()) {
 					continue;
-
-				boolean doesCurrentElevatorHaveEqualJobs = currentElevatorJobManagement
-						.getNumberOfJobs() == assumedBestElevatorJobManagement.getNumberOfJobs();
-				boolean doesCurrentElevatorHaveLessJobs = currentElevatorJobManagement
-						.getNumberOfJobs() < assumedBestElevatorJobManagement.getNumberOfJobs();
-
-				boolean isCurrentElevatorInValidDirection = !currentElevatorJobManagement.isRunningJob()
-						|| currentElevatorJobManagement.getElevatorDirection() == elevatorFloorJob.getDirection();
-				boolean isAssumedBestElevatorInValidDirection = !assumedBestElevatorJobManagement.isRunningJob()
-						|| assumedBestElevatorJobManagement.getElevatorDirection() == elevatorFloorJob.getDirection();
-
-				int currentElevatorFloorDistance = Math.abs(
-						currentElevatorJobManagement.getCurrentFloorNumber() - elevatorFloorJob.getDestinationFloor());
-				int assumedBestFloorDistance = Math.abs(assumedBestElevatorJobManagement.getCurrentFloorNumber()
-						- elevatorFloorJob.getDestinationFloor());
-				boolean isCurrentElevatorFloorDistanceSmaller = currentElevatorFloorDistance < assumedBestFloorDistance;
-
-				// If the assumed best elevator is not going in a valid direction and the
-				// current elevator is, we will change the assumed best elevator
-				if (!isAssumedBestElevatorInValidDirection && isCurrentElevatorInValidDirection) {
-					assumedBestElevatorJobManagement = currentElevatorJobManagement;
 				}
 
-				// If we both elevators have valid directions, we change the assumed best
-				// elevator based on other factors
-				else if (isAssumedBestElevatorInValidDirection && isCurrentElevatorInValidDirection) {
-
-					// if the current elevator is less busy, we will change the assumed best
-					// elevator
-					if (doesCurrentElevatorHaveLessJobs) {
-						assumedBestElevatorJobManagement = currentElevatorJobManagement;
-					}
-					// if the current elevator is equally busy, we will change the assumed best
-					// elevator if the current elevator is closer.
-					else if (doesCurrentElevatorHaveEqualJobs && isCurrentElevatorFloorDistanceSmaller) {
-						assumedBestElevatorJobManagement = currentElevatorJobManagement;
-					}
-
-				}
-
-			}
-
-			assumedBestElevatorJobManagement.addJob(elevatorFloorJob);
-			ElevatorFloorRequest floorRequest = (ElevatorFloorRequest) elevatorFloorJob;
+				assumedBestElevatorJobManagement.addJob(elevatorFloorJob);
+				ElevatorFloorRequest floorRequest = (ElevatorFloorRequest) elevatorFloorJob;
 
-			try {
 				// if we want to produce a elevator stuck fault, inform floor what elevator to
 				// stop
 				if (floorRequest.getFault() == FloorInputFault.STUCK_AT_FLOOR_FAULT
 						&& floorRequest.getFaultFloorNumber() >= 0) {
-					schedulerFloorCommunication.sendMessage(new SchedulerFloorCommand(
-							FloorCommand.PRODUCE_STUCK_FAULT_WITH_ELEVATOR, floorRequest.getFaultFloorNumber(),
-							assumedBestElevatorJobManagement.getElevatorId()));
+					sendToFloor(new SchedulerFloorCommand(FloorCommand.PRODUCE_STUCK_FAULT_WITH_ELEVATOR,
+							floorRequest.getFaultFloorNumber(), assumedBestElevatorJobManagement.getElevatorId()));
 				}
-			} catch (Exception e) {
-				// TODO Auto-generated catch block
-				logger.severe(e.toString());
-			}
 
-			logger.fine("(SCHEDULER) Assigning PICK_UP_PASSENGER Job (ID = " + elevatorFloorJob.getFloorInputId()
-					+ " - Direction = " + elevatorFloorJob.getDirection() + " @ floor = "
-					+ elevatorFloorJob.getDestinationFloor() + ") to Elevator "
-					+ assumedBestElevatorJobManagement.getElevatorId());
+				logger.fine("(SCHEDULER) Assigning PICK_UP_PASSENGER Job (ID = " + elevatorFloorJob.getFloorInputId()
+						+ " - Direction = " + elevatorFloorJob.getDirection() + " @ floor = "
+						+ elevatorFloorJob.getDestinationFloor() + ") to Elevator "
+						+ assumedBestElevatorJobManagement.getElevatorId());
+
+				// If the elevator is not currently running a job, we will update the elevator's
+				// direction and issue the appropriate elevator commands
+				if (!assumedBestElevatorJobManagement.isRunningJob()) {
+					assumedBestElevatorJobManagement.setElevatorDirection(elevatorFloorJob.getDirection());
+					executeNextElevatorCommand(assumedBestElevatorJobManagement);
+				} else {
+					// A moving elevator stops on its way if the pick up floor is nearer
+					retargetElevatorTrip(assumedBestElevatorJobManagement);
+				}
 
-			// If the elevator is not currently running a job, we will update the elevator's
-			// direction and issue the appropriate elevator commands
-			if (!assumedBestElevatorJobManagement.isRunningJob()) {
-				assumedBestElevatorJobManagement.setElevatorDirection(elevatorFloorJob.getDirection());
-				executeNextElevatorCommand(assumedBestElevatorJobManagement);
+				return;
 			}
-
 		}
-
 	}
 
 }
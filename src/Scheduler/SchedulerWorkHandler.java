@@ -4,12 +4,14 @@
 package Scheduler;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Logger;
 
 import common.Direction;
 import common.LoggerWrapper;
 import common.messages.ElevatorJobMessage;
 import common.messages.Message;
+import common.messages.SchedulerElevatorTargetedMessage;
 import common.messages.elevator.ElevatorTransportRequest;
 import common.messages.floor.ElevatorFloorRequest;
 import common.messages.scheduler.ElevatorCommand;
@@ -44,6 +46,23 @@ public abstract class SchedulerWorkHandler extends MessageWorkQueue {
 	 */
 	protected SubsystemCommunicationRPC schedulerElevatorCommunication;
 
+	/**
+	 * A flag indicating whether the elevators are sent to their target floors with
+	 * a single MOVE_TO command, rather than a floor at a time
+	 */
+	protected boolean isMovingToTargetFloor = false;
+
+	/**
+	 * The messages waiting to be sent to the floor subsystem, in order. Only used
+	 * by the worker.
+	 */
+	private ArrayList<Message> outgoingFloorMessages = new ArrayList<>();
+
+	/**
+	 * The elevators with commands waiting to be sent. Only used by the worker.
+	 */
+	private ArrayList<ElevatorJobManagement> outgoingElevators = new ArrayList<>();
+
 	/**
 	 * The SchedulerFloorMessageWorkQueue constructor
 	 *
@@ -59,6 +78,15 @@ public abstract class SchedulerWorkHandler extends MessageWorkQueue {
 		this.elevatorJobManagements = elevatorJobManagements;
 	}
 
+	/**
+	 * @param isMovingToTargetFloor true to send the elevators to their target
+	 *                              floors with a single MOVE_TO command, false to
+	 *                              move them a floor at a time
+	 */
+	public void setMovingToTargetFloor(boolean isMovingToTargetFloor) {
+		this.isMovingToTargetFloor = isMovingToTargetFloor;
+	}
+
 	/**
 	 * Handle the given message appropriately
 	 *
@@ -67,6 +95,75 @@ public abstract class SchedulerWorkHandler extends MessageWorkQueue {
 	@Override
 	protected abstract void handleMessage(Message message);
 
+	/**
+	 * Handle each message of the batch in turn, and send the messages it produced
+	 * once it is handled, when no elevator lock is held
+	 *
+	 * @param messages the batch of messages
+	 */
+	@Override
+	protected void handleBatch(List<Message> messages) {
+		for (Message message : messages) {
+			handleMessage(message);
+			sendOutgoingMessages();
+		}
+	}
+
+	/**
+	 * Queue the given message to the floor subsystem, to be sent once the message
+	 * being handled is handled
+	 *
+	 * @param message the message
+	 */
+	protected void sendToFloor(Message message) {
+		outgoingFloorMessages.add(message);
+	}
+
+	/**
+	 * Queue the given command to its elevator, to be sent once the message being
+	 * handled is handled. The lock of the elevator must be held, so the commands
+	 * of the two work handlers are queued in the order they are decided.
+	 *
+	 * @param command the command
+	 */
+	protected void sendToElevator(SchedulerElevatorTargetedMessage command) {
+		ElevatorJobManagement elevatorJobManagement = elevatorJobManagements[command.getElevatorId()];
+		elevatorJobManagement.queueCommand(command);
+		outgoingElevators.add(elevatorJobManagement);
+	}
+
+	/**
+	 * Send the queued messages, in order. No elevator lock may be held.
+	 */
+	private void sendOutgoingMessages() {
+		for (ElevatorJobManagement elevatorJobManagement : outgoingElevators) {
+			elevatorJobManagement.sendQueuedCommands(schedulerElevatorCommunication);
+		}
+		outgoingElevators.clear();
+
+		for (Message message : outgoingFloorMessages) {
+			try {
+				schedulerFloorCommunication.sendAsync(message);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		outgoingFloorMessages.clear();
+	}
+
+	/**
+	 * Read the published snapshot of each elevator, without taking any lock
+	 *
+	 * @return the snapshots, indexed by elevator id
+	 */
+	protected ElevatorJobSnapshot[] takeSnapshots() {
+		ElevatorJobSnapshot[] snapshots = new ElevatorJobSnapshot[elevatorJobManagements.length];
+		for (int i = 0; i < elevatorJobManagements.length; i++) {
+			snapshots[i] = elevatorJobManagements[i].getPublishedSnapshot();
+		}
+		return snapshots;
+	}
+
 	/**
 	 * Execute the next command for the elevator
 	 *
@@ -78,19 +175,14 @@ public abstract class SchedulerWorkHandler extends MessageWorkQueue {
 		if (elevatorJobManagement.isRunningCommand())
 			return;
 
-		int nearestTargetFloor = -1;
-		switch (elevatorJobManagement.getElevatorDirection()) {
-
-		case UP:
-			nearestTargetFloor = elevatorJobManagement.getSmallestDestinationFloorInElevatorDirection();
-			break;
-
-		case DOWN:
-			nearestTargetFloor = elevatorJobManagement.getLargestDestinationFloorInElevatorDirection();
-			break;
+		// The nearest floor with a job in the elevator direction, ahead of it first
+		int nearestTargetFloor = elevatorJobManagement.getNearestTargetFloor();
 
-		default:
-			break;
+		// Only jobs of the opposite direction are left, such as a drop off assigned
+		// while the elevator still faces the way it came: focus on them
+		if (nearestTargetFloor == -1 && elevatorJobManagement.hasSecondaryJobs()) {
+			elevatorJobManagement.loadSecondaryJobs();
+			nearestTargetFloor = elevatorJobManagement.getNearestTargetFloor();
 		}
 
 		if (nearestTargetFloor != -1) {
@@ -102,6 +194,35 @@ public abstract class SchedulerWorkHandler extends MessageWorkQueue {
 
 	}
 
+	/**
+	 * Retarget the trip of the elevator when a new job is nearer than its target
+	 * floor, between the elevator and the target floor
+	 *
+	 * @param elevatorJobManagement the elevator job management
+	 */
+	protected void retargetElevatorTrip(ElevatorJobManagement elevatorJobManagement) {
+		int tripTargetFloor = elevatorJobManagement.getTripTargetFloor();
+		if (tripTargetFloor == SchedulerElevatorCommand.NO_TARGET_FLOOR) {
+			return;
+		}
+
+		int currentFloorNumber = elevatorJobManagement.getCurrentFloorNumber();
+		int nearestTargetFloor = elevatorJobManagement.getNearestTargetFloor();
+		boolean isOnTheWay = tripTargetFloor > currentFloorNumber
+				? nearestTargetFloor > currentFloorNumber && nearestTargetFloor < tripTargetFloor
+				: nearestTargetFloor < currentFloorNumber && nearestTargetFloor > tripTargetFloor;
+		if (!isOnTheWay) {
+			return;
+		}
+
+		int elevatorId = elevatorJobManagement.getElevatorId();
+		logger.fine("(SCHEDULER) Retargeting Elevator " + elevatorId + " from floor " + tripTargetFloor + " to floor "
+				+ nearestTargetFloor);
+
+		elevatorJobManagement.setTripTargetFloor(nearestTargetFloor);
+		sendToElevator(new SchedulerElevatorCommand(ElevatorCommand.RETARGET, elevatorId, nearestTargetFloor));
+	}
+
 	/**
 	 * Given an elevator management and the nearest target floor, handle the
 	 * elevator's behavior
@@ -113,13 +234,23 @@ public abstract class SchedulerWorkHandler extends MessageWorkQueue {
 		int elevatorId = elevatorJobManagement.getElevatorId();
 
 		try {
+			// Send the elevator to the target floor, which it reaches without waiting for
+			// a command at each floor
+			if (isMovingToTargetFloor && elevatorJobManagement.getCurrentFloorNumber() != nearestTargetFloor) {
+				logger.fine("(SCHEDULER) Sending a MOVE_TO floor " + nearestTargetFloor + " command to Elevator "
+						+ elevatorId);
+
+				elevatorJobManagement.setRunningCommand(true);
+				elevatorJobManagement.setTripTargetFloor(nearestTargetFloor);
+				sendToElevator(new SchedulerElevatorCommand(ElevatorCommand.MOVE_TO, elevatorId, nearestTargetFloor));
+
+			}
 			// Move down if we above the target floor
-			if (elevatorJobManagement.getCurrentFloorNumber() > nearestTargetFloor) {
+			else if (elevatorJobManagement.getCurrentFloorNumber() > nearestTargetFloor) {
 				logger.fine("(SCHEDULER) Sending a DOWN command to Elevator " + elevatorId);
 
 				elevatorJobManagement.setRunningCommand(true);
-				schedulerElevatorCommunication
-						.sendMessage(new SchedulerElevatorCommand(ElevatorCommand.MOVE_DOWN, elevatorId));
+				sendToElevator(new SchedulerElevatorCommand(ElevatorCommand.MOVE_DOWN, elevatorId));
 
 			}
 			// Move up if we below the target floor
@@ -127,8 +258,7 @@ public abstract class SchedulerWorkHandler extends MessageWorkQueue {
 				logger.fine("(SCHEDULER) Sending an UP command to Elevator " + elevatorId);
 
 				elevatorJobManagement.setRunningCommand(true);
-				schedulerElevatorCommunication
-						.sendMessage(new SchedulerElevatorCommand(ElevatorCommand.MOVE_UP, elevatorId));
+				sendToElevator(new SchedulerElevatorCommand(ElevatorCommand.MOVE_UP, elevatorId));
 
 			} else {
 				// If we are at a target floor, take action
@@ -146,10 +276,9 @@ public abstract class SchedulerWorkHandler extends MessageWorkQueue {
 					case ELEVATOR_PICK_UP_PASSENGER_REQUEST:
 						ElevatorFloorRequest elevatorFloorRequestJob = (ElevatorFloorRequest) elevatorJob;
 
-						schedulerFloorCommunication
-								.sendMessage(new SchedulerFloorCommand(FloorCommand.TURN_OFF_FLOOR_LAMP,
-										nearestTargetFloor, elevatorFloorRequestJob.getDirection(), elevatorId,
-										elevatorFloorRequestJob.getFloorInputId()));
+						sendToFloor(new SchedulerFloorCommand(FloorCommand.TURN_OFF_FLOOR_LAMP, nearestTargetFloor,
+								elevatorFloorRequestJob.getDirection(), elevatorId,
+								elevatorFloorRequestJob.getFloorInputId()));
 
 						expectingElevatorButtonPress = true;
 
@@ -158,7 +287,7 @@ public abstract class SchedulerWorkHandler extends MessageWorkQueue {
 					case ELEVATOR_DROP_PASSENGER_REQUEST:
 						ElevatorTransportRequest elevatorTransportRequest = (ElevatorTransportRequest) elevatorJob;
 						int floorInputDataId = elevatorTransportRequest.getFloorInputId();
-						schedulerFloorCommunication.sendMessage(new PassengerDropoffCompletedMessage(floorInputDataId));
+						sendToFloor(new PassengerDropoffCompletedMessage(floorInputDataId));
 						break;
 
 					}
@@ -172,10 +301,8 @@ public abstract class SchedulerWorkHandler extends MessageWorkQueue {
 				}
 				logger.fine(addressedJobMessage);
 				// Stop the elevator and open the doors
-				schedulerElevatorCommunication
-						.sendMessage(new SchedulerElevatorCommand(ElevatorCommand.STOP, elevatorId));
-				schedulerElevatorCommunication
-						.sendMessage(new SchedulerElevatorCommand(ElevatorCommand.OPEN_DOORS, elevatorId));
+				sendToElevator(new SchedulerElevatorCommand(ElevatorCommand.STOP, elevatorId));
+				sendToElevator(new SchedulerElevatorCommand(ElevatorCommand.OPEN_DOORS, elevatorId));
 
 				// We can delete these jobs as we know we have addressed them
 				elevatorJobManagement.removeJobs(jobsAtTargetFloor);
@@ -226,14 +353,9 @@ public abstract class SchedulerWorkHandler extends MessageWorkQueue {
 		if (!elevator.isReadyForJob()) {
 
 			// For each job, notify the floor subsystem
-			elevator.getElevatorJobs().forEach(elevatorJob -> {
-				try {
-					schedulerFloorCommunication
-							.sendMessage(new PassengerDropoffCompletedMessage(elevatorJob.getFloorInputId()));
-				} catch (Exception e) {
-					e.printStackTrace();
-				}
-			});
+			for (ElevatorJobMessage elevatorJob : elevator.getElevatorJobs()) {
+				sendToFloor(new PassengerDropoffCompletedMessage(elevatorJob.getFloorInputId()));
+			}
 		}
 
 	}
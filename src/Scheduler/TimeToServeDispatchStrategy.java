@@ -0,0 +1,256 @@
+/**
+ *
+ */
+package Scheduler;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import ElevatorSubsystem.ElevatorDoor;
+import ElevatorSubsystem.ElevatorMotionProfile;
+import ElevatorSubsystem.ElevatorMotor;
+import common.Direction;
+import common.messages.ElevatorJobMessage;
+
+/**
+ * This class is the dispatch strategy that assigns a job to the elevator with
+ * the smallest estimated time to serve it.
+ *
+ * The estimate follows the elevator's sweeps: the elevator finishes the stops
+ * ahead of it in its direction, turns around for the stops of the opposite
+ * direction, and turns around again for the stops behind it in its direction,
+ * until it reaches the floor of the job. The travel costs the time of the motor
+ * to cover it, and each stop on the way costs the door opening and closing and
+ * the time lost slowing down and accelerating again.
+ *
+ * The elevators are scored on immutable snapshots, so a large group of
+ * elevators is scored in parallel when there is more than one processor.
+ *
+ * @author paulokenne
+ *
+ */
+public class TimeToServeDispatchStrategy implements DispatchStrategy {
+
+	/**
+	 * The number of elevators from which they are scored in parallel. Smaller
+	 * groups are scored faster on the calling thread.
+	 */
+	public static final int PARALLEL_SCORING_THRESHOLD = 16;
+
+	/**
+	 * A flag indicating whether there are processors to score in parallel
+	 */
+	private static final boolean CAN_SCORE_IN_PARALLEL = Runtime.getRuntime().availableProcessors() > 1;
+
+	/**
+	 * An elevator with its estimated time to serve a job
+	 */
+	private static class ScoredElevator {
+
+		/**
+		 * The snapshot of the elevator
+		 */
+		private ElevatorJobSnapshot elevator;
+
+		/**
+		 * The estimated time to serve the job
+		 */
+		private double timeToServe;
+
+		/**
+		 * A ScoredElevator constructor
+		 *
+		 * @param elevator    the snapshot of the elevator
+		 * @param timeToServe the estimated time to serve the job
+		 */
+		private ScoredElevator(ElevatorJobSnapshot elevator, double timeToServe) {
+			this.elevator = elevator;
+			this.timeToServe = timeToServe;
+		}
+	}
+
+	/**
+	 * The order of the scored elevators, the best first
+	 */
+	private static final Comparator<ScoredElevator> SCORE_ORDER = Comparator
+			.comparingDouble((ScoredElevator scoredElevator) -> scoredElevator.timeToServe)
+			.thenComparingInt(scoredElevator -> scoredElevator.elevator.getNumberOfJobs())
+			.thenComparingInt(scoredElevator -> scoredElevator.elevator.getElevatorId());
+
+	/**
+	 * The motion profile of the elevators
+	 */
+	private ElevatorMotionProfile motionProfile;
+
+	/**
+	 * The time a stop adds to the travel of an elevator, in milliseconds
+	 */
+	private double stopMilliseconds;
+
+	/**
+	 * A TimeToServeDispatchStrategy constructor
+	 *
+	 * @param motor the motor of the elevators
+	 * @param door  the door of the elevators
+	 */
+	public TimeToServeDispatchStrategy(ElevatorMotor motor, ElevatorDoor door) {
+		this.motionProfile = new ElevatorMotionProfile(motor);
+		double slowingDownMilliseconds = motionProfile.getAcceleration() > 0
+				? 1000 * motionProfile.getTopSpeed() / motionProfile.getAcceleration()
+				: 0;
+		this.stopMilliseconds = 2 * door.getDoorOpenCloseTime() + slowingDownMilliseconds;
+	}
+
+	@Override
+	public ElevatorJobSnapshot selectElevator(ElevatorJobSnapshot[] elevators, ElevatorJobMessage job) {
+		Stream<ElevatorJobSnapshot> candidates = Arrays.stream(elevators);
+		if (CAN_SCORE_IN_PARALLEL && elevators.length >= PARALLEL_SCORING_THRESHOLD) {
+			candidates = candidates.parallel();
+		}
+
+		// Equal estimates go to the least busy elevator, and then to the first one
+		return candidates.filter(ElevatorJobSnapshot::isReadyForJob)
+				.map(elevator -> new ScoredElevator(elevator,
+						estimateTimeToServe(elevator, job.getDestinationFloor(), job.getDirection())))
+				.min(SCORE_ORDER).map(scoredElevator -> scoredElevator.elevator).orElse(null);
+	}
+
+	/**
+	 * Estimate the time the given elevator takes to reach the given floor, for a
+	 * job of the given direction
+	 *
+	 * @param elevator    the snapshot of the elevator
+	 * @param floorNumber the floor of the job
+	 * @param direction   the direction of the job
+	 * @return the estimated time, in milliseconds
+	 */
+	public double estimateTimeToServe(ElevatorJobSnapshot elevator, int floorNumber, Direction direction) {
+		int currentFloor = elevator.getCurrentFloorNumber();
+		if (!elevator.isRunningJob()) {
+			return getTravelMilliseconds(Math.abs(floorNumber - currentFloor));
+		}
+
+		Direction elevatorDirection = elevator.getElevatorDirection();
+		Direction oppositeDirection = elevatorDirection == Direction.UP ? Direction.DOWN : Direction.UP;
+
+		// The floor is ahead of the elevator, on its way
+		if (direction == elevatorDirection && isAhead(elevatorDirection, currentFloor, floorNumber)) {
+			return getSweepMilliseconds(elevator, elevatorDirection, currentFloor, floorNumber);
+		}
+
+		// Finish the stops ahead, going as far as the floor for a job of the opposite
+		// direction
+		int firstTurnFloor = getFarthestFloor(elevator, elevatorDirection, currentFloor);
+		if (direction == oppositeDirection) {
+			firstTurnFloor = getFarthest(elevatorDirection, firstTurnFloor, floorNumber);
+		}
+		double timeToServe = getSweepMilliseconds(elevator, elevatorDirection, currentFloor, firstTurnFloor)
+				+ getStopsMilliseconds(elevator, elevatorDirection, firstTurnFloor, firstTurnFloor);
+
+		if (direction == oppositeDirection) {
+			return timeToServe
+					+ getSweepMilliseconds(elevator, oppositeDirection, firstTurnFloor, floorNumber);
+		}
+
+		// Serve the stops of the opposite direction, then come back for the floor
+		// behind
+		int secondTurnFloor = getFarthest(oppositeDirection,
+				getFarthestFloor(elevator, oppositeDirection, firstTurnFloor), floorNumber);
+		return timeToServe
+				+ getSweepMilliseconds(elevator, oppositeDirection, firstTurnFloor, secondTurnFloor)
+				+ getStopsMilliseconds(elevator, oppositeDirection, secondTurnFloor, secondTurnFloor)
+				+ getSweepMilliseconds(elevator, elevatorDirection, secondTurnFloor, floorNumber);
+	}
+
+	/**
+	 * Return the time to travel from a floor to another, stopping at the floors
+	 * with jobs of the given direction on the way, the floor reached excluded
+	 *
+	 * @param elevator  the snapshot of the elevator
+	 * @param direction the direction of the stops
+	 * @param fromFloor the floor the elevator leaves
+	 * @param toFloor   the floor the elevator reaches
+	 * @return the time, in milliseconds
+	 */
+	private double getSweepMilliseconds(ElevatorJobSnapshot elevator, Direction direction,
+			int fromFloor, int toFloor) {
+		if (fromFloor == toFloor) {
+			return 0;
+		}
+
+		int lastFloorBefore = toFloor > fromFloor ? toFloor - 1 : toFloor + 1;
+		return getTravelMilliseconds(Math.abs(toFloor - fromFloor))
+				+ getStopsMilliseconds(elevator, direction, fromFloor, lastFloorBefore);
+	}
+
+	/**
+	 * Return the time spent at the stops of the given direction between the given
+	 * floors, both included
+	 *
+	 * @param elevator  the snapshot of the elevator
+	 * @param direction the direction of the stops
+	 * @param fromFloor one end of the floors
+	 * @param toFloor   the other end of the floors
+	 * @return the time, in milliseconds
+	 */
+	private double getStopsMilliseconds(ElevatorJobSnapshot elevator, Direction direction,
+			int fromFloor, int toFloor) {
+		return elevator.getNumberOfStopsBetween(direction, fromFloor, toFloor) * stopMilliseconds;
+	}
+
+	/**
+	 * Return the time the motor takes to travel the given number of floors from a
+	 * stop to a stop: accelerating to its top speed, cruising and slowing down,
+	 * or accelerating and slowing down without reaching its top speed when the
+	 * floors are too close
+	 *
+	 * @param numberOfFloors the number of floors
+	 * @return the time, in milliseconds
+	 */
+	public double getTravelMilliseconds(int numberOfFloors) {
+		return motionProfile.getTravelMilliseconds(numberOfFloors);
+	}
+
+	/**
+	 * Return the farthest floor with jobs of the given direction ahead of the
+	 * given floor in that direction, or the floor itself
+	 *
+	 * @param elevator    the snapshot of the elevator
+	 * @param direction   the direction
+	 * @param floorNumber the floor
+	 * @return the farthest floor
+	 */
+	private int getFarthestFloor(ElevatorJobSnapshot elevator, Direction direction, int floorNumber) {
+		if (direction == Direction.UP) {
+			return Math.max(floorNumber, elevator.getLargestDestinationFloor(Direction.UP));
+		}
+
+		int smallestFloor = elevator.getSmallestDestinationFloor(Direction.DOWN);
+		return smallestFloor == -1 ? floorNumber : Math.min(floorNumber, smallestFloor);
+	}
+
+	/**
+	 * Return the farthest of two floors in the given direction
+	 *
+	 * @param direction   the direction
+	 * @param floorNumber a floor
+	 * @param otherFloor  the other floor
+	 * @return the farthest floor
+	 */
+	private int getFarthest(Direction direction, int floorNumber, int otherFloor) {
+		return direction == Direction.UP ? Math.max(floorNumber, otherFloor) : Math.min(floorNumber, otherFloor);
+	}
+
+	/**
+	 * Return whether a floor is ahead of, or at, another in the given direction
+	 *
+	 * @param direction   the direction
+	 * @param fromFloor   the floor of the elevator
+	 * @param floorNumber the floor
+	 * @return true if the floor is ahead
+	 */
+	private boolean isAhead(Direction direction, int fromFloor, int floorNumber) {
+		return direction == Direction.UP ? floorNumber >= fromFloor : floorNumber <= fromFloor;
+	}
+}
@@ -0,0 +1,76 @@
+import java.util.logging.Level;
+
+import ElevatorSubsystem.ElevatorController;
+import ElevatorSubsystem.ElevatorDoor;
+import ElevatorSubsystem.ElevatorMotor;
+import FloorSubsystem.FloorSubsystem;
+import Scheduler.Scheduler;
+import Scheduler.TimeToServeDispatchStrategy;
+import common.LoggerWrapper;
+import common.simulation.DiscreteEventScheduler;
+import common.work_management.SubsystemExecutor;
+
+/**
+ * This class runs the elevator, floor, and scheduler systems in a
+ * discrete-event simulation: the doors, the travel between floors, the
+ * messages and the requests of the input file take virtual time, so a trace
+ * that takes hours by the wall clock replays in seconds, and the same trace
+ * always gives the same result.
+ *
+ * The systems run as SystemExecutor sets them up, without the GUI, on the
+ * thread of the simulation and with the in-process transport.
+ *
+ * @author paulokenne
+ *
+ */
+public class SimulationExecutor {
+
+	/**
+	 * The door open/close time, as in SystemExecutor
+	 */
+	private static double DOOR_OPEN_CLOSE_TIME_MILLISECONDS = 3000;
+
+	/**
+	 * The time to move between two floors, as in SystemExecutor
+	 */
+	private static double ELEVATOR_MOVE_BETWEEN_FLOOR_TIME_MILLISECONDS = 1000;
+
+	/**
+	 * Run the simulation and print its summary
+	 *
+	 * @param args the input file, resources/FloorInputFile.txt by default, and
+	 *             the number of elevators, ElevatorController.NUMBER_OF_ELEVATORS
+	 *             by default
+	 */
+	public static void main(String[] args) {
+		String inputFileName = args.length > 0 ? args[0] : "resources/FloorInputFile.txt";
+		int numberOfElevators = args.length > 1 ? Integer.parseInt(args[1]) : ElevatorController.NUMBER_OF_ELEVATORS;
+
+		// The log would cost more than the simulation
+		LoggerWrapper.getLogger().setLevel(Level.WARNING);
+
+		// The subsystems must be created once the simulation is set
+		DiscreteEventScheduler simulation = new DiscreteEventScheduler();
+		SubsystemExecutor.setSimulationTimer(simulation);
+
+		TimeToServeDispatchStrategy dispatchStrategy = new TimeToServeDispatchStrategy(
+				new ElevatorMotor(ElevatorController.MAX_ELEVATOR_SPEED, ElevatorController.ELEVATOR_ACCELERATION),
+				new ElevatorDoor(DOOR_OPEN_CLOSE_TIME_MILLISECONDS));
+		Scheduler scheduler = new Scheduler(numberOfElevators, dispatchStrategy, true);
+		scheduler.runSchedulerProgram();
+
+		new ElevatorController(DOOR_OPEN_CLOSE_TIME_MILLISECONDS, numberOfElevators);
+
+		FloorSubsystem subsystem = new FloorSubsystem(inputFileName, ELEVATOR_MOVE_BETWEEN_FLOOR_TIME_MILLISECONDS);
+		subsystem.runMain();
+
+		long startTime = System.nanoTime();
+		simulation.run();
+		long wallClockMilliseconds = (System.nanoTime() - startTime) / 1_000_000;
+
+		System.out.printf("Simulated %.1f minutes in %d ms: %d events, %d requests not dropped off%n",
+				simulation.currentTimeMillis() / 60_000.0, wallClockMilliseconds, simulation.getProcessedEvents(),
+				subsystem.getPendingRequestCount());
+		System.exit(0);
+	}
+}
@@ -1,8 +1,11 @@
 import java.util.logging.Logger;
 
 import ElevatorSubsystem.ElevatorController;
+import ElevatorSubsystem.ElevatorDoor;
+import ElevatorSubsystem.ElevatorMotor;
 import FloorSubsystem.FloorSubsystem;
 import Scheduler.Scheduler;
+import Scheduler.TimeToServeDispatchStrategy;
 import common.LoggerWrapper;
 import common.gui.GUI;
 
@@ -30,8 +33,13 @@ public class SystemExecutor {
 		GUI programDisplay = new GUI();
 		programDisplay.receiveUpdates();
 		
-		// Set up and start the scheduler
-		Scheduler scheduler = new Scheduler(programDisplay.getNumberOfElevators());
+		// Set up and start the scheduler, dispatching each pick up request to the
+		// elevator that can serve it the soonest, and sending the elevators to their
+		// target floors with a single command
+		TimeToServeDispatchStrategy dispatchStrategy = new TimeToServeDispatchStrategy(
+				new ElevatorMotor(ElevatorController.MAX_ELEVATOR_SPEED, ElevatorController.ELEVATOR_ACCELERATION),
+				new ElevatorDoor(DOOR_OPEN_CLOSE_TIME_MILLISECONDS));
+		Scheduler scheduler = new Scheduler(programDisplay.getNumberOfElevators(), dispatchStrategy, true);
 		scheduler.runSchedulerProgram();
 		
 		// Set up and start the elevator controller
@@ -0,0 +1,222 @@
+/**
+ *
+ */
+package benchmarks.Scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import ElevatorSubsystem.ElevatorController;
+import ElevatorSubsystem.ElevatorDoor;
+import ElevatorSubsystem.ElevatorMotor;
+import FloorSubsystem.FloorSubsystem;
+import Scheduler.ElevatorJobManagement;
+import Scheduler.ElevatorJobSnapshot;
+import Scheduler.TimeToServeDispatchStrategy;
+import common.Direction;
+import common.messages.ElevatorJobMessage;
+import common.messages.elevator.ElevatorTransportRequest;
+import common.messages.floor.ElevatorFloorRequest;
+
+/**
+ * This class measures the latency of a dispatch decision of the time to serve
+ * strategy in groups of 4, 16 and 64 elevators: taking the snapshots of the
+ * elevators, scoring them and committing the job under the lock of the chosen
+ * elevator.
+ *
+ * Each group is scored sequentially on the calling thread and by the strategy,
+ * which scores the groups of PARALLEL_SCORING_THRESHOLD elevators or more in
+ * parallel when there is more than one processor. The time the lock of the
+ * chosen elevator is held is measured apart, as it is all the dispatch takes
+ * from the other work of the elevator.
+ *
+ * @author paulokenne
+ *
+ */
+public class DispatchLatencyBenchmark {
+
+	/**
+	 * The numbers of elevators
+	 */
+	private static final int[] ELEVATOR_COUNTS = { 4, 16, 64 };
+
+	/**
+	 * The number of outstanding jobs of each elevator
+	 */
+	private static final int JOBS_PER_ELEVATOR = 8;
+
+	/**
+	 * The number of decisions of the warm up
+	 */
+	private static final int WARM_UP_DECISIONS = 20_000;
+
+	/**
+	 * The number of measured decisions
+	 */
+	private static final int MEASURED_DECISIONS = 20_000;
+
+	/**
+	 * The time the doors take to open or close
+	 */
+	private static final int DOOR_OPEN_CLOSE_MILLISECONDS = 3000;
+
+	/**
+	 * The sum of the elevators chosen, so the decisions are not optimized away
+	 */
+	private static volatile long chosenElevators;
+
+	/**
+	 * The strategy
+	 */
+	private static TimeToServeDispatchStrategy strategy = new TimeToServeDispatchStrategy(
+			new ElevatorMotor(ElevatorController.MAX_ELEVATOR_SPEED, ElevatorController.ELEVATOR_ACCELERATION),
+			new ElevatorDoor(DOOR_OPEN_CLOSE_MILLISECONDS));
+
+	/**
+	 * Run the benchmark
+	 *
+	 * @param args unused
+	 */
+	public static void main(String[] args) {
+		System.out.println("processors: " + Runtime.getRuntime().availableProcessors());
+		for (int elevatorCount : ELEVATOR_COUNTS) {
+			run(elevatorCount, false);
+			run(elevatorCount, true);
+		}
+	}
+
+	/**
+	 * Measure the decisions in a group of the given size
+	 *
+	 * @param elevatorCount the number of elevators
+	 * @param byStrategy    true to score by the strategy, false to score
+	 *                      sequentially
+	 */
+	private static void run(int elevatorCount, boolean byStrategy) {
+		Random random = new Random(elevatorCount);
+		ElevatorJobManagement[] jobManagements = new ElevatorJobManagement[elevatorCount];
+		for (int i = 0; i < elevatorCount; i++) {
+			jobManagements[i] = new ElevatorJobManagement(i);
+			jobManagements[i].setErrorState(null);
+			jobManagements[i].setCurrentFloorNumber(random.nextInt(FloorSubsystem.NUMBER_OF_FLOORS));
+			for (int j = 0; j < JOBS_PER_ELEVATOR; j++) {
+				addRandomJob(jobManagements[i], random);
+			}
+		}
+
+		for (int i = 0; i < WARM_UP_DECISIONS; i++) {
+			decide(jobManagements, random, byStrategy, null, 0);
+		}
+
+		long[] decisionNanoseconds = new long[MEASURED_DECISIONS];
+		long[] lockNanoseconds = new long[MEASURED_DECISIONS];
+		for (int i = 0; i < MEASURED_DECISIONS; i++) {
+			long startTime = System.nanoTime();
+			decide(jobManagements, random, byStrategy, lockNanoseconds, i);
+			decisionNanoseconds[i] = System.nanoTime() - startTime;
+		}
+
+		Arrays.sort(decisionNanoseconds);
+		Arrays.sort(lockNanoseconds);
+		System.out.printf(
+				"%2d elevators, %-10s: decision p50 %6.1fus, p99 %6.1fus; lock held p50 %5.2fus, p99 %5.2fus%n",
+				elevatorCount, byStrategy ? "strategy" : "sequential", percentile(decisionNanoseconds, 0.50) / 1e3,
+				percentile(decisionNanoseconds, 0.99) / 1e3, percentile(lockNanoseconds, 0.50) / 1e3,
+				percentile(lockNanoseconds, 0.99) / 1e3);
+	}
+
+	/**
+	 * Dispatch a random pick up request, as the scheduler does, and complete a
+	 * job of the chosen elevator, so the number of jobs stays the same
+	 *
+	 * @param jobManagements  the elevator job managements
+	 * @param random          the random generator
+	 * @param byStrategy      true to score by the strategy, false to score
+	 *                        sequentially
+	 * @param lockNanoseconds the times the lock was held, or null
+	 * @param decision        the index of the decision
+	 */
+	private static void decide(ElevatorJobManagement[] jobManagements, Random random, boolean byStrategy,
+			long[] lockNanoseconds, int decision) {
+		ElevatorJobSnapshot[] snapshots = new ElevatorJobSnapshot[jobManagements.length];
+		for (int i = 0; i < jobManagements.length; i++) {
+			synchronized (jobManagements[i]) {
+				snapshots[i] = jobManagements[i].snapshot();
+			}
+		}
+
+		Direction direction = random.nextBoolean() ? Direction.UP : Direction.DOWN;
+		int floor = direction == Direction.UP ? random.nextInt(FloorSubsystem.NUMBER_OF_FLOORS - 1)
+				: 1 + random.nextInt(FloorSubsystem.NUMBER_OF_FLOORS - 1);
+		ElevatorFloorRequest job = new ElevatorFloorRequest(floor, direction, decision);
+
+		ElevatorJobSnapshot selectedElevator = byStrategy ? strategy.selectElevator(snapshots, job)
+				: selectSequentially(snapshots, job);
+		chosenElevators += selectedElevator.getElevatorId();
+
+		ElevatorJobManagement jobManagement = jobManagements[selectedElevator.getElevatorId()];
+		long startTime = System.nanoTime();
+		synchronized (jobManagement) {
+			if (jobManagement.isReadyForJob()) {
+				jobManagement.addJob(job);
+			}
+		}
+		if (lockNanoseconds != null) {
+			lockNanoseconds[decision] = System.nanoTime() - startTime;
+		}
+
+		synchronized (jobManagement) {
+			ArrayList<ElevatorJobMessage> completedJobs = new ArrayList<>();
+			completedJobs.add(jobManagement.getElevatorJobs().iterator().next());
+			jobManagement.removeJobs(completedJobs);
+		}
+	}
+
+	/**
+	 * Score the elevators one after the other on the calling thread
+	 *
+	 * @param snapshots the snapshots of the elevators
+	 * @param job       the job
+	 * @return the elevator with the smallest estimate
+	 */
+	private static ElevatorJobSnapshot selectSequentially(ElevatorJobSnapshot[] snapshots, ElevatorJobMessage job) {
+		ElevatorJobSnapshot selectedElevator = null;
+		double smallestTimeToServe = Double.MAX_VALUE;
+		for (ElevatorJobSnapshot snapshot : snapshots) {
+			double timeToServe = strategy.estimateTimeToServe(snapshot, job.getDestinationFloor(),
+					job.getDirection());
+			if (timeToServe < smallestTimeToServe) {
+				smallestTimeToServe = timeToServe;
+				selectedElevator = snapshot;
+			}
+		}
+		return selectedElevator;
+	}
+
+	/**
+	 * Add a random drop off job to the given elevator
+	 *
+	 * @param jobManagement the elevator job management
+	 * @param random        the random generator
+	 */
+	private static void addRandomJob(ElevatorJobManagement jobManagement, Random random) {
+		Direction direction = random.nextBoolean() ? Direction.UP : Direction.DOWN;
+		if (!jobManagement.isRunningJob()) {
+			jobManagement.setElevatorDirection(direction);
+		}
+		jobManagement.addJob(new ElevatorTransportRequest(random.nextInt(FloorSubsystem.NUMBER_OF_FLOORS), 0,
+				direction, null, null, random.nextInt()));
+	}
+
+	/**
+	 * Return the given percentile of the sorted times
+	 *
+	 * @param sortedNanoseconds the sorted times
+	 * @param percentile        the percentile, between 0 and 1
+	 * @return the time at the percentile
+	 */
+	private static double percentile(long[] sortedNanoseconds, double percentile) {
+		return sortedNanoseconds[(int) Math.min(sortedNanoseconds.length - 1, percentile * sortedNanoseconds.length)];
+	}
+}
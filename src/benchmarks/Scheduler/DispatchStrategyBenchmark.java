@@ -0,0 +1,363 @@
+/**
+ *
+ */
+package benchmarks.Scheduler;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import ElevatorSubsystem.ElevatorController;
+import ElevatorSubsystem.ElevatorDoor;
+import ElevatorSubsystem.ElevatorMotor;
+import FloorSubsystem.FloorSubsystem;
+import Scheduler.DispatchStrategy;
+import Scheduler.ElevatorJobManagement;
+import Scheduler.ElevatorJobSnapshot;
+import Scheduler.LoadBalancingDispatchStrategy;
+import Scheduler.TimeToServeDispatchStrategy;
+import common.Direction;
+import common.SimulationFloorInputData;
+import common.messages.ElevatorJobMessage;
+import common.messages.MessageType;
+import common.messages.elevator.ElevatorTransportRequest;
+import common.messages.floor.ElevatorFloorRequest;
+
+/**
+ * This class compares the passenger wait times of the dispatch strategies on
+ * the same recorded traces of floor inputs.
+ *
+ * The elevators are simulated in virtual time, the way the scheduler drives
+ * them: they move one floor at a time towards the nearest target floor of
+ * their ElevatorJobManagement, and open and close their doors at each target
+ * floor, where the passengers picked up press their destination at once. The
+ * wait time of a passenger runs from the request to the arrival of the
+ * elevator at the pick up floor.
+ *
+ * @author paulokenne
+ *
+ */
+public class DispatchStrategyBenchmark {
+
+	/**
+	 * The number of elevators
+	 */
+	private static final int ELEVATOR_COUNT = 4;
+
+	/**
+	 * The time an elevator takes to move between two floors, as in the
+	 * SystemExecutor
+	 */
+	private static final long FLOOR_TO_FLOOR_MILLISECONDS = 1000;
+
+	/**
+	 * The door open/close time, as in the SystemExecutor
+	 */
+	private static final double DOOR_OPEN_CLOSE_MILLISECONDS = 3000;
+
+	/**
+	 * The step of the virtual time
+	 */
+	private static final long TICK_MILLISECONDS = 100;
+
+	/**
+	 * The number of requests of a generated trace
+	 */
+	private static final int TRACE_REQUESTS = 400;
+
+	/**
+	 * The duration of a generated trace
+	 */
+	private static final int TRACE_MILLISECONDS = 40 * 60 * 1000;
+
+	/**
+	 * A passenger of the trace
+	 */
+	private static class Passenger {
+
+		/**
+		 * The time of the request
+		 */
+		private long requestMilliseconds;
+
+		/**
+		 * The floor of the request
+		 */
+		private int floor;
+
+		/**
+		 * The direction of the request
+		 */
+		private Direction direction;
+
+		/**
+		 * The destination floor
+		 */
+		private int destinationFloor;
+
+		/**
+		 * The time the elevator arrived at the floor, or -1
+		 */
+		private long pickUpMilliseconds = -1;
+
+		/**
+		 * The time the elevator arrived at the destination floor, or -1
+		 */
+		private long dropOffMilliseconds = -1;
+	}
+
+	/**
+	 * A simulated elevator
+	 */
+	private static class SimulatedElevator {
+
+		/**
+		 * The job management of the elevator
+		 */
+		private ElevatorJobManagement jobManagement;
+
+		/**
+		 * The time the elevator is done with its current move or stop
+		 */
+		private long busyUntilMilliseconds;
+
+		/**
+		 * A SimulatedElevator constructor
+		 *
+		 * @param elevatorId the elevator id
+		 */
+		private SimulatedElevator(int elevatorId) {
+			jobManagement = new ElevatorJobManagement(elevatorId);
+			jobManagement.setErrorState(null);
+		}
+	}
+
+	/**
+	 * Run the benchmark
+	 *
+	 * @param args the files of recorded traces, or none for generated traces
+	 */
+	public static void main(String[] args) throws Exception {
+		Map<String, List<String>> traces = new LinkedHashMap<>();
+		if (args.length > 0) {
+			for (String fileName : args) {
+				traces.put(fileName, Files.readAllLines(Paths.get(fileName)));
+			}
+		} else {
+			traces.put("interfloor", generateTrace(new Random(1), 0.0));
+			traces.put("up-peak", generateTrace(new Random(2), 0.8));
+		}
+
+		ElevatorMotor motor = new ElevatorMotor(ElevatorController.MAX_ELEVATOR_SPEED,
+				ElevatorController.ELEVATOR_ACCELERATION);
+		ElevatorDoor door = new ElevatorDoor(DOOR_OPEN_CLOSE_MILLISECONDS);
+		DispatchStrategy[] strategies = { new LoadBalancingDispatchStrategy(),
+				new TimeToServeDispatchStrategy(motor, door) };
+
+		for (Map.Entry<String, List<String>> trace : traces.entrySet()) {
+			for (DispatchStrategy strategy : strategies) {
+				List<Passenger> passengers = parseTrace(trace.getValue());
+				simulate(passengers, strategy);
+				printWaitTimes(trace.getKey(), strategy, passengers);
+			}
+		}
+	}
+
+	/**
+	 * Generate a trace of floor inputs, one line per request in the format of the
+	 * floor input file
+	 *
+	 * @param random           the source of the requests
+	 * @param groundFloorShare the share of the requests going up from the ground
+	 *                         floor
+	 * @return the lines of the trace
+	 */
+	private static List<String> generateTrace(Random random, double groundFloorShare) {
+		long[] requestMilliseconds = new long[TRACE_REQUESTS];
+		for (int i = 0; i < TRACE_REQUESTS; i++) {
+			requestMilliseconds[i] = random.nextInt(TRACE_MILLISECONDS);
+		}
+		Arrays.sort(requestMilliseconds);
+
+		List<String> lines = new ArrayList<>();
+		for (long milliseconds : requestMilliseconds) {
+			int floor = random.nextDouble() < groundFloorShare ? 0 : random.nextInt(FloorSubsystem.NUMBER_OF_FLOORS);
+			int destinationFloor;
+			do {
+				destinationFloor = random.nextInt(FloorSubsystem.NUMBER_OF_FLOORS);
+			} while (destinationFloor == floor);
+
+			LocalTime arrivalTime = LocalTime.of(8, 0).plusNanos(milliseconds * 1_000_000);
+			lines.add(String.format("%02d:%02d:%02d.%d %d %s %d", arrivalTime.getHour(), arrivalTime.getMinute(),
+					arrivalTime.getSecond(), arrivalTime.getNano() / 100_000_000, floor,
+					destinationFloor > floor ? Direction.UP : Direction.DOWN, destinationFloor));
+		}
+		return lines;
+	}
+
+	/**
+	 * Parse the passengers of a trace
+	 *
+	 * @param lines the lines of the trace
+	 * @return the passengers, by request time
+	 */
+	private static List<Passenger> parseTrace(List<String> lines) {
+		List<Passenger> passengers = new ArrayList<>();
+		long firstRequestMilliseconds = -1;
+		for (String line : lines) {
+			if (line.isBlank()) {
+				continue;
+			}
+
+			SimulationFloorInputData floorInput = new SimulationFloorInputData(passengers.size(), line);
+			long requestMilliseconds = LocalTime.parse(line.strip().split(" ")[0]).toNanoOfDay() / 1_000_000;
+			if (firstRequestMilliseconds == -1) {
+				firstRequestMilliseconds = requestMilliseconds;
+			}
+
+			Passenger passenger = new Passenger();
+			passenger.requestMilliseconds = requestMilliseconds - firstRequestMilliseconds;
+			passenger.floor = floorInput.getCurrentFloor();
+			passenger.direction = floorInput.getFloorDirectionButton();
+			passenger.destinationFloor = floorInput.getDestinationFloorCarButton();
+			passengers.add(passenger);
+		}
+		return passengers;
+	}
+
+	/**
+	 * Simulate the elevators serving the passengers, dispatched by the given
+	 * strategy
+	 *
+	 * @param passengers the passengers, by request time
+	 * @param strategy   the dispatch strategy
+	 */
+	private static void simulate(List<Passenger> passengers, DispatchStrategy strategy) {
+		SimulatedElevator[] elevators = new SimulatedElevator[ELEVATOR_COUNT];
+		ElevatorJobManagement[] jobManagements = new ElevatorJobManagement[ELEVATOR_COUNT];
+		for (int i = 0; i < ELEVATOR_COUNT; i++) {
+			elevators[i] = new SimulatedElevator(i);
+			jobManagements[i] = elevators[i].jobManagement;
+		}
+
+		int nextPassenger = 0;
+		for (long now = 0;; now += TICK_MILLISECONDS) {
+			while (nextPassenger < passengers.size() && passengers.get(nextPassenger).requestMilliseconds <= now) {
+				Passenger passenger = passengers.get(nextPassenger);
+				ElevatorJobMessage job = new ElevatorFloorRequest(passenger.floor, passenger.direction, nextPassenger);
+				ElevatorJobSnapshot[] snapshots = new ElevatorJobSnapshot[ELEVATOR_COUNT];
+				for (int i = 0; i < ELEVATOR_COUNT; i++) {
+					snapshots[i] = jobManagements[i].snapshot();
+				}
+				ElevatorJobManagement jobManagement = jobManagements[strategy.selectElevator(snapshots, job)
+						.getElevatorId()];
+				jobManagement.addJob(job);
+				if (!jobManagement.isRunningJob()) {
+					jobManagement.setElevatorDirection(job.getDirection());
+				}
+				nextPassenger++;
+			}
+
+			boolean isRunning = nextPassenger < passengers.size();
+			for (SimulatedElevator elevator : elevators) {
+				if (now >= elevator.busyUntilMilliseconds) {
+					step(elevator, passengers, now);
+				}
+				isRunning |= elevator.jobManagement.getNumberOfJobs() > 0;
+			}
+			if (!isRunning) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Move the given elevator one floor towards its nearest target floor, or stop
+	 * it at its target floor, as the scheduler does
+	 *
+	 * @param elevator   the elevator
+	 * @param passengers the passengers
+	 * @param now        the current time
+	 */
+	private static void step(SimulatedElevator elevator, List<Passenger> passengers, long now) {
+		ElevatorJobManagement jobManagement = elevator.jobManagement;
+		if (!jobManagement.isRunningJob()) {
+			return;
+		}
+
+		int floor = jobManagement.getCurrentFloorNumber();
+		int targetFloor = jobManagement.getNearestTargetFloor();
+		if (targetFloor == -1) {
+			updateDirection(jobManagement);
+			return;
+		}
+
+		if (targetFloor != floor) {
+			jobManagement.setCurrentFloorNumber(targetFloor > floor ? floor + 1 : floor - 1);
+			elevator.busyUntilMilliseconds = now + FLOOR_TO_FLOOR_MILLISECONDS;
+			return;
+		}
+
+		ArrayList<ElevatorJobMessage> jobs = jobManagement.getPrimaryJobsAtFloor(floor);
+		for (ElevatorJobMessage job : jobs) {
+			Passenger passenger = passengers.get(job.getFloorInputId());
+			if (job.getMessageType() == MessageType.ELEVATOR_PICK_UP_PASSENGER_REQUEST) {
+				passenger.pickUpMilliseconds = now;
+				jobManagement.addJob(new ElevatorTransportRequest(passenger.destinationFloor,
+						jobManagement.getElevatorId(), passenger.direction, null, null, job.getFloorInputId()));
+			} else {
+				passenger.dropOffMilliseconds = now;
+			}
+		}
+		jobManagement.removeJobs(jobs);
+		elevator.busyUntilMilliseconds = now + (long) (2 * DOOR_OPEN_CLOSE_MILLISECONDS);
+
+		if (!jobManagement.hasPrimaryJobs()) {
+			updateDirection(jobManagement);
+		}
+	}
+
+	/**
+	 * Turn the elevator around for its secondary jobs, or make it idle
+	 *
+	 * @param jobManagement the job management of the elevator
+	 */
+	private static void updateDirection(ElevatorJobManagement jobManagement) {
+		if (jobManagement.hasSecondaryJobs()) {
+			jobManagement.loadSecondaryJobs();
+		} else {
+			jobManagement.setElevatorDirection(Direction.IDLE);
+		}
+	}
+
+	/**
+	 * Print the wait and journey times of the passengers
+	 *
+	 * @param traceName  the name of the trace
+	 * @param strategy   the dispatch strategy
+	 * @param passengers the passengers
+	 */
+	private static void printWaitTimes(String traceName, DispatchStrategy strategy, List<Passenger> passengers) {
+		long[] waitMilliseconds = new long[passengers.size()];
+		long totalJourneyMilliseconds = 0;
+		for (int i = 0; i < passengers.size(); i++) {
+			Passenger passenger = passengers.get(i);
+			waitMilliseconds[i] = passenger.pickUpMilliseconds - passenger.requestMilliseconds;
+			totalJourneyMilliseconds += passenger.dropOffMilliseconds - passenger.requestMilliseconds;
+		}
+		Arrays.sort(waitMilliseconds);
+		double averageWaitMilliseconds = Arrays.stream(waitMilliseconds).average().orElse(0);
+
+		System.out.printf("%-12s %-30s: average wait %5.1fs, p95 wait %5.1fs, max wait %5.1fs, average journey %5.1fs%n",
+				traceName, strategy.getClass().getSimpleName(), averageWaitMilliseconds / 1000,
+				waitMilliseconds[(int) (waitMilliseconds.length * 0.95)] / 1000.0,
+				waitMilliseconds[waitMilliseconds.length - 1] / 1000.0,
+				totalJourneyMilliseconds / 1000.0 / passengers.size());
+	}
+}
@@ -0,0 +1,312 @@
+/**
+ *
+ */
+package benchmarks.Scheduler;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import FloorSubsystem.FloorSubsystem;
+import Scheduler.ElevatorJobManagement;
+import common.Direction;
+import common.messages.ElevatorJobMessage;
+import common.messages.elevator.ElevatorTransportRequest;
+
+/**
+ * This class measures the command decisions of the scheduler on an elevator
+ * with many outstanding jobs, with the floor-indexed ElevatorJobManagement and
+ * with the HashSet scans it replaced.
+ *
+ * A decision makes the queries of SchedulerWorkHandler.executeNextElevatorCommand:
+ * the primary and secondary jobs, the nearest target floor and the jobs at that
+ * floor, which are then removed. As many jobs are added back at other floors, so
+ * the number of outstanding jobs stays the same.
+ *
+ * It then measures the nearest target floor lookup of every floor arrival, from
+ * the stop masks and from a scan of the jobs, in buildings of many floors.
+ *
+ * @author paulokenne
+ *
+ */
+public class ElevatorJobStoreBenchmark {
+
+	/**
+	 * The numbers of outstanding jobs
+	 */
+	private static final int[] JOB_COUNTS = { 50, 500, 5000 };
+
+	/**
+	 * The numbers of floors of the nearest target floor lookups
+	 */
+	private static final int[] FLOOR_COUNTS = { 23, 1_000, 100_000 };
+
+	/**
+	 * The number of outstanding jobs of the nearest target floor lookups
+	 */
+	private static final int LOOKUP_JOB_COUNT = 500;
+
+	/**
+	 * The number of nearest target floor lookups
+	 */
+	private static final int LOOKUPS = 200_000;
+
+	/**
+	 * The sum of the floors looked up, so the lookups are not optimized away
+	 */
+	private static volatile long lookedUpFloors;
+
+	/**
+	 * The number of decisions of the warm up
+	 */
+	private static final int WARM_UP_DECISIONS = 5_000;
+
+	/**
+	 * The number of measured decisions
+	 */
+	private static final int MEASURED_DECISIONS = 20_000;
+
+	/**
+	 * The command decision queries of an elevator's jobs
+	 */
+	private interface JobDecisions {
+
+		/**
+		 * Add a job
+		 *
+		 * @param job the job
+		 */
+		void addJob(ElevatorJobMessage job);
+
+		/**
+		 * Make a command decision, and remove the jobs addressed
+		 *
+		 * @return the jobs addressed
+		 */
+		ArrayList<ElevatorJobMessage> decide();
+	}
+
+	/**
+	 * The decisions on the floor-indexed ElevatorJobManagement
+	 */
+	private static class IndexedJobDecisions implements JobDecisions {
+
+		/**
+		 * The job management
+		 */
+		private ElevatorJobManagement jobManagement = new ElevatorJobManagement(0);
+
+		/**
+		 * An IndexedJobDecisions constructor
+		 */
+		private IndexedJobDecisions() {
+			jobManagement.setElevatorDirection(Direction.UP);
+		}
+
+		@Override
+		public void addJob(ElevatorJobMessage job) {
+			jobManagement.addJob(job);
+		}
+
+		@Override
+		public ArrayList<ElevatorJobMessage> decide() {
+			if (!jobManagement.hasPrimaryJobs() || !jobManagement.hasSecondaryJobs()
+					|| jobManagement.getNumberOfPrimaryJobs() == 0) {
+				return new ArrayList<>();
+			}
+			int targetFloor = Math.min(jobManagement.getSmallestDestinationFloorInElevatorDirection(),
+					jobManagement.getLargestDestinationFloorInElevatorDirection());
+			ArrayList<ElevatorJobMessage> jobs = jobManagement.getPrimaryJobsAtFloor(targetFloor);
+			jobManagement.removeJobs(jobs);
+			return jobs;
+		}
+	}
+
+	/**
+	 * The decisions on a HashSet of jobs, scanned by every query as
+	 * ElevatorJobManagement used to
+	 */
+	private static class ScanningJobDecisions implements JobDecisions {
+
+		/**
+		 * The jobs
+		 */
+		private Set<ElevatorJobMessage> jobs = new HashSet<>();
+
+		/**
+		 * The elevator direction
+		 */
+		private Direction elevatorDirection = Direction.UP;
+
+		@Override
+		public void addJob(ElevatorJobMessage job) {
+			jobs.add(job);
+		}
+
+		@Override
+		public ArrayList<ElevatorJobMessage> decide() {
+			boolean hasPrimaryJobs = jobs.stream().anyMatch(job -> job.getDirection() == elevatorDirection);
+			boolean hasSecondaryJobs = jobs.stream().anyMatch(job -> job.getDirection() == Direction.DOWN);
+			int numberOfPrimaryJobs = (int) jobs.stream().filter(job -> job.getDirection() == elevatorDirection)
+					.count();
+			if (!hasPrimaryJobs || !hasSecondaryJobs || numberOfPrimaryJobs == 0) {
+				return new ArrayList<>();
+			}
+
+			int smallestFloor = FloorSubsystem.NUMBER_OF_FLOORS;
+			int largestFloor = -1;
+			for (ElevatorJobMessage job : jobs) {
+				if (job.getDirection() == elevatorDirection && job.getDestinationFloor() < smallestFloor) {
+					smallestFloor = job.getDestinationFloor();
+				}
+			}
+			for (ElevatorJobMessage job : jobs) {
+				if (job.getDirection() == elevatorDirection && job.getDestinationFloor() > largestFloor) {
+					largestFloor = job.getDestinationFloor();
+				}
+			}
+
+			int targetFloor = Math.min(smallestFloor, largestFloor);
+			ArrayList<ElevatorJobMessage> floorJobs = new ArrayList<>();
+			for (ElevatorJobMessage job : jobs) {
+				if (job.getDestinationFloor() == targetFloor) {
+					floorJobs.add(job);
+				}
+			}
+			jobs.removeAll(floorJobs);
+			return floorJobs;
+		}
+	}
+
+	/**
+	 * Run the benchmark
+	 *
+	 * @param args unused
+	 */
+	public static void main(String[] args) {
+		for (int jobCount : JOB_COUNTS) {
+			double scanningNanoseconds = run(new ScanningJobDecisions(), jobCount);
+			double indexedNanoseconds = run(new IndexedJobDecisions(), jobCount);
+			System.out.printf("%5d jobs: HashSet scans %9.0fns/decision, floor index %7.0fns/decision, %6.1fx%n",
+					jobCount, scanningNanoseconds, indexedNanoseconds, scanningNanoseconds / indexedNanoseconds);
+		}
+
+		for (int floorCount : FLOOR_COUNTS) {
+			runLookups(floorCount);
+		}
+	}
+
+	/**
+	 * Time the nearest target floor lookups of an elevator going up, from the
+	 * stop masks and from a scan of the jobs, and print them
+	 *
+	 * @param floorCount the number of floors of the building
+	 */
+	private static void runLookups(int floorCount) {
+		Random random = new Random(floorCount);
+		ElevatorJobManagement jobManagement = new ElevatorJobManagement(0);
+		jobManagement.setElevatorDirection(Direction.UP);
+		Set<ElevatorJobMessage> jobs = new HashSet<>();
+		for (int i = 0; i < LOOKUP_JOB_COUNT; i++) {
+			ElevatorJobMessage job = new ElevatorTransportRequest(random.nextInt(floorCount), 0,
+					random.nextBoolean() ? Direction.UP : Direction.DOWN, null, null, i);
+			jobManagement.addJob(job);
+			jobs.add(job);
+		}
+
+		int[] currentFloors = new int[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			currentFloors[i] = random.nextInt(floorCount);
+		}
+
+		// The first round warms up
+		double maskNanoseconds = 0;
+		double scanNanoseconds = 0;
+		for (int round = 0; round < 2; round++) {
+			long floorSum = 0;
+			long startTime = System.nanoTime();
+			for (int currentFloor : currentFloors) {
+				jobManagement.setCurrentFloorNumber(currentFloor);
+				floorSum += jobManagement.getNearestTargetFloor();
+			}
+			maskNanoseconds = (System.nanoTime() - startTime) / (double) LOOKUPS;
+
+			startTime = System.nanoTime();
+			for (int currentFloor : currentFloors) {
+				int nearestTargetFloor = Integer.MAX_VALUE;
+				for (ElevatorJobMessage job : jobs) {
+					if (job.getDirection() == Direction.UP && job.getDestinationFloor() >= currentFloor
+							&& job.getDestinationFloor() < nearestTargetFloor) {
+						nearestTargetFloor = job.getDestinationFloor();
+					}
+				}
+				floorSum += nearestTargetFloor;
+			}
+			scanNanoseconds = (System.nanoTime() - startTime) / (double) LOOKUPS;
+			lookedUpFloors = floorSum;
+		}
+
+		System.out.printf("%6d floors, %d jobs: nearest target scan %7.0fns/lookup, stop mask %5.0fns/lookup%n",
+				floorCount, LOOKUP_JOB_COUNT, scanNanoseconds, maskNanoseconds);
+	}
+
+	/**
+	 * Fill the decisions with jobs and time the measured decisions
+	 *
+	 * @param decisions the decisions
+	 * @param jobCount  the number of outstanding jobs
+	 * @return the average time of a decision
+	 */
+	private static double run(JobDecisions decisions, int jobCount) {
+		Random random = new Random(jobCount);
+		int[] nextJobId = { 0 };
+		for (int i = 0; i < jobCount; i++) {
+			decisions.addJob(createJob(random, nextJobId));
+		}
+
+		decide(decisions, WARM_UP_DECISIONS, random, nextJobId);
+		long startTime = System.nanoTime();
+		long addressedJobs = decide(decisions, MEASURED_DECISIONS, random, nextJobId);
+		long durationNanoseconds = System.nanoTime() - startTime;
+
+		if (addressedJobs == 0) {
+			throw new IllegalStateException("No jobs were addressed");
+		}
+		return durationNanoseconds / (double) MEASURED_DECISIONS;
+	}
+
+	/**
+	 * Make the given number of decisions, adding back as many jobs as each one
+	 * addresses
+	 *
+	 * @param decisions      the decisions
+	 * @param decisionCount  the number of decisions
+	 * @param random         the source of the new jobs
+	 * @param nextJobId      the id of the next job
+	 * @return the number of jobs addressed
+	 */
+	private static long decide(JobDecisions decisions, int decisionCount, Random random, int[] nextJobId) {
+		long addressedJobs = 0;
+		for (int i = 0; i < decisionCount; i++) {
+			ArrayList<ElevatorJobMessage> jobs = decisions.decide();
+			addressedJobs += jobs.size();
+			for (int j = 0; j < jobs.size(); j++) {
+				decisions.addJob(createJob(random, nextJobId));
+			}
+		}
+		return addressedJobs;
+	}
+
+	/**
+	 * Create a job at a random floor, in a random direction
+	 *
+	 * @param random    the source of the floor and direction
+	 * @param nextJobId the id of the next job
+	 * @return the job
+	 */
+	private static ElevatorJobMessage createJob(Random random, int[] nextJobId) {
+		return new ElevatorTransportRequest(random.nextInt(FloorSubsystem.NUMBER_OF_FLOORS), 0,
+				random.nextBoolean() ? Direction.UP : Direction.DOWN, null, null, nextJobId[0]++);
+	}
+}
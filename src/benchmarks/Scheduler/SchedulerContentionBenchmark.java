@@ -0,0 +1,328 @@
+/**
+ *
+ */
+package benchmarks.Scheduler;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+
+import ElevatorSubsystem.ElevatorController;
+import ElevatorSubsystem.ElevatorDoor;
+import ElevatorSubsystem.ElevatorMotor;
+import FloorSubsystem.FloorSubsystem;
+import Scheduler.DispatchStrategy;
+import Scheduler.ElevatorJobManagement;
+import Scheduler.SchedulerElevatorWorkHandler;
+import Scheduler.SchedulerFloorWorkHandler;
+import Scheduler.TimeToServeDispatchStrategy;
+import common.Direction;
+import common.LoggerWrapper;
+import common.messages.Message;
+import common.messages.elevator.ElevatorStatusMessage;
+import common.messages.floor.ElevatorFloorRequest;
+import common.remote_procedure.SubsystemCommunicationRPC;
+import common.remote_procedure.SubsystemComponentType;
+
+/**
+ * This class measures how long the status messages of 6 elevators wait for the
+ * scheduler while it is flooded with pick up requests.
+ *
+ * The scheduler's two work handlers run with the per-elevator locks they use,
+ * and with the single monitor on the elevator job managements they used
+ * before: each handler then holds the monitor for its whole batch, sends
+ * included, so a status message waits for the dispatch of the pick up requests
+ * of the other elevators.
+ *
+ * The messages the scheduler sends go through the in-process transport to
+ * receivers that discard them.
+ *
+ * @author paulokenne
+ *
+ */
+public class SchedulerContentionBenchmark {
+
+	/**
+	 * The number of elevators
+	 */
+	private static final int ELEVATOR_COUNT = 6;
+
+	/**
+	 * The number of pick up requests
+	 */
+	private static final int PICK_UP_REQUESTS = 20_000;
+
+	/**
+	 * The number of pick up requests enqueued every millisecond
+	 */
+	private static final int PICK_UP_REQUESTS_PER_MILLISECOND = 20;
+
+	/**
+	 * The time the doors take to open or close
+	 */
+	private static final int DOOR_OPEN_CLOSE_MILLISECONDS = 3000;
+
+	/**
+	 * A scheduler work handler of the elevator messages that measures the wait of
+	 * the status messages
+	 */
+	private static class MeasuredElevatorWorkHandler extends SchedulerElevatorWorkHandler {
+
+		/**
+		 * A flag indicating whether the batches are handled under the single monitor
+		 */
+		private boolean isSingleMonitor;
+
+		/**
+		 * The times the status messages were enqueued
+		 */
+		private ConcurrentHashMap<Message, Long> enqueuedNanoseconds = new ConcurrentHashMap<>();
+
+		/**
+		 * The waits of the handled status messages
+		 */
+		private long[] waitNanoseconds = new long[PICK_UP_REQUESTS];
+
+		/**
+		 * The number of handled status messages
+		 */
+		private volatile int handledStatusMessages = 0;
+
+		/**
+		 * A MeasuredElevatorWorkHandler constructor
+		 *
+		 * @param floorCommunication     the scheduler floor communication
+		 * @param elevatorCommunication  the scheduler elevator communication
+		 * @param elevatorJobManagements the elevator job managements
+		 * @param isSingleMonitor        true to handle the batches under the single
+		 *                               monitor
+		 */
+		private MeasuredElevatorWorkHandler(SubsystemCommunicationRPC floorCommunication,
+				SubsystemCommunicationRPC elevatorCommunication, ElevatorJobManagement[] elevatorJobManagements,
+				boolean isSingleMonitor) {
+			super(floorCommunication, elevatorCommunication, elevatorJobManagements);
+			this.isSingleMonitor = isSingleMonitor;
+		}
+
+		/**
+		 * Enqueue a status message, noting when
+		 *
+		 * @param message the status message
+		 */
+		private void enqueueStatusMessage(Message message) {
+			enqueuedNanoseconds.put(message, System.nanoTime());
+			enqueueMessage(message);
+		}
+
+		@Override
+		protected void handleBatch(List<Message> messages) {
+			if (isSingleMonitor) {
+				synchronized (elevatorJobManagements) {
+					super.handleBatch(messages);
+				}
+			} else {
+				super.handleBatch(messages);
+			}
+		}
+
+		@Override
+		protected void handleMessage(Message message) {
+			super.handleMessage(message);
+			Long enqueueTime = enqueuedNanoseconds.remove(message);
+			if (enqueueTime != null) {
+				waitNanoseconds[handledStatusMessages] = System.nanoTime() - enqueueTime;
+				handledStatusMessages++;
+			}
+		}
+	}
+
+	/**
+	 * A scheduler work handler of the floor messages that counts the pick up
+	 * requests
+	 */
+	private static class MeasuredFloorWorkHandler extends SchedulerFloorWorkHandler {
+
+		/**
+		 * A flag indicating whether the batches are handled under the single monitor
+		 */
+		private boolean isSingleMonitor;
+
+		/**
+		 * The number of handled pick up requests
+		 */
+		private volatile int handledPickUpRequests = 0;
+
+		/**
+		 * A MeasuredFloorWorkHandler constructor
+		 *
+		 * @param floorCommunication     the scheduler floor communication
+		 * @param elevatorCommunication  the scheduler elevator communication
+		 * @param elevatorJobManagements the elevator job managements
+		 * @param dispatchStrategy       the dispatch strategy
+		 * @param isSingleMonitor        true to handle the batches under the single
+		 *                               monitor
+		 */
+		private MeasuredFloorWorkHandler(SubsystemCommunicationRPC floorCommunication,
+				SubsystemCommunicationRPC elevatorCommunication, ElevatorJobManagement[] elevatorJobManagements,
+				DispatchStrategy dispatchStrategy, boolean isSingleMonitor) {
+			super(floorCommunication, elevatorCommunication, elevatorJobManagements, dispatchStrategy);
+			this.isSingleMonitor = isSingleMonitor;
+		}
+
+		@Override
+		protected void handleBatch(List<Message> messages) {
+			if (isSingleMonitor) {
+				synchronized (elevatorJobManagements) {
+					super.handleBatch(messages);
+				}
+			} else {
+				super.handleBatch(messages);
+			}
+		}
+
+		@Override
+		protected void handleMessage(Message message) {
+			super.handleMessage(message);
+			handledPickUpRequests++;
+		}
+	}
+
+	/**
+	 * The scheduler floor communication
+	 */
+	private static SubsystemCommunicationRPC schedulerFloorCommunication;
+
+	/**
+	 * The scheduler elevator communication
+	 */
+	private static SubsystemCommunicationRPC schedulerElevatorCommunication;
+
+	/**
+	 * Run the benchmark
+	 *
+	 * @param args unused
+	 */
+	public static void main(String[] args) throws Exception {
+		LoggerWrapper.getLogger().setLevel(Level.WARNING);
+
+		schedulerFloorCommunication = new SubsystemCommunicationRPC(SubsystemComponentType.SCHEDULER,
+				SubsystemComponentType.FLOOR_SUBSYSTEM);
+		schedulerElevatorCommunication = new SubsystemCommunicationRPC(SubsystemComponentType.SCHEDULER,
+				SubsystemComponentType.ELEVATOR_SUBSYSTEM);
+		discardMessages(SubsystemComponentType.FLOOR_SUBSYSTEM);
+		discardMessages(SubsystemComponentType.ELEVATOR_SUBSYSTEM);
+		discardMessages(SubsystemComponentType.GUI);
+
+		// The first runs warm up
+		run(true, false);
+		run(false, false);
+		run(true, true);
+		run(false, true);
+		System.exit(0);
+	}
+
+	/**
+	 * Flood the scheduler with pick up requests while the elevators report their
+	 * status, and print the waits of the status messages
+	 *
+	 * @param isSingleMonitor true to handle the batches under the single monitor
+	 * @param isPrinted       true to print the results
+	 */
+	private static void run(boolean isSingleMonitor, boolean isPrinted) {
+		ElevatorJobManagement[] elevatorJobManagements = new ElevatorJobManagement[ELEVATOR_COUNT];
+		for (int i = 0; i < ELEVATOR_COUNT; i++) {
+			elevatorJobManagements[i] = new ElevatorJobManagement(i);
+			elevatorJobManagements[i].setErrorState(null);
+		}
+		DispatchStrategy strategy = new TimeToServeDispatchStrategy(
+				new ElevatorMotor(ElevatorController.MAX_ELEVATOR_SPEED, ElevatorController.ELEVATOR_ACCELERATION),
+				new ElevatorDoor(DOOR_OPEN_CLOSE_MILLISECONDS));
+
+		MeasuredElevatorWorkHandler elevatorWorkHandler = new MeasuredElevatorWorkHandler(schedulerFloorCommunication,
+				schedulerElevatorCommunication, elevatorJobManagements, isSingleMonitor);
+		MeasuredFloorWorkHandler floorWorkHandler = new MeasuredFloorWorkHandler(schedulerFloorCommunication,
+				schedulerElevatorCommunication, elevatorJobManagements, strategy, isSingleMonitor);
+
+		// Every millisecond, a burst of calls and the status of one elevator, which
+		// moves a floor and asks for its next command
+		Random random = new Random(1);
+		int[] elevatorFloors = new int[ELEVATOR_COUNT];
+		int statusMessages = 0;
+		long startTime = System.nanoTime();
+		for (int request = 0; request < PICK_UP_REQUESTS; request += PICK_UP_REQUESTS_PER_MILLISECOND) {
+			for (int i = request; i < request + PICK_UP_REQUESTS_PER_MILLISECOND; i++) {
+				Direction direction = random.nextBoolean() ? Direction.UP : Direction.DOWN;
+				int floor = direction == Direction.UP ? random.nextInt(FloorSubsystem.NUMBER_OF_FLOORS - 1)
+						: 1 + random.nextInt(FloorSubsystem.NUMBER_OF_FLOORS - 1);
+				floorWorkHandler.enqueueMessage(new ElevatorFloorRequest(floor, direction, i));
+			}
+
+			int elevatorId = statusMessages % ELEVATOR_COUNT;
+			elevatorFloors[elevatorId] = (elevatorFloors[elevatorId] + 1) % FloorSubsystem.NUMBER_OF_FLOORS;
+			elevatorWorkHandler.enqueueStatusMessage(new ElevatorStatusMessage(elevatorId, Direction.UP,
+					elevatorFloors[elevatorId], null, false, true, false));
+			statusMessages++;
+
+			LockSupport.parkNanos(1_000_000);
+		}
+
+		while (floorWorkHandler.handledPickUpRequests < PICK_UP_REQUESTS
+				|| elevatorWorkHandler.handledStatusMessages
+						+ elevatorWorkHandler.getCollapsedStatusMessages() < statusMessages) {
+			LockSupport.parkNanos(1_000_000);
+		}
+		long durationNanoseconds = System.nanoTime() - startTime;
+
+		if (!isPrinted) {
+			return;
+		}
+		long[] waitNanoseconds = Arrays.copyOf(elevatorWorkHandler.waitNanoseconds,
+				elevatorWorkHandler.handledStatusMessages);
+		Arrays.sort(waitNanoseconds);
+		System.out.printf(
+				"%-18s: %5d calls in %6.1fms, %4d status messages (%d collapsed), "
+						+ "status wait p50 %7.1fus, p99 %8.1fus, max %8.1fus%n",
+				isSingleMonitor ? "single monitor" : "per-elevator locks", PICK_UP_REQUESTS, durationNanoseconds / 1e6,
+				statusMessages, elevatorWorkHandler.getCollapsedStatusMessages(),
+				percentile(waitNanoseconds, 0.50) / 1e3, percentile(waitNanoseconds, 0.99) / 1e3,
+				waitNanoseconds[waitNanoseconds.length - 1] / 1e3);
+	}
+
+	/**
+	 * Receive and discard the messages the scheduler sends to the given subsystem
+	 *
+	 * @param subsystemType the subsystem
+	 */
+	private static void discardMessages(SubsystemComponentType subsystemType) {
+		SubsystemCommunicationRPC communication = new SubsystemCommunicationRPC(subsystemType,
+				SubsystemComponentType.SCHEDULER);
+		Thread receiver = new Thread() {
+			@Override
+			public void run() {
+				while (true) {
+					try {
+						communication.receiveMessage();
+					} catch (Exception e) {
+						return;
+					}
+				}
+			}
+		};
+		receiver.setDaemon(true);
+		receiver.start();
+	}
+
+	/**
+	 * Return the given percentile of the sorted times
+	 *
+	 * @param sortedNanoseconds the sorted times
+	 * @param percentile        the percentile, between 0 and 1
+	 * @return the time at the percentile
+	 */
+	private static double percentile(long[] sortedNanoseconds, double percentile) {
+		return sortedNanoseconds[(int) Math.min(sortedNanoseconds.length - 1, percentile * sortedNanoseconds.length)];
+	}
+}
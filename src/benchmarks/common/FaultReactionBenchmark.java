@@ -0,0 +1,191 @@
+/**
+ *
+ */
+package benchmarks.common;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+import common.Direction;
+import common.messages.Message;
+import common.messages.elevator.ElevatorStatusMessage;
+import common.messages.floor.ElevatorFloorRequest;
+import common.messages.floor.ElevatorNotArrived;
+import common.work_management.MessageLaneMetrics;
+import common.work_management.MessagePriority;
+import common.work_management.MessageWorkQueue;
+
+/**
+ * This class measures how long a stuck at floor fault waits in a
+ * MessageWorkQueue flooded with bursts of pick up requests and GUI status
+ * messages, with the priority lanes and with every message in one lane.
+ *
+ * @author paulokenne
+ *
+ */
+public class FaultReactionBenchmark {
+
+	/**
+	 * The duration of a run
+	 */
+	private static final long RUN_MILLISECONDS = 3000;
+
+	/**
+	 * The number of threads flooding the queue
+	 */
+	private static final int FLOOD_PRODUCER_COUNT = 4;
+
+	/**
+	 * The number of messages in a burst of a flooding thread
+	 */
+	private static final int BURST_SIZE = 250;
+
+	/**
+	 * The pause of a flooding thread between two bursts
+	 */
+	private static final long BURST_PAUSE_MILLISECONDS = 10;
+
+	/**
+	 * The pause between two faults
+	 */
+	private static final long FAULT_PAUSE_MILLISECONDS = 3;
+
+	/**
+	 * The time spent handling a message
+	 */
+	private static final long HANDLING_NANOSECONDS = 5_000;
+
+	/**
+	 * A fault stamped with the time it was enqueued
+	 */
+	private static class TimedFault extends ElevatorNotArrived {
+
+		/**
+		 * The serialization version
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The time the fault was enqueued
+		 */
+		private long enqueuedNanoseconds;
+
+		/**
+		 * A TimedFault constructor
+		 */
+		private TimedFault() {
+			super(1, 0);
+		}
+	}
+
+	/**
+	 * A work queue that spends a fixed time on each message and records the fault
+	 * latencies
+	 */
+	private static class BenchmarkWorkQueue extends MessageWorkQueue {
+
+		/**
+		 * A flag indicating whether every message shares one lane
+		 */
+		private volatile boolean isSingleLane;
+
+		/**
+		 * The fault latencies, in handling order
+		 */
+		private long[] faultLatencyNanoseconds = new long[(int) (2 * RUN_MILLISECONDS / FAULT_PAUSE_MILLISECONDS)];
+
+		/**
+		 * The number of handled faults
+		 */
+		private volatile int handledFaults = 0;
+
+		@Override
+		protected MessagePriority getPriority(Message message) {
+			return isSingleLane ? MessagePriority.COMMAND : super.getPriority(message);
+		}
+
+		@Override
+		protected void handleMessage(Message message) {
+			long handledTime = System.nanoTime();
+			if (message instanceof TimedFault) {
+				faultLatencyNanoseconds[handledFaults] = handledTime - ((TimedFault) message).enqueuedNanoseconds;
+				handledFaults = handledFaults + 1;
+			}
+			while (System.nanoTime() - handledTime < HANDLING_NANOSECONDS) {
+				Thread.onSpinWait();
+			}
+		}
+	}
+
+	/**
+	 * Run the benchmark
+	 *
+	 * @param args unused
+	 */
+	public static void main(String[] args) throws Exception {
+		// Warm up
+		run(false, false);
+		run(true, false);
+
+		run(false, true);
+		run(true, true);
+		System.exit(0);
+	}
+
+	/**
+	 * Flood a work queue and send faults for the run duration, then print the
+	 * fault latency percentiles
+	 *
+	 * @param isSingleLane whether every message shares one lane
+	 * @param isPrinted    whether to print the results
+	 */
+	private static void run(boolean isSingleLane, boolean isPrinted) throws Exception {
+		BenchmarkWorkQueue queue = new BenchmarkWorkQueue();
+		queue.isSingleLane = isSingleLane;
+		long endTime = System.nanoTime() + RUN_MILLISECONDS * 1_000_000;
+
+		Thread[] floodProducers = new Thread[FLOOD_PRODUCER_COUNT];
+		for (int i = 0; i < FLOOD_PRODUCER_COUNT; i++) {
+			floodProducers[i] = new Thread() {
+				@Override
+				public void run() {
+					while (System.nanoTime() < endTime) {
+						for (int j = 0; j < BURST_SIZE; j++) {
+							queue.enqueueMessage(j % 2 == 0 ? new ElevatorFloorRequest(3, Direction.UP, j)
+									: new ElevatorStatusMessage(0, Direction.UP, 3, null, false, false, false)
+											.forGuiOnly());
+						}
+						LockSupport.parkNanos(BURST_PAUSE_MILLISECONDS * 1_000_000);
+					}
+				}
+			};
+			floodProducers[i].start();
+		}
+
+		int sentFaults = 0;
+		while (System.nanoTime() < endTime) {
+			TimedFault fault = new TimedFault();
+			fault.enqueuedNanoseconds = System.nanoTime();
+			queue.enqueueMessage(fault);
+			sentFaults++;
+			LockSupport.parkNanos(FAULT_PAUSE_MILLISECONDS * 1_000_000);
+		}
+		for (Thread floodProducer : floodProducers) {
+			floodProducer.join();
+		}
+		while (queue.handledFaults < sentFaults) {
+			Thread.sleep(1);
+		}
+
+		if (isPrinted) {
+			long[] latencies = Arrays.copyOf(queue.faultLatencyNanoseconds, sentFaults);
+			Arrays.sort(latencies);
+			MessageLaneMetrics guiLane = queue.getLaneMetrics(MessagePriority.GUI);
+			System.out.printf(
+					"%-12s: %4d faults, latency p50 %8.1fus, p99 %8.1fus, max %8.1fus; GUI lane max depth %d, p99 wait <= %dus%n",
+					isSingleLane ? "single lane" : "lanes", sentFaults, latencies[latencies.length / 2] / 1e3,
+					latencies[(int) (latencies.length * 0.99)] / 1e3, latencies[latencies.length - 1] / 1e3,
+					guiLane.getMaxDepth(), guiLane.getWaitTimes().getPercentileMicroseconds(99));
+		}
+	}
+}
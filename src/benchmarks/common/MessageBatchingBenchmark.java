@@ -0,0 +1,143 @@
+/**
+ *
+ */
+package benchmarks.common;
+
+import java.net.InetAddress;
+import java.util.concurrent.CompletableFuture;
+
+import ElevatorSubsystem.ElevatorMotor;
+import common.messages.Message;
+import common.messages.elevator.ElevatorFloorSignalRequestMessage;
+import common.messages.elevator.ElevatorLeavingFloorMessage;
+import common.remote_procedure.SlidingWindowFrame;
+import common.remote_procedure.SlidingWindowMetrics;
+import common.remote_procedure.SlidingWindowSender;
+import common.remote_procedure.SubsystemCommunicationConfigurations;
+import common.remote_procedure.SubsystemCommunicationInfo;
+import common.remote_procedure.SubsystemCommunicationRPC;
+import common.remote_procedure.SubsystemComponentType;
+
+/**
+ * This class measures how many datagrams an elevator to floor link sends with
+ * and without batching.
+ *
+ * Every burst is the pair the elevator sends on each MOVE_UP/MOVE_DOWN: an
+ * ElevatorLeavingFloorMessage and an ElevatorFloorSignalRequestMessage. The
+ * "burst" runs wait for each pair to be acknowledged before sending the next,
+ * like a car moving floor by floor. The "stream" runs send every pair without
+ * waiting.
+ *
+ * @author paulokenne
+ *
+ */
+public class MessageBatchingBenchmark {
+
+	/**
+	 * The number of bursts sent before measuring
+	 */
+	private static final int WARM_UP_BURSTS = 1000;
+
+	/**
+	 * The number of measured bursts
+	 */
+	private static final int MEASURED_BURSTS = 10000;
+
+	/**
+	 * Run the benchmark
+	 *
+	 * @param args unused
+	 */
+	public static void main(String[] args) throws Exception {
+		SubsystemCommunicationRPC receiver = new SubsystemCommunicationRPC(SubsystemComponentType.FLOOR_SUBSYSTEM,
+				SubsystemComponentType.ELEVATOR_SUBSYSTEM);
+
+		Thread receiveThread = new Thread() {
+			@Override
+			public void run() {
+				while (true) {
+					try {
+						receiver.receiveMessage();
+					} catch (Exception e) {
+						return;
+					}
+				}
+			}
+		};
+		receiveThread.setDaemon(true);
+		receiveThread.start();
+
+		ElevatorMotor motor = new ElevatorMotor(3, 1.5);
+		motor.goUp();
+		Message[] burst = { new ElevatorLeavingFloorMessage(2, 4),
+				new ElevatorFloorSignalRequestMessage(2, 5, motor, true) };
+
+		runBursts(burst, "burst", false, true);
+		runBursts(burst, "burst", true, true);
+		runBursts(burst, "stream", false, false);
+		runBursts(burst, "stream", true, false);
+		System.exit(0);
+	}
+
+	/**
+	 * Send the bursts and print the message and datagram rates
+	 *
+	 * @param burst              the messages of a burst
+	 * @param name               the name of the run
+	 * @param isBatching         whether the sender batches
+	 * @param isWaitingForBursts whether each burst waits for its acknowledgements
+	 */
+	private static void runBursts(Message[] burst, String name, boolean isBatching, boolean isWaitingForBursts)
+			throws Exception {
+		SubsystemCommunicationInfo targetInfo = SubsystemCommunicationConfigurations
+				.getSourceSubsystemCommunicationInfo(SubsystemComponentType.FLOOR_SUBSYSTEM,
+						SubsystemComponentType.ELEVATOR_SUBSYSTEM);
+		SlidingWindowSender sender = new SlidingWindowSender(InetAddress.getByName(targetInfo.getIpAddress()),
+				targetInfo.getPortNumber(), SubsystemCommunicationRPC.SEND_WINDOW_SIZE,
+				SubsystemCommunicationRPC.ACKNOWLEDGEMENT_TIMEOUT_MILLISECONDS,
+				isBatching ? SlidingWindowFrame.MAX_BATCHED_MESSAGES : 1,
+				SubsystemCommunicationConfigurations.BATCHING_DELAY_MICROSECONDS);
+
+		sendBursts(sender, burst, WARM_UP_BURSTS, isWaitingForBursts);
+
+		SlidingWindowMetrics metrics = sender.getMetrics();
+		long startMessages = metrics.getSentMessages();
+		long startDatagrams = metrics.getSentFrames() + metrics.getRetransmissions();
+		long startTime = System.nanoTime();
+
+		sendBursts(sender, burst, MEASURED_BURSTS, isWaitingForBursts);
+
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		long messages = metrics.getSentMessages() - startMessages;
+		long datagrams = metrics.getSentFrames() + metrics.getRetransmissions() - startDatagrams;
+
+		System.out.printf("%-6s batching %-3s: %9.0f messages/s %9.0f data datagrams/s %5.2f messages/datagram, "
+				+ "average latency %.3fms%n", name, isBatching ? "on" : "off", messages / seconds, datagrams / seconds,
+				messages / (double) datagrams, metrics.getAverageSendLatencyMilliseconds());
+	}
+
+	/**
+	 * Send the given number of bursts and wait until they are all acknowledged or
+	 * abandoned
+	 *
+	 * @param sender             the sender
+	 * @param burst              the messages of a burst
+	 * @param numberOfBursts     the number of bursts
+	 * @param isWaitingForBursts whether each burst waits for its acknowledgements
+	 */
+	private static void sendBursts(SlidingWindowSender sender, Message[] burst, int numberOfBursts,
+			boolean isWaitingForBursts) throws Exception {
+		CompletableFuture<?>[] acknowledgements = new CompletableFuture<?>[numberOfBursts * burst.length];
+		for (int i = 0; i < numberOfBursts; i++) {
+			for (int j = 0; j < burst.length; j++) {
+				acknowledgements[i * burst.length + j] = sender.sendAsync(burst[j]);
+			}
+
+			if (isWaitingForBursts) {
+				acknowledgements[i * burst.length + burst.length - 1].get();
+			}
+		}
+
+		CompletableFuture.allOf(acknowledgements).get();
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ *
+ */
+package benchmarks.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Base64;
+import java.util.List;
+
+import ElevatorSubsystem.ElevatorAutoFixing;
+import ElevatorSubsystem.ElevatorMotor;
+import FloorSubsystem.FloorInputFault;
+import common.Direction;
+import common.exceptions.ElevatorStateException;
+import common.messages.CommunicationFailureMessage;
+import common.messages.Message;
+import common.messages.MessageType;
+import common.messages.elevator.ElevatorFloorArrivalMessage;
+import common.messages.elevator.ElevatorFloorSignalRequestMessage;
+import common.messages.elevator.ElevatorLeavingFloorMessage;
+import common.messages.elevator.ElevatorStatusMessage;
+import common.messages.elevator.ElevatorStatusRequest;
+import common.messages.elevator.ElevatorTransportRequest;
+import common.messages.floor.ElevatorFloorRequest;
+import common.messages.floor.ElevatorNotArrived;
+import common.messages.scheduler.ElevatorCommand;
+import common.messages.scheduler.FloorCommand;
+import common.messages.scheduler.PassengerDropoffCompletedMessage;
+import common.messages.scheduler.SchedulerElevatorCommand;
+import common.messages.scheduler.SchedulerFloorCommand;
+import common.remote_procedure.MessageCodec;
+
+/**
+ * This class measures, for every message class, the encoded size and the
+ * encode/decode time of the MessageCodec against Java serialization with
+ * Base64, which the RPC layer used before.
+ *
+ * @author paulokenne
+ *
+ */
+public class MessageCodecBenchmark {
+
+	/**
+	 * The number of iterations used to warm up
+	 */
+	private static final int WARM_UP_ITERATIONS = 20000;
+
+	/**
+	 * The number of measured iterations
+	 */
+	private static final int MEASURED_ITERATIONS = 100000;
+
+	/**
+	 * A sink that keeps the JIT from removing the measured work
+	 */
+	private static int sink;
+
+	/**
+	 * Run the benchmark
+	 *
+	 * @param args unused
+	 */
+	public static void main(String[] args) throws Exception {
+		ElevatorMotor motor = new ElevatorMotor(3, 1.5);
+		motor.goUp();
+		ElevatorStateException doorFault = new ElevatorStateException(FloorInputFault.DOOR_STUCK_OPEN_FAULT, 4,
+				"The elevator car (id= 2) door is stuck");
+
+		List<Message> messages = List.of(new Message(MessageType.ACKNOWLEDGEMENT_RESPONSE),
+				new CommunicationFailureMessage(), new ElevatorStatusRequest(2),
+				new ElevatorStatusMessage(2, Direction.UP, 4, null, false, true),
+				new ElevatorStatusMessage(2, Direction.UP, 4, doorFault, true, false, true),
+				new SchedulerElevatorCommand(ElevatorCommand.MOVE_UP, 2),
+				new SchedulerFloorCommand(FloorCommand.TURN_OFF_FLOOR_LAMP, 4, Direction.UP, 2, 11),
+				new PassengerDropoffCompletedMessage(11),
+				new ElevatorTransportRequest(9, 2, Direction.UP, null, ElevatorAutoFixing.AUTO_FIXING_SUCCESS, 11),
+				new ElevatorFloorRequest(4, Direction.UP, 11, null, -1), new ElevatorFloorArrivalMessage(2, 5),
+				new ElevatorFloorSignalRequestMessage(2, 5, motor, true), new ElevatorLeavingFloorMessage(2, 4),
+				new ElevatorNotArrived(5, 2));
+
+		System.out.printf("%-34s %9s %9s %11s %11s %11s %11s%n", "message", "java B", "codec B", "java enc ns",
+				"codec enc ns", "java dec ns", "codec dec ns");
+
+		for (Message message : messages) {
+			byte[] serializedBytes = serialize(message);
+			byte[] encodedBytes = MessageCodec.encode(message);
+
+			for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+				sink += serialize(message).length + MessageCodec.encode(message).length;
+				sink += deserialize(serializedBytes).hashCode() + MessageCodec.decode(encodedBytes, 0, encodedBytes.length).hashCode();
+			}
+
+			long startTime = System.nanoTime();
+			for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+				sink += serialize(message).length;
+			}
+			double serializeNanoseconds = (System.nanoTime() - startTime) / (double) MEASURED_ITERATIONS;
+
+			startTime = System.nanoTime();
+			for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+				sink += MessageCodec.encode(message).length;
+			}
+			double encodeNanoseconds = (System.nanoTime() - startTime) / (double) MEASURED_ITERATIONS;
+
+			startTime = System.nanoTime();
+			for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+				sink += deserialize(serializedBytes).hashCode();
+			}
+			double deserializeNanoseconds = (System.nanoTime() - startTime) / (double) MEASURED_ITERATIONS;
+
+			startTime = System.nanoTime();
+			for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+				sink += MessageCodec.decode(encodedBytes, 0, encodedBytes.length).hashCode();
+			}
+			double decodeNanoseconds = (System.nanoTime() - startTime) / (double) MEASURED_ITERATIONS;
+
+			System.out.printf("%-34s %9d %9d %11.0f %11.0f %11.0f %11.0f%n", message.getClass().getSimpleName(),
+					serializedBytes.length, encodedBytes.length, serializeNanoseconds, encodeNanoseconds,
+					deserializeNanoseconds, decodeNanoseconds);
+		}
+
+		System.out.println("(sink " + sink + ")");
+	}
+
+	/**
+	 * Serialize the message the way the RPC layer used to
+	 *
+	 * @param message the message
+	 * @return the serialized, Base64 encoded message
+	 */
+	private static byte[] serialize(Message message) throws Exception {
+		ByteArrayOutputStream byteOutputStream = new ByteArrayOutputStream();
+		ObjectOutputStream objectOutStream = new ObjectOutputStream(byteOutputStream);
+		objectOutStream.writeObject(message);
+		objectOutStream.flush();
+		return Base64.getEncoder().encode(byteOutputStream.toByteArray());
+	}
+
+	/**
+	 * Deserialize the message the way the RPC layer used to
+	 *
+	 * @param messageBytes the serialized, Base64 encoded message
+	 * @return the message
+	 */
+	private static Message deserialize(byte[] messageBytes) throws Exception {
+		ObjectInputStream objectInputStream = new ObjectInputStream(
+				new ByteArrayInputStream(Base64.getDecoder().decode(messageBytes)));
+		return (Message) objectInputStream.readObject();
+	}
+}
@@ -0,0 +1,282 @@
+/**
+ *
+ */
+package benchmarks.common;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import common.messages.Message;
+import common.messages.MessageType;
+import common.work_management.MessageWorkQueue;
+
+/**
+ * This class measures the enqueue to handle latency and the throughput of the
+ * MessageWorkQueue with 1, 4 and 16 producer threads, against the
+ * synchronized ArrayDeque with wait/notify that it used before.
+ *
+ * The "burst" runs enqueue as fast as the producers can, which measures
+ * throughput; their latency is mostly the time spent behind the backlog. The
+ * "paced" runs pause between messages, so the worker keeps emptying the queue
+ * and parking, the way it does in the running system.
+ *
+ * @author paulokenne
+ *
+ */
+public class MessageWorkQueueBenchmark {
+
+	/**
+	 * The number of messages enqueued per burst run, over all producers
+	 */
+	private static final int BURST_MESSAGES = 400000;
+
+	/**
+	 * The number of messages enqueued per paced run, over all producers
+	 */
+	private static final int PACED_MESSAGES = 20000;
+
+	/**
+	 * The pause of a paced producer between two messages
+	 */
+	private static final long PACED_PAUSE_NANOSECONDS = 50_000;
+
+	/**
+	 * The numbers of producer threads
+	 */
+	private static final int[] PRODUCER_COUNTS = { 1, 4, 16 };
+
+	/**
+	 * A message stamped with the time it was enqueued
+	 */
+	private static class TimedMessage extends Message {
+
+		/**
+		 * The serialization version
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The time the message was enqueued
+		 */
+		private long enqueuedNanoseconds;
+
+		/**
+		 * A TimedMessage constructor
+		 */
+		private TimedMessage() {
+			super(MessageType.TEST_REQUEST);
+		}
+	}
+
+	/**
+	 * A queue under test
+	 */
+	private interface WorkQueue {
+
+		/**
+		 * Enqueue the given message
+		 *
+		 * @param message the message
+		 */
+		void enqueueMessage(Message message);
+	}
+
+	/**
+	 * The MessageWorkQueue under test
+	 */
+	private static class LockFreeWorkQueue extends MessageWorkQueue implements WorkQueue {
+
+		/**
+		 * The message handler
+		 */
+		private volatile Consumer<Message> handler;
+
+		@Override
+		protected void handleMessage(Message message) {
+			handler.accept(message);
+		}
+	}
+
+	/**
+	 * The synchronized work queue that MessageWorkQueue used before
+	 */
+	private static class LockingWorkQueue implements WorkQueue {
+
+		/**
+		 * The message work queue
+		 */
+		private ArrayDeque<Message> messageWorkQueue = new ArrayDeque<>();
+
+		/**
+		 * A LockingWorkQueue constructor
+		 *
+		 * @param handler the message handler
+		 */
+		private LockingWorkQueue(Consumer<Message> handler) {
+			Thread workerThread = new Thread() {
+				@Override
+				public void run() {
+					while (true) {
+						Message message = null;
+						synchronized (messageWorkQueue) {
+							while (messageWorkQueue.isEmpty()) {
+								try {
+									messageWorkQueue.wait();
+								} catch (Exception e) {
+									return;
+								}
+							}
+							message = messageWorkQueue.pop();
+						}
+						handler.accept(message);
+					}
+				}
+			};
+			workerThread.setDaemon(true);
+			workerThread.start();
+		}
+
+		@Override
+		public void enqueueMessage(Message message) {
+			synchronized (messageWorkQueue) {
+				messageWorkQueue.add(message);
+				messageWorkQueue.notify();
+			}
+		}
+	}
+
+	/**
+	 * The latencies recorded by the handler of a run
+	 */
+	private static class LatencyRecorder implements Consumer<Message> {
+
+		/**
+		 * The latencies, in handling order
+		 */
+		private long[] latencyNanoseconds;
+
+		/**
+		 * The number of handled messages
+		 */
+		private int handledMessages = 0;
+
+		/**
+		 * Counted down when every message is handled
+		 */
+		private CountDownLatch done = new CountDownLatch(1);
+
+		/**
+		 * A LatencyRecorder constructor
+		 *
+		 * @param messageCount the number of messages of the run
+		 */
+		private LatencyRecorder(int messageCount) {
+			latencyNanoseconds = new long[messageCount];
+		}
+
+		@Override
+		public void accept(Message message) {
+			latencyNanoseconds[handledMessages++] = System.nanoTime() - ((TimedMessage) message).enqueuedNanoseconds;
+			if (handledMessages == latencyNanoseconds.length) {
+				done.countDown();
+			}
+		}
+	}
+
+	/**
+	 * Run the benchmark
+	 *
+	 * @param args unused
+	 */
+	public static void main(String[] args) throws Exception {
+		// Warm up both queues
+		for (int producerCount : PRODUCER_COUNTS) {
+			runBoth(producerCount, BURST_MESSAGES, 0, false);
+		}
+
+		for (int producerCount : PRODUCER_COUNTS) {
+			runBoth(producerCount, BURST_MESSAGES, 0, true);
+		}
+		for (int producerCount : PRODUCER_COUNTS) {
+			runBoth(producerCount, PACED_MESSAGES, PACED_PAUSE_NANOSECONDS, true);
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * Run the synchronized queue and then the MessageWorkQueue
+	 *
+	 * @param producerCount    the number of producer threads
+	 * @param messageCount     the number of messages, over all producers
+	 * @param pauseNanoseconds the pause of a producer between two messages
+	 * @param isPrinted        whether to print the results
+	 */
+	private static void runBoth(int producerCount, int messageCount, long pauseNanoseconds, boolean isPrinted)
+			throws Exception {
+		LatencyRecorder lockingRecorder = new LatencyRecorder(messageCount);
+		run(new LockingWorkQueue(lockingRecorder), lockingRecorder, "synchronized", producerCount,
+				pauseNanoseconds, isPrinted);
+
+		LatencyRecorder lockFreeRecorder = new LatencyRecorder(messageCount);
+		LockFreeWorkQueue queue = new LockFreeWorkQueue();
+		queue.handler = lockFreeRecorder;
+		run(queue, lockFreeRecorder, "lock-free", producerCount, pauseNanoseconds, isPrinted);
+	}
+
+	/**
+	 * Enqueue the run's messages from the producer threads, wait until they are
+	 * all handled, and print the throughput and latency percentiles
+	 *
+	 * @param queue            the queue
+	 * @param recorder         the queue's handler
+	 * @param name             the name of the queue
+	 * @param producerCount    the number of producer threads
+	 * @param pauseNanoseconds the pause of a producer between two messages
+	 * @param isPrinted        whether to print the results
+	 */
+	private static void run(WorkQueue queue, LatencyRecorder recorder, String name, int producerCount,
+			long pauseNanoseconds, boolean isPrinted) throws Exception {
+		int messageCount = recorder.latencyNanoseconds.length;
+		int messagesPerProducer = messageCount / producerCount;
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] producers = new Thread[producerCount];
+
+		for (int i = 0; i < producerCount; i++) {
+			producers[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int j = 0; j < messagesPerProducer; j++) {
+						TimedMessage message = new TimedMessage();
+						message.enqueuedNanoseconds = System.nanoTime();
+						queue.enqueueMessage(message);
+						if (pauseNanoseconds > 0) {
+							LockSupport.parkNanos(pauseNanoseconds);
+						}
+					}
+				}
+			};
+			producers[i].start();
+		}
+
+		long startTime = System.nanoTime();
+		start.countDown();
+		recorder.done.await();
+		double rate = messageCount / ((System.nanoTime() - startTime) / 1e9);
+
+		if (isPrinted) {
+			long[] latencies = recorder.latencyNanoseconds;
+			Arrays.sort(latencies);
+			System.out.printf("%-6s %-12s %2d producers: %10.0f messages/s, latency p50 %9.1fus, p99 %9.1fus%n",
+					pauseNanoseconds > 0 ? "paced" : "burst", name, producerCount, rate,
+					latencies[latencies.length / 2] / 1e3, latencies[(int) (latencies.length * 0.99)] / 1e3);
+		}
+	}
+}
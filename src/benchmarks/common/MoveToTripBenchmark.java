@@ -0,0 +1,369 @@
+/**
+ *
+ */
+package benchmarks.common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import ElevatorSubsystem.ElevatorCar;
+import ElevatorSubsystem.ElevatorController;
+import ElevatorSubsystem.ElevatorDoor;
+import ElevatorSubsystem.ElevatorFloorMessageWorkQueue;
+import ElevatorSubsystem.ElevatorMotor;
+import ElevatorSubsystem.ElevatorSchedulerMessageWorkQueue;
+import FloorSubsystem.Floor;
+import FloorSubsystem.FloorElevatorMessageWorkQueue;
+import FloorSubsystem.FloorSchedulerMessageWorkQueue;
+import FloorSubsystem.FloorSubsystem;
+import Scheduler.ElevatorJobManagement;
+import Scheduler.SchedulerElevatorWorkHandler;
+import Scheduler.SchedulerFloorWorkHandler;
+import Scheduler.SchedulerWorkHandler;
+import common.Direction;
+import common.LoggerWrapper;
+import common.SimulationFloorInputData;
+import common.messages.floor.ElevatorFloorRequest;
+import common.remote_procedure.SubsystemCommunicationRPC;
+import common.remote_procedure.SubsystemComponentType;
+import common.work_management.MessageWorkQueue;
+
+/**
+ * This class measures the messages and the time of the trips of one elevator
+ * across the building, when the scheduler moves it a floor at a time and when
+ * it sends it to the target floor with a single MOVE_TO command.
+ *
+ * The scheduler, elevator and floor subsystems run in this process, wired
+ * together by hand so that every link is counted: the messages of a trip are
+ * all those sent from the pick up request to the completion of the drop off,
+ * the status messages forwarded to the GUI included. A last trip is retargeted
+ * by a second passenger calling the elevator on its way.
+ *
+ * The passengers call the elevator a floor away from where it waits with its
+ * doors open: the elevator moves a floor to them, and then carries them across
+ * the building less a floor.
+ *
+ * @author paulokenne
+ *
+ */
+public class MoveToTripBenchmark {
+
+	/**
+	 * The floor to floor time
+	 */
+	private static final int FLOOR_TO_FLOOR_MILLISECONDS = 20;
+
+	/**
+	 * The time the doors take to open or close
+	 */
+	private static final int DOOR_OPEN_CLOSE_MILLISECONDS = 20;
+
+	/**
+	 * The number of round trips across the building of each mode
+	 */
+	private static final int ROUND_TRIPS = 3;
+
+	/**
+	 * The top floor
+	 */
+	private static final int TOP_FLOOR = FloorSubsystem.NUMBER_OF_FLOORS - 1;
+
+	/**
+	 * The floors the elevator moves in a trip: a floor to the passenger, and
+	 * across the building less a floor
+	 */
+	private static final int FLOORS_PER_TRIP = TOP_FLOOR;
+
+	/**
+	 * The links whose sent messages are counted
+	 */
+	private static ArrayList<SubsystemCommunicationRPC> links = new ArrayList<>();
+
+	/**
+	 * The number of status messages received by the GUI
+	 */
+	private static AtomicLong guiMessages = new AtomicLong();
+
+	/**
+	 * The floor data of the passengers
+	 */
+	private static ArrayList<SimulationFloorInputData> floorDataCollection = new ArrayList<>();
+
+	/**
+	 * The floors
+	 */
+	private static Floor[] floors = new Floor[FloorSubsystem.NUMBER_OF_FLOORS];
+
+	/**
+	 * The scheduler work handlers
+	 */
+	private static SchedulerWorkHandler[] schedulerWorkHandlers;
+
+	/**
+	 * The floor scheduler communication
+	 */
+	private static SubsystemCommunicationRPC floorSchedulerCommunication;
+
+	/**
+	 * The id of the next passenger
+	 */
+	private static int nextPassengerId = 0;
+
+	/**
+	 * Run the benchmark
+	 *
+	 * @param args unused
+	 */
+	public static void main(String[] args) throws Exception {
+		LoggerWrapper.getLogger().setLevel(Level.WARNING);
+		ElevatorController.NUMBER_OF_ELEVATORS = 1;
+		setUpSystem();
+
+		// The first round trip warms up
+		runRoundTrips(false, 1, false);
+		runRoundTrips(true, 1, false);
+		runRoundTrips(false, ROUND_TRIPS, true);
+		runRoundTrips(true, ROUND_TRIPS, true);
+		runRetargetedTrip(false);
+		runRetargetedTrip(true);
+		System.exit(0);
+	}
+
+	/**
+	 * Set up the scheduler, the elevator and the floors, and their links
+	 */
+	private static void setUpSystem() {
+		SubsystemCommunicationRPC schedulerFloorCommunication = link(SubsystemComponentType.SCHEDULER,
+				SubsystemComponentType.FLOOR_SUBSYSTEM);
+		SubsystemCommunicationRPC schedulerElevatorCommunication = link(SubsystemComponentType.SCHEDULER,
+				SubsystemComponentType.ELEVATOR_SUBSYSTEM);
+		SubsystemCommunicationRPC elevatorSchedulerCommunication = link(SubsystemComponentType.ELEVATOR_SUBSYSTEM,
+				SubsystemComponentType.SCHEDULER);
+		SubsystemCommunicationRPC elevatorFloorCommunication = link(SubsystemComponentType.ELEVATOR_SUBSYSTEM,
+				SubsystemComponentType.FLOOR_SUBSYSTEM);
+		floorSchedulerCommunication = link(SubsystemComponentType.FLOOR_SUBSYSTEM, SubsystemComponentType.SCHEDULER);
+		SubsystemCommunicationRPC floorElevatorCommunication = link(SubsystemComponentType.FLOOR_SUBSYSTEM,
+				SubsystemComponentType.ELEVATOR_SUBSYSTEM);
+
+		// The scheduler
+		ElevatorJobManagement[] elevatorJobManagements = { new ElevatorJobManagement(0) };
+		elevatorJobManagements[0].setErrorState(null);
+		SchedulerFloorWorkHandler schedulerFloorWorkHandler = new SchedulerFloorWorkHandler(
+				schedulerFloorCommunication, schedulerElevatorCommunication, elevatorJobManagements);
+		SchedulerElevatorWorkHandler schedulerElevatorWorkHandler = new SchedulerElevatorWorkHandler(
+				schedulerFloorCommunication, schedulerElevatorCommunication, elevatorJobManagements);
+		schedulerWorkHandlers = new SchedulerWorkHandler[] { schedulerFloorWorkHandler, schedulerElevatorWorkHandler };
+		receive(schedulerFloorCommunication, schedulerFloorWorkHandler);
+		receive(schedulerElevatorCommunication, schedulerElevatorWorkHandler);
+		countGUIMessages();
+
+		// The elevator
+		ElevatorCar car = new ElevatorCar(0,
+				new ElevatorMotor(ElevatorController.MAX_ELEVATOR_SPEED, ElevatorController.ELEVATOR_ACCELERATION),
+				new ElevatorDoor(DOOR_OPEN_CLOSE_MILLISECONDS));
+		ElevatorSchedulerMessageWorkQueue carWorkQueue = new ElevatorSchedulerMessageWorkQueue(
+				elevatorSchedulerCommunication, elevatorFloorCommunication, car);
+		Map<Integer, ElevatorCar> cars = new HashMap<>();
+		cars.put(0, car);
+		Map<Integer, ElevatorSchedulerMessageWorkQueue> carWorkQueues = new HashMap<>();
+		carWorkQueues.put(0, carWorkQueue);
+		receive(elevatorSchedulerCommunication, carWorkQueue);
+		receive(elevatorFloorCommunication,
+				new ElevatorFloorMessageWorkQueue(elevatorSchedulerCommunication, cars, carWorkQueues));
+
+		// The floors
+		for (int i = 0; i < floors.length; i++) {
+			floors[i] = new Floor(i, FLOOR_TO_FLOOR_MILLISECONDS);
+		}
+		receive(floorSchedulerCommunication, new FloorSchedulerMessageWorkQueue(floorSchedulerCommunication,
+				floorElevatorCommunication, floors, floorDataCollection));
+		receive(floorElevatorCommunication,
+				new FloorElevatorMessageWorkQueue(floorSchedulerCommunication, floorElevatorCommunication, floors));
+	}
+
+	/**
+	 * Run round trips across the building, and print the messages and the time of
+	 * a trip
+	 *
+	 * @param isMovingToTargetFloor true to send the elevator to its target floor
+	 *                              with a single command
+	 * @param roundTrips            the number of round trips
+	 * @param isPrinted             true to print the results
+	 */
+	private static void runRoundTrips(boolean isMovingToTargetFloor, int roundTrips, boolean isPrinted)
+			throws Exception {
+		setMovingToTargetFloor(isMovingToTargetFloor);
+
+		long messages = 0;
+		long durationNanoseconds = 0;
+		for (int i = 0; i < roundTrips; i++) {
+			long startMessages = countMessages();
+			long startTime = System.nanoTime();
+			callElevator(0, Direction.UP, TOP_FLOOR - 1);
+			waitForPassengers();
+			callElevator(TOP_FLOOR, Direction.DOWN, 1);
+			waitForPassengers();
+			durationNanoseconds += System.nanoTime() - startTime;
+			messages += countMessages() - startMessages;
+		}
+
+		if (isPrinted) {
+			int trips = 2 * roundTrips;
+			System.out.printf("%-14s: %2d-floor trip %6.1fms, %5.1f messages per trip (%4.2f per floor)%n",
+					isMovingToTargetFloor ? "MOVE_TO" : "floor by floor", FLOORS_PER_TRIP,
+					durationNanoseconds / 1e6 / trips, (double) messages / trips, (double) messages / trips / FLOORS_PER_TRIP);
+		}
+	}
+
+	/**
+	 * Run a trip up the building, during which a second passenger calls the
+	 * elevator half way up to go further up, and print the messages and the time
+	 * until both are dropped off
+	 *
+	 * @param isMovingToTargetFloor true to send the elevator to its target floor
+	 *                              with a single command
+	 */
+	private static void runRetargetedTrip(boolean isMovingToTargetFloor) throws Exception {
+		setMovingToTargetFloor(isMovingToTargetFloor);
+
+		long startMessages = countMessages();
+		long startTime = System.nanoTime();
+		callElevator(0, Direction.UP, TOP_FLOOR - 1);
+		Thread.sleep(4 * FLOOR_TO_FLOOR_MILLISECONDS);
+		callElevator(TOP_FLOOR / 2, Direction.UP, TOP_FLOOR - 3);
+		waitForPassengers();
+		long durationNanoseconds = System.nanoTime() - startTime;
+		long messages = countMessages() - startMessages;
+
+		System.out.printf("%-14s: retargeted trip %6.1fms, %5d messages%n",
+				isMovingToTargetFloor ? "MOVE_TO" : "floor by floor", durationNanoseconds / 1e6, messages);
+
+		// Back down for the next trip
+		callElevator(TOP_FLOOR, Direction.DOWN, 1);
+		waitForPassengers();
+	}
+
+	/**
+	 * Send the elevator to its target floors with a single command, or a floor at
+	 * a time
+	 *
+	 * @param isMovingToTargetFloor true to send the elevator to its target floor
+	 *                              with a single command
+	 */
+	private static void setMovingToTargetFloor(boolean isMovingToTargetFloor) {
+		for (SchedulerWorkHandler schedulerWorkHandler : schedulerWorkHandlers) {
+			schedulerWorkHandler.setMovingToTargetFloor(isMovingToTargetFloor);
+		}
+	}
+
+	/**
+	 * A passenger calls the elevator at the given floor, as the floor subsystem
+	 * does
+	 *
+	 * @param floor            the floor of the passenger
+	 * @param direction        the direction of the passenger
+	 * @param destinationFloor the floor the passenger goes to
+	 */
+	private static void callElevator(int floor, Direction direction, int destinationFloor) throws Exception {
+		int passengerId = nextPassengerId++;
+		synchronized (floorDataCollection) {
+			floorDataCollection.add(new SimulationFloorInputData(passengerId, "00:00:00.000", floor, direction,
+					destinationFloor, null, -1));
+		}
+		floors[floor].pressFloorButton(direction);
+		floorSchedulerCommunication.sendAsync(new ElevatorFloorRequest(floor, direction, passengerId));
+	}
+
+	/**
+	 * Wait until the passengers are dropped off
+	 */
+	private static void waitForPassengers() throws InterruptedException {
+		synchronized (floorDataCollection) {
+			while (!floorDataCollection.isEmpty()) {
+				floorDataCollection.wait();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of messages sent so far on all the links, the GUI
+	 *         included
+	 */
+	private static long countMessages() {
+		long messages = guiMessages.get();
+		for (SubsystemCommunicationRPC link : links) {
+			messages += link.getSendMetrics().getSentMessages();
+		}
+		return messages;
+	}
+
+	/**
+	 * Create a counted link between the given subsystems
+	 *
+	 * @param sourceType the subsystem sending on the link
+	 * @param targetType the subsystem at the other end
+	 * @return the link
+	 */
+	private static SubsystemCommunicationRPC link(SubsystemComponentType sourceType,
+			SubsystemComponentType targetType) {
+		SubsystemCommunicationRPC communication = new SubsystemCommunicationRPC(sourceType, targetType);
+		links.add(communication);
+		return communication;
+	}
+
+	/**
+	 * Enqueue the messages received on the given link into the work queue
+	 *
+	 * @param communication the link
+	 * @param workQueue     the work queue
+	 */
+	private static void receive(SubsystemCommunicationRPC communication, MessageWorkQueue workQueue) {
+		startReceiver(new Runnable() {
+			@Override
+			public void run() {
+				while (true) {
+					try {
+						workQueue.enqueueMessage(communication.receiveMessage());
+					} catch (Exception e) {
+						return;
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Receive and count the status messages the scheduler forwards to the GUI
+	 */
+	private static void countGUIMessages() {
+		SubsystemCommunicationRPC communication = new SubsystemCommunicationRPC(SubsystemComponentType.GUI,
+				SubsystemComponentType.SCHEDULER);
+		startReceiver(new Runnable() {
+			@Override
+			public void run() {
+				while (true) {
+					try {
+						communication.receiveMessage();
+						guiMessages.incrementAndGet();
+					} catch (Exception e) {
+						return;
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Start a receiving thread
+	 *
+	 * @param receiver the receiving loop
+	 */
+	private static void startReceiver(Runnable receiver) {
+		Thread thread = new Thread(receiver);
+		thread.setDaemon(true);
+		thread.start();
+	}
+}
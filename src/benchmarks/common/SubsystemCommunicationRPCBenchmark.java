@@ -0,0 +1,143 @@
+/**
+ *
+ */
+package benchmarks.common;
+
+import java.net.InetAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import common.messages.Message;
+import common.messages.MessageType;
+import common.remote_procedure.SlidingWindowSender;
+import common.remote_procedure.SubsystemCommunicationConfigurations;
+import common.remote_procedure.SubsystemCommunicationInfo;
+import common.remote_procedure.SubsystemCommunicationRPC;
+import common.remote_procedure.SubsystemComponentType;
+
+/**
+ * This class measures the number of messages per second that can be sent over
+ * a scheduler to elevator link.
+ *
+ * The "blocking" run waits for every acknowledgement before the next send, the
+ * way sendMessage does. The "sendAsync" runs queue every message and wait for
+ * the acknowledgements at the end, with a window of one message and with the
+ * link's default window. The "in-process" run sends through an RPC whose
+ * target runs in the same process, which hands the messages over without
+ * encoding them.
+ *
+ * @author paulokenne
+ *
+ */
+public class SubsystemCommunicationRPCBenchmark {
+
+	/**
+	 * The number of messages sent before measuring
+	 */
+	private static final int WARM_UP_MESSAGES = 2000;
+
+	/**
+	 * The number of measured messages
+	 */
+	private static final int MEASURED_MESSAGES = 20000;
+
+	/**
+	 * Run the benchmark
+	 *
+	 * @param args unused
+	 */
+	public static void main(String[] args) throws Exception {
+		SubsystemCommunicationRPC receiver = new SubsystemCommunicationRPC(SubsystemComponentType.ELEVATOR_SUBSYSTEM,
+				SubsystemComponentType.SCHEDULER);
+
+		Thread receiveThread = new Thread() {
+			@Override
+			public void run() {
+				while (true) {
+					try {
+						receiver.receiveMessage();
+					} catch (Exception e) {
+						return;
+					}
+				}
+			}
+		};
+		receiveThread.setDaemon(true);
+		receiveThread.start();
+
+		Message message = new Message(MessageType.TEST_REQUEST);
+
+		runWindow(SubsystemCommunicationRPC.SEND_WINDOW_SIZE, message, "blocking", true);
+		runWindow(1, message, "sendAsync", false);
+		runWindow(SubsystemCommunicationRPC.SEND_WINDOW_SIZE, message, "sendAsync", false);
+		runInProcess(message);
+		System.exit(0);
+	}
+
+	/**
+	 * Send messages through a sender with the given window until every message is
+	 * acknowledged, and print the rate and the send metrics
+	 *
+	 * @param windowSize the window size
+	 * @param message    the message
+	 * @param name       the name of the run
+	 * @param isBlocking whether every send waits for its acknowledgement
+	 */
+	private static void runWindow(int windowSize, Message message, String name, boolean isBlocking)
+			throws Exception {
+		SubsystemCommunicationInfo targetInfo = SubsystemCommunicationConfigurations
+				.getSourceSubsystemCommunicationInfo(SubsystemComponentType.ELEVATOR_SUBSYSTEM,
+						SubsystemComponentType.SCHEDULER);
+		SlidingWindowSender sender = new SlidingWindowSender(InetAddress.getByName(targetInfo.getIpAddress()),
+				targetInfo.getPortNumber(), windowSize, SubsystemCommunicationRPC.ACKNOWLEDGEMENT_TIMEOUT_MILLISECONDS);
+
+		sendAll(sender::sendAsync, message, WARM_UP_MESSAGES, isBlocking);
+
+		long startTime = System.nanoTime();
+		sendAll(sender::sendAsync, message, MEASURED_MESSAGES, isBlocking);
+		double rate = MEASURED_MESSAGES / ((System.nanoTime() - startTime) / 1e9);
+
+		System.out.printf("%-10s (window %2d): %10.0f messages/s %s%n", name, windowSize, rate, sender.getMetrics());
+	}
+
+	/**
+	 * Send messages through an RPC whose target runs in this process, and print
+	 * the rate and the send metrics
+	 *
+	 * @param message the message
+	 */
+	private static void runInProcess(Message message) throws Exception {
+		SubsystemCommunicationRPC sender = new SubsystemCommunicationRPC(SubsystemComponentType.SCHEDULER,
+				SubsystemComponentType.ELEVATOR_SUBSYSTEM);
+
+		sendAll(sender::sendAsync, message, WARM_UP_MESSAGES, false);
+
+		long startTime = System.nanoTime();
+		sendAll(sender::sendAsync, message, MEASURED_MESSAGES, false);
+		double rate = MEASURED_MESSAGES / ((System.nanoTime() - startTime) / 1e9);
+
+		System.out.printf("%-22s: %10.0f messages/s %s%n", "in-process", rate, sender.getSendMetrics());
+	}
+
+	/**
+	 * Send the given number of messages and wait until they are all acknowledged
+	 * or abandoned
+	 *
+	 * @param send             the send method
+	 * @param message          the message
+	 * @param numberOfMessages the number of messages
+	 * @param isBlocking       whether every send waits for its acknowledgement
+	 */
+	private static void sendAll(Function<Message, CompletableFuture<?>> send, Message message,
+			int numberOfMessages, boolean isBlocking) throws Exception {
+		CompletableFuture<?>[] acknowledgements = new CompletableFuture<?>[numberOfMessages];
+		for (int i = 0; i < numberOfMessages; i++) {
+			acknowledgements[i] = send.apply(message);
+			if (isBlocking) {
+				acknowledgements[i].get();
+			}
+		}
+
+		CompletableFuture.allOf(acknowledgements).get();
+	}
+}
@@ -0,0 +1,174 @@
+/**
+ *
+ */
+package benchmarks.common;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+
+import ElevatorSubsystem.ElevatorController;
+import ElevatorSubsystem.ElevatorMotor;
+import FloorSubsystem.FloorElevatorComponents;
+import FloorSubsystem.FloorSubsystem;
+import Scheduler.Scheduler;
+import common.remote_procedure.SubsystemCommunicationRPC;
+import common.remote_procedure.SubsystemComponentType;
+import common.work_management.SubsystemExecutor;
+
+/**
+ * This class measures the threads started by the subsystems under each threads
+ * model of the SubsystemExecutor: the startup of a 6 car system in one process,
+ * and the floor arrival notifications of 6 cars each passing many floors.
+ *
+ * Each model and phase runs in its own process, as the model is chosen when
+ * the SubsystemExecutor is loaded.
+ *
+ * @author paulokenne
+ *
+ */
+public class ThreadUsageBenchmark {
+
+	/**
+	 * The number of elevators
+	 */
+	private static final int ELEVATOR_COUNT = 6;
+
+	/**
+	 * The number of floors each elevator passes in the notification phase
+	 */
+	private static final int FLOORS_PASSED_PER_ELEVATOR = 200;
+
+	/**
+	 * The floor to floor time of the notification phase
+	 */
+	private static final int FLOOR_TO_FLOOR_MILLISECONDS = 5;
+
+	/**
+	 * The java command that runs the measured processes
+	 */
+	private static final String JAVA_COMMAND = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+
+	/**
+	 * Run the benchmark, or one measured phase when the first argument is the
+	 * phase
+	 *
+	 * @param args "startup" or "notifications" for a measured process, none
+	 *             otherwise
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length == 1 && args[0].equals("startup")) {
+			runStartup();
+			System.exit(0);
+		}
+		if (args.length == 1 && args[0].equals("notifications")) {
+			runNotifications();
+			System.exit(0);
+		}
+
+		String[] threadsModels = { SubsystemExecutor.PLATFORM_THREADS, SubsystemExecutor.AUTO_THREADS };
+		for (String threadsModel : threadsModels) {
+			runProcess(threadsModel, "startup");
+			runProcess(threadsModel, "notifications");
+		}
+	}
+
+	/**
+	 * Run a measured phase in its own process and print its output
+	 *
+	 * @param threadsModel the threads model
+	 * @param phase        the phase
+	 */
+	private static void runProcess(String threadsModel, String phase) throws Exception {
+		Process process = new ProcessBuilder(JAVA_COMMAND, "-D" + SubsystemExecutor.THREADS_PROPERTY + "=" + threadsModel,
+				"-Djava.util.logging.config.file=/dev/null", "-cp", System.getProperty("java.class.path"),
+				ThreadUsageBenchmark.class.getName(), phase).redirectErrorStream(true).start();
+
+		BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()));
+		String line;
+		while ((line = output.readLine()) != null) {
+			if (line.startsWith(phase)) {
+				System.out.printf("%-8s %s%n", threadsModel, line);
+			}
+		}
+		process.waitFor();
+	}
+
+	/**
+	 * Start the scheduler, elevator and floor subsystems in this process, and
+	 * print the startup time and the threads
+	 */
+	private static void runStartup() throws Exception {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		long startedThreads = threads.getTotalStartedThreadCount();
+		long startTime = System.nanoTime();
+
+		Scheduler scheduler = new Scheduler(ELEVATOR_COUNT);
+		scheduler.runSchedulerProgram();
+		new ElevatorController(0, ELEVATOR_COUNT);
+		new FloorSubsystem("", FLOOR_TO_FLOOR_MILLISECONDS).runMain();
+
+		long startupNanoseconds = System.nanoTime() - startTime;
+		System.out.printf("startup       (%s): %6.1fms, %3d platform threads started, %3d live%n",
+				SubsystemExecutor.isVirtual() ? "virtual" : "platform", startupNanoseconds / 1e6,
+				threads.getTotalStartedThreadCount() - startedThreads, threads.getThreadCount());
+	}
+
+	/**
+	 * Notify the arrivals of the elevators at each floor they pass, one floor at
+	 * a time per elevator, and print the duration and the threads
+	 */
+	private static void runNotifications() throws Exception {
+		SubsystemCommunicationRPC elevatorCommunication = new SubsystemCommunicationRPC(
+				SubsystemComponentType.ELEVATOR_SUBSYSTEM, SubsystemComponentType.FLOOR_SUBSYSTEM);
+		SubsystemCommunicationRPC floorCommunication = new SubsystemCommunicationRPC(
+				SubsystemComponentType.FLOOR_SUBSYSTEM, SubsystemComponentType.ELEVATOR_SUBSYSTEM);
+		CountDownLatch arrivals = new CountDownLatch(ELEVATOR_COUNT * FLOORS_PASSED_PER_ELEVATOR);
+		Thread receiver = new Thread() {
+			@Override
+			public void run() {
+				while (true) {
+					try {
+						elevatorCommunication.receiveMessage();
+						arrivals.countDown();
+					} catch (Exception e) {
+						return;
+					}
+				}
+			}
+		};
+		receiver.setDaemon(true);
+		receiver.start();
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		long startedThreads = threads.getTotalStartedThreadCount();
+		long startTime = System.nanoTime();
+
+		ElevatorMotor motor = new ElevatorMotor(3, 1.5);
+		FloorElevatorComponents[] components = new FloorElevatorComponents[ELEVATOR_COUNT];
+		for (int elevatorId = 0; elevatorId < ELEVATOR_COUNT; elevatorId++) {
+			components[elevatorId] = new FloorElevatorComponents(elevatorId);
+		}
+
+		// Each elevator's next floor is signalled while the previous one is being
+		// passed, as the elevator subsystem does
+		int peakThreads = 0;
+		for (int floor = 0; floor < FLOORS_PASSED_PER_ELEVATOR; floor++) {
+			for (FloorElevatorComponents component : components) {
+				component.notifyElevatorAtFloorArrival(floor, motor, FLOOR_TO_FLOOR_MILLISECONDS,
+						floorCommunication, floorCommunication, false, false);
+			}
+			peakThreads = Math.max(peakThreads, threads.getThreadCount());
+			Thread.sleep(FLOOR_TO_FLOOR_MILLISECONDS / 2);
+		}
+		arrivals.await();
+
+		long durationNanoseconds = System.nanoTime() - startTime;
+		System.out.printf("notifications (%s): %6.1fms, %4d platform threads started, %3d live at peak%n",
+				SubsystemExecutor.isVirtual() ? "virtual" : "platform", durationNanoseconds / 1e6,
+				threads.getTotalStartedThreadCount() - startedThreads, peakThreads);
+	}
+}
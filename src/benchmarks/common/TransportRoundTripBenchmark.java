@@ -0,0 +1,160 @@
+/**
+ *
+ */
+package benchmarks.common;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import common.messages.Message;
+import common.messages.MessageType;
+import common.remote_procedure.MessageInbox;
+import common.remote_procedure.MessageTransport;
+import common.remote_procedure.SharedMemoryMessageTransport;
+import common.remote_procedure.SubsystemCommunicationConfigurations;
+import common.remote_procedure.SubsystemCommunicationRPC;
+import common.remote_procedure.SubsystemComponentType;
+import common.remote_procedure.UdpMessageTransport;
+
+/**
+ * This class measures the round trip latency of the links between two
+ * processes on the same host, over UDP and over shared memory rings.
+ *
+ * The benchmark starts an echo process that plays the elevator subsystem and
+ * sends back every message it receives, then sends one message at a time from
+ * the scheduler's side and waits for the echo.
+ *
+ * @author paulokenne
+ *
+ */
+public class TransportRoundTripBenchmark {
+
+	/**
+	 * The number of round trips before measuring
+	 */
+	private static final int WARM_UP_ROUND_TRIPS = 5000;
+
+	/**
+	 * The number of measured round trips
+	 */
+	private static final int MEASURED_ROUND_TRIPS = 20000;
+
+	/**
+	 * The java command that runs the echo process
+	 */
+	private static final String JAVA_COMMAND = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+
+	/**
+	 * The line the echo process prints once its transport is open
+	 */
+	private static final String READY = "ready";
+
+	/**
+	 * Run the benchmark, or the echo process when the first argument is "echo"
+	 *
+	 * @param args "echo" and the transport for the echo process, none otherwise
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length == 2 && args[0].equals("echo")) {
+			runEcho(args[1]);
+			return;
+		}
+
+		runRoundTrips(SubsystemCommunicationConfigurations.UDP_TRANSPORT);
+		runRoundTrips(SubsystemCommunicationConfigurations.SHARED_MEMORY_TRANSPORT);
+	}
+
+	/**
+	 * Open the given transport between two subsystems
+	 *
+	 * @param transportName       the transport
+	 * @param sourceSubsystemType the source subsystem type
+	 * @param targetSubsystemType the target subsystem type
+	 * @param inbox               the inbox the received messages are delivered to
+	 * @return the transport
+	 */
+	private static MessageTransport openTransport(String transportName, SubsystemComponentType sourceSubsystemType,
+			SubsystemComponentType targetSubsystemType, MessageInbox inbox) throws Exception {
+		if (transportName.equals(SubsystemCommunicationConfigurations.SHARED_MEMORY_TRANSPORT)) {
+			return new SharedMemoryMessageTransport(sourceSubsystemType, targetSubsystemType, inbox);
+		}
+		return new UdpMessageTransport(sourceSubsystemType, targetSubsystemType,
+				SubsystemCommunicationRPC.SEND_WINDOW_SIZE, false, inbox);
+	}
+
+	/**
+	 * Send back every message received, until the process is stopped
+	 *
+	 * @param transportName the transport
+	 */
+	private static void runEcho(String transportName) throws Exception {
+		MessageInbox inbox = new MessageInbox();
+		MessageTransport transport = openTransport(transportName, SubsystemComponentType.ELEVATOR_SUBSYSTEM,
+				SubsystemComponentType.SCHEDULER, inbox);
+		System.out.println(READY);
+		System.out.flush();
+
+		while (true) {
+			transport.sendAsync(inbox.take());
+		}
+	}
+
+	/**
+	 * Start an echo process, measure the round trips to it and print their
+	 * latency percentiles
+	 *
+	 * @param transportName the transport
+	 */
+	private static void runRoundTrips(String transportName) throws Exception {
+		Process echoProcess = new ProcessBuilder(JAVA_COMMAND, "-cp", System.getProperty("java.class.path"),
+				TransportRoundTripBenchmark.class.getName(), "echo", transportName).redirectErrorStream(true).start();
+
+		try {
+			BufferedReader echoOutput = new BufferedReader(new InputStreamReader(echoProcess.getInputStream()));
+			String line;
+			while ((line = echoOutput.readLine()) != null && !line.equals(READY)) {
+				System.out.println("echo: " + line);
+			}
+
+			MessageInbox inbox = new MessageInbox();
+			MessageTransport transport = openTransport(transportName, SubsystemComponentType.SCHEDULER,
+					SubsystemComponentType.ELEVATOR_SUBSYSTEM, inbox);
+			Message message = new Message(MessageType.TEST_REQUEST);
+
+			for (int i = 0; i < WARM_UP_ROUND_TRIPS; i++) {
+				transport.sendAsync(message);
+				inbox.take();
+			}
+
+			long[] roundTripNanoseconds = new long[MEASURED_ROUND_TRIPS];
+			for (int i = 0; i < MEASURED_ROUND_TRIPS; i++) {
+				long startTime = System.nanoTime();
+				transport.sendAsync(message);
+				inbox.take();
+				roundTripNanoseconds[i] = System.nanoTime() - startTime;
+			}
+
+			Arrays.sort(roundTripNanoseconds);
+			System.out.printf("%-12s round trip: p50 %7.1fus, p90 %7.1fus, p99 %7.1fus, mean %7.1fus%n",
+					transportName, getPercentile(roundTripNanoseconds, 0.50) / 1e3,
+					getPercentile(roundTripNanoseconds, 0.90) / 1e3, getPercentile(roundTripNanoseconds, 0.99) / 1e3,
+					Arrays.stream(roundTripNanoseconds).average().getAsDouble() / 1e3);
+		} finally {
+			echoProcess.destroy();
+			echoProcess.waitFor();
+		}
+	}
+
+	/**
+	 * Get a percentile of sorted samples
+	 *
+	 * @param sortedSamples the sorted samples
+	 * @param percentile    the percentile, between 0 and 1
+	 * @return the sample at the percentile
+	 */
+	private static long getPercentile(long[] sortedSamples, double percentile) {
+		return sortedSamples[(int) Math.min(sortedSamples.length - 1, percentile * sortedSamples.length)];
+	}
+}
@@ -27,6 +27,11 @@ public class SimulationFloorInputData {
 	 */
 	private String arrivalTime;
 
+	/**
+	 * The time the passenger arrives, in milliseconds since midnight
+	 */
+	private long arrivalTimeMilliseconds;
+
 	/**
 	 * The current floor.
 	 */
@@ -77,6 +82,7 @@ public class SimulationFloorInputData {
 			Integer faultFloor) {
 		this.inputDataId = inputDataId;
 		this.arrivalTime = arrivalTime;
+		this.arrivalTimeMilliseconds = parseArrivalTimeMilliseconds(arrivalTime);
 		this.currentFloor = currentFloor;
 		this.floorDirectionButton = floorDirectionButton;
 		this.destinationFloorCarButton = destinationFloorCarButton;
@@ -102,6 +108,7 @@ public class SimulationFloorInputData {
 
 			Date parsedDate = DateFormat.DATE_FORMAT.parse(data[0]);
 			this.arrivalTime = DateFormat.DATE_FORMAT.format(parsedDate);
+			this.arrivalTimeMilliseconds = parseArrivalTimeMilliseconds(data[0]);
 
 			this.currentFloor = Integer.parseInt(data[1]);
 			this.floorDirectionButton = Direction.valueOf(data[2]);
@@ -155,6 +162,39 @@ public class SimulationFloorInputData {
 		return arrivalTime;
 	}
 
+	/**
+	 * Gets the arrival time, in milliseconds since midnight
+	 *
+	 * @return the arrival time
+	 */
+	public long getArrivalTimeMilliseconds() {
+		return arrivalTimeMilliseconds;
+	}
+
+	/**
+	 * Parse an arrival time of the form hours:minutes:seconds, where the seconds
+	 * may have a fraction, such as 14:05:15.5. DateFormat.DATE_FORMAT does not
+	 * keep the fraction of the seconds, nor the minutes when there is one.
+	 *
+	 * @param arrivalTime the arrival time
+	 * @return the arrival time, in milliseconds since midnight
+	 * @throws InvalidParameterException if the arrival time is not of that form
+	 */
+	private static long parseArrivalTimeMilliseconds(String arrivalTime) throws InvalidParameterException {
+		String[] fields = arrivalTime.strip().split(":");
+		if (fields.length != 3) {
+			throw new InvalidParameterException(arrivalTime + " is an invalid arrival time");
+		}
+
+		try {
+			double seconds = Integer.parseInt(fields[0]) * 3600 + Integer.parseInt(fields[1]) * 60
+					+ Double.parseDouble(fields[2]);
+			return Math.round(seconds * 1000);
+		} catch (NumberFormatException e) {
+			throw new InvalidParameterException(arrivalTime + " is an invalid arrival time");
+		}
+	}
+
 	/**
 	 * @return the fault
 	 */
@@ -0,0 +1,28 @@
+/**
+ *
+ */
+package common.exceptions;
+
+/**
+ * This class represents an exception where a message does not fit in the
+ * buffer it is encoded into.
+ *
+ * @author paulokenne
+ *
+ */
+public class MessageTooLargeException extends Exception {
+
+	/**
+	 * The serialization version
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * A MessageTooLargeException constructor
+	 *
+	 * @param message the message
+	 */
+	public MessageTooLargeException(String message) {
+		super(message);
+	}
+}
@@ -22,6 +22,7 @@ import common.messages.Message;
 import common.messages.elevator.ElevatorStatusMessage;
 import common.remote_procedure.SubsystemCommunicationRPC;
 import common.remote_procedure.SubsystemComponentType;
+import common.work_management.SubsystemExecutor;
 
 /**
  * This class creates and maintains the GUI
@@ -242,7 +243,7 @@ public class GUI extends JFrame{
      * messages from the scheduler
      */
     public void receiveUpdates() {
-		(new Thread() {
+		SubsystemExecutor.startLoop("GUI-receive", new Runnable() {
 			@Override
 			public void run() {
 				// wait for scheduler messages
@@ -258,7 +259,7 @@ public class GUI extends JFrame{
 					}
 				}
 			}
-		}).start();
+		});
     }
     
     /**
@@ -96,4 +96,10 @@ public enum MessageType {
 	 */
 	PASSENGER_DROP_OFF_COMPLETE,
 
+	/**
+	 * A message, internal to the elevator subsystem, indicating that an elevator
+	 * door has completed its motion
+	 */
+	ELEVATOR_DOOR_EVENT,
+
 }
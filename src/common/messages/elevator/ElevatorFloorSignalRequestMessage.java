@@ -22,7 +22,7 @@ public class ElevatorFloorSignalRequestMessage extends FloorElevatorTargetedMess
 	private boolean isFloorFinalDestination;
 
 	/**
-	 * The elevator motor
+	 * A snapshot of the elevator motor, taken when the request was created
 	 */
 	private ElevatorMotor elevatorMotor;
 
@@ -33,7 +33,9 @@ public class ElevatorFloorSignalRequestMessage extends FloorElevatorTargetedMess
 			boolean isFloorFinalDestination) {
 		super(elevatorId, floorId, MessageType.ELEVATOR_FLOOR_SIGNAL_REQUEST);
 		this.isFloorFinalDestination = isFloorFinalDestination;
-		this.elevatorMotor = elevatorMotor;
+		// Snapshot the motor so that the request does not change when the elevator
+		// does, even when it is handed over in process
+		this.elevatorMotor = elevatorMotor == null ? null : new ElevatorMotor(elevatorMotor);
 	}
 
 	/**
@@ -115,6 +115,18 @@ public class ElevatorStatusMessage extends Message {
 		return this;
 	}
 
+	/**
+	 * Return the status message with the given time stamp. This is used when a
+	 * status message is rebuilt on the receiving side.
+	 *
+	 * @param timestamp the time stamp
+	 * @return the status message
+	 */
+	public ElevatorStatusMessage withTimestamp(String timestamp) {
+		this.timestamp = timestamp;
+		return this;
+	}
+
 	/**
 	 * Return a flag that indicates if the message is for the GUI only
 	 *
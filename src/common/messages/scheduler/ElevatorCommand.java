@@ -41,5 +41,18 @@ public enum ElevatorCommand {
 	/**
 	 * The restart elevator command.
 	 */
-	RESTART
+	RESTART,
+
+	/**
+	 * The move to a target floor elevator command. The elevator moves floor by
+	 * floor on its own, reporting its position, until it reaches the target
+	 * floor.
+	 */
+	MOVE_TO,
+
+	/**
+	 * The change of target floor elevator command, for a MOVE_TO in progress.
+	 * It is ignored once the elevator has reached its target floor.
+	 */
+	RETARGET
 }
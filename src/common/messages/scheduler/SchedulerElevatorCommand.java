@@ -22,6 +22,16 @@ public class SchedulerElevatorCommand extends SchedulerElevatorTargetedMessage {
 	 * @param schedulerCommands
 	 */
 	private ElevatorStateException elevatorException;
+
+	/**
+	 * The target floor of a MOVE_TO or RETARGET command, or NO_TARGET_FLOOR
+	 */
+	private int targetFloor = NO_TARGET_FLOOR;
+
+	/**
+	 * The target floor of the commands that have none
+	 */
+	public static final int NO_TARGET_FLOOR = -1;
 	
 	public SchedulerElevatorCommand(ElevatorCommand elevatorCommand, int elevatorID) {
 		super(MessageType.SCHEDULER_ELEVATOR_COMMAND, elevatorID);
@@ -34,6 +44,20 @@ public class SchedulerElevatorCommand extends SchedulerElevatorTargetedMessage {
 		this.elevatorException = exception;
 	}
 
+	/**
+	 * A SchedulerElevatorCommand constructor for a command with a target floor,
+	 * such as MOVE_TO and RETARGET
+	 *
+	 * @param elevatorCommand the command
+	 * @param elevatorID      the elevator id
+	 * @param targetFloor     the target floor
+	 */
+	public SchedulerElevatorCommand(ElevatorCommand elevatorCommand, int elevatorID, int targetFloor) {
+		super(MessageType.SCHEDULER_ELEVATOR_COMMAND, elevatorID);
+		this.elevatorCommand = elevatorCommand;
+		this.targetFloor = targetFloor;
+	}
+
 	/**
 	 * This method returns the scheduler command
 	 * 
@@ -46,6 +70,15 @@ public class SchedulerElevatorCommand extends SchedulerElevatorTargetedMessage {
 	public ElevatorStateException getException() {
 		return elevatorException;
 	}
+
+	/**
+	 * Get the target floor of a MOVE_TO or RETARGET command
+	 *
+	 * @return the target floor, or NO_TARGET_FLOOR
+	 */
+	public int getTargetFloor() {
+		return targetFloor;
+	}
 	
 	
 }
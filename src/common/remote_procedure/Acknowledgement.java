@@ -0,0 +1,64 @@
+/**
+ *
+ */
+package common.remote_procedure;
+
+/**
+ * This class describes the acknowledgement of a sent message.
+ *
+ * @author paulokenne
+ *
+ */
+public class Acknowledgement {
+
+	/**
+	 * The sequence number of the acknowledged message
+	 */
+	private int sequenceNumber;
+
+	/**
+	 * The time from the first send of the message to its acknowledgement
+	 */
+	private long sendLatencyNanoseconds;
+
+	/**
+	 * The number of times the message was retransmitted
+	 */
+	private int retransmissions;
+
+	/**
+	 * An Acknowledgement constructor
+	 *
+	 * @param sequenceNumber         the sequence number of the acknowledged
+	 *                               message
+	 * @param sendLatencyNanoseconds the time from the first send to the
+	 *                               acknowledgement
+	 * @param retransmissions        the number of retransmissions
+	 */
+	public Acknowledgement(int sequenceNumber, long sendLatencyNanoseconds, int retransmissions) {
+		this.sequenceNumber = sequenceNumber;
+		this.sendLatencyNanoseconds = sendLatencyNanoseconds;
+		this.retransmissions = retransmissions;
+	}
+
+	/**
+	 * @return the sequence number of the acknowledged message
+	 */
+	public int getSequenceNumber() {
+		return sequenceNumber;
+	}
+
+	/**
+	 * @return the time from the first send of the message to its acknowledgement
+	 */
+	public long getSendLatencyNanoseconds() {
+		return sendLatencyNanoseconds;
+	}
+
+	/**
+	 * @return the number of times the message was retransmitted
+	 */
+	public int getRetransmissions() {
+		return retransmissions;
+	}
+}
@@ -0,0 +1,74 @@
+/**
+ *
+ */
+package common.remote_procedure;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class pools the direct buffers that frames are encoded into and
+ * received into, so that the links do not allocate a buffer per datagram.
+ *
+ * @author paulokenne
+ *
+ */
+public final class DirectBufferPool {
+
+	/**
+	 * The size of a pooled buffer
+	 */
+	public static final int BUFFER_SIZE = SubsystemCommunicationRPC.MAX_BUFFER_SIZE;
+
+	/**
+	 * The largest number of idle buffers kept in the pool
+	 */
+	private static final int MAX_POOLED_BUFFERS = 256;
+
+	/**
+	 * The idle buffers
+	 */
+	private static final ConcurrentLinkedQueue<ByteBuffer> pooledBuffers = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * The number of idle buffers
+	 */
+	private static final AtomicInteger pooledBufferCount = new AtomicInteger();
+
+	/**
+	 * A private DirectBufferPool constructor. We do not want instances of this
+	 * class
+	 */
+	private DirectBufferPool() {
+	}
+
+	/**
+	 * Take a cleared buffer from the pool, or allocate one if the pool is empty
+	 *
+	 * @return the buffer
+	 */
+	public static ByteBuffer acquire() {
+		ByteBuffer buffer = pooledBuffers.poll();
+		if (buffer == null) {
+			return ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+
+		pooledBufferCount.decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Give a buffer back to the pool. The buffer must not be used afterwards.
+	 *
+	 * @param buffer the buffer
+	 */
+	public static void release(ByteBuffer buffer) {
+		if (pooledBufferCount.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+			pooledBuffers.add(buffer);
+		} else {
+			pooledBufferCount.decrementAndGet();
+		}
+	}
+}
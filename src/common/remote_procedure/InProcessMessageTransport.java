@@ -0,0 +1,117 @@
+/**
+ *
+ */
+package common.remote_procedure;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import common.messages.Message;
+
+/**
+ * This class hands the messages of a link straight to the target's inbox when
+ * the target runs in the same process. Messages are neither encoded nor copied,
+ * so they must not change once they are sent.
+ *
+ * The inboxes of the links in the process are registered by link. The first
+ * inbox registered for a link receives its messages, the way the first channel
+ * bound to a port does.
+ *
+ * @author paulokenne
+ *
+ */
+public class InProcessMessageTransport implements MessageTransport {
+
+	/**
+	 * The inboxes of the links in the process, by receiving subsystem and sending
+	 * subsystem
+	 */
+	private static final Map<String, MessageInbox> INBOXES = new ConcurrentHashMap<>();
+
+	/**
+	 * The target's inbox
+	 */
+	private MessageInbox targetInbox;
+
+	/**
+	 * The sequence number of the next message
+	 */
+	private AtomicInteger nextSequenceNumber = new AtomicInteger();
+
+	/**
+	 * The send metrics
+	 */
+	private SlidingWindowMetrics metrics = new SlidingWindowMetrics();
+
+	/**
+	 * An InProcessMessageTransport constructor
+	 *
+	 * @param targetInbox the target's inbox
+	 */
+	private InProcessMessageTransport(MessageInbox targetInbox) {
+		this.targetInbox = targetInbox;
+	}
+
+	/**
+	 * Register the inbox that receives the messages the target sends to the source
+	 *
+	 * @param sourceSubsystemType the source subsystem type
+	 * @param targetSubsystemType the target subsystem type
+	 * @param inbox               the source's inbox
+	 * @return true if the inbox was registered, false if the link already has one
+	 */
+	public static boolean register(SubsystemComponentType sourceSubsystemType,
+			SubsystemComponentType targetSubsystemType, MessageInbox inbox) {
+		return INBOXES.putIfAbsent(getLinkKey(sourceSubsystemType, targetSubsystemType), inbox) == null;
+	}
+
+	/**
+	 * Connect the source to the target, if the target runs in this process
+	 *
+	 * @param sourceSubsystemType the source subsystem type
+	 * @param targetSubsystemType the target subsystem type
+	 * @return the transport, or null if the target has no inbox in this process
+	 */
+	public static InProcessMessageTransport connect(SubsystemComponentType sourceSubsystemType,
+			SubsystemComponentType targetSubsystemType) {
+		MessageInbox targetInbox = INBOXES.get(getLinkKey(targetSubsystemType, sourceSubsystemType));
+		return targetInbox == null ? null : new InProcessMessageTransport(targetInbox);
+	}
+
+	/**
+	 * Get the key of the inbox that receives the messages the sender sends to the
+	 * receiver
+	 *
+	 * @param receiverSubsystemType the receiving subsystem type
+	 * @param senderSubsystemType   the sending subsystem type
+	 * @return the key
+	 */
+	private static String getLinkKey(SubsystemComponentType receiverSubsystemType,
+			SubsystemComponentType senderSubsystemType) {
+		return receiverSubsystemType + "<-" + senderSubsystemType;
+	}
+
+	/**
+	 * Deliver the given message to the target's inbox. The message is acknowledged
+	 * once it is in the inbox.
+	 *
+	 * @param message the message to be sent
+	 * @return the completed acknowledgement
+	 */
+	@Override
+	public CompletableFuture<Acknowledgement> sendAsync(Message message) {
+		int sequenceNumber = nextSequenceNumber.getAndIncrement();
+		targetInbox.deliver(message);
+
+		metrics.recordSend(1, 1);
+		metrics.recordAcknowledgement(1, 0, 0);
+		return CompletableFuture.completedFuture(new Acknowledgement(sequenceNumber, 0, 0));
+	}
+
+	@Override
+	public SlidingWindowMetrics getSendMetrics() {
+		return metrics;
+	}
+}
@@ -0,0 +1,601 @@
+/**
+ *
+ */
+package common.remote_procedure;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+import ElevatorSubsystem.ElevatorAutoFixing;
+import ElevatorSubsystem.ElevatorMotor;
+import FloorSubsystem.FloorInputFault;
+import common.Direction;
+import common.exceptions.ElevatorStateException;
+import common.exceptions.MessageTooLargeException;
+import common.messages.CommunicationFailureMessage;
+import common.messages.Message;
+import common.messages.MessageType;
+import common.messages.elevator.ElevatorFloorArrivalMessage;
+import common.messages.elevator.ElevatorFloorSignalRequestMessage;
+import common.messages.elevator.ElevatorLeavingFloorMessage;
+import common.messages.elevator.ElevatorStatusMessage;
+import common.messages.elevator.ElevatorStatusRequest;
+import common.messages.elevator.ElevatorTransportRequest;
+import common.messages.floor.ElevatorFloorRequest;
+import common.messages.floor.ElevatorNotArrived;
+import common.messages.scheduler.ElevatorCommand;
+import common.messages.scheduler.FloorCommand;
+import common.messages.scheduler.PassengerDropoffCompletedMessage;
+import common.messages.scheduler.SchedulerElevatorCommand;
+import common.messages.scheduler.SchedulerFloorCommand;
+
+/**
+ * This class encodes messages into a compact binary form and decodes them
+ * back.
+ *
+ * Every encoded message starts with a one byte type tag, the ordinal of its
+ * MessageType. The tag selects the schema that writes and reads the message
+ * fields. Integers are written as fixed-width 4 byte values, enums as one byte
+ * ordinals (-1 for null) and strings as an unsigned 2 byte length followed by
+ * UTF-8 bytes (0xFFFF for null), so a string holds at most MAX_STRING_LENGTH
+ * bytes.
+ *
+ * @author paulokenne
+ *
+ */
+public final class MessageCodec {
+
+	/**
+	 * The largest message that can be encoded
+	 */
+	public static final int MAX_ENCODED_MESSAGE_SIZE = SlidingWindowFrame.MAX_FRAGMENTED_MESSAGE_SIZE;
+
+	/**
+	 * The size of the buffer a message is first encoded into. Most messages fit.
+	 */
+	private static final int INITIAL_ENCODING_BUFFER_SIZE = SubsystemCommunicationRPC.MAX_BUFFER_SIZE;
+
+	/**
+	 * The largest number of UTF-8 bytes of an encoded string
+	 */
+	public static final int MAX_STRING_LENGTH = 0xFFFE;
+
+	/**
+	 * The value written in place of a null enum
+	 */
+	private static final int NULL_VALUE = -1;
+
+	/**
+	 * The length written in place of a null string
+	 */
+	private static final int NULL_STRING_LENGTH = 0xFFFF;
+
+	/**
+	 * The error state kinds of an elevator status message
+	 */
+	private static final byte NO_ERROR_STATE = 0, ELEVATOR_STATE_EXCEPTION = 1, GENERIC_EXCEPTION = 2;
+
+	/**
+	 * A message schema, which writes and reads the fields of one message type
+	 */
+	private interface MessageSchema {
+
+		/**
+		 * Write the message fields to the buffer
+		 *
+		 * @param message the message
+		 * @param buffer  the buffer
+		 */
+		void write(Message message, ByteBuffer buffer);
+
+		/**
+		 * Read the message fields from the buffer
+		 *
+		 * @param messageType the message type read from the tag
+		 * @param buffer      the buffer
+		 * @return the message
+		 */
+		Message read(MessageType messageType, ByteBuffer buffer);
+	}
+
+	/**
+	 * The schema for messages that carry nothing but their type
+	 */
+	private static final MessageSchema TYPE_ONLY_SCHEMA = new MessageSchema() {
+		@Override
+		public void write(Message message, ByteBuffer buffer) {
+		}
+
+		@Override
+		public Message read(MessageType messageType, ByteBuffer buffer) {
+			return new Message(messageType);
+		}
+	};
+
+	/**
+	 * The schemas, one per message type
+	 */
+	private static final Map<MessageType, MessageSchema> SCHEMAS = new EnumMap<>(MessageType.class);
+	static {
+		for (MessageType messageType : MessageType.values()) {
+			SCHEMAS.put(messageType, TYPE_ONLY_SCHEMA);
+		}
+
+		SCHEMAS.put(MessageType.COMMUNICATION_FAILURE, new MessageSchema() {
+			@Override
+			public void write(Message message, ByteBuffer buffer) {
+			}
+
+			@Override
+			public Message read(MessageType messageType, ByteBuffer buffer) {
+				return new CommunicationFailureMessage();
+			}
+		});
+
+		SCHEMAS.put(MessageType.ELEVATOR_STATUS_REQUEST, new MessageSchema() {
+			@Override
+			public void write(Message message, ByteBuffer buffer) {
+				buffer.putInt(((ElevatorStatusRequest) message).getElevatorId());
+			}
+
+			@Override
+			public Message read(MessageType messageType, ByteBuffer buffer) {
+				return new ElevatorStatusRequest(buffer.getInt());
+			}
+		});
+
+		SCHEMAS.put(MessageType.ELEVATOR_STATUS_MESSAGE, new MessageSchema() {
+			@Override
+			public void write(Message message, ByteBuffer buffer) {
+				ElevatorStatusMessage statusMessage = (ElevatorStatusMessage) message;
+				buffer.putInt(statusMessage.getElevatorId());
+				putEnum(buffer, statusMessage.getDirection());
+				buffer.putInt(statusMessage.getFloorNumber());
+				putString(buffer, statusMessage.getTimestamp());
+				putErrorState(buffer, statusMessage.getErrorState());
+				putBoolean(buffer, statusMessage.isResolvingError());
+				putBoolean(buffer, statusMessage.shouldIssueNextCommand());
+				putBoolean(buffer, statusMessage.isDoorOpen());
+				putBoolean(buffer, statusMessage.isGUIOnly());
+			}
+
+			@Override
+			public Message read(MessageType messageType, ByteBuffer buffer) {
+				int elevatorId = buffer.getInt();
+				Direction direction = getEnum(buffer, Direction.values());
+				int floorNumber = buffer.getInt();
+				String timestamp = getString(buffer);
+				Exception errorState = getErrorState(buffer);
+				boolean isResolvingError = getBoolean(buffer);
+				boolean issueNextCommand = getBoolean(buffer);
+				boolean isDoorOpen = getBoolean(buffer);
+				boolean isGUIOnly = getBoolean(buffer);
+
+				ElevatorStatusMessage statusMessage = new ElevatorStatusMessage(elevatorId, direction, floorNumber,
+						errorState, isResolvingError, issueNextCommand, isDoorOpen).withTimestamp(timestamp);
+				return isGUIOnly ? statusMessage.forGuiOnly() : statusMessage;
+			}
+		});
+
+		SCHEMAS.put(MessageType.SCHEDULER_ELEVATOR_COMMAND, new MessageSchema() {
+			@Override
+			public void write(Message message, ByteBuffer buffer) {
+				SchedulerElevatorCommand command = (SchedulerElevatorCommand) message;
+				putEnum(buffer, command.getCommand());
+				buffer.putInt(command.getElevatorId());
+				putErrorState(buffer, command.getException());
+				buffer.putInt(command.getTargetFloor());
+			}
+
+			@Override
+			public Message read(MessageType messageType, ByteBuffer buffer) {
+				ElevatorCommand command = getEnum(buffer, ElevatorCommand.values());
+				int elevatorId = buffer.getInt();
+				ElevatorStateException exception = (ElevatorStateException) getErrorState(buffer);
+				int targetFloor = buffer.getInt();
+				if (targetFloor != SchedulerElevatorCommand.NO_TARGET_FLOOR) {
+					return new SchedulerElevatorCommand(command, elevatorId, targetFloor);
+				}
+				return new SchedulerElevatorCommand(command, elevatorId, exception);
+			}
+		});
+
+		SCHEMAS.put(MessageType.SCHEDULER_FLOOR_COMMAND, new MessageSchema() {
+			@Override
+			public void write(Message message, ByteBuffer buffer) {
+				SchedulerFloorCommand command = (SchedulerFloorCommand) message;
+				putEnum(buffer, command.getCommand());
+
+				if (command instanceof PassengerDropoffCompletedMessage) {
+					buffer.putInt(((PassengerDropoffCompletedMessage) command).getFloorInputDataId());
+					return;
+				}
+
+				buffer.putInt(command.getFloorId());
+				putEnum(buffer, command.getLampButtonDirection());
+				buffer.putInt(command.getElevatorId());
+				buffer.putInt(command.getInputDataId());
+			}
+
+			@Override
+			public Message read(MessageType messageType, ByteBuffer buffer) {
+				FloorCommand command = getEnum(buffer, FloorCommand.values());
+
+				if (command == FloorCommand.PASSENGER_DROP_OFF_COMPLETE) {
+					return new PassengerDropoffCompletedMessage(buffer.getInt());
+				}
+
+				int floorId = buffer.getInt();
+				Direction lampButtonDirection = getEnum(buffer, Direction.values());
+				int elevatorId = buffer.getInt();
+				int inputDataId = buffer.getInt();
+				return new SchedulerFloorCommand(command, floorId, lampButtonDirection, elevatorId, inputDataId);
+			}
+		});
+
+		SCHEMAS.put(MessageType.ELEVATOR_DROP_PASSENGER_REQUEST, new MessageSchema() {
+			@Override
+			public void write(Message message, ByteBuffer buffer) {
+				ElevatorTransportRequest request = (ElevatorTransportRequest) message;
+				buffer.putInt(request.getDestinationFloor());
+				buffer.putInt(request.getElevatorId());
+				putEnum(buffer, request.getDirection());
+				putEnum(buffer, request.getFloorFault());
+				putEnum(buffer, request.getAutoFixing());
+				buffer.putInt(request.getFloorInputId());
+			}
+
+			@Override
+			public Message read(MessageType messageType, ByteBuffer buffer) {
+				int destinationFloor = buffer.getInt();
+				int elevatorId = buffer.getInt();
+				Direction direction = getEnum(buffer, Direction.values());
+				FloorInputFault floorFault = getEnum(buffer, FloorInputFault.values());
+				ElevatorAutoFixing autoFixing = getEnum(buffer, ElevatorAutoFixing.values());
+				int floorInputId = buffer.getInt();
+				return new ElevatorTransportRequest(destinationFloor, elevatorId, direction, floorFault, autoFixing,
+						floorInputId);
+			}
+		});
+
+		SCHEMAS.put(MessageType.ELEVATOR_PICK_UP_PASSENGER_REQUEST, new MessageSchema() {
+			@Override
+			public void write(Message message, ByteBuffer buffer) {
+				ElevatorFloorRequest request = (ElevatorFloorRequest) message;
+				buffer.putInt(request.getDestinationFloor());
+				putEnum(buffer, request.getDirection());
+				buffer.putInt(request.getFloorInputId());
+				putEnum(buffer, request.getFault());
+				buffer.putInt(request.getFaultFloorNumber());
+			}
+
+			@Override
+			public Message read(MessageType messageType, ByteBuffer buffer) {
+				int destinationFloor = buffer.getInt();
+				Direction direction = getEnum(buffer, Direction.values());
+				int floorInputId = buffer.getInt();
+				FloorInputFault fault = getEnum(buffer, FloorInputFault.values());
+				int faultFloorNumber = buffer.getInt();
+				return new ElevatorFloorRequest(destinationFloor, direction, floorInputId, fault, faultFloorNumber);
+			}
+		});
+
+		SCHEMAS.put(MessageType.FLOOR_ARRIVAL_MESSAGE, new MessageSchema() {
+			@Override
+			public void write(Message message, ByteBuffer buffer) {
+				ElevatorFloorArrivalMessage arrivalMessage = (ElevatorFloorArrivalMessage) message;
+				buffer.putInt(arrivalMessage.getElevatorId());
+				buffer.putInt(arrivalMessage.getFloorId());
+			}
+
+			@Override
+			public Message read(MessageType messageType, ByteBuffer buffer) {
+				int elevatorId = buffer.getInt();
+				return new ElevatorFloorArrivalMessage(elevatorId, buffer.getInt());
+			}
+		});
+
+		SCHEMAS.put(MessageType.ELEVATOR_FLOOR_SIGNAL_REQUEST, new MessageSchema() {
+			@Override
+			public void write(Message message, ByteBuffer buffer) {
+				ElevatorFloorSignalRequestMessage signalRequest = (ElevatorFloorSignalRequestMessage) message;
+				buffer.putInt(signalRequest.getElevatorId());
+				buffer.putInt(signalRequest.getFloorId());
+				putBoolean(buffer, signalRequest.isFloorFinalDestination());
+				putElevatorMotor(buffer, signalRequest.getElevatorMotor());
+			}
+
+			@Override
+			public Message read(MessageType messageType, ByteBuffer buffer) {
+				int elevatorId = buffer.getInt();
+				int floorId = buffer.getInt();
+				boolean isFloorFinalDestination = getBoolean(buffer);
+				return new ElevatorFloorSignalRequestMessage(elevatorId, floorId, getElevatorMotor(buffer),
+						isFloorFinalDestination);
+			}
+		});
+
+		SCHEMAS.put(MessageType.ELEVATOR_LEAVING_FLOOR_MESSAGE, new MessageSchema() {
+			@Override
+			public void write(Message message, ByteBuffer buffer) {
+				ElevatorLeavingFloorMessage leavingMessage = (ElevatorLeavingFloorMessage) message;
+				buffer.putInt(leavingMessage.getElevatorId());
+				buffer.putInt(leavingMessage.getFloorId());
+			}
+
+			@Override
+			public Message read(MessageType messageType, ByteBuffer buffer) {
+				int elevatorId = buffer.getInt();
+				return new ElevatorLeavingFloorMessage(elevatorId, buffer.getInt());
+			}
+		});
+
+		SCHEMAS.put(MessageType.STUCK_AT_FLOOR_FAULT, new MessageSchema() {
+			@Override
+			public void write(Message message, ByteBuffer buffer) {
+				ElevatorNotArrived notArrivedMessage = (ElevatorNotArrived) message;
+				buffer.putInt(notArrivedMessage.getFloorNumber());
+				buffer.putInt(notArrivedMessage.getElevatorId());
+			}
+
+			@Override
+			public Message read(MessageType messageType, ByteBuffer buffer) {
+				int floorNumber = buffer.getInt();
+				return new ElevatorNotArrived(floorNumber, buffer.getInt());
+			}
+		});
+	}
+
+	/**
+	 * A private MessageCodec constructor. We do not want instances of this class
+	 */
+	private MessageCodec() {
+	}
+
+	/**
+	 * Encode the given message into a new byte array
+	 *
+	 * @param message the message
+	 * @return the encoded message
+	 * @throws Exception if the message is too large to be encoded, or holds a
+	 *                   string of more than MAX_STRING_LENGTH bytes
+	 */
+	public static byte[] encode(Message message) throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocate(INITIAL_ENCODING_BUFFER_SIZE);
+		try {
+			encode(message, buffer);
+		} catch (MessageTooLargeException e) {
+			buffer = ByteBuffer.allocate(MAX_ENCODED_MESSAGE_SIZE);
+			encode(message, buffer);
+		}
+		buffer.flip();
+
+		byte[] messageBytes = new byte[buffer.remaining()];
+		buffer.get(messageBytes);
+		return messageBytes;
+	}
+
+	/**
+	 * Encode the given message at the buffer's position
+	 *
+	 * @param message the message
+	 * @param buffer  the buffer
+	 * @throws MessageTooLargeException if the message does not fit in the buffer
+	 * @throws Exception                 if the message holds a string of more
+	 *                                   than MAX_STRING_LENGTH bytes
+	 */
+	public static void encode(Message message, ByteBuffer buffer) throws Exception {
+		try {
+			MessageType messageType = message.getMessageType();
+			buffer.put((byte) messageType.ordinal());
+			SCHEMAS.get(messageType).write(message, buffer);
+		} catch (BufferOverflowException e) {
+			throw new MessageTooLargeException(
+					"Message of type " + message.getMessageType() + " is too large to be encoded!");
+		} catch (IllegalArgumentException e) {
+			throw new Exception(
+					"Message of type " + message.getMessageType() + " cannot be encoded: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Decode the message in the given bytes
+	 *
+	 * @param data   the data
+	 * @param offset the offset of the message
+	 * @param length the length of the message
+	 * @return the message
+	 * @throws Exception if the bytes are not a valid message
+	 */
+	public static Message decode(byte[] data, int offset, int length) throws Exception {
+		return decode(ByteBuffer.wrap(data, offset, length));
+	}
+
+	/**
+	 * Decode the message at the buffer's position
+	 *
+	 * @param buffer the buffer
+	 * @return the message
+	 * @throws Exception if the buffer does not hold a valid message
+	 */
+	public static Message decode(ByteBuffer buffer) throws Exception {
+		try {
+			MessageType messageType = getEnum(buffer, MessageType.values());
+			return SCHEMAS.get(messageType).read(messageType, buffer);
+		} catch (RuntimeException e) {
+			throw new Exception("Cannot decode message: " + e);
+		}
+	}
+
+	/**
+	 * Write a boolean
+	 *
+	 * @param buffer the buffer
+	 * @param value  the value
+	 */
+	private static void putBoolean(ByteBuffer buffer, boolean value) {
+		buffer.put((byte) (value ? 1 : 0));
+	}
+
+	/**
+	 * Read a boolean
+	 *
+	 * @param buffer the buffer
+	 * @return the value
+	 */
+	private static boolean getBoolean(ByteBuffer buffer) {
+		return buffer.get() != 0;
+	}
+
+	/**
+	 * Write an enum as its ordinal
+	 *
+	 * @param buffer the buffer
+	 * @param value  the value, which may be null
+	 */
+	private static void putEnum(ByteBuffer buffer, Enum<?> value) {
+		buffer.put((byte) (value == null ? NULL_VALUE : value.ordinal()));
+	}
+
+	/**
+	 * Read an enum from its ordinal
+	 *
+	 * @param buffer the buffer
+	 * @param values the enum values
+	 * @return the value, which may be null
+	 */
+	private static <T extends Enum<T>> T getEnum(ByteBuffer buffer, T[] values) {
+		int ordinal = buffer.get();
+		return ordinal == NULL_VALUE ? null : values[ordinal];
+	}
+
+	/**
+	 * Write a string
+	 *
+	 * @param buffer the buffer
+	 * @param value  the value, which may be null
+	 * @throws IllegalArgumentException if the value has more than
+	 *                                  MAX_STRING_LENGTH UTF-8 bytes
+	 */
+	private static void putString(ByteBuffer buffer, String value) {
+		if (value == null) {
+			buffer.putShort((short) NULL_STRING_LENGTH);
+			return;
+		}
+
+		byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+		if (valueBytes.length > MAX_STRING_LENGTH) {
+			throw new IllegalArgumentException("a string of " + valueBytes.length + " bytes is longer than "
+					+ MAX_STRING_LENGTH + " bytes");
+		}
+		buffer.putShort((short) valueBytes.length);
+		buffer.put(valueBytes);
+	}
+
+	/**
+	 * Read a string
+	 *
+	 * @param buffer the buffer
+	 * @return the value, which may be null
+	 */
+	private static String getString(ByteBuffer buffer) {
+		int length = Short.toUnsignedInt(buffer.getShort());
+		if (length == NULL_STRING_LENGTH) {
+			return null;
+		}
+
+		byte[] valueBytes = new byte[length];
+		buffer.get(valueBytes);
+		return new String(valueBytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Write an error state. Only the fault, floor number and message are kept; the
+	 * stack trace is not sent.
+	 *
+	 * @param buffer     the buffer
+	 * @param errorState the error state, which may be null
+	 */
+	private static void putErrorState(ByteBuffer buffer, Exception errorState) {
+		if (errorState == null) {
+			buffer.put(NO_ERROR_STATE);
+
+		} else if (errorState instanceof ElevatorStateException) {
+			ElevatorStateException elevatorStateException = (ElevatorStateException) errorState;
+			buffer.put(ELEVATOR_STATE_EXCEPTION);
+			putEnum(buffer, elevatorStateException.getFault());
+			buffer.putInt(elevatorStateException.getFloorNumber());
+			putString(buffer, elevatorStateException.getMessage());
+
+		} else {
+			buffer.put(GENERIC_EXCEPTION);
+			putString(buffer, errorState.getMessage());
+		}
+	}
+
+	/**
+	 * Read an error state
+	 *
+	 * @param buffer the buffer
+	 * @return the error state, which may be null
+	 */
+	private static Exception getErrorState(ByteBuffer buffer) {
+		switch (buffer.get()) {
+		case ELEVATOR_STATE_EXCEPTION:
+			FloorInputFault fault = getEnum(buffer, FloorInputFault.values());
+			int floorNumber = buffer.getInt();
+			return new ElevatorStateException(fault, floorNumber, getString(buffer));
+
+		case GENERIC_EXCEPTION:
+			return new Exception(getString(buffer));
+
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Write an elevator motor
+	 *
+	 * @param buffer the buffer
+	 * @param motor  the motor, which may be null
+	 */
+	private static void putElevatorMotor(ByteBuffer buffer, ElevatorMotor motor) {
+		putBoolean(buffer, motor != null);
+		if (motor == null) {
+			return;
+		}
+
+		buffer.putDouble(motor.getTopSpeed());
+		buffer.putDouble(motor.getAcceleration());
+		buffer.putDouble(motor.getCurrentVelocity());
+		putEnum(buffer, motor.getDirection());
+	}
+
+	/**
+	 * Read an elevator motor
+	 *
+	 * @param buffer the buffer
+	 * @return the motor, which may be null
+	 */
+	private static ElevatorMotor getElevatorMotor(ByteBuffer buffer) {
+		if (!getBoolean(buffer)) {
+			return null;
+		}
+
+		ElevatorMotor motor = new ElevatorMotor(buffer.getDouble(), buffer.getDouble());
+		motor.setCurrentVelocity(buffer.getDouble());
+
+		Direction direction = getEnum(buffer, Direction.values());
+		if (direction == Direction.UP) {
+			motor.goUp();
+		} else if (direction == Direction.DOWN) {
+			motor.goDown();
+		}
+
+		return motor;
+	}
+}
@@ -0,0 +1,108 @@
+/**
+ *
+ */
+package common.remote_procedure;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import common.messages.Message;
+
+/**
+ * This class holds the messages received on a link until the subsystem takes
+ * them. Every transport of the link delivers into the same inbox.
+ *
+ * In a discrete-event simulation, the subsystem sets a receiver instead of
+ * waiting on the inbox, and the messages are handed to the receiver as they
+ * are delivered, on the thread of the simulation.
+ *
+ * @author paulokenne
+ *
+ */
+public class MessageInbox {
+
+	/**
+	 * The received messages, in the order they were delivered
+	 */
+	private ArrayDeque<Message> messages = new ArrayDeque<>();
+
+	/**
+	 * The receiver the messages are handed to as they are delivered, or null
+	 */
+	private Consumer<Message> receiver;
+
+	/**
+	 * Deliver a message
+	 *
+	 * @param message the message
+	 */
+	public void deliver(Message message) {
+		Consumer<Message> receiver;
+		synchronized (this) {
+			receiver = this.receiver;
+			if (receiver == null) {
+				messages.add(message);
+				notifyAll();
+				return;
+			}
+		}
+		receiver.accept(message);
+	}
+
+	/**
+	 * Deliver several messages, in order
+	 *
+	 * @param messages the messages
+	 */
+	public void deliverAll(Collection<Message> messages) {
+		Consumer<Message> receiver;
+		synchronized (this) {
+			receiver = this.receiver;
+			if (receiver == null) {
+				this.messages.addAll(messages);
+				notifyAll();
+				return;
+			}
+		}
+		messages.forEach(receiver);
+	}
+
+	/**
+	 * Hand the messages to the given receiver as they are delivered, starting with
+	 * the messages already in the inbox
+	 *
+	 * @param receiver the receiver
+	 */
+	public void setReceiver(Consumer<Message> receiver) {
+		ArrayDeque<Message> deliveredMessages;
+		synchronized (this) {
+			this.receiver = receiver;
+			deliveredMessages = messages;
+			messages = new ArrayDeque<>();
+		}
+		deliveredMessages.forEach(receiver);
+	}
+
+	/**
+	 * Return the next message, if there is one
+	 *
+	 * @return the message or null
+	 */
+	public synchronized Message poll() {
+		return messages.poll();
+	}
+
+	/**
+	 * Wait for the next message and return it
+	 *
+	 * @return the message
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public synchronized Message take() throws InterruptedException {
+		while (messages.isEmpty()) {
+			wait();
+		}
+		return messages.poll();
+	}
+}
@@ -0,0 +1,231 @@
+/**
+ *
+ */
+package common.remote_procedure;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+import common.messages.Message;
+
+/**
+ * This class reassembles fragmented messages from their fragment frames.
+ *
+ * A message that is still missing fragments when the reassembly timeout runs
+ * out is dropped: the sender has abandoned at least one of its fragments. The
+ * partial messages share a memory cap; when a new message does not fit under
+ * it, the oldest partial messages are dropped to make room.
+ *
+ * @author paulokenne
+ *
+ */
+public class MessageReassembler {
+
+	/**
+	 * The time a partial message waits for its missing fragments, twice the time
+	 * after which the sender abandons a frame
+	 */
+	public static final int REASSEMBLY_TIMEOUT_MILLISECONDS = 2 * SubsystemCommunicationRPC.ACKNOWLEDGEMENT_TIMEOUT_MILLISECONDS;
+
+	/**
+	 * The largest number of bytes held by the partial messages
+	 */
+	public static final int MAX_REASSEMBLY_BYTES = 4 * SlidingWindowFrame.MAX_FRAGMENTED_MESSAGE_SIZE;
+
+	/**
+	 * A message whose fragments are being gathered
+	 */
+	private static class PartialMessage {
+
+		/**
+		 * The encoded message
+		 */
+		private byte[] encodedMessage;
+
+		/**
+		 * The number of fragments of the message
+		 */
+		private int fragmentCount;
+
+		/**
+		 * The indices of the received fragments
+		 */
+		private BitSet receivedFragments = new BitSet();
+
+		/**
+		 * The time the first fragment was received
+		 */
+		private long startedNanoseconds;
+
+		/**
+		 * A PartialMessage constructor
+		 *
+		 * @param messageLength      the length of the encoded message
+		 * @param fragmentCount      the number of fragments of the message
+		 * @param startedNanoseconds the time the first fragment was received
+		 */
+		private PartialMessage(int messageLength, int fragmentCount, long startedNanoseconds) {
+			this.encodedMessage = new byte[messageLength];
+			this.fragmentCount = fragmentCount;
+			this.startedNanoseconds = startedNanoseconds;
+		}
+	}
+
+	/**
+	 * The partial messages by session and message id, oldest first
+	 */
+	private LinkedHashMap<Long, PartialMessage> partialMessages = new LinkedHashMap<>();
+
+	/**
+	 * The number of bytes held by the partial messages
+	 */
+	private int reassemblyBytes = 0;
+
+	/**
+	 * The reassembly timeout
+	 */
+	private long reassemblyTimeoutNanoseconds;
+
+	/**
+	 * The number of partial messages dropped
+	 */
+	private long droppedMessages = 0;
+
+	/**
+	 * A MessageReassembler constructor
+	 */
+	public MessageReassembler() {
+		this(REASSEMBLY_TIMEOUT_MILLISECONDS);
+	}
+
+	/**
+	 * A MessageReassembler constructor
+	 *
+	 * @param reassemblyTimeoutMilliseconds the time a partial message waits for
+	 *                                      its missing fragments
+	 */
+	public MessageReassembler(int reassemblyTimeoutMilliseconds) {
+		this.reassemblyTimeoutNanoseconds = TimeUnit.MILLISECONDS.toNanos(reassemblyTimeoutMilliseconds);
+	}
+
+	/**
+	 * Add a fragment, and return its message if the fragment completes it
+	 *
+	 * @param sessionId     the sender session id
+	 * @param messageId     the id of the message
+	 * @param fragmentIndex the index of the fragment
+	 * @param fragmentCount the number of fragments of the message
+	 * @param messageLength the length of the encoded message
+	 * @param fragment      the fragment, between its position and limit
+	 * @return the reassembled message, or null if it is not complete or does not
+	 *         decode
+	 */
+	public Message addFragment(int sessionId, int messageId, int fragmentIndex, int fragmentCount,
+			int messageLength, ByteBuffer fragment) {
+		long now = System.nanoTime();
+		dropExpiredMessages(now);
+
+		int fragmentOffset = fragmentIndex * SlidingWindowFrame.MAX_FRAGMENT_SIZE;
+		if (messageLength > SlidingWindowFrame.MAX_FRAGMENTED_MESSAGE_SIZE
+				|| fragmentCount != SlidingWindowFrame.getFragmentCount(messageLength) || fragmentIndex < 0
+				|| fragmentIndex >= fragmentCount || fragmentOffset + fragment.remaining() > messageLength) {
+			System.out.println("Dropped an invalid fragment " + fragmentIndex + " of message " + messageId);
+			return null;
+		}
+
+		long key = ((long) sessionId << Integer.SIZE) | (messageId & 0xFFFFFFFFL);
+		PartialMessage partialMessage = partialMessages.get(key);
+		if (partialMessage == null) {
+			makeRoom(messageLength);
+			partialMessage = new PartialMessage(messageLength, fragmentCount, now);
+			partialMessages.put(key, partialMessage);
+			reassemblyBytes += messageLength;
+		}
+
+		fragment.get(partialMessage.encodedMessage, fragmentOffset, fragment.remaining());
+		partialMessage.receivedFragments.set(fragmentIndex);
+		if (partialMessage.receivedFragments.cardinality() < partialMessage.fragmentCount) {
+			return null;
+		}
+
+		partialMessages.remove(key);
+		reassemblyBytes -= messageLength;
+		try {
+			return MessageCodec.decode(partialMessage.encodedMessage, 0, messageLength);
+		} catch (Exception e) {
+			System.out.println(e);
+			return null;
+		}
+	}
+
+	/**
+	 * @return the number of bytes held by the partial messages
+	 */
+	public int getReassemblyBytes() {
+		return reassemblyBytes;
+	}
+
+	/**
+	 * @return the number of partial messages
+	 */
+	public int getPartialMessageCount() {
+		return partialMessages.size();
+	}
+
+	/**
+	 * @return the number of partial messages dropped
+	 */
+	public long getDroppedMessages() {
+		return droppedMessages;
+	}
+
+	/**
+	 * Drop the partial messages whose reassembly timeout has run out
+	 *
+	 * @param now the current time
+	 */
+	private void dropExpiredMessages(long now) {
+		Iterator<PartialMessage> partialMessageIterator = partialMessages.values().iterator();
+		while (partialMessageIterator.hasNext()) {
+			PartialMessage partialMessage = partialMessageIterator.next();
+			if (now - partialMessage.startedNanoseconds < reassemblyTimeoutNanoseconds) {
+				// The later messages started later
+				return;
+			}
+
+			partialMessageIterator.remove();
+			drop(partialMessage, "its reassembly timed out");
+		}
+	}
+
+	/**
+	 * Drop the oldest partial messages until a message of the given length fits
+	 * under the memory cap
+	 *
+	 * @param messageLength the length of the encoded message
+	 */
+	private void makeRoom(int messageLength) {
+		Iterator<PartialMessage> partialMessageIterator = partialMessages.values().iterator();
+		while (reassemblyBytes + messageLength > MAX_REASSEMBLY_BYTES && partialMessageIterator.hasNext()) {
+			PartialMessage partialMessage = partialMessageIterator.next();
+			partialMessageIterator.remove();
+			drop(partialMessage, "the reassembly memory is full");
+		}
+	}
+
+	/**
+	 * Drop a partial message that was removed from the partial messages
+	 *
+	 * @param partialMessage the partial message
+	 * @param reason         the reason it is dropped
+	 */
+	private void drop(PartialMessage partialMessage, String reason) {
+		reassemblyBytes -= partialMessage.encodedMessage.length;
+		droppedMessages++;
+		System.out.println("Dropped a message missing " + (partialMessage.fragmentCount
+				- partialMessage.receivedFragments.cardinality()) + " fragment(s) because " + reason);
+	}
+}
@@ -0,0 +1,33 @@
+/**
+ *
+ */
+package common.remote_procedure;
+
+import java.util.concurrent.CompletableFuture;
+
+import common.messages.Message;
+
+/**
+ * This interface represents the way the messages of a link reach the target.
+ * Received messages are delivered into the link's MessageInbox.
+ *
+ * @author paulokenne
+ *
+ */
+public interface MessageTransport {
+
+	/**
+	 * Queue the given message for the target and return right away
+	 *
+	 * @param message the message to be sent
+	 * @return the future acknowledgement
+	 */
+	public CompletableFuture<Acknowledgement> sendAsync(Message message);
+
+	/**
+	 * Get the transport's send metrics
+	 *
+	 * @return the send metrics
+	 */
+	public SlidingWindowMetrics getSendMetrics();
+}
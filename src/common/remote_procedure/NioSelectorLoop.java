@@ -0,0 +1,165 @@
+/**
+ *
+ */
+package common.remote_procedure;
+
+import java.io.IOException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class runs the single selector of the process. Every link registers its
+ * non-blocking channels here, and one thread reads them, transmits and
+ * retransmits for all of them.
+ *
+ * @author paulokenne
+ *
+ */
+public final class NioSelectorLoop {
+
+	/**
+	 * The process' selector loop
+	 */
+	private static NioSelectorLoop instance;
+
+	/**
+	 * The selector
+	 */
+	private Selector selector;
+
+	/**
+	 * The handlers registered with the loop. Only used by the loop thread.
+	 */
+	private ArrayList<SelectorLoopHandler> handlers = new ArrayList<>();
+
+	/**
+	 * The tasks to run on the loop thread
+	 */
+	private ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Return the process' selector loop, starting it on first use
+	 *
+	 * @return the selector loop
+	 * @throws IOException if the selector cannot be opened
+	 */
+	public static synchronized NioSelectorLoop getInstance() throws IOException {
+		if (instance == null) {
+			instance = new NioSelectorLoop();
+		}
+		return instance;
+	}
+
+	/**
+	 * A private NioSelectorLoop constructor
+	 *
+	 * @throws IOException if the selector cannot be opened
+	 */
+	private NioSelectorLoop() throws IOException {
+		selector = Selector.open();
+
+		Thread loopThread = new Thread("NioSelectorLoop") {
+			@Override
+			public void run() {
+				runLoop();
+			}
+		};
+		loopThread.setDaemon(true);
+		loopThread.start();
+	}
+
+	/**
+	 * Register a non-blocking channel for reading. The handler is called on the
+	 * loop thread from now on.
+	 *
+	 * @param channel the channel
+	 * @param handler the channel's handler
+	 */
+	public void register(DatagramChannel channel, SelectorLoopHandler handler) {
+		execute(() -> {
+			try {
+				channel.register(selector, SelectionKey.OP_READ, handler);
+				handlers.add(handler);
+			} catch (IOException e) {
+				System.out.println(e);
+			}
+		});
+	}
+
+	/**
+	 * Run the task on the loop thread
+	 *
+	 * @param task the task
+	 */
+	public void execute(Runnable task) {
+		tasks.add(task);
+		selector.wakeup();
+	}
+
+	/**
+	 * Wake up the loop so that the handlers do their due work
+	 */
+	public void wakeup() {
+		selector.wakeup();
+	}
+
+	/**
+	 * Wait for readable channels, wake ups and deadlines, and call the handlers
+	 */
+	private void runLoop() {
+		while (true) {
+			Runnable task;
+			while ((task = tasks.poll()) != null) {
+				task.run();
+			}
+
+			try {
+				selector.select(getSelectTimeoutMilliseconds());
+			} catch (IOException e) {
+				System.out.println(e);
+				continue;
+			}
+
+			for (SelectionKey selectedKey : selector.selectedKeys()) {
+				try {
+					((SelectorLoopHandler) selectedKey.attachment()).handleReadable();
+				} catch (Exception e) {
+					System.out.println(e);
+				}
+			}
+			selector.selectedKeys().clear();
+
+			long now = System.nanoTime();
+			for (SelectorLoopHandler handler : handlers) {
+				try {
+					handler.handleDueWork(now);
+				} catch (Exception e) {
+					System.out.println(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return how long the loop can wait before a handler's deadline is due
+	 *
+	 * @return the timeout, or 0 to wait until woken up
+	 */
+	private long getSelectTimeoutMilliseconds() {
+		long nextDeadline = Long.MAX_VALUE;
+		for (SelectorLoopHandler handler : handlers) {
+			nextDeadline = Math.min(nextDeadline, handler.getNextDeadlineNanoseconds());
+		}
+
+		if (nextDeadline == Long.MAX_VALUE) {
+			return 0;
+		}
+
+		// Selecting with 0 waits forever, so always wait at least a millisecond
+		return Math.max(1, TimeUnit.NANOSECONDS.toMillis(nextDeadline - System.nanoTime() + 999_999));
+	}
+}
@@ -0,0 +1,42 @@
+/**
+ *
+ */
+package common.remote_procedure;
+
+import java.io.IOException;
+
+/**
+ * This interface is implemented by the channel owners that run on the process'
+ * NioSelectorLoop. Every method is called on the loop thread.
+ *
+ * @author paulokenne
+ *
+ */
+public interface SelectorLoopHandler {
+
+	/**
+	 * Read what is waiting on the handler's channel
+	 *
+	 * @throws IOException if the channel cannot be read
+	 */
+	void handleReadable() throws IOException;
+
+	/**
+	 * Do the work that is due, such as transmitting queued messages or firing
+	 * retransmit timers. This is called after every wake up of the loop.
+	 *
+	 * @param now the current time in nanoseconds
+	 */
+	default void handleDueWork(long now) {
+	}
+
+	/**
+	 * Return when the handler next needs handleDueWork to be called, even if
+	 * nothing wakes up the loop
+	 *
+	 * @return the deadline in nanoseconds, or Long.MAX_VALUE if there is none
+	 */
+	default long getNextDeadlineNanoseconds() {
+		return Long.MAX_VALUE;
+	}
+}
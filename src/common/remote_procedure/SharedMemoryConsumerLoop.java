@@ -0,0 +1,112 @@
+/**
+ *
+ */
+package common.remote_procedure;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * This class runs the single shared memory consumer of the process. Every
+ * shared memory link registers its receive ring here, and one thread drains
+ * them all into their links' inboxes. It spins, then yields, then parks while
+ * every ring is empty.
+ *
+ * @author paulokenne
+ *
+ */
+public final class SharedMemoryConsumerLoop {
+
+	/**
+	 * The process' consumer loop
+	 */
+	private static SharedMemoryConsumerLoop instance;
+
+	/**
+	 * The rings registered with the loop
+	 */
+	private CopyOnWriteArrayList<ConsumerRing> consumerRings = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Return the process' consumer loop, starting it on first use
+	 *
+	 * @return the consumer loop
+	 */
+	public static synchronized SharedMemoryConsumerLoop getInstance() {
+		if (instance == null) {
+			instance = new SharedMemoryConsumerLoop();
+		}
+		return instance;
+	}
+
+	/**
+	 * A private SharedMemoryConsumerLoop constructor
+	 */
+	private SharedMemoryConsumerLoop() {
+		Thread loopThread = new Thread("SharedMemoryConsumerLoop") {
+			@Override
+			public void run() {
+				runLoop();
+			}
+		};
+		loopThread.setDaemon(true);
+		loopThread.start();
+	}
+
+	/**
+	 * Register the consumer end of a ring. Its messages are delivered to the
+	 * inbox on the loop thread from now on.
+	 *
+	 * @param ring  the consumer end of the ring
+	 * @param inbox the inbox the messages are delivered to
+	 */
+	public void register(SharedMemoryRing ring, MessageInbox inbox) {
+		consumerRings.add(new ConsumerRing(ring, inbox));
+	}
+
+	/**
+	 * Drain the registered rings, and wait for an idle round whenever they are all
+	 * empty
+	 */
+	private void runLoop() {
+		int idleRounds = 0;
+		while (true) {
+			int readRecords = 0;
+			for (ConsumerRing consumerRing : consumerRings) {
+				readRecords += consumerRing.ring.drain(consumerRing.inbox);
+			}
+
+			if (readRecords > 0) {
+				idleRounds = 0;
+			} else {
+				SharedMemoryRing.idle(idleRounds++);
+			}
+		}
+	}
+
+	/**
+	 * The consumer end of a ring and the inbox of its link
+	 */
+	private static final class ConsumerRing {
+
+		/**
+		 * The consumer end of the ring
+		 */
+		private final SharedMemoryRing ring;
+
+		/**
+		 * The inbox the messages are delivered to
+		 */
+		private final MessageInbox inbox;
+
+		/**
+		 * A ConsumerRing constructor
+		 *
+		 * @param ring  the consumer end of the ring
+		 * @param inbox the inbox the messages are delivered to
+		 */
+		private ConsumerRing(SharedMemoryRing ring, MessageInbox inbox) {
+			this.ring = ring;
+			this.inbox = inbox;
+		}
+	}
+}
@@ -0,0 +1,321 @@
+/**
+ *
+ */
+package common.remote_procedure;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import common.exceptions.MessageTooLargeException;
+import common.messages.Message;
+import common.work_management.HashedWheelTimer;
+
+/**
+ * This class carries the messages of a link through SharedMemoryRings, for
+ * subsystems that run in separate processes on the same host. Each directed
+ * link has its own ring file, named after the port that the receiving end
+ * would bind for the link.
+ *
+ * Messages too large for a frame are published whole, as the ring has room
+ * for them.
+ *
+ * The SharedMemoryConsumerLoop of the process drains the receive ring of
+ * every link into the link's inbox. A message is acknowledged once it is
+ * published in the target's ring.
+ *
+ * Sending never blocks: when the target has not opened its ring yet, or the
+ * ring is full, the message waits in the link's pending messages, and the
+ * retry timer publishes the pending messages in order, for up to the
+ * acknowledgement timeout. A cached ring whose consumer has gone, such as a
+ * restarted target whose ring file was recreated, is closed and opened again.
+ *
+ * @author paulokenne
+ *
+ */
+public class SharedMemoryMessageTransport implements MessageTransport {
+
+	/**
+	 * The producer ends opened by this process, by ring file. A ring has a single
+	 * producer, so every link of the process that sends on it shares one end.
+	 */
+	private static final Map<Path, SharedMemoryRing> PRODUCER_RINGS = new ConcurrentHashMap<>();
+
+	/**
+	 * The delay between two attempts to publish the pending messages
+	 */
+	private static final long RETRY_DELAY_MILLISECONDS = 1;
+
+	/**
+	 * The timer publishing the pending messages of all the links
+	 */
+	private static final HashedWheelTimer RETRY_TIMER = new HashedWheelTimer("SharedMemoryRetryTimer",
+			RETRY_DELAY_MILLISECONDS, 64);
+
+	/**
+	 * A message waiting for room in the target's ring
+	 */
+	private static class PendingMessage {
+
+		/**
+		 * The message type, for the error of an abandoned message
+		 */
+		private String messageType;
+
+		/**
+		 * The encoded message
+		 */
+		private ByteBuffer encodedMessage;
+
+		/**
+		 * The message's sequence number
+		 */
+		private int sequenceNumber;
+
+		/**
+		 * The time the message was sent
+		 */
+		private long sendTime;
+
+		/**
+		 * The future acknowledgement of the message
+		 */
+		private CompletableFuture<Acknowledgement> acknowledgement = new CompletableFuture<>();
+
+		/**
+		 * A PendingMessage constructor
+		 *
+		 * @param messageType    the message type
+		 * @param encodedMessage the encoded message
+		 * @param sequenceNumber the message's sequence number
+		 * @param sendTime       the time the message was sent
+		 */
+		private PendingMessage(String messageType, ByteBuffer encodedMessage, int sequenceNumber, long sendTime) {
+			this.messageType = messageType;
+			this.encodedMessage = encodedMessage;
+			this.sequenceNumber = sequenceNumber;
+			this.sendTime = sendTime;
+		}
+	}
+
+	/**
+	 * The ring file of the messages sent to the target
+	 */
+	private Path sendRingPath;
+
+	/**
+	 * The sequence number of the next message
+	 */
+	private AtomicInteger nextSequenceNumber = new AtomicInteger();
+
+	/**
+	 * The messages waiting for room in the target's ring, in order. Guarded by
+	 * itself.
+	 */
+	private ArrayDeque<PendingMessage> pendingMessages = new ArrayDeque<>();
+
+	/**
+	 * A flag indicating whether an attempt to publish the pending messages is
+	 * scheduled. Guarded by pendingMessages.
+	 */
+	private boolean isRetryScheduled = false;
+
+	/**
+	 * The send metrics
+	 */
+	private SlidingWindowMetrics metrics = new SlidingWindowMetrics();
+
+	/**
+	 * A SharedMemoryMessageTransport constructor
+	 *
+	 * @param sourceSubsystemType the source subsystem type
+	 * @param targetSubsystemType the target subsystem type
+	 * @param inbox               the inbox the received messages are delivered to
+	 * @throws IOException if the receive ring cannot be opened
+	 */
+	public SharedMemoryMessageTransport(SubsystemComponentType sourceSubsystemType,
+			SubsystemComponentType targetSubsystemType, MessageInbox inbox) throws IOException {
+		SubsystemCommunicationInfo sourceCommunicationInfo = SubsystemCommunicationConfigurations
+				.getSourceSubsystemCommunicationInfo(sourceSubsystemType, targetSubsystemType);
+		SubsystemCommunicationInfo targetCommunicationInfo = SubsystemCommunicationConfigurations
+				.getSourceSubsystemCommunicationInfo(targetSubsystemType, sourceSubsystemType);
+		sendRingPath = SubsystemCommunicationConfigurations
+				.getSharedMemoryRingPath(targetCommunicationInfo.getPortNumber());
+
+		int receivePort = sourceCommunicationInfo.getPortNumber();
+		SharedMemoryRing receiveRing = SharedMemoryRing
+				.openConsumer(SubsystemCommunicationConfigurations.getSharedMemoryRingPath(receivePort));
+
+		SharedMemoryConsumerLoop.getInstance().register(receiveRing, inbox);
+	}
+
+	/**
+	 * Publish the given message in the target's ring. When the target has not
+	 * opened its ring yet, or the ring is full, or older messages are still
+	 * pending, the message is left to the retry timer, which gives up after the
+	 * acknowledgement timeout.
+	 *
+	 * @param message the message to be sent
+	 * @return the future acknowledgement, completed once the message is published
+	 */
+	@Override
+	public CompletableFuture<Acknowledgement> sendAsync(Message message) {
+		long sendTime = System.nanoTime();
+		ByteBuffer encodedMessage = DirectBufferPool.acquire();
+
+		try {
+			try {
+				MessageCodec.encode(message, encodedMessage);
+			} catch (MessageTooLargeException e) {
+				// The message is too large for a pooled buffer
+				DirectBufferPool.release(encodedMessage);
+				encodedMessage = ByteBuffer.allocate(MessageCodec.MAX_ENCODED_MESSAGE_SIZE);
+				MessageCodec.encode(message, encodedMessage);
+			}
+			encodedMessage.flip();
+
+			synchronized (pendingMessages) {
+				int sequenceNumber = nextSequenceNumber.getAndIncrement();
+				if (pendingMessages.isEmpty() && offer(encodedMessage, sequenceNumber)) {
+					return CompletableFuture.completedFuture(recordPublished(sequenceNumber, sendTime));
+				}
+
+				// The pooled buffer is reused once this returns, so the pending message
+				// keeps a copy
+				ByteBuffer pendingEncodedMessage = ByteBuffer.allocate(encodedMessage.remaining());
+				pendingEncodedMessage.put(encodedMessage).flip();
+
+				PendingMessage pendingMessage = new PendingMessage(message.getMessageType().toString(),
+						pendingEncodedMessage, sequenceNumber, sendTime);
+				pendingMessages.add(pendingMessage);
+				scheduleRetry();
+				return pendingMessage.acknowledgement;
+			}
+
+		} catch (Exception e) {
+			return CompletableFuture.failedFuture(e);
+		} finally {
+			if (encodedMessage.isDirect()) {
+				DirectBufferPool.release(encodedMessage);
+			}
+		}
+	}
+
+	/**
+	 * Schedule an attempt to publish the pending messages, unless one is already
+	 * scheduled. The caller holds the lock of pendingMessages.
+	 */
+	private void scheduleRetry() {
+		if (!isRetryScheduled) {
+			isRetryScheduled = true;
+			RETRY_TIMER.schedule(this::publishPendingMessages, RETRY_DELAY_MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Publish the pending messages in order, until the ring is full again, and
+	 * abandon those that waited longer than the acknowledgement timeout. Run by
+	 * the retry timer.
+	 */
+	private void publishPendingMessages() {
+		long timeoutNanoseconds = TimeUnit.MILLISECONDS
+				.toNanos(SubsystemCommunicationRPC.ACKNOWLEDGEMENT_TIMEOUT_MILLISECONDS);
+		List<Runnable> completions = new ArrayList<>();
+
+		synchronized (pendingMessages) {
+			isRetryScheduled = false;
+
+			while (!pendingMessages.isEmpty()) {
+				PendingMessage pendingMessage = pendingMessages.peek();
+				try {
+					if (offer(pendingMessage.encodedMessage, pendingMessage.sequenceNumber)) {
+						Acknowledgement acknowledgement = recordPublished(pendingMessage.sequenceNumber,
+								pendingMessage.sendTime);
+						completions.add(() -> pendingMessage.acknowledgement.complete(acknowledgement));
+					} else if (System.nanoTime() - pendingMessage.sendTime > timeoutNanoseconds) {
+						metrics.recordAbandoned(1, 0);
+						IOException exception = new IOException("The message " + pendingMessage.messageType
+								+ " could not be published in " + sendRingPath);
+						completions.add(() -> pendingMessage.acknowledgement.completeExceptionally(exception));
+					} else {
+						break;
+					}
+				} catch (IOException e) {
+					completions.add(() -> pendingMessage.acknowledgement.completeExceptionally(e));
+				}
+				pendingMessages.poll();
+			}
+
+			if (!pendingMessages.isEmpty()) {
+				scheduleRetry();
+			}
+		}
+
+		// The acknowledgements are completed outside the lock, as they may run the
+		// sender's callbacks
+		completions.forEach(Runnable::run);
+	}
+
+	/**
+	 * Record a published message in the send metrics
+	 *
+	 * @param sequenceNumber the message's sequence number
+	 * @param sendTime       the time the message was sent
+	 * @return the acknowledgement of the message
+	 */
+	private Acknowledgement recordPublished(int sequenceNumber, long sendTime) {
+		long sendLatencyNanoseconds = System.nanoTime() - sendTime;
+		metrics.recordSend(1, 1);
+		metrics.recordAcknowledgement(1, sendLatencyNanoseconds, 0);
+		return new Acknowledgement(sequenceNumber, sendLatencyNanoseconds, 0);
+	}
+
+	/**
+	 * Try to append an encoded message to the target's ring
+	 *
+	 * @param encodedMessage the encoded message
+	 * @param sequenceNumber the message's sequence number
+	 * @return true if the message was appended, false if the ring is not open,
+	 *         has lost its consumer or is full
+	 * @throws IOException if the ring cannot be mapped
+	 */
+	private boolean offer(ByteBuffer encodedMessage, int sequenceNumber) throws IOException {
+		SharedMemoryRing ring = PRODUCER_RINGS.get(sendRingPath);
+		if (ring == null) {
+			synchronized (PRODUCER_RINGS) {
+				ring = PRODUCER_RINGS.get(sendRingPath);
+				if (ring == null) {
+					ring = SharedMemoryRing.openProducer(sendRingPath);
+					if (ring == null) {
+						return false;
+					}
+					PRODUCER_RINGS.put(sendRingPath, ring);
+				}
+			}
+		}
+
+		synchronized (ring) {
+			if (!ring.hasLiveConsumer()) {
+				// The target has gone, and its ring file with it: the ring is opened
+				// again once the target is back
+				PRODUCER_RINGS.remove(sendRingPath, ring);
+				ring.close();
+				return false;
+			}
+			return ring.offer(encodedMessage, sequenceNumber);
+		}
+	}
+
+	@Override
+	public SlidingWindowMetrics getSendMetrics() {
+		return metrics;
+	}
+}
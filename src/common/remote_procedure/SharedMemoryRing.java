@@ -0,0 +1,411 @@
+/**
+ *
+ */
+package common.remote_procedure;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+import common.messages.Message;
+
+/**
+ * This class is a single-producer, single-consumer ring of encoded messages in
+ * a memory-mapped file, shared by the processes at the two ends of a directed
+ * link.
+ *
+ * The file starts with a header. The indices are byte counts that only grow;
+ * the producer alone moves the write index and the consumer alone moves the
+ * read index.
+ *
+ * <pre>
+ * | magic (4) | ... | write index (8) at 64 | ... | read index (8) at 128 | ... | records at 192
+ * </pre>
+ *
+ * Every record starts on an 8 byte boundary:
+ *
+ * <pre>
+ * | message length (4) | sequence number (4) | encoded message | padding |
+ * </pre>
+ *
+ * A record never wraps around the end of the ring. When it does not fit, the
+ * producer writes a PADDING length and starts the record at the beginning.
+ *
+ * The consumer holds a lock on the magic for as long as it lives, the way a
+ * receive channel holds its port, so a producer can tell a live ring from a
+ * file left behind by an earlier run, and a producer whose consumer has gone
+ * can tell that its ring is dead.
+ *
+ * @author paulokenne
+ *
+ */
+public class SharedMemoryRing {
+
+	/**
+	 * The magic that marks an initialized ring
+	 */
+	private static final int MAGIC = 0x454C5652;
+
+	/**
+	 * The offset of the write index
+	 */
+	private static final int WRITE_INDEX_OFFSET = 64;
+
+	/**
+	 * The offset of the read index
+	 */
+	private static final int READ_INDEX_OFFSET = 128;
+
+	/**
+	 * The offset of the first record
+	 */
+	private static final int DATA_OFFSET = 192;
+
+	/**
+	 * The number of bytes that the records can take, enough for several of the
+	 * largest messages
+	 */
+	public static final int CAPACITY = 4 * SlidingWindowFrame.MAX_FRAGMENTED_MESSAGE_SIZE;
+
+	/**
+	 * The size of a record header
+	 */
+	public static final int RECORD_HEADER_SIZE = 8;
+
+	/**
+	 * The record length that sends the consumer back to the beginning of the
+	 * ring
+	 */
+	private static final int PADDING = -1;
+
+	/**
+	 * The number of idle rounds spent spinning before yielding. Spinning only
+	 * helps when the other end can run on another processor.
+	 */
+	private static final int SPIN_ROUNDS = Runtime.getRuntime().availableProcessors() > 1 ? 1000 : 0;
+
+	/**
+	 * The number of idle rounds spent yielding before parking
+	 */
+	private static final int YIELD_ROUNDS = 100;
+
+	/**
+	 * The shortest park of an idle round
+	 */
+	private static final long MIN_PARK_NANOSECONDS = 10_000;
+
+	/**
+	 * The longest park of an idle round
+	 */
+	private static final long MAX_PARK_NANOSECONDS = 1_000_000;
+
+	/**
+	 * The time between two checks of a producer that its consumer is still alive
+	 */
+	private static final long CONSUMER_CHECK_NANOSECONDS = 10_000_000;
+
+	/**
+	 * The view that reads and writes the ring's indices with memory ordering
+	 */
+	private static final VarHandle LONG_VIEW = MethodHandles.byteBufferViewVarHandle(long[].class,
+			ByteOrder.BIG_ENDIAN);
+
+	/**
+	 * The view that reads and writes the ring's magic with memory ordering
+	 */
+	private static final VarHandle INT_VIEW = MethodHandles.byteBufferViewVarHandle(int[].class,
+			ByteOrder.BIG_ENDIAN);
+
+	/**
+	 * The ring file's channel
+	 */
+	private FileChannel channel;
+
+	/**
+	 * The consumer's lock, or null if this is the producer's end
+	 */
+	private FileLock consumerLock;
+
+	/**
+	 * The mapped ring
+	 */
+	private MappedByteBuffer buffer;
+
+	/**
+	 * A view of the mapped ring, positioned at the record being read or written
+	 */
+	private ByteBuffer recordView;
+
+	/**
+	 * The consumer's read index
+	 */
+	private long readIndex = 0;
+
+	/**
+	 * The time of the producer's last check that its consumer is alive
+	 */
+	private long consumerCheckTime = System.nanoTime();
+
+	/**
+	 * A flag indicating whether the ring's end is closed
+	 */
+	private boolean isClosed = false;
+
+	/**
+	 * A SharedMemoryRing constructor
+	 *
+	 * @param channel      the ring file's channel
+	 * @param consumerLock the consumer's lock, or null for the producer's end
+	 * @throws IOException if the file cannot be mapped
+	 */
+	private SharedMemoryRing(FileChannel channel, FileLock consumerLock) throws IOException {
+		this.channel = channel;
+		this.consumerLock = consumerLock;
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, DATA_OFFSET + CAPACITY);
+		recordView = buffer.duplicate();
+	}
+
+	/**
+	 * Open the consumer's end of the ring in the given file, starting an empty
+	 * ring
+	 *
+	 * @param path the ring file
+	 * @return the ring
+	 * @throws IOException if the file cannot be mapped or another consumer holds
+	 *                     it
+	 */
+	public static SharedMemoryRing openConsumer(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			FileLock consumerLock = tryLockMagic(channel);
+			if (consumerLock == null) {
+				throw new IOException("The ring " + path + " already has a consumer");
+			}
+
+			SharedMemoryRing ring = new SharedMemoryRing(channel, consumerLock);
+			INT_VIEW.setRelease(ring.buffer, 0, 0);
+			LONG_VIEW.setRelease(ring.buffer, WRITE_INDEX_OFFSET, 0L);
+			LONG_VIEW.setRelease(ring.buffer, READ_INDEX_OFFSET, 0L);
+			INT_VIEW.setRelease(ring.buffer, 0, MAGIC);
+			path.toFile().deleteOnExit();
+			return ring;
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Open the producer's end of the ring in the given file, if a live consumer
+	 * has started it
+	 *
+	 * @param path the ring file
+	 * @return the ring, or null if the ring has no live consumer
+	 * @throws IOException if the file cannot be mapped
+	 */
+	public static SharedMemoryRing openProducer(Path path) throws IOException {
+		if (!Files.exists(path)) {
+			return null;
+		}
+
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			FileLock lock = tryLockMagic(channel);
+			if (lock != null) {
+				// No consumer holds the ring; it was left behind
+				lock.release();
+				channel.close();
+				return null;
+			}
+
+			SharedMemoryRing ring = new SharedMemoryRing(channel, null);
+			if ((int) INT_VIEW.getAcquire(ring.buffer, 0) != MAGIC) {
+				channel.close();
+				return null;
+			}
+			return ring;
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Try to lock the ring's magic
+	 *
+	 * @param channel the ring file's channel
+	 * @return the lock, or null if a consumer holds it
+	 * @throws IOException if the lock cannot be tried
+	 */
+	private static FileLock tryLockMagic(FileChannel channel) throws IOException {
+		try {
+			return channel.tryLock(0, Integer.BYTES, false);
+		} catch (OverlappingFileLockException e) {
+			// A consumer in this process holds it
+			return null;
+		}
+	}
+
+	/**
+	 * Return whether the ring still has its consumer. The consumer's lock on the
+	 * magic is checked at most every CONSUMER_CHECK_NANOSECONDS: once the consumer
+	 * has gone, the lock is free, and the file may have been deleted and created
+	 * again by a new consumer. Only the producer calls this.
+	 *
+	 * @return false if the consumer has gone or the ring is closed
+	 */
+	public boolean hasLiveConsumer() {
+		if (isClosed) {
+			return false;
+		}
+
+		long now = System.nanoTime();
+		if (now - consumerCheckTime < CONSUMER_CHECK_NANOSECONDS) {
+			return true;
+		}
+		consumerCheckTime = now;
+
+		try {
+			FileLock lock = tryLockMagic(channel);
+			if (lock != null) {
+				lock.release();
+				return false;
+			}
+		} catch (IOException e) {
+			return false;
+		}
+		return (int) INT_VIEW.getAcquire(buffer, 0) == MAGIC;
+	}
+
+	/**
+	 * Append an encoded message to the ring. Only the producer calls this.
+	 *
+	 * @param encodedMessage the encoded message, between its position and limit
+	 * @param sequenceNumber the message's sequence number
+	 * @return true if the message was appended, false if the ring is full
+	 */
+	public boolean offer(ByteBuffer encodedMessage, int sequenceNumber) {
+		int messageLength = encodedMessage.remaining();
+		int recordSize = getRecordSize(messageLength);
+
+		long writeIndex = (long) LONG_VIEW.getAcquire(buffer, WRITE_INDEX_OFFSET);
+		long readIndex = (long) LONG_VIEW.getAcquire(buffer, READ_INDEX_OFFSET);
+
+		int offset = (int) (writeIndex % CAPACITY);
+		int bytesToEnd = CAPACITY - offset;
+		int paddingSize = bytesToEnd < recordSize ? bytesToEnd : 0;
+		if (CAPACITY - (writeIndex - readIndex) < paddingSize + recordSize) {
+			return false;
+		}
+
+		if (paddingSize > 0) {
+			buffer.putInt(DATA_OFFSET + offset, PADDING);
+			writeIndex += paddingSize;
+			offset = 0;
+		}
+
+		buffer.putInt(DATA_OFFSET + offset, messageLength);
+		buffer.putInt(DATA_OFFSET + offset + Integer.BYTES, sequenceNumber);
+		recordView.clear();
+		recordView.position(DATA_OFFSET + offset + RECORD_HEADER_SIZE);
+		recordView.put(encodedMessage);
+
+		// Publish the record
+		LONG_VIEW.setRelease(buffer, WRITE_INDEX_OFFSET, writeIndex + recordSize);
+		return true;
+	}
+
+	/**
+	 * Decode the published records and deliver their messages. Only the consumer
+	 * calls this. A message that does not decode is logged and left out.
+	 *
+	 * @param inbox the inbox the messages are delivered to
+	 * @return the number of records read
+	 */
+	public int drain(MessageInbox inbox) {
+		long writeIndex = (long) LONG_VIEW.getAcquire(buffer, WRITE_INDEX_OFFSET);
+		int records = 0;
+
+		while (readIndex < writeIndex) {
+			int offset = (int) (readIndex % CAPACITY);
+			int messageLength = buffer.getInt(DATA_OFFSET + offset);
+			if (messageLength == PADDING) {
+				readIndex += CAPACITY - offset;
+				continue;
+			}
+
+			int messageStart = DATA_OFFSET + offset + RECORD_HEADER_SIZE;
+			recordView.limit(messageStart + messageLength);
+			recordView.position(messageStart);
+			try {
+				Message message = MessageCodec.decode(recordView);
+				inbox.deliver(message);
+			} catch (Exception e) {
+				System.out.println(e);
+			}
+			recordView.clear();
+
+			readIndex += getRecordSize(messageLength);
+			records++;
+		}
+
+		if (records > 0) {
+			// Hand the read records' space back to the producer
+			LONG_VIEW.setRelease(buffer, READ_INDEX_OFFSET, readIndex);
+		}
+		return records;
+	}
+
+	/**
+	 * Close the ring's end
+	 */
+	public void close() {
+		isClosed = true;
+		try {
+			if (consumerLock != null) {
+				consumerLock.release();
+			}
+			channel.close();
+		} catch (IOException e) {
+			System.out.println(e);
+		}
+	}
+
+	/**
+	 * Get the size of the record of a message, rounded up to 8 bytes
+	 *
+	 * @param messageLength the length of the encoded message
+	 * @return the record size
+	 */
+	private static int getRecordSize(int messageLength) {
+		return (RECORD_HEADER_SIZE + messageLength + Long.BYTES - 1) & -Long.BYTES;
+	}
+
+	/**
+	 * Wait for one idle round: spin at first, then yield, then park for longer
+	 * and longer. The other end is in another process, so it cannot unpark us.
+	 *
+	 * @param idleRounds the number of idle rounds so far
+	 */
+	public static void idle(int idleRounds) {
+		if (idleRounds < SPIN_ROUNDS) {
+			Thread.onSpinWait();
+		} else if (idleRounds < SPIN_ROUNDS + YIELD_ROUNDS) {
+			Thread.yield();
+		} else {
+			int parkRounds = Math.min(idleRounds - SPIN_ROUNDS - YIELD_ROUNDS, 10);
+			LockSupport.parkNanos(Math.min(MIN_PARK_NANOSECONDS << parkRounds, MAX_PARK_NANOSECONDS));
+		}
+	}
+}
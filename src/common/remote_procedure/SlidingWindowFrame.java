@@ -0,0 +1,222 @@
+/**
+ *
+ */
+package common.remote_procedure;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+
+/**
+ * This class provides the layout of the frames sent on a link.
+ *
+ * A data frame carries a batch of one or more encoded messages:
+ *
+ * <pre>
+ * | type (1) | session id (4) | sequence number (4) | window base (4) | message count (1) |
+ * | message length (2) | message | message length (2) | message | ...
+ * </pre>
+ *
+ * A message too large for a data frame is split into fragments, which are
+ * sent in fragment frames with consecutive sequence numbers. The receiver
+ * reassembles the message from the fragments that share a message id.
+ *
+ * <pre>
+ * | type (1) | session id (4) | sequence number (4) | window base (4) | message id (4) |
+ * | fragment index (2) | fragment count (2) | message length (4) | fragment |
+ * </pre>
+ *
+ * Every fragment but the last carries MAX_FRAGMENT_SIZE bytes of the message.
+ *
+ * An acknowledgement frame acknowledges every sequence number up to the
+ * cumulative acknowledgement, plus the sequence numbers flagged in the
+ * selective acknowledgement bits. Bit i stands for the sequence number
+ * cumulative acknowledgement + 1 + i.
+ *
+ * Sequence numbers wrap around past Integer.MAX_VALUE on a long-running link.
+ * They are compared by serial number arithmetic, which holds as long as the
+ * compared sequence numbers are less than 2^31 apart, as those of a window
+ * are.
+ *
+ * <pre>
+ * | type (1) | session id (4) | cumulative acknowledgement (4) | selective acknowledgement bits (8) |
+ * </pre>
+ *
+ * @author paulokenne
+ *
+ */
+public final class SlidingWindowFrame {
+
+	/**
+	 * The data frame type
+	 */
+	public static final byte DATA_FRAME = 1;
+
+	/**
+	 * The acknowledgement frame type
+	 */
+	public static final byte ACKNOWLEDGEMENT_FRAME = 2;
+
+	/**
+	 * The fragment frame type
+	 */
+	public static final byte FRAGMENT_FRAME = 3;
+
+	/**
+	 * The size of a data frame header
+	 */
+	public static final int DATA_HEADER_SIZE = 14;
+
+	/**
+	 * The offset of the window base in a data frame
+	 */
+	public static final int WINDOW_BASE_OFFSET = 9;
+
+	/**
+	 * The offset of the message count in a data frame
+	 */
+	public static final int MESSAGE_COUNT_OFFSET = 13;
+
+	/**
+	 * The size of the length that precedes every message in a data frame
+	 */
+	public static final int MESSAGE_LENGTH_SIZE = 2;
+
+	/**
+	 * The largest encoded message that fits in a data frame
+	 */
+	public static final int MAX_MESSAGE_SIZE = DirectBufferPool.BUFFER_SIZE - DATA_HEADER_SIZE - MESSAGE_LENGTH_SIZE;
+
+	/**
+	 * The size of a fragment frame header
+	 */
+	public static final int FRAGMENT_HEADER_SIZE = 25;
+
+	/**
+	 * The number of message bytes carried by every fragment but the last
+	 */
+	public static final int MAX_FRAGMENT_SIZE = DirectBufferPool.BUFFER_SIZE - FRAGMENT_HEADER_SIZE;
+
+	/**
+	 * The largest encoded message that can be sent in fragments
+	 */
+	public static final int MAX_FRAGMENTED_MESSAGE_SIZE = 1 << 20;
+
+	/**
+	 * The largest number of messages batched in one data frame
+	 */
+	public static final int MAX_BATCHED_MESSAGES = 64;
+
+	/**
+	 * The size of an acknowledgement frame
+	 */
+	public static final int ACKNOWLEDGEMENT_FRAME_SIZE = 17;
+
+	/**
+	 * The number of sequence numbers that the selective acknowledgement bits cover
+	 */
+	public static final int SELECTIVE_ACKNOWLEDGEMENT_RANGE = Long.SIZE;
+
+	/**
+	 * The order of the sequence numbers, which holds when they wrap around
+	 */
+	public static final Comparator<Integer> SEQUENCE_NUMBER_ORDER = (sequenceNumber,
+			otherSequenceNumber) -> Integer.compare(sequenceNumber - otherSequenceNumber, 0);
+
+	/**
+	 * A private SlidingWindowFrame constructor. We do not want instances of this
+	 * class
+	 */
+	private SlidingWindowFrame() {
+	}
+
+	/**
+	 * Return whether a sequence number comes before another, when they may have
+	 * wrapped around
+	 *
+	 * @param sequenceNumber      the sequence number
+	 * @param otherSequenceNumber the other sequence number
+	 * @return true if the sequence number comes first
+	 */
+	public static boolean isBefore(int sequenceNumber, int otherSequenceNumber) {
+		return sequenceNumber - otherSequenceNumber < 0;
+	}
+
+	/**
+	 * Write a data frame header at the start of the buffer
+	 *
+	 * @param buffer         the buffer
+	 * @param sessionId      the sender session id
+	 * @param sequenceNumber the sequence number
+	 * @param windowBase     the lowest sequence number the sender still tracks
+	 * @param messageCount   the number of messages in the frame
+	 */
+	public static void putDataHeader(ByteBuffer buffer, int sessionId, int sequenceNumber, int windowBase,
+			int messageCount) {
+		buffer.put(0, DATA_FRAME);
+		buffer.putInt(1, sessionId);
+		buffer.putInt(5, sequenceNumber);
+		buffer.putInt(WINDOW_BASE_OFFSET, windowBase);
+		buffer.put(MESSAGE_COUNT_OFFSET, (byte) messageCount);
+	}
+
+	/**
+	 * Write a fragment frame header at the start of the buffer
+	 *
+	 * @param buffer         the buffer
+	 * @param sessionId      the sender session id
+	 * @param sequenceNumber the sequence number
+	 * @param windowBase     the lowest sequence number the sender still tracks
+	 * @param messageId      the id of the fragmented message
+	 * @param fragmentIndex  the index of the fragment
+	 * @param fragmentCount  the number of fragments of the message
+	 * @param messageLength  the length of the encoded message
+	 */
+	public static void putFragmentHeader(ByteBuffer buffer, int sessionId, int sequenceNumber, int windowBase,
+			int messageId, int fragmentIndex, int fragmentCount, int messageLength) {
+		buffer.put(0, FRAGMENT_FRAME);
+		buffer.putInt(1, sessionId);
+		buffer.putInt(5, sequenceNumber);
+		buffer.putInt(WINDOW_BASE_OFFSET, windowBase);
+		buffer.putInt(13, messageId);
+		buffer.putShort(17, (short) fragmentIndex);
+		buffer.putShort(19, (short) fragmentCount);
+		buffer.putInt(21, messageLength);
+	}
+
+	/**
+	 * Get the number of fragments a message of the given length is split into
+	 *
+	 * @param messageLength the length of the encoded message
+	 * @return the number of fragments
+	 */
+	public static int getFragmentCount(int messageLength) {
+		return (messageLength + MAX_FRAGMENT_SIZE - 1) / MAX_FRAGMENT_SIZE;
+	}
+
+	/**
+	 * Append an encoded message to a data frame
+	 *
+	 * @param buffer         the data frame
+	 * @param encodedMessage the encoded message, between its position and limit
+	 */
+	public static void putMessage(ByteBuffer buffer, ByteBuffer encodedMessage) {
+		buffer.putShort((short) encodedMessage.remaining());
+		buffer.put(encodedMessage);
+	}
+
+	/**
+	 * Write an acknowledgement frame
+	 *
+	 * @param buffer                       the buffer
+	 * @param sessionId                    the sender session id
+	 * @param cumulativeAcknowledgement    the cumulative acknowledgement
+	 * @param selectiveAcknowledgementBits the selective acknowledgement bits
+	 */
+	public static void putAcknowledgement(ByteBuffer buffer, int sessionId, int cumulativeAcknowledgement,
+			long selectiveAcknowledgementBits) {
+		buffer.put(ACKNOWLEDGEMENT_FRAME);
+		buffer.putInt(sessionId);
+		buffer.putInt(cumulativeAcknowledgement);
+		buffer.putLong(selectiveAcknowledgementBits);
+	}
+}
@@ -0,0 +1,198 @@
+/**
+ *
+ */
+package common.remote_procedure;
+
+/**
+ * This class keeps the send metrics of a link: how long frames take to be
+ * acknowledged, how many frames are in flight and how many messages share a
+ * frame.
+ *
+ * @author paulokenne
+ *
+ */
+public class SlidingWindowMetrics {
+
+	/**
+	 * The number of messages sent, not counting retransmissions
+	 */
+	private long sentMessages = 0;
+
+	/**
+	 * The number of frames sent, not counting retransmissions
+	 */
+	private long sentFrames = 0;
+
+	/**
+	 * The number of acknowledged messages
+	 */
+	private long acknowledgedMessages = 0;
+
+	/**
+	 * The number of acknowledged frames
+	 */
+	private long acknowledgedFrames = 0;
+
+	/**
+	 * The number of retransmissions
+	 */
+	private long retransmissions = 0;
+
+	/**
+	 * The number of messages abandoned without an acknowledgement
+	 */
+	private long abandonedMessages = 0;
+
+	/**
+	 * The sum of the send latencies of the acknowledged frames
+	 */
+	private long totalSendLatencyNanoseconds = 0;
+
+	/**
+	 * The largest send latency
+	 */
+	private long maxSendLatencyNanoseconds = 0;
+
+	/**
+	 * The number of frames currently in flight
+	 */
+	private int inFlightDepth = 0;
+
+	/**
+	 * The largest number of frames that were in flight at once
+	 */
+	private int maxInFlightDepth = 0;
+
+	/**
+	 * Record that a frame was sent
+	 *
+	 * @param messageCount  the number of messages in the frame
+	 * @param inFlightDepth the number of frames in flight, including this one
+	 */
+	public synchronized void recordSend(int messageCount, int inFlightDepth) {
+		sentMessages += messageCount;
+		sentFrames++;
+		this.inFlightDepth = inFlightDepth;
+		maxInFlightDepth = Math.max(maxInFlightDepth, inFlightDepth);
+	}
+
+	/**
+	 * Record that a frame was acknowledged
+	 *
+	 * @param messageCount           the number of messages in the frame
+	 * @param sendLatencyNanoseconds the time from the send to the acknowledgement
+	 * @param inFlightDepth          the number of frames still in flight
+	 */
+	public synchronized void recordAcknowledgement(int messageCount, long sendLatencyNanoseconds,
+			int inFlightDepth) {
+		acknowledgedMessages += messageCount;
+		acknowledgedFrames++;
+		totalSendLatencyNanoseconds += sendLatencyNanoseconds;
+		maxSendLatencyNanoseconds = Math.max(maxSendLatencyNanoseconds, sendLatencyNanoseconds);
+		this.inFlightDepth = inFlightDepth;
+	}
+
+	/**
+	 * Record that a frame was retransmitted
+	 */
+	public synchronized void recordRetransmission() {
+		retransmissions++;
+	}
+
+	/**
+	 * Record that a frame was abandoned
+	 *
+	 * @param messageCount  the number of messages in the frame
+	 * @param inFlightDepth the number of frames still in flight
+	 */
+	public synchronized void recordAbandoned(int messageCount, int inFlightDepth) {
+		abandonedMessages += messageCount;
+		this.inFlightDepth = inFlightDepth;
+	}
+
+	/**
+	 * @return the number of messages sent, not counting retransmissions
+	 */
+	public synchronized long getSentMessages() {
+		return sentMessages;
+	}
+
+	/**
+	 * @return the number of frames sent, not counting retransmissions
+	 */
+	public synchronized long getSentFrames() {
+		return sentFrames;
+	}
+
+	/**
+	 * @return the average number of messages per frame
+	 */
+	public synchronized double getMessagesPerFrame() {
+		if (sentFrames == 0) {
+			return 0;
+		}
+		return sentMessages / (double) sentFrames;
+	}
+
+	/**
+	 * @return the number of acknowledged messages
+	 */
+	public synchronized long getAcknowledgedMessages() {
+		return acknowledgedMessages;
+	}
+
+	/**
+	 * @return the number of retransmissions
+	 */
+	public synchronized long getRetransmissions() {
+		return retransmissions;
+	}
+
+	/**
+	 * @return the number of messages abandoned without an acknowledgement
+	 */
+	public synchronized long getAbandonedMessages() {
+		return abandonedMessages;
+	}
+
+	/**
+	 * @return the average send latency in milliseconds
+	 */
+	public synchronized double getAverageSendLatencyMilliseconds() {
+		if (acknowledgedFrames == 0) {
+			return 0;
+		}
+		return totalSendLatencyNanoseconds / (acknowledgedFrames * 1e6);
+	}
+
+	/**
+	 * @return the largest send latency in milliseconds
+	 */
+	public synchronized double getMaxSendLatencyMilliseconds() {
+		return maxSendLatencyNanoseconds / 1e6;
+	}
+
+	/**
+	 * @return the number of frames currently in flight
+	 */
+	public synchronized int getInFlightDepth() {
+		return inFlightDepth;
+	}
+
+	/**
+	 * @return the largest number of frames that were in flight at once
+	 */
+	public synchronized int getMaxInFlightDepth() {
+		return maxInFlightDepth;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format(
+				"[sent: %d, frames: %d, acknowledged: %d, retransmissions: %d, abandoned: %d, "
+						+ "average latency: %.3fms, max latency: %.3fms, in flight: %d, max in flight: %d]",
+				sentMessages, sentFrames, acknowledgedMessages, retransmissions, abandonedMessages,
+				getAverageSendLatencyMilliseconds(), getMaxSendLatencyMilliseconds(), inFlightDepth,
+				maxInFlightDepth);
+	}
+}
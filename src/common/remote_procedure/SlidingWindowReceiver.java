@@ -0,0 +1,276 @@
+/**
+ *
+ */
+package common.remote_procedure;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import common.messages.Message;
+
+/**
+ * This class receives the data frames of a link and releases their messages in
+ * sequence order, unbatching frames that carry several messages. Frames that
+ * arrive ahead of a gap are held until the gap is filled. Every data frame is
+ * answered with an acknowledgement frame that carries the cumulative
+ * acknowledgement and the selective acknowledgements of the held frames.
+ *
+ * Fragment frames are sequenced like data frames. Their fragments go to a
+ * MessageReassembler, and the reassembled message is released in the place of
+ * the fragment that completed it. The fragments of a message have consecutive
+ * sequence numbers, so the message still comes out in the order it was sent.
+ *
+ * @author paulokenne
+ *
+ */
+public class SlidingWindowReceiver {
+
+	/**
+	 * The number of sender sessions that are remembered
+	 */
+	private static final int MAX_TRACKED_SESSIONS = 16;
+
+	/**
+	 * The receive state of one sender session
+	 */
+	private static class ReceiveSession {
+
+		/**
+		 * The next sequence number to release
+		 */
+		private int expectedSequenceNumber;
+
+		/**
+		 * The messages of the frames received ahead of a gap, by sequence number
+		 */
+		private TreeMap<Integer, List<Message>> outOfOrderMessages = new TreeMap<>(
+				SlidingWindowFrame.SEQUENCE_NUMBER_ORDER);
+
+		/**
+		 * A ReceiveSession constructor
+		 *
+		 * @param expectedSequenceNumber the first sequence number to release
+		 */
+		private ReceiveSession(int expectedSequenceNumber) {
+			this.expectedSequenceNumber = expectedSequenceNumber;
+		}
+	}
+
+	/**
+	 * The sender sessions, by session id
+	 */
+	@SuppressWarnings("serial")
+	private Map<Integer, ReceiveSession> sessions = new LinkedHashMap<>(MAX_TRACKED_SESSIONS, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, ReceiveSession> eldest) {
+			return size() > MAX_TRACKED_SESSIONS;
+		}
+	};
+
+	/**
+	 * The reassembler of the fragmented messages
+	 */
+	private MessageReassembler reassembler = new MessageReassembler();
+
+	/**
+	 * The inbox the messages are released to, in order
+	 */
+	private MessageInbox inbox;
+
+	/**
+	 * A SlidingWindowReceiver constructor that releases its messages to its own
+	 * inbox
+	 */
+	public SlidingWindowReceiver() {
+		this(new MessageInbox());
+	}
+
+	/**
+	 * A SlidingWindowReceiver constructor
+	 *
+	 * @param inbox the inbox the messages are released to
+	 */
+	public SlidingWindowReceiver(MessageInbox inbox) {
+		this.inbox = inbox;
+	}
+
+	/**
+	 * Return the next released message, if there is one
+	 *
+	 * @return the message or null
+	 */
+	public Message pollDeliverableMessage() {
+		return inbox.poll();
+	}
+
+	/**
+	 * Wait for the next message to be released and return it
+	 *
+	 * @return the message
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public Message takeDeliverableMessage() throws InterruptedException {
+		return inbox.take();
+	}
+
+	/**
+	 * Handle a received data frame. The message is decoded straight from the
+	 * frame, and the acknowledgement frame to send back is written to the given
+	 * buffer.
+	 *
+	 * @param frame           the received frame
+	 * @param acknowledgement the buffer to write the acknowledgement frame to
+	 * @return true if an acknowledgement was written, false if the frame is not a
+	 *         data or fragment frame
+	 */
+	public synchronized boolean handleDataFrame(ByteBuffer frame, ByteBuffer acknowledgement) {
+		if (frame.remaining() < SlidingWindowFrame.DATA_HEADER_SIZE) {
+			return false;
+		}
+
+		byte frameType = frame.get();
+		if (frameType != SlidingWindowFrame.DATA_FRAME && (frameType != SlidingWindowFrame.FRAGMENT_FRAME
+				|| frame.remaining() < SlidingWindowFrame.FRAGMENT_HEADER_SIZE - 1)) {
+			return false;
+		}
+
+		int sessionId = frame.getInt();
+		int sequenceNumber = frame.getInt();
+		int windowBase = frame.getInt();
+
+		ReceiveSession session = sessions.get(sessionId);
+		if (session == null) {
+			session = new ReceiveSession(windowBase);
+			sessions.put(sessionId, session);
+		}
+
+		// The sender has given up on every message below its window base
+		if (SlidingWindowFrame.isBefore(session.expectedSequenceNumber, windowBase)) {
+			skipTo(session, windowBase);
+		}
+
+		boolean isDuplicate = SlidingWindowFrame.isBefore(sequenceNumber, session.expectedSequenceNumber)
+				|| session.outOfOrderMessages.containsKey(sequenceNumber);
+		boolean isInWindow = sequenceNumber - session.expectedSequenceNumber < SlidingWindowFrame.SELECTIVE_ACKNOWLEDGEMENT_RANGE;
+
+		if (!isDuplicate && isInWindow) {
+			List<Message> messages = frameType == SlidingWindowFrame.DATA_FRAME
+					? decodeMessages(frame, Byte.toUnsignedInt(frame.get()))
+					: reassembleMessage(sessionId, frame);
+			session.outOfOrderMessages.put(sequenceNumber, messages);
+			releaseInOrderMessages(session);
+		}
+
+		putAcknowledgement(acknowledgement, sessionId, session);
+		return true;
+	}
+
+	/**
+	 * Decode the messages of a data frame straight from the frame. A message that
+	 * does not decode is logged and left out; its frame is still acknowledged so
+	 * that the sender stops retransmitting it.
+	 *
+	 * @param frame        the frame, positioned at its first message
+	 * @param messageCount the number of messages in the frame
+	 * @return the decoded messages
+	 */
+	private List<Message> decodeMessages(ByteBuffer frame, int messageCount) {
+		List<Message> messages = new ArrayList<>(messageCount);
+		int frameLimit = frame.limit();
+
+		for (int i = 0; i < messageCount && frame.remaining() >= SlidingWindowFrame.MESSAGE_LENGTH_SIZE; i++) {
+			int messageLength = Short.toUnsignedInt(frame.getShort());
+			int messageEnd = Math.min(frame.position() + messageLength, frameLimit);
+
+			frame.limit(messageEnd);
+			try {
+				messages.add(MessageCodec.decode(frame));
+			} catch (Exception e) {
+				System.out.println(e);
+			}
+			frame.limit(frameLimit);
+			frame.position(messageEnd);
+		}
+
+		return messages;
+	}
+
+	/**
+	 * Hand the fragment of a fragment frame to the reassembler
+	 *
+	 * @param sessionId the sender session id
+	 * @param frame     the frame, positioned at its message id
+	 * @return the message the fragment completes, or no message
+	 */
+	private List<Message> reassembleMessage(int sessionId, ByteBuffer frame) {
+		int messageId = frame.getInt();
+		int fragmentIndex = Short.toUnsignedInt(frame.getShort());
+		int fragmentCount = Short.toUnsignedInt(frame.getShort());
+		int messageLength = frame.getInt();
+
+		Message message = reassembler.addFragment(sessionId, messageId, fragmentIndex, fragmentCount, messageLength,
+				frame);
+		return message == null ? List.of() : List.of(message);
+	}
+
+	/**
+	 * Release the held messages below the given sequence number and move the
+	 * session to it
+	 *
+	 * @param session        the session
+	 * @param sequenceNumber the sequence number
+	 */
+	private void skipTo(ReceiveSession session, int sequenceNumber) {
+		while (!session.outOfOrderMessages.isEmpty()
+				&& SlidingWindowFrame.isBefore(session.outOfOrderMessages.firstKey(), sequenceNumber)) {
+			release(session.outOfOrderMessages.pollFirstEntry().getValue());
+		}
+		session.expectedSequenceNumber = sequenceNumber;
+		releaseInOrderMessages(session);
+	}
+
+	/**
+	 * Release the held messages that directly follow the released ones
+	 *
+	 * @param session the session
+	 */
+	private void releaseInOrderMessages(ReceiveSession session) {
+		while (!session.outOfOrderMessages.isEmpty()
+				&& session.outOfOrderMessages.firstKey() == session.expectedSequenceNumber) {
+			release(session.outOfOrderMessages.pollFirstEntry().getValue());
+			session.expectedSequenceNumber++;
+		}
+	}
+
+	/**
+	 * Release the messages of a frame
+	 *
+	 * @param messages the messages
+	 */
+	private void release(List<Message> messages) {
+		inbox.deliverAll(messages);
+	}
+
+	/**
+	 * Write the acknowledgement frame for the session's current state
+	 *
+	 * @param acknowledgement the buffer to write the acknowledgement frame to
+	 * @param sessionId       the session id
+	 * @param session         the session
+	 */
+	private void putAcknowledgement(ByteBuffer acknowledgement, int sessionId, ReceiveSession session) {
+		int cumulativeAcknowledgement = session.expectedSequenceNumber - 1;
+
+		long selectiveAcknowledgementBits = 0;
+		for (int heldSequenceNumber : session.outOfOrderMessages.keySet()) {
+			selectiveAcknowledgementBits |= 1L << (heldSequenceNumber - cumulativeAcknowledgement - 1);
+		}
+
+		SlidingWindowFrame.putAcknowledgement(acknowledgement, sessionId, cumulativeAcknowledgement,
+				selectiveAcknowledgementBits);
+	}
+}
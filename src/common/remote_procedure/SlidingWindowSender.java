@@ -0,0 +1,652 @@
+/**
+ *
+ */
+package common.remote_procedure;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import common.exceptions.MessageTooLargeException;
+import common.messages.Message;
+
+/**
+ * This class sends messages over a link with a sliding window. Messages are
+ * packed into data frames, and up to a window of frames can be in flight at
+ * once. Every frame gets a sequence number and a retransmit timer, and is kept
+ * until the receiver acknowledges it, either cumulatively or selectively.
+ *
+ * When batching is on, a queued message waits up to the batching delay for
+ * more messages bound for the same target, and they all share one frame and
+ * one acknowledgement. When batching is off, every message gets its own frame.
+ *
+ * A message too large for a frame is sent in fragment frames with consecutive
+ * sequence numbers. Its future completes once every fragment is acknowledged.
+ *
+ * A frame that is not acknowledged within the give-up time is abandoned. The
+ * window base carried by every data frame tells the receiver that it can stop
+ * waiting for abandoned frames.
+ *
+ * The process' NioSelectorLoop thread owns the window. It packs and transmits
+ * the queued messages, receives the acknowledgements and fires the retransmit
+ * timers, so senders never wait on the network. Messages and frames are
+ * encoded into pooled direct buffers.
+ *
+ * @author paulokenne
+ *
+ */
+public class SlidingWindowSender implements SelectorLoopHandler {
+
+	/**
+	 * The initial retransmit timeout
+	 */
+	public static final int RETRANSMIT_TIMEOUT_MILLISECONDS = 200;
+
+	/**
+	 * The largest retransmit timeout after back off
+	 */
+	public static final int MAX_RETRANSMIT_TIMEOUT_MILLISECONDS = 2000;
+
+	/**
+	 * A message waiting to be packed into a frame
+	 */
+	private static class QueuedMessage {
+
+		/**
+		 * The encoded message, in a pooled direct buffer, or in a buffer of its own
+		 * when it is fragmented
+		 */
+		private ByteBuffer encodedMessage;
+
+		/**
+		 * The future completed by the acknowledgement
+		 */
+		private CompletableFuture<Acknowledgement> acknowledgement;
+
+		/**
+		 * The futures of the fragments sent so far, or null if the message is not
+		 * fragmented
+		 */
+		private List<CompletableFuture<Acknowledgement>> fragmentAcknowledgements;
+
+		/**
+		 * The id of the fragmented message
+		 */
+		private int messageId;
+
+		/**
+		 * The time the message was queued
+		 */
+		private long queuedNanoseconds = System.nanoTime();
+
+		/**
+		 * A QueuedMessage constructor
+		 *
+		 * @param encodedMessage  the encoded message
+		 * @param acknowledgement the future completed by the acknowledgement
+		 */
+		private QueuedMessage(ByteBuffer encodedMessage, CompletableFuture<Acknowledgement> acknowledgement) {
+			this.encodedMessage = encodedMessage;
+			this.acknowledgement = acknowledgement;
+		}
+
+		/**
+		 * @return whether the message does not fit in a frame
+		 */
+		private boolean isFragmented() {
+			return fragmentAcknowledgements != null;
+		}
+	}
+
+	/**
+	 * A frame waiting for its acknowledgement
+	 */
+	private static class InFlightFrame {
+
+		/**
+		 * The sequence number
+		 */
+		private int sequenceNumber;
+
+		/**
+		 * The frame, in a pooled direct buffer
+		 */
+		private ByteBuffer frame;
+
+		/**
+		 * The futures of the messages in the frame
+		 */
+		private List<CompletableFuture<Acknowledgement>> acknowledgements;
+
+		/**
+		 * The number of messages the frame completes. The fragments of a message
+		 * count as one message, on the last fragment.
+		 */
+		private int messageCount;
+
+		/**
+		 * The time the frame was first sent
+		 */
+		private long firstSentNanoseconds;
+
+		/**
+		 * The current retransmit timeout
+		 */
+		private long retransmitTimeoutMilliseconds = RETRANSMIT_TIMEOUT_MILLISECONDS;
+
+		/**
+		 * The time of the next retransmit
+		 */
+		private long retransmitDeadlineNanoseconds;
+
+		/**
+		 * The number of retransmissions
+		 */
+		private int retransmissions = 0;
+
+		/**
+		 * A InFlightFrame constructor
+		 *
+		 * @param sequenceNumber   the sequence number
+		 * @param frame            the frame
+		 * @param acknowledgements the futures of the messages in the frame
+		 * @param messageCount     the number of messages the frame completes
+		 */
+		private InFlightFrame(int sequenceNumber, ByteBuffer frame,
+				List<CompletableFuture<Acknowledgement>> acknowledgements, int messageCount) {
+			this.sequenceNumber = sequenceNumber;
+			this.frame = frame;
+			this.acknowledgements = acknowledgements;
+			this.messageCount = messageCount;
+		}
+	}
+
+	/**
+	 * The channel used to send frames and receive their acknowledgements
+	 */
+	private DatagramChannel channel;
+
+	/**
+	 * The selector loop the sender runs on
+	 */
+	private NioSelectorLoop selectorLoop;
+
+	/**
+	 * The target socket address
+	 */
+	private InetSocketAddress targetSocketAddress;
+
+	/**
+	 * The number of frames that can be in flight at once
+	 */
+	private int windowSize;
+
+	/**
+	 * The time after which an unacknowledged frame is abandoned
+	 */
+	private long giveUpNanoseconds;
+
+	/**
+	 * The largest number of messages packed in one frame. 1 turns batching off.
+	 */
+	private int maxBatchedMessages;
+
+	/**
+	 * The time a queued message may wait for more messages to share its frame
+	 */
+	private long batchingDelayNanoseconds;
+
+	/**
+	 * The session id, which lets the receiver tell this sender apart from an
+	 * earlier one on the same link
+	 */
+	private int sessionId = new Random().nextInt();
+
+	/**
+	 * The next sequence number. Only used by the loop thread.
+	 */
+	private int nextSequenceNumber = 0;
+
+	/**
+	 * The id of the next fragmented message. Only used by the loop thread.
+	 */
+	private int nextMessageId = 0;
+
+	/**
+	 * The frames in flight, by sequence number. Only used by the loop thread.
+	 */
+	private TreeMap<Integer, InFlightFrame> inFlightFrames = new TreeMap<>(SlidingWindowFrame.SEQUENCE_NUMBER_ORDER);
+
+	/**
+	 * The messages handed over by the senders
+	 */
+	private ConcurrentLinkedQueue<QueuedMessage> pendingMessages = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * The messages waiting to be packed into a frame. Only used by the loop
+	 * thread.
+	 */
+	private ArrayDeque<QueuedMessage> queuedMessages = new ArrayDeque<>();
+
+	/**
+	 * The frame space the queued messages need. Only used by the loop thread.
+	 */
+	private int queuedBytes = 0;
+
+	/**
+	 * The buffer acknowledgements are received into. Only used by the loop thread.
+	 */
+	private ByteBuffer acknowledgementBuffer = ByteBuffer
+			.allocateDirect(SlidingWindowFrame.ACKNOWLEDGEMENT_FRAME_SIZE);
+
+	/**
+	 * The send metrics
+	 */
+	private SlidingWindowMetrics metrics = new SlidingWindowMetrics();
+
+	/**
+	 * A SlidingWindowSender constructor. Every message gets its own frame.
+	 *
+	 * @param targetAddress      the target address
+	 * @param targetPort         the target port
+	 * @param windowSize         the number of frames that can be in flight at
+	 *                           once
+	 * @param giveUpMilliseconds the time after which an unacknowledged frame is
+	 *                           abandoned
+	 * @throws IOException if the channel cannot be opened
+	 */
+	public SlidingWindowSender(InetAddress targetAddress, int targetPort, int windowSize, int giveUpMilliseconds)
+			throws IOException {
+		this(targetAddress, targetPort, windowSize, giveUpMilliseconds, 1, 0);
+	}
+
+	/**
+	 * A SlidingWindowSender constructor
+	 *
+	 * @param targetAddress             the target address
+	 * @param targetPort                the target port
+	 * @param windowSize                the number of frames that can be in
+	 *                                  flight at once
+	 * @param giveUpMilliseconds        the time after which an unacknowledged
+	 *                                  frame is abandoned
+	 * @param maxBatchedMessages        the largest number of messages packed in
+	 *                                  one frame
+	 * @param batchingDelayMicroseconds the time a queued message may wait for
+	 *                                  more messages to share its frame
+	 * @throws IOException if the channel cannot be opened
+	 */
+	public SlidingWindowSender(InetAddress targetAddress, int targetPort, int windowSize, int giveUpMilliseconds,
+			int maxBatchedMessages, int batchingDelayMicroseconds) throws IOException {
+		this.targetSocketAddress = new InetSocketAddress(targetAddress, targetPort);
+		this.windowSize = Math.min(windowSize, SlidingWindowFrame.SELECTIVE_ACKNOWLEDGEMENT_RANGE);
+		this.giveUpNanoseconds = TimeUnit.MILLISECONDS.toNanos(giveUpMilliseconds);
+		this.maxBatchedMessages = Math.max(1, Math.min(maxBatchedMessages, SlidingWindowFrame.MAX_BATCHED_MESSAGES));
+		this.batchingDelayNanoseconds = TimeUnit.MICROSECONDS.toNanos(batchingDelayMicroseconds);
+
+		channel = DatagramChannel.open();
+		channel.bind(null);
+		channel.configureBlocking(false);
+
+		selectorLoop = NioSelectorLoop.getInstance();
+		selectorLoop.register(channel, this);
+	}
+
+	/**
+	 * Queue the given message for sending and return right away. The returned
+	 * future completes on the loop thread when the message is acknowledged, or
+	 * completes exceptionally if the message cannot be encoded or is abandoned. A
+	 * message that does not fit in a frame is fragmented.
+	 *
+	 * @param message the message
+	 * @return the future acknowledgement
+	 */
+	public CompletableFuture<Acknowledgement> sendAsync(Message message) {
+		CompletableFuture<Acknowledgement> acknowledgement = new CompletableFuture<>();
+
+		QueuedMessage queuedMessage;
+		ByteBuffer encodedMessage = DirectBufferPool.acquire();
+		encodedMessage.limit(SlidingWindowFrame.MAX_MESSAGE_SIZE);
+		try {
+			MessageCodec.encode(message, encodedMessage);
+			encodedMessage.flip();
+			queuedMessage = new QueuedMessage(encodedMessage, acknowledgement);
+
+		} catch (MessageTooLargeException e) {
+			DirectBufferPool.release(encodedMessage);
+
+			// The message is too large for a frame, so it is fragmented
+			ByteBuffer largeEncodedMessage = ByteBuffer.allocate(MessageCodec.MAX_ENCODED_MESSAGE_SIZE);
+			try {
+				MessageCodec.encode(message, largeEncodedMessage);
+			} catch (Exception largeMessageException) {
+				acknowledgement.completeExceptionally(largeMessageException);
+				return acknowledgement;
+			}
+			largeEncodedMessage.flip();
+
+			queuedMessage = new QueuedMessage(largeEncodedMessage, acknowledgement);
+			queuedMessage.fragmentAcknowledgements = new ArrayList<>();
+
+		} catch (Exception e) {
+			DirectBufferPool.release(encodedMessage);
+			acknowledgement.completeExceptionally(e);
+			return acknowledgement;
+		}
+
+		pendingMessages.add(queuedMessage);
+		selectorLoop.wakeup();
+
+		return acknowledgement;
+	}
+
+	/**
+	 * Get the send metrics
+	 *
+	 * @return the send metrics
+	 */
+	public SlidingWindowMetrics getMetrics() {
+		return metrics;
+	}
+
+	@Override
+	public void handleReadable() throws IOException {
+		receiveAcknowledgements();
+	}
+
+	@Override
+	public void handleDueWork(long now) {
+		QueuedMessage pendingMessage;
+		while ((pendingMessage = pendingMessages.poll()) != null) {
+			queuedMessages.add(pendingMessage);
+			queuedBytes += SlidingWindowFrame.MESSAGE_LENGTH_SIZE + pendingMessage.encodedMessage.remaining();
+		}
+
+		transmitQueuedMessages(now);
+		handleRetransmitDeadlines(now);
+	}
+
+	@Override
+	public long getNextDeadlineNanoseconds() {
+		long nextDeadline = Long.MAX_VALUE;
+		for (InFlightFrame inFlightFrame : inFlightFrames.values()) {
+			nextDeadline = Math.min(nextDeadline, inFlightFrame.retransmitDeadlineNanoseconds);
+		}
+
+		// A batch waiting for more messages is sent when its delay runs out
+		if (!queuedMessages.isEmpty() && inFlightFrames.size() < windowSize) {
+			nextDeadline = Math.min(nextDeadline, queuedMessages.peek().queuedNanoseconds + batchingDelayNanoseconds);
+		}
+		return nextDeadline;
+	}
+
+	/**
+	 * Pack the queued messages into frames and transmit them while the window
+	 * has room
+	 *
+	 * @param now the current time
+	 */
+	private void transmitQueuedMessages(long now) {
+		while (inFlightFrames.size() < windowSize && isBatchReady(now)) {
+			if (queuedMessages.peek().isFragmented()) {
+				transmitNextFragment();
+				continue;
+			}
+
+			ByteBuffer frame = DirectBufferPool.acquire();
+			frame.position(SlidingWindowFrame.DATA_HEADER_SIZE);
+
+			List<CompletableFuture<Acknowledgement>> acknowledgements = new ArrayList<>();
+			while (!queuedMessages.isEmpty() && acknowledgements.size() < maxBatchedMessages
+					&& !queuedMessages.peek().isFragmented() && SlidingWindowFrame.MESSAGE_LENGTH_SIZE
+							+ queuedMessages.peek().encodedMessage.remaining() <= frame.remaining()) {
+				QueuedMessage queuedMessage = queuedMessages.poll();
+				queuedBytes -= SlidingWindowFrame.MESSAGE_LENGTH_SIZE + queuedMessage.encodedMessage.remaining();
+
+				SlidingWindowFrame.putMessage(frame, queuedMessage.encodedMessage);
+				DirectBufferPool.release(queuedMessage.encodedMessage);
+				acknowledgements.add(queuedMessage.acknowledgement);
+			}
+			frame.flip();
+
+			int sequenceNumber = nextSequenceNumber++;
+			SlidingWindowFrame.putDataHeader(frame, sessionId, sequenceNumber, sequenceNumber,
+					acknowledgements.size());
+
+			InFlightFrame inFlightFrame = new InFlightFrame(sequenceNumber, frame, acknowledgements,
+					acknowledgements.size());
+			startTransmitting(inFlightFrame);
+		}
+	}
+
+	/**
+	 * Transmit the next fragment of the fragmented message at the head of the
+	 * queue. The message leaves the queue with its last fragment, so no other
+	 * frame takes a sequence number between its fragments.
+	 */
+	private void transmitNextFragment() {
+		QueuedMessage queuedMessage = queuedMessages.peek();
+		ByteBuffer encodedMessage = queuedMessage.encodedMessage;
+		int messageLength = encodedMessage.limit();
+		int fragmentCount = SlidingWindowFrame.getFragmentCount(messageLength);
+		int fragmentIndex = queuedMessage.fragmentAcknowledgements.size();
+		if (fragmentIndex == 0) {
+			queuedMessage.messageId = nextMessageId++;
+		}
+
+		ByteBuffer frame = DirectBufferPool.acquire();
+		int fragmentSize = Math.min(SlidingWindowFrame.MAX_FRAGMENT_SIZE, encodedMessage.remaining());
+		frame.position(SlidingWindowFrame.FRAGMENT_HEADER_SIZE);
+		frame.put(encodedMessage.slice().limit(fragmentSize));
+		encodedMessage.position(encodedMessage.position() + fragmentSize);
+		frame.flip();
+
+		int sequenceNumber = nextSequenceNumber++;
+		SlidingWindowFrame.putFragmentHeader(frame, sessionId, sequenceNumber, sequenceNumber,
+				queuedMessage.messageId, fragmentIndex, fragmentCount, messageLength);
+
+		CompletableFuture<Acknowledgement> fragmentAcknowledgement = new CompletableFuture<>();
+		queuedMessage.fragmentAcknowledgements.add(fragmentAcknowledgement);
+
+		boolean isLastFragment = fragmentIndex == fragmentCount - 1;
+		if (isLastFragment) {
+			queuedMessages.poll();
+			queuedBytes -= SlidingWindowFrame.MESSAGE_LENGTH_SIZE + messageLength;
+			completeWhenAllAcknowledged(queuedMessage);
+		}
+
+		startTransmitting(new InFlightFrame(sequenceNumber, frame, List.of(fragmentAcknowledgement),
+				isLastFragment ? 1 : 0));
+	}
+
+	/**
+	 * Complete the future of a fragmented message once all of its fragments are
+	 * acknowledged, or as soon as one of them is abandoned
+	 *
+	 * @param queuedMessage the fragmented message, with all of its fragments sent
+	 */
+	private void completeWhenAllAcknowledged(QueuedMessage queuedMessage) {
+		List<CompletableFuture<Acknowledgement>> fragmentAcknowledgements = queuedMessage.fragmentAcknowledgements;
+		CompletableFuture<Acknowledgement> lastFragmentAcknowledgement = fragmentAcknowledgements
+				.get(fragmentAcknowledgements.size() - 1);
+
+		CompletableFuture.allOf(fragmentAcknowledgements.toArray(new CompletableFuture<?>[0]))
+				.whenComplete((ignored, exception) -> {
+					if (exception != null) {
+						queuedMessage.acknowledgement.completeExceptionally(exception);
+					} else {
+						queuedMessage.acknowledgement.complete(lastFragmentAcknowledgement.join());
+					}
+				});
+	}
+
+	/**
+	 * Put a new frame in the window and transmit it
+	 *
+	 * @param inFlightFrame the frame
+	 */
+	private void startTransmitting(InFlightFrame inFlightFrame) {
+		inFlightFrames.put(inFlightFrame.sequenceNumber, inFlightFrame);
+		metrics.recordSend(inFlightFrame.messageCount, inFlightFrames.size());
+
+		inFlightFrame.firstSentNanoseconds = System.nanoTime();
+		transmit(inFlightFrame);
+	}
+
+	/**
+	 * Return whether the queued messages should be sent now rather than wait for
+	 * more messages to share their frame
+	 *
+	 * @param now the current time
+	 * @return true if a frame should be sent
+	 */
+	private boolean isBatchReady(long now) {
+		if (queuedMessages.isEmpty()) {
+			return false;
+		}
+
+		return maxBatchedMessages == 1 || queuedMessages.size() >= maxBatchedMessages
+				|| queuedBytes >= DirectBufferPool.BUFFER_SIZE - SlidingWindowFrame.DATA_HEADER_SIZE
+				|| now - queuedMessages.peek().queuedNanoseconds >= batchingDelayNanoseconds;
+	}
+
+	/**
+	 * Retransmit the frames whose retransmit timer is due, and abandon those that
+	 * have been in flight for too long
+	 *
+	 * @param now the current time
+	 */
+	private void handleRetransmitDeadlines(long now) {
+		Iterator<InFlightFrame> inFlightIterator = inFlightFrames.values().iterator();
+		while (inFlightIterator.hasNext()) {
+			InFlightFrame inFlightFrame = inFlightIterator.next();
+			if (inFlightFrame.retransmitDeadlineNanoseconds > now) {
+				continue;
+			}
+
+			if (now - inFlightFrame.firstSentNanoseconds > giveUpNanoseconds) {
+				inFlightIterator.remove();
+				DirectBufferPool.release(inFlightFrame.frame);
+				metrics.recordAbandoned(inFlightFrame.messageCount, inFlightFrames.size());
+
+				String abandonedMessage = "No acknowledgement for frame " + inFlightFrame.sequenceNumber + ". Its "
+						+ inFlightFrame.acknowledgements.size() + " message(s) are abandoned.";
+				System.out.println(abandonedMessage);
+				for (CompletableFuture<Acknowledgement> acknowledgement : inFlightFrame.acknowledgements) {
+					acknowledgement.completeExceptionally(new Exception(abandonedMessage));
+				}
+				continue;
+			}
+
+			metrics.recordRetransmission();
+			inFlightFrame.retransmissions++;
+			inFlightFrame.retransmitTimeoutMilliseconds = Math.min(inFlightFrame.retransmitTimeoutMilliseconds * 2,
+					MAX_RETRANSMIT_TIMEOUT_MILLISECONDS);
+			transmit(inFlightFrame);
+		}
+
+		// Abandoned frames free room in the window
+		transmitQueuedMessages(now);
+	}
+
+	/**
+	 * Transmit the frame, stamping the current window base in it, and arm its
+	 * retransmit timer
+	 *
+	 * @param inFlightFrame the frame
+	 */
+	private void transmit(InFlightFrame inFlightFrame) {
+		ByteBuffer frame = inFlightFrame.frame;
+		frame.putInt(SlidingWindowFrame.WINDOW_BASE_OFFSET, inFlightFrames.firstKey());
+		frame.rewind();
+
+		inFlightFrame.retransmitDeadlineNanoseconds = System.nanoTime()
+				+ TimeUnit.MILLISECONDS.toNanos(inFlightFrame.retransmitTimeoutMilliseconds);
+
+		try {
+			// A full socket buffer drops the frame; the retransmit timer will try again
+			channel.send(frame, targetSocketAddress);
+		} catch (IOException e) {
+			System.out.println(e);
+		}
+	}
+
+	/**
+	 * Receive the acknowledgements waiting on the channel
+	 */
+	private void receiveAcknowledgements() throws IOException {
+		while (true) {
+			acknowledgementBuffer.clear();
+			if (channel.receive(acknowledgementBuffer) == null) {
+				return;
+			}
+			acknowledgementBuffer.flip();
+
+			if (acknowledgementBuffer.remaining() < SlidingWindowFrame.ACKNOWLEDGEMENT_FRAME_SIZE
+					|| acknowledgementBuffer.get() != SlidingWindowFrame.ACKNOWLEDGEMENT_FRAME
+					|| acknowledgementBuffer.getInt() != sessionId) {
+				continue;
+			}
+
+			handleAcknowledgement(acknowledgementBuffer.getInt(), acknowledgementBuffer.getLong());
+		}
+	}
+
+	/**
+	 * Remove the acknowledged frames from the window
+	 *
+	 * @param cumulativeAcknowledgement    the cumulative acknowledgement
+	 * @param selectiveAcknowledgementBits the selective acknowledgement bits
+	 */
+	private void handleAcknowledgement(int cumulativeAcknowledgement, long selectiveAcknowledgementBits) {
+		long now = System.nanoTime();
+
+		Iterator<InFlightFrame> acknowledgedFrames = inFlightFrames.headMap(cumulativeAcknowledgement, true)
+				.values().iterator();
+		while (acknowledgedFrames.hasNext()) {
+			InFlightFrame inFlightFrame = acknowledgedFrames.next();
+			acknowledgedFrames.remove();
+			acknowledge(inFlightFrame, now);
+		}
+
+		while (selectiveAcknowledgementBits != 0) {
+			int bit = Long.numberOfTrailingZeros(selectiveAcknowledgementBits);
+			selectiveAcknowledgementBits &= selectiveAcknowledgementBits - 1;
+
+			InFlightFrame inFlightFrame = inFlightFrames.remove(cumulativeAcknowledgement + 1 + bit);
+			if (inFlightFrame != null) {
+				acknowledge(inFlightFrame, now);
+			}
+		}
+	}
+
+	/**
+	 * Record the frame's send latency, release it and complete the futures of
+	 * its messages
+	 *
+	 * @param inFlightFrame the acknowledged frame, already removed from the
+	 *                      window
+	 * @param now           the current time
+	 */
+	private void acknowledge(InFlightFrame inFlightFrame, long now) {
+		long sendLatencyNanoseconds = now - inFlightFrame.firstSentNanoseconds;
+		DirectBufferPool.release(inFlightFrame.frame);
+		metrics.recordAcknowledgement(inFlightFrame.messageCount, sendLatencyNanoseconds, inFlightFrames.size());
+
+		Acknowledgement acknowledgement = new Acknowledgement(inFlightFrame.sequenceNumber, sendLatencyNanoseconds,
+				inFlightFrame.retransmissions);
+		for (CompletableFuture<Acknowledgement> messageAcknowledgement : inFlightFrame.acknowledgements) {
+			messageAcknowledgement.complete(acknowledgement);
+		}
+	}
+}
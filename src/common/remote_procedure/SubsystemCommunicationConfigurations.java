@@ -5,7 +5,10 @@ package common.remote_procedure;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * This class provides the configuration values for each subystem
@@ -87,6 +90,54 @@ public final class SubsystemCommunicationConfigurations {
 	public static final Map<SubsystemComponentType, Integer> GUI_PORT_MAPPING = Map.ofEntries(
 			Map.entry(SubsystemComponentType.SCHEDULER, GUI_FROM_SCHEDULER_SEND_RECEIVE_PORT));
 
+	/**
+	 * The time a message may wait for other messages bound for the same target, so
+	 * that they share one datagram
+	 */
+	public static final int BATCHING_DELAY_MICROSECONDS = 500;
+
+	/**
+	 * The links that batch their messages, as source to targets. These links send
+	 * bursts: the scheduler sends STOP with OPEN_DOORS and several floor commands
+	 * at a stop, and the elevator sends a leaving floor message with every floor
+	 * signal request.
+	 */
+	public static final Map<SubsystemComponentType, Set<SubsystemComponentType>> BATCHING_LINKS = Map.ofEntries(
+			Map.entry(SubsystemComponentType.SCHEDULER,
+					Set.of(SubsystemComponentType.ELEVATOR_SUBSYSTEM, SubsystemComponentType.FLOOR_SUBSYSTEM)),
+			Map.entry(SubsystemComponentType.ELEVATOR_SUBSYSTEM, Set.of(SubsystemComponentType.FLOOR_SUBSYSTEM)));
+
+	/**
+	 * The system property that selects the transport of the links. With "auto",
+	 * the default, a link hands its messages over in process when the target runs
+	 * in the same process and uses UDP otherwise. With "sharedmemory", a link
+	 * whose target runs in another process uses shared memory rings instead of
+	 * UDP, which needs every subsystem on the same host. With "udp", every link
+	 * uses UDP.
+	 */
+	public static final String TRANSPORT_PROPERTY = "elevator.transport";
+
+	/**
+	 * The transport that picks the in-process hand-over when it can
+	 */
+	public static final String AUTO_TRANSPORT = "auto";
+
+	/**
+	 * The transport that always uses UDP
+	 */
+	public static final String UDP_TRANSPORT = "udp";
+
+	/**
+	 * The transport that uses shared memory rings between processes
+	 */
+	public static final String SHARED_MEMORY_TRANSPORT = "sharedmemory";
+
+	/**
+	 * The system property that selects the directory of the shared memory ring
+	 * files. It defaults to the temporary directory.
+	 */
+	public static final String SHARED_MEMORY_DIRECTORY_PROPERTY = "elevator.sharedmemory.directory";
+
 	/**
 	 * The ip addresses of the scheduler,floor, and elevator
 	 */
@@ -148,4 +199,44 @@ public final class SubsystemCommunicationConfigurations {
 		return communicationInfo;
 	}
 
+	/**
+	 * Return whether the link from the source to the target batches its messages
+	 *
+	 * @param sourceSubsystemType the source subsystem type
+	 * @param targetSubsystemType the target subsystem type
+	 * @return true if the link batches its messages
+	 */
+	public static boolean isBatchingLink(SubsystemComponentType sourceSubsystemType,
+			SubsystemComponentType targetSubsystemType) {
+		return BATCHING_LINKS.getOrDefault(sourceSubsystemType, Set.of()).contains(targetSubsystemType);
+	}
+
+	/**
+	 * Return whether the links may hand their messages over in process
+	 *
+	 * @return true unless the links are set to always use UDP
+	 */
+	public static boolean isInProcessTransportEnabled() {
+		return !UDP_TRANSPORT.equalsIgnoreCase(System.getProperty(TRANSPORT_PROPERTY, AUTO_TRANSPORT));
+	}
+
+	/**
+	 * Return whether the links between processes use shared memory rings
+	 *
+	 * @return true if the links are set to use shared memory rings
+	 */
+	public static boolean isSharedMemoryTransportEnabled() {
+		return SHARED_MEMORY_TRANSPORT.equalsIgnoreCase(System.getProperty(TRANSPORT_PROPERTY, AUTO_TRANSPORT));
+	}
+
+	/**
+	 * Get the shared memory ring file of the link received on the given port
+	 *
+	 * @param portNumber the port the receiving subsystem uses for the link
+	 * @return the ring file
+	 */
+	public static Path getSharedMemoryRingPath(int portNumber) {
+		String directory = System.getProperty(SHARED_MEMORY_DIRECTORY_PROPERTY, System.getProperty("java.io.tmpdir"));
+		return Paths.get(directory, "elevator-link-" + portNumber + ".ring");
+	}
 }
@@ -3,24 +3,28 @@
  */
 package common.remote_procedure;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.InetAddress;
-import java.net.SocketException;
-import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 import common.messages.Message;
-import common.messages.MessageType;
 
 /**
  * This class enables communication between the subsystems using remote
  * procedure calls.
  *
+ * A link sends through a MessageTransport. When the target runs in the same
+ * process, its messages are handed straight to the target's inbox, without
+ * being encoded. Otherwise they are carried in UDP datagrams with a sliding
+ * window of up to SEND_WINDOW_SIZE frames in flight, or through shared memory
+ * rings when the TRANSPORT_PROPERTY system property selects them. The transport
+ * is picked at the link's first send and kept, so that the messages of a link
+ * are never reordered. The TRANSPORT_PROPERTY system property can also force
+ * every link onto UDP.
+ *
+ * Callers should prefer sendAsync, which never waits on the network.
+ *
  * @author paulokenne, delight, Jacob
  *
  */
@@ -32,14 +36,45 @@ public class SubsystemCommunicationRPC {
 	public static final int MAX_BUFFER_SIZE = 2500;
 
 	/**
-	 * The receive socket
+	 * The time to wait for an acknowledgement before the message is abandoned
+	 */
+	public static final int ACKNOWLEDGEMENT_TIMEOUT_MILLISECONDS = 5000;
+
+	/**
+	 * The number of frames that can be in flight on a link
+	 */
+	public static final int SEND_WINDOW_SIZE = 16;
+
+	/**
+	 * The source subsystem type
+	 */
+	private SubsystemComponentType sourceSubsystemType;
+
+	/**
+	 * The target subsystem type
+	 */
+	private SubsystemComponentType targetSubsystemType;
+
+	/**
+	 * The inbox of the messages received from the target
 	 */
-	private DatagramSocket receiveSocket;
+	private MessageInbox inbox = new MessageInbox();
 
 	/**
-	 * The target subsystem communication info which includes the port and ip
+	 * A flag indicating whether the inbox receives the messages from the target
 	 */
-	private SubsystemCommunicationInfo targetSubsystemInfo;
+	private boolean isReceiving = false;
+
+	/**
+	 * The transport to a target in another process, or null if it could not be
+	 * opened
+	 */
+	private MessageTransport interProcessTransport;
+
+	/**
+	 * The transport picked at the first send
+	 */
+	private volatile MessageTransport transport;
 
 	/**
 	 * A SubystemCommunicationRPC constructor
@@ -49,180 +84,131 @@ public class SubsystemCommunicationRPC {
 	 */
 	public SubsystemCommunicationRPC(SubsystemComponentType sourceSubsystemType,
 			SubsystemComponentType targetSubsystemType) {
-
-		try {
-			// Set up the source's receive socket
-			SubsystemCommunicationInfo sourceCommunicationInfo = SubsystemCommunicationConfigurations
-					.getSourceSubsystemCommunicationInfo(sourceSubsystemType, targetSubsystemType);
-			this.receiveSocket = new DatagramSocket(sourceCommunicationInfo.getPortNumber());
-
-			targetSubsystemInfo = SubsystemCommunicationConfigurations
-					.getSourceSubsystemCommunicationInfo(targetSubsystemType, sourceSubsystemType);
-
-		} catch (SocketException e) {
-			System.out.println(e);
-		}
+		this(sourceSubsystemType, targetSubsystemType, SEND_WINDOW_SIZE,
+				SubsystemCommunicationConfigurations.isBatchingLink(sourceSubsystemType, targetSubsystemType));
 	}
 
 	/**
-	 * Send the given message
+	 * A SubystemCommunicationRPC constructor
 	 *
-	 * @param message the message to be sent
+	 * @param sourceSubsystemType the source subsystem type
+	 * @param targetSubsystemType the target subsystem type
+	 * @param sendWindowSize      the number of frames that can be in flight
+	 * @param isBatching          whether messages sent close together share a
+	 *                            frame
 	 */
-	public synchronized void sendMessage(Message message) throws Exception {
+	public SubsystemCommunicationRPC(SubsystemComponentType sourceSubsystemType,
+			SubsystemComponentType targetSubsystemType, int sendWindowSize, boolean isBatching) {
 
-		byte[] messageBytes = getByteArrayFromMessage(message);
+		this.sourceSubsystemType = sourceSubsystemType;
+		this.targetSubsystemType = targetSubsystemType;
 
-		String targetSubsystemIpAddress = targetSubsystemInfo.getIpAddress();
-		int targetSubsystemPort = targetSubsystemInfo.getPortNumber();
+		if (SubsystemCommunicationConfigurations.isInProcessTransportEnabled()) {
+			isReceiving = InProcessMessageTransport.register(sourceSubsystemType, targetSubsystemType, inbox);
+		}
 
 		try {
-			DatagramPacket sendPacket = new DatagramPacket(messageBytes, messageBytes.length,
-					InetAddress.getByName(targetSubsystemIpAddress), targetSubsystemPort);
-
-			// Send the message
-			DatagramSocket sendReceiveSocket = new DatagramSocket();
-			sendReceiveSocket.send(sendPacket);
-
-			// Expect an acknowledgement message
-			byte[] data = new byte[MAX_BUFFER_SIZE];
-			DatagramPacket receivePacket = new DatagramPacket(data, data.length);
-			Message receiveMessage = receiveMessage(sendReceiveSocket, receivePacket);
-
-			// Close the socket
-			sendReceiveSocket.close();
-
-			if (receiveMessage == null || receiveMessage.getMessageType() != MessageType.ACKNOWLEDGEMENT_RESPONSE) {
-				throw new Exception("No acknowledgement message!");
+			if (SubsystemCommunicationConfigurations.isSharedMemoryTransportEnabled()) {
+				interProcessTransport = new SharedMemoryMessageTransport(sourceSubsystemType, targetSubsystemType,
+						inbox);
+			} else {
+				interProcessTransport = new UdpMessageTransport(sourceSubsystemType, targetSubsystemType,
+						sendWindowSize, isBatching, inbox);
 			}
-
+			isReceiving = true;
 		} catch (Exception e) {
-			System.out.print(e);
+			System.out.println(e);
 		}
-
-		notifyAll();
 	}
 
 	/**
-	 * Receive a response message the subsystem receive socket.
+	 * Get the link's transport, picking it at the first send
 	 *
-	 * @param sendReceiveSocket the send and receive socket
-	 * @return the response message
+	 * @return the transport, or null if the link has none
 	 */
-	public Message receiveMessage() throws Exception {
-		byte[] data = new byte[MAX_BUFFER_SIZE];
-		DatagramPacket receivePacket = new DatagramPacket(data, data.length);
-		Message receivedMessage = receiveMessage(receiveSocket, receivePacket);
+	private MessageTransport getTransport() {
+		MessageTransport transport = this.transport;
+		if (transport != null) {
+			return transport;
+		}
 
-		// Send the acknowledgement message
-		sendAcknowledgmentMessage(receiveSocket, receivePacket);
-		return receivedMessage;
+		synchronized (this) {
+			if (this.transport == null) {
+				if (SubsystemCommunicationConfigurations.isInProcessTransportEnabled()) {
+					this.transport = InProcessMessageTransport.connect(sourceSubsystemType, targetSubsystemType);
+				}
+				if (this.transport == null) {
+					this.transport = interProcessTransport;
+				}
+			}
+			return this.transport;
+		}
 	}
 
 	/**
-	 * Receive a response message on the given socket.
+	 * Queue the given message for sending and return right away. The message is
+	 * retransmitted until it is acknowledged or abandoned.
 	 *
-	 * @param receiveSocket the socket
-	 * @param receivePacket the receievePacket
-	 * @return the response message
+	 * @param message the message to be sent
+	 * @return the future acknowledgement
 	 */
-	private Message receiveMessage(DatagramSocket receiveSocket, DatagramPacket receivePacket) throws Exception {
-		try {
-			// Receive a message
-			receiveSocket.receive(receivePacket);
-			return getMessageFromPacket(receivePacket);
-
-		} catch (Exception excepetion) {
-			System.out.print(excepetion);
-			throw excepetion;
+	public CompletableFuture<Acknowledgement> sendAsync(Message message) {
+		MessageTransport transport = getTransport();
+		if (transport == null) {
+			return CompletableFuture.failedFuture(new IOException("The link has no open transport"));
 		}
+		return transport.sendAsync(message);
 	}
 
 	/**
-	 * Send an acknowledgment message.
+	 * Send the given message and wait for its acknowledgement
 	 *
-	 * @param receiveSocket the socket
-	 * @return the response message
+	 * @param message the message to be sent
 	 */
-	private void sendAcknowledgmentMessage(DatagramSocket receiveSocket, DatagramPacket receivePacket)
-			throws Exception {
-
+	public void sendMessage(Message message) throws Exception {
 		try {
-			// Creating the acknowledgement message bytes
-			Message acknowledgmentMessage = new Message(MessageType.ACKNOWLEDGEMENT_RESPONSE);
-			byte[] acknowledgmentMessageBytes = getByteArrayFromMessage(acknowledgmentMessage);
-
-			// Send the acknowledgement message bytes
-			DatagramPacket sendPacket = new DatagramPacket(acknowledgmentMessageBytes,
-					acknowledgmentMessageBytes.length, receivePacket.getAddress(), receivePacket.getPort());
-
-			DatagramSocket sendSocket = new DatagramSocket();
-			sendSocket.send(sendPacket);
-			sendSocket.close();
-
-		} catch (Exception excepetion) {
-			System.out.print(excepetion);
-			throw excepetion;
+			sendAsync(message).get();
+		} catch (ExecutionException e) {
+			System.out.print(e.getCause());
 		}
 	}
 
 	/**
-	 * Turn a given message into a byte array
+	 * Get the link's send metrics
 	 *
-	 * @return a byte array representation of the message
+	 * @return the send metrics
 	 */
-	private byte[] getByteArrayFromMessage(Message message) throws Exception {
-
-		try {
-			ByteArrayOutputStream byteOutputStream = new ByteArrayOutputStream();
-			ObjectOutputStream objectOutStream = new ObjectOutputStream(byteOutputStream);
-
-			objectOutStream.writeObject(message);
-			objectOutStream.flush();
-
-			return Base64.getEncoder().encode(byteOutputStream.toByteArray());
-		} catch (IOException e) {
-			System.out.println(e);
-			throw e;
-		}
+	public SlidingWindowMetrics getSendMetrics() {
+		MessageTransport transport = getTransport();
+		return transport == null ? new SlidingWindowMetrics() : transport.getSendMetrics();
 	}
 
 	/**
-	 * Return the message that is in the packet
+	 * Receive the next message from the target, in the order it was sent.
 	 *
-	 * @return the received message
+	 * @return the response message
 	 */
-	private Message getMessageFromPacket(DatagramPacket receivePacket) throws Exception {
-
-		try {
-			byte[] receivedData = Base64.getDecoder().decode(getSentByteArray(receivePacket));
-
-			ByteArrayInputStream byteInputStream = new ByteArrayInputStream(receivedData);
-			ObjectInputStream objectInputStream = new ObjectInputStream(byteInputStream);
-
-			return (Message) objectInputStream.readObject();
-
-		} catch (IOException e) {
-			System.out.println(e + ": " + e.getMessage());
-			throw new Exception("Cannot create byte array from message!\n");
+	public Message receiveMessage() throws Exception {
+		if (!isReceiving) {
+			throw new Exception("The receive channel is not open");
 		}
+
+		return inbox.take();
 	}
 
 	/**
-	 * Given a packet, this function returns the actual data byte array that was
-	 * sent
+	 * Hand the messages received from the target to the given receiver, in the
+	 * order they were sent, instead of waiting for them with receiveMessage. Used
+	 * in a discrete-event simulation, where the receiver runs on the thread of the
+	 * simulation.
 	 *
-	 * @param receivePacket the received packet
-	 * @return the sent data byte array
+	 * @param receiver the receiver
 	 */
-	private byte[] getSentByteArray(DatagramPacket receivePacket) {
-		byte[] sentData = new byte[receivePacket.getLength()];
-		byte[] receivedData = receivePacket.getData();
-
-		for (int i = 0; i < receivePacket.getLength(); i++) {
-			sentData[i] = receivedData[i];
+	public void setReceiver(Consumer<Message> receiver) throws Exception {
+		if (!isReceiving) {
+			throw new Exception("The receive channel is not open");
 		}
 
-		return sentData;
+		inbox.setReceiver(receiver);
 	}
 }
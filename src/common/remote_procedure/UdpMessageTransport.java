@@ -0,0 +1,138 @@
+/**
+ *
+ */
+package common.remote_procedure;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.CompletableFuture;
+
+import common.messages.Message;
+
+/**
+ * This class carries the messages of a link in UDP datagrams, so that the
+ * subsystems can run in separate processes or on separate hosts.
+ *
+ * Messages are sent with a sliding window: up to the send window size frames
+ * can be in flight, each with its own retransmit timer. The receiver
+ * acknowledges them cumulatively and selectively, and releases their messages
+ * in the order they were sent. On batching links, messages sent close together
+ * share a frame.
+ *
+ * The link's channels are non-blocking and are served by the process'
+ * NioSelectorLoop thread. Frames are received into pooled direct buffers and
+ * decoded straight from them.
+ *
+ * @author paulokenne
+ *
+ */
+public class UdpMessageTransport implements MessageTransport {
+
+	/**
+	 * The receive channel
+	 */
+	private DatagramChannel receiveChannel;
+
+	/**
+	 * The buffer acknowledgements are written to. Only used by the loop thread.
+	 */
+	private ByteBuffer acknowledgementBuffer = ByteBuffer
+			.allocateDirect(SlidingWindowFrame.ACKNOWLEDGEMENT_FRAME_SIZE);
+
+	/**
+	 * The sender of the messages to the target
+	 */
+	private SlidingWindowSender sender;
+
+	/**
+	 * The receiver of the messages from the target
+	 */
+	private SlidingWindowReceiver receiver;
+
+	/**
+	 * A UdpMessageTransport constructor
+	 *
+	 * @param sourceSubsystemType the source subsystem type
+	 * @param targetSubsystemType the target subsystem type
+	 * @param sendWindowSize      the number of frames that can be in flight
+	 * @param isBatching          whether messages sent close together share a
+	 *                            frame
+	 * @param inbox               the inbox the received messages are delivered to
+	 * @throws IOException if the receive channel cannot be opened
+	 */
+	public UdpMessageTransport(SubsystemComponentType sourceSubsystemType, SubsystemComponentType targetSubsystemType,
+			int sendWindowSize, boolean isBatching, MessageInbox inbox) throws IOException {
+		receiver = new SlidingWindowReceiver(inbox);
+
+		// Set up the source's receive channel
+		SubsystemCommunicationInfo sourceCommunicationInfo = SubsystemCommunicationConfigurations
+				.getSourceSubsystemCommunicationInfo(sourceSubsystemType, targetSubsystemType);
+		DatagramChannel receiveChannel = DatagramChannel.open();
+		try {
+			receiveChannel.bind(new InetSocketAddress(sourceCommunicationInfo.getPortNumber()));
+		} catch (IOException e) {
+			receiveChannel.close();
+			throw e;
+		}
+		receiveChannel.configureBlocking(false);
+		NioSelectorLoop.getInstance().register(receiveChannel, this::receiveFrames);
+		this.receiveChannel = receiveChannel;
+
+		SubsystemCommunicationInfo targetSubsystemInfo = SubsystemCommunicationConfigurations
+				.getSourceSubsystemCommunicationInfo(targetSubsystemType, sourceSubsystemType);
+		sender = new SlidingWindowSender(InetAddress.getByName(targetSubsystemInfo.getIpAddress()),
+				targetSubsystemInfo.getPortNumber(), sendWindowSize,
+				SubsystemCommunicationRPC.ACKNOWLEDGEMENT_TIMEOUT_MILLISECONDS,
+				isBatching ? SlidingWindowFrame.MAX_BATCHED_MESSAGES : 1,
+				SubsystemCommunicationConfigurations.BATCHING_DELAY_MICROSECONDS);
+	}
+
+	/**
+	 * Queue the given message for sending and return right away. The message is
+	 * retransmitted until it is acknowledged or abandoned.
+	 *
+	 * @param message the message to be sent
+	 * @return the future acknowledgement, completed on the link's I/O thread
+	 */
+	@Override
+	public CompletableFuture<Acknowledgement> sendAsync(Message message) {
+		return sender.sendAsync(message);
+	}
+
+	@Override
+	public SlidingWindowMetrics getSendMetrics() {
+		return sender.getMetrics();
+	}
+
+	/**
+	 * Receive the data frames waiting on the receive channel and acknowledge them.
+	 * This runs on the loop thread.
+	 */
+	private void receiveFrames() throws IOException {
+		ByteBuffer frame = DirectBufferPool.acquire();
+
+		try {
+			while (true) {
+				frame.clear();
+				SocketAddress sourceAddress = receiveChannel.receive(frame);
+				if (sourceAddress == null) {
+					return;
+				}
+				frame.flip();
+
+				acknowledgementBuffer.clear();
+				if (receiver.handleDataFrame(frame, acknowledgementBuffer)) {
+					// Send the acknowledgement on the long-lived receive channel
+					acknowledgementBuffer.flip();
+					receiveChannel.send(acknowledgementBuffer, sourceAddress);
+				}
+			}
+		} finally {
+			DirectBufferPool.release(frame);
+		}
+	}
+}
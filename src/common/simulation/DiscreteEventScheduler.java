@@ -0,0 +1,219 @@
+/**
+ *
+ */
+package common.simulation;
+
+import java.util.PriorityQueue;
+
+import common.work_management.ScheduledTask;
+import common.work_management.TaskTimer;
+
+/**
+ * This class runs a discrete-event simulation: the events wait in a priority
+ * queue, ordered by their time on a virtual clock, and the simulation runs
+ * them one after the other on the calling thread, advancing the clock to the
+ * time of each event. The time between two events costs nothing, so hours of
+ * virtual time run in seconds.
+ *
+ * Events of the same time run in the order they were scheduled, so a
+ * simulation with the same inputs always runs the same events in the same
+ * order.
+ *
+ * @author paulokenne
+ *
+ */
+public class DiscreteEventScheduler implements TaskTimer {
+
+	/**
+	 * An event of the simulation
+	 */
+	private static class Event implements ScheduledTask, Comparable<Event> {
+
+		/**
+		 * The time of the event, in milliseconds of virtual time
+		 */
+		private long timeMillis;
+
+		/**
+		 * The sequence number, which orders the events of the same time
+		 */
+		private long sequenceNumber;
+
+		/**
+		 * The task
+		 */
+		private Runnable task;
+
+		/**
+		 * A flag indicating whether the event was cancelled
+		 */
+		private volatile boolean isCancelled = false;
+
+		/**
+		 * A flag indicating whether the event ran
+		 */
+		private volatile boolean isExpired = false;
+
+		/**
+		 * An Event constructor
+		 *
+		 * @param timeMillis     the time of the event
+		 * @param sequenceNumber the sequence number
+		 * @param task           the task
+		 */
+		private Event(long timeMillis, long sequenceNumber, Runnable task) {
+			this.timeMillis = timeMillis;
+			this.sequenceNumber = sequenceNumber;
+			this.task = task;
+		}
+
+		@Override
+		public boolean cancel() {
+			if (isExpired) {
+				return false;
+			}
+			isCancelled = true;
+			return true;
+		}
+
+		@Override
+		public int compareTo(Event event) {
+			if (timeMillis != event.timeMillis) {
+				return Long.compare(timeMillis, event.timeMillis);
+			}
+			return Long.compare(sequenceNumber, event.sequenceNumber);
+		}
+	}
+
+	/**
+	 * The pending events, the earliest first
+	 */
+	private PriorityQueue<Event> events = new PriorityQueue<>();
+
+	/**
+	 * The current time of the virtual clock, in milliseconds
+	 */
+	private volatile long currentTimeMillis;
+
+	/**
+	 * The sequence number of the next event
+	 */
+	private long nextSequenceNumber = 0;
+
+	/**
+	 * The number of events that ran
+	 */
+	private long processedEvents = 0;
+
+	/**
+	 * A DiscreteEventScheduler constructor, with the virtual clock at 0
+	 */
+	public DiscreteEventScheduler() {
+		this(0);
+	}
+
+	/**
+	 * A DiscreteEventScheduler constructor
+	 *
+	 * @param startTimeMillis the time the virtual clock starts at, in milliseconds
+	 */
+	public DiscreteEventScheduler(long startTimeMillis) {
+		this.currentTimeMillis = startTimeMillis;
+	}
+
+	/**
+	 * Return the current time of the virtual clock
+	 *
+	 * @return the time, in milliseconds
+	 */
+	@Override
+	public long currentTimeMillis() {
+		return currentTimeMillis;
+	}
+
+	/**
+	 * Schedule the given task after the delay, in virtual time
+	 *
+	 * @param task              the task
+	 * @param delayMilliseconds the delay
+	 * @return the event, to cancel it
+	 */
+	@Override
+	public synchronized ScheduledTask schedule(Runnable task, long delayMilliseconds) {
+		Event event = new Event(currentTimeMillis + Math.max(0, delayMilliseconds), nextSequenceNumber++, task);
+		events.add(event);
+		return event;
+	}
+
+	/**
+	 * Run the next event, advancing the virtual clock to its time
+	 *
+	 * @return false if there is no event left
+	 */
+	public boolean runNextEvent() {
+		Event event;
+		synchronized (this) {
+			do {
+				event = events.poll();
+			} while (event != null && event.isCancelled);
+
+			if (event == null) {
+				return false;
+			}
+			currentTimeMillis = event.timeMillis;
+			event.isExpired = true;
+			processedEvents++;
+		}
+
+		try {
+			event.task.run();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return true;
+	}
+
+	/**
+	 * Run the events until there is none left
+	 */
+	public void run() {
+		while (runNextEvent()) {
+		}
+	}
+
+	/**
+	 * Run the events up to the given time, and advance the virtual clock to it
+	 *
+	 * @param timeMillis the time, in milliseconds
+	 */
+	public void runUntil(long timeMillis) {
+		while (true) {
+			synchronized (this) {
+				Event event = events.peek();
+				while (event != null && event.isCancelled) {
+					events.poll();
+					event = events.peek();
+				}
+				if (event == null || event.timeMillis > timeMillis) {
+					currentTimeMillis = Math.max(currentTimeMillis, timeMillis);
+					return;
+				}
+			}
+			runNextEvent();
+		}
+	}
+
+	/**
+	 * @return the number of events that ran
+	 */
+	public synchronized long getProcessedEvents() {
+		return processedEvents;
+	}
+
+	/**
+	 * @return the number of pending events, cancelled ones included
+	 */
+	public synchronized int getPendingEvents() {
+		return events.size();
+	}
+}
@@ -0,0 +1,48 @@
+/**
+ *
+ */
+package common.work_management;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This interface represents the clock the subsystems run by: the wall clock,
+ * or the virtual clock of a discrete-event simulation.
+ *
+ * @author paulokenne
+ *
+ */
+public interface Clock {
+
+	/**
+	 * The wall clock
+	 */
+	public static final Clock SYSTEM_CLOCK = new Clock() {
+		@Override
+		public long currentTimeMillis() {
+			return System.currentTimeMillis();
+		}
+
+		@Override
+		public long nanoTime() {
+			return System.nanoTime();
+		}
+	};
+
+	/**
+	 * Return the current time of the clock
+	 *
+	 * @return the time, in milliseconds
+	 */
+	public long currentTimeMillis();
+
+	/**
+	 * Return the current time of the clock, to measure elapsed times with. The
+	 * virtual clock of a simulation only has the resolution of its milliseconds.
+	 *
+	 * @return the time, in nanoseconds from an arbitrary origin
+	 */
+	public default long nanoTime() {
+		return TimeUnit.MILLISECONDS.toNanos(currentTimeMillis());
+	}
+}
@@ -0,0 +1,391 @@
+/**
+ *
+ */
+package common.work_management;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class is a hashed timer wheel: a single thread runs any number of
+ * delayed tasks, at the resolution of its tick.
+ *
+ * The wheel is a ring of buckets, one per tick. A task lands in the bucket of
+ * its deadline, with the number of whole turns of the wheel still to wait, so
+ * scheduling and cancelling are O(1) whatever the number of pending tasks.
+ * Scheduling and cancelling threads only append to lock-free queues; the timer
+ * thread moves the tasks into and out of the buckets.
+ *
+ * The tasks run on the timer thread, so they must be short and must not
+ * block.
+ *
+ * @author paulokenne
+ *
+ */
+public class HashedWheelTimer implements TaskTimer {
+
+	/**
+	 * A task scheduled on the timer
+	 */
+	public static class Timeout implements ScheduledTask {
+
+		/**
+		 * The state of a timeout that may still run
+		 */
+		private static final int PENDING = 0;
+
+		/**
+		 * The state of a cancelled timeout
+		 */
+		private static final int CANCELLED = 1;
+
+		/**
+		 * The state of a timeout that ran
+		 */
+		private static final int EXPIRED = 2;
+
+		/**
+		 * The task
+		 */
+		private Runnable task;
+
+		/**
+		 * The deadline, relative to the start of the timer
+		 */
+		private long deadlineNanoseconds;
+
+		/**
+		 * The state
+		 */
+		private AtomicInteger state = new AtomicInteger(PENDING);
+
+		/**
+		 * The number of turns of the wheel left before the deadline
+		 */
+		private long remainingRounds;
+
+		/**
+		 * The bucket holding the timeout, or null
+		 */
+		private Bucket bucket;
+
+		/**
+		 * The previous timeout of the bucket
+		 */
+		private Timeout previous;
+
+		/**
+		 * The next timeout of the bucket
+		 */
+		private Timeout next;
+
+		/**
+		 * The timer
+		 */
+		private HashedWheelTimer timer;
+
+		/**
+		 * A Timeout constructor
+		 *
+		 * @param timer               the timer
+		 * @param task                the task
+		 * @param deadlineNanoseconds the deadline, relative to the start of the
+		 *                            timer
+		 */
+		private Timeout(HashedWheelTimer timer, Runnable task, long deadlineNanoseconds) {
+			this.timer = timer;
+			this.task = task;
+			this.deadlineNanoseconds = deadlineNanoseconds;
+		}
+
+		@Override
+		public boolean cancel() {
+			if (!state.compareAndSet(PENDING, CANCELLED)) {
+				return false;
+			}
+			timer.cancelledTimeouts.offer(this);
+			return true;
+		}
+
+		/**
+		 * @return true if the task was cancelled
+		 */
+		public boolean isCancelled() {
+			return state.get() == CANCELLED;
+		}
+
+		/**
+		 * @return true if the task ran
+		 */
+		public boolean isExpired() {
+			return state.get() == EXPIRED;
+		}
+
+		/**
+		 * Run the task, unless it was cancelled
+		 */
+		private void expire() {
+			if (!state.compareAndSet(PENDING, EXPIRED)) {
+				return;
+			}
+
+			try {
+				task.run();
+			} catch (Exception e) {
+				System.out.println("The timer task failed: " + e);
+			}
+		}
+	}
+
+	/**
+	 * A bucket of the wheel, a doubly linked list of timeouts
+	 */
+	private static class Bucket {
+
+		/**
+		 * The first timeout
+		 */
+		private Timeout head;
+
+		/**
+		 * The last timeout
+		 */
+		private Timeout tail;
+
+		/**
+		 * Append a timeout
+		 *
+		 * @param timeout the timeout
+		 */
+		private void add(Timeout timeout) {
+			timeout.bucket = this;
+			if (head == null) {
+				head = tail = timeout;
+			} else {
+				tail.next = timeout;
+				timeout.previous = tail;
+				tail = timeout;
+			}
+		}
+
+		/**
+		 * Unlink a timeout
+		 *
+		 * @param timeout the timeout
+		 * @return the next timeout
+		 */
+		private Timeout remove(Timeout timeout) {
+			Timeout next = timeout.next;
+			if (timeout.previous != null) {
+				timeout.previous.next = next;
+			} else {
+				head = next;
+			}
+			if (next != null) {
+				next.previous = timeout.previous;
+			} else {
+				tail = timeout.previous;
+			}
+			timeout.previous = null;
+			timeout.next = null;
+			timeout.bucket = null;
+			return next;
+		}
+
+		/**
+		 * Run the timeouts whose last round has come, and count down the others
+		 */
+		private void expireTimeouts() {
+			Timeout timeout = head;
+			while (timeout != null) {
+				if (timeout.remainingRounds <= 0) {
+					Timeout next = remove(timeout);
+					timeout.expire();
+					timeout = next;
+				} else if (timeout.isCancelled()) {
+					timeout = remove(timeout);
+				} else {
+					timeout.remainingRounds--;
+					timeout = timeout.next;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The duration of a tick
+	 */
+	private long tickNanoseconds;
+
+	/**
+	 * The buckets, one per tick of a turn
+	 */
+	private Bucket[] wheel;
+
+	/**
+	 * The mask turning a tick number into a bucket index
+	 */
+	private int wheelMask;
+
+	/**
+	 * The timeouts scheduled but not in a bucket yet
+	 */
+	private MpscLinkedQueue<Timeout> pendingTimeouts = new MpscLinkedQueue<>();
+
+	/**
+	 * The timeouts cancelled but maybe still in a bucket
+	 */
+	private MpscLinkedQueue<Timeout> cancelledTimeouts = new MpscLinkedQueue<>();
+
+	/**
+	 * The name of the timer thread
+	 */
+	private String name;
+
+	/**
+	 * The time the timer started
+	 */
+	private volatile long startNanoseconds;
+
+	/**
+	 * The timer thread, started by the first task
+	 */
+	private Thread timerThread;
+
+	/**
+	 * A HashedWheelTimer constructor
+	 *
+	 * @param name             the name of the timer thread
+	 * @param tickMilliseconds the resolution of the timer
+	 * @param ticksPerWheel    the number of buckets, rounded up to a power of two
+	 */
+	public HashedWheelTimer(String name, long tickMilliseconds, int ticksPerWheel) {
+		this.name = name;
+		this.tickNanoseconds = TimeUnit.MILLISECONDS.toNanos(tickMilliseconds);
+
+		int wheelSize = Integer.highestOneBit(Math.max(1, ticksPerWheel - 1)) << 1;
+		wheel = new Bucket[wheelSize];
+		for (int i = 0; i < wheelSize; i++) {
+			wheel[i] = new Bucket();
+		}
+		wheelMask = wheelSize - 1;
+	}
+
+	/**
+	 * Run the given task once the delay has passed, rounded up to the next tick
+	 *
+	 * @param task              the task
+	 * @param delayMilliseconds the delay
+	 * @return the timeout, to cancel the task
+	 */
+	@Override
+	public Timeout schedule(Runnable task, long delayMilliseconds) {
+		start();
+
+		long deadlineNanoseconds = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMilliseconds))
+				- startNanoseconds;
+		Timeout timeout = new Timeout(this, task, deadlineNanoseconds);
+		pendingTimeouts.offer(timeout);
+		return timeout;
+	}
+
+	/**
+	 * Return the current time of the wall clock the timer runs by
+	 *
+	 * @return the time, in milliseconds
+	 */
+	@Override
+	public long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Return the current time of the wall clock the timer runs by, to measure
+	 * elapsed times with
+	 *
+	 * @return the time, in nanoseconds from an arbitrary origin
+	 */
+	@Override
+	public long nanoTime() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Start the timer thread, if it is not running yet
+	 */
+	private synchronized void start() {
+		if (timerThread != null) {
+			return;
+		}
+
+		startNanoseconds = System.nanoTime();
+		timerThread = SubsystemExecutor.startLoop(name, new Runnable() {
+			@Override
+			public void run() {
+				long tick = 0;
+				while (true) {
+					if (!waitForTick(tick)) {
+						return;
+					}
+
+					removeCancelledTimeouts();
+					transferPendingTimeouts(tick);
+					wheel[(int) (tick & wheelMask)].expireTimeouts();
+					tick++;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Wait until the end of the given tick
+	 *
+	 * @param tick the tick
+	 * @return false if the timer thread was interrupted
+	 */
+	private boolean waitForTick(long tick) {
+		long tickEndNanoseconds = (tick + 1) * tickNanoseconds;
+		while (true) {
+			long remainingNanoseconds = tickEndNanoseconds - (System.nanoTime() - startNanoseconds);
+			if (remainingNanoseconds <= 0) {
+				return true;
+			}
+			LockSupport.parkNanos(this, remainingNanoseconds);
+			if (Thread.currentThread().isInterrupted()) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Unlink the cancelled timeouts from their buckets
+	 */
+	private void removeCancelledTimeouts() {
+		Timeout timeout;
+		while ((timeout = cancelledTimeouts.poll()) != null) {
+			if (timeout.bucket != null) {
+				timeout.bucket.remove(timeout);
+			}
+		}
+	}
+
+	/**
+	 * Put the scheduled timeouts into the buckets of their deadlines
+	 *
+	 * @param tick the current tick
+	 */
+	private void transferPendingTimeouts(long tick) {
+		Timeout timeout;
+		while ((timeout = pendingTimeouts.poll()) != null) {
+			if (timeout.isCancelled()) {
+				continue;
+			}
+
+			// A deadline that has passed goes in the current bucket
+			long deadlineTick = Math.max(tick, (timeout.deadlineNanoseconds + tickNanoseconds - 1) / tickNanoseconds - 1);
+			timeout.remainingRounds = (deadlineTick - tick) / wheel.length;
+			wheel[(int) (deadlineTick & wheelMask)].add(timeout);
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/**
+ *
+ */
+package common.work_management;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class counts latencies in buckets whose bounds double, from 1
+ * microsecond up. Recording is lock-free, so it can be done on a hot path and
+ * read from any thread.
+ *
+ * @author paulokenne
+ *
+ */
+public class LatencyHistogram {
+
+	/**
+	 * The number of buckets. The last one holds every latency above 2^30
+	 * microseconds.
+	 */
+	public static final int BUCKET_COUNT = 32;
+
+	/**
+	 * The counts of the buckets. Bucket i holds the latencies below 2^i
+	 * microseconds that are not in a lower bucket.
+	 */
+	private AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_COUNT);
+
+	/**
+	 * Record a latency
+	 *
+	 * @param latencyNanoseconds the latency
+	 */
+	public void record(long latencyNanoseconds) {
+		long latencyMicroseconds = Math.max(0, latencyNanoseconds / 1000);
+		int bucket = Math.min(BUCKET_COUNT - 1, Long.SIZE - Long.numberOfLeadingZeros(latencyMicroseconds));
+		bucketCounts.incrementAndGet(bucket);
+	}
+
+	/**
+	 * @return the number of recorded latencies
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+			count += bucketCounts.get(bucket);
+		}
+		return count;
+	}
+
+	/**
+	 * Return the number of latencies recorded in the given bucket
+	 *
+	 * @param bucket the bucket
+	 * @return the number of latencies
+	 */
+	public long getBucketCount(int bucket) {
+		return bucketCounts.get(bucket);
+	}
+
+	/**
+	 * Return the upper bound of the bucket holding the given percentile, which is
+	 * within a factor of two of the percentile
+	 *
+	 * @param percentile the percentile, between 0 and 100
+	 * @return the upper bound in microseconds, or 0 if nothing was recorded
+	 */
+	public long getPercentileMicroseconds(double percentile) {
+		long count = getCount();
+		if (count == 0) {
+			return 0;
+		}
+
+		long rank = (long) Math.ceil(count * percentile / 100);
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+			seen += bucketCounts.get(bucket);
+			if (seen >= Math.max(1, rank)) {
+				return 1L << bucket;
+			}
+		}
+		return 1L << (BUCKET_COUNT - 1);
+	}
+}
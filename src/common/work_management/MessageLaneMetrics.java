@@ -0,0 +1,72 @@
+/**
+ *
+ */
+package common.work_management;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class keeps the metrics of a priority lane of a MessageWorkQueue: how
+ * many messages wait in it and how long they wait before being handled.
+ *
+ * @author paulokenne
+ *
+ */
+public class MessageLaneMetrics {
+
+	/**
+	 * The number of messages in the lane
+	 */
+	private AtomicInteger depth = new AtomicInteger();
+
+	/**
+	 * The largest number of messages that were in the lane at once
+	 */
+	private AtomicInteger maxDepth = new AtomicInteger();
+
+	/**
+	 * The times the handled messages waited in the lane
+	 */
+	private LatencyHistogram waitTimes = new LatencyHistogram();
+
+	/**
+	 * Record that a message was added to the lane
+	 */
+	void recordEnqueue() {
+		int currentDepth = depth.incrementAndGet();
+		if (currentDepth > maxDepth.get()) {
+			maxDepth.accumulateAndGet(currentDepth, Math::max);
+		}
+	}
+
+	/**
+	 * Record that a message was taken from the lane to be handled
+	 *
+	 * @param waitNanoseconds the time the message waited in the lane
+	 */
+	void recordDequeue(long waitNanoseconds) {
+		depth.decrementAndGet();
+		waitTimes.record(waitNanoseconds);
+	}
+
+	/**
+	 * @return the number of messages in the lane
+	 */
+	public int getDepth() {
+		return depth.get();
+	}
+
+	/**
+	 * @return the largest number of messages that were in the lane at once
+	 */
+	public int getMaxDepth() {
+		return maxDepth.get();
+	}
+
+	/**
+	 * @return the times the handled messages waited in the lane
+	 */
+	public LatencyHistogram getWaitTimes() {
+		return waitTimes;
+	}
+}
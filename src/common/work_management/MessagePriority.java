@@ -0,0 +1,106 @@
+/**
+ *
+ */
+package common.work_management;
+
+import common.messages.Message;
+import common.messages.elevator.ElevatorStatusMessage;
+import common.messages.elevator.ElevatorTransportRequest;
+import common.messages.scheduler.ElevatorCommand;
+import common.messages.scheduler.SchedulerElevatorCommand;
+
+/**
+ * The priority classes of the messages in a MessageWorkQueue, from the most to
+ * the least urgent. Each class has its own lane in the queue.
+ *
+ * @author paulokenne
+ *
+ */
+public enum MessagePriority {
+
+	/**
+	 * Faults and shut downs: stuck at floor faults, status messages reporting or
+	 * resolving an error, and shut down commands
+	 */
+	SAFETY,
+
+	/**
+	 * Commands and the elevator status messages, GUI-only ones included, so that
+	 * the scheduler collapses the stale statuses of an elevator in the order they
+	 * arrived
+	 */
+	COMMAND,
+
+	/**
+	 * New jobs: job requests, pick ups and drop offs
+	 */
+	JOB,
+
+	/**
+	 * The messages that are only displayed by the GUI
+	 */
+	GUI;
+
+	/**
+	 * The ordering key of the messages that only keep their order within their
+	 * lane
+	 */
+	public static final int NO_ORDERING_KEY = -1;
+
+	/**
+	 * Return the priority class of the given message
+	 *
+	 * @param message the message
+	 * @return the priority class
+	 */
+	public static MessagePriority of(Message message) {
+		switch (message.getMessageType()) {
+		case STUCK_AT_FLOOR_FAULT:
+			return SAFETY;
+
+		case ELEVATOR_STATUS_MESSAGE:
+			ElevatorStatusMessage statusMessage = (ElevatorStatusMessage) message;
+			if (statusMessage.getErrorState() != null || statusMessage.isResolvingError()) {
+				return SAFETY;
+			}
+			return COMMAND;
+
+		case SCHEDULER_ELEVATOR_COMMAND:
+			return ((SchedulerElevatorCommand) message).getCommand() == ElevatorCommand.SHUT_DOWN ? SAFETY
+					: COMMAND;
+
+		case JOB_REQUEST:
+		case ELEVATOR_PICK_UP_PASSENGER_REQUEST:
+		case ELEVATOR_DROP_PASSENGER_REQUEST:
+			return JOB;
+
+		case GUI_MESSAGE:
+			return GUI;
+
+		default:
+			return COMMAND;
+		}
+	}
+
+	/**
+	 * Return the ordering key of the given message. The messages of the same key
+	 * are handled in the order they were enqueued, whatever their lanes: the
+	 * status messages and drop off requests of an elevator are keyed on its id,
+	 * as the scheduler applies them in turn to the state of the elevator.
+	 *
+	 * @param message the message
+	 * @return the ordering key, or NO_ORDERING_KEY
+	 */
+	public static int orderingKeyOf(Message message) {
+		switch (message.getMessageType()) {
+		case ELEVATOR_STATUS_MESSAGE:
+			return ((ElevatorStatusMessage) message).getElevatorId();
+
+		case ELEVATOR_DROP_PASSENGER_REQUEST:
+			return ((ElevatorTransportRequest) message).getElevatorId();
+
+		default:
+			return NO_ORDERING_KEY;
+		}
+	}
+}
@@ -3,28 +3,200 @@
  */
 package common.work_management;
 
-import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
 
 import common.messages.Message;
 
 /**
  * This class is a work queue whereby items are addressed by a worker thread
  *
+ * The messages go through lock-free MpscLinkedQueues, so enqueuing never
+ * contends with the worker. The worker parks only when the queue is empty, and
+ * an enqueue unparks it only when it is parked.
+ *
+ * Each MessagePriority has its own lane, and the worker takes the messages of
+ * the most urgent non-empty lane first, so a fault does not wait behind the
+ * queued jobs and GUI traffic. The messages of a lane keep their order. A lane
+ * passed over STARVATION_LIMIT times while it has messages is served next, so
+ * the less urgent lanes are never starved.
+ *
+ * The messages of the same ordering key, such as the status messages of an
+ * elevator, are handled in the order they were enqueued: a message is not
+ * moved ahead of a queued message of its key, and goes behind it in its lane
+ * instead.
+ *
+ * The worker drains the messages available when it wakes up, up to
+ * MAX_BATCH_SIZE, and hands them to handleBatch together, so a subclass can
+ * take its locks once per batch instead of once per message.
+ *
+ * In a discrete-event simulation, the queue has no worker thread: an enqueue
+ * schedules the handling of a batch on the simulation's timer, at the current
+ * virtual time, so the messages are handled in a deterministic order.
+ *
  * @author paulokenne
  *
  */
 public abstract class MessageWorkQueue {
 
 	/**
-	 * The message work queue
+	 * The largest number of messages handled in one batch
+	 */
+	public static final int MAX_BATCH_SIZE = 64;
+
+	/**
+	 * The number of times in a row a lane with messages may be passed over for
+	 * more urgent lanes
+	 */
+	public static final int STARVATION_LIMIT = 8;
+
+	/**
+	 * The priority classes, indexed by lane
+	 */
+	private static final MessagePriority[] PRIORITIES = MessagePriority.values();
+
+	/**
+	 * A message waiting in a lane
+	 */
+	private static class QueuedMessage {
+
+		/**
+		 * The message
+		 */
+		private Message message;
+
+		/**
+		 * The time the message was enqueued
+		 */
+		private long enqueuedNanoseconds;
+
+		/**
+		 * The queued messages of the ordering key of the message, or null
+		 */
+		private OrderingKeyMessages orderingKeyMessages;
+
+		/**
+		 * A QueuedMessage constructor
+		 *
+		 * @param message             the message
+		 * @param enqueuedNanoseconds the time the message was enqueued
+		 * @param orderingKeyMessages the queued messages of the ordering key of the
+		 *                            message, or null
+		 */
+		private QueuedMessage(Message message, long enqueuedNanoseconds, OrderingKeyMessages orderingKeyMessages) {
+			this.message = message;
+			this.enqueuedNanoseconds = enqueuedNanoseconds;
+			this.orderingKeyMessages = orderingKeyMessages;
+		}
+	}
+
+	/**
+	 * The number of queued messages of an ordering key in each lane
+	 */
+	private static class OrderingKeyMessages {
+
+		/**
+		 * The number of queued messages, indexed by lane
+		 */
+		private int[] queuedMessages = new int[PRIORITIES.length];
+
+		/**
+		 * Return the lane of a message of the key: its own lane, or the least urgent
+		 * lane holding a queued message of the key, so that it is not handled before
+		 * that message. The caller holds the lock of this object until the message
+		 * is offered to the lane.
+		 *
+		 * @param lane the lane of the priority class of the message
+		 * @return the lane of the message
+		 */
+		private int addMessage(int lane) {
+			for (int lessUrgentLane = PRIORITIES.length - 1; lessUrgentLane > lane; lessUrgentLane--) {
+				if (queuedMessages[lessUrgentLane] > 0) {
+					lane = lessUrgentLane;
+					break;
+				}
+			}
+			queuedMessages[lane]++;
+			return lane;
+		}
+
+		/**
+		 * Count a message of the key as taken from the given lane
+		 *
+		 * @param lane the lane
+		 */
+		private synchronized void removeMessage(int lane) {
+			queuedMessages[lane]--;
+		}
+	}
+
+	/**
+	 * The message lanes, indexed by priority class
 	 */
-	private ArrayDeque<Message> messageWorkQueue = new ArrayDeque<>();
+	private MpscLinkedQueue<QueuedMessage>[] messageLanes;
+
+	/**
+	 * The metrics of the lanes, indexed by priority class
+	 */
+	private MessageLaneMetrics[] laneMetrics = new MessageLaneMetrics[PRIORITIES.length];
+
+	/**
+	 * The number of times in a row each lane was passed over while it had
+	 * messages. Only used by the worker.
+	 */
+	private int[] laneSkips = new int[PRIORITIES.length];
+
+	/**
+	 * The queued messages of each ordering key
+	 */
+	private ConcurrentHashMap<Integer, OrderingKeyMessages> orderingKeyMessages = new ConcurrentHashMap<>();
+
+	/**
+	 * The worker thread, or null in a simulation
+	 */
+	private Thread workerThread;
+
+	/**
+	 * The timer of the simulation the queue runs in, or null
+	 */
+	private TaskTimer simulationTimer;
+
+	/**
+	 * The clock the waits of the messages are measured by: the virtual clock of
+	 * the simulation the queue runs in, or the wall clock
+	 */
+	private Clock clock = SubsystemExecutor.getClock();
+
+	/**
+	 * A flag indicating whether the handling of a batch is scheduled on the
+	 * simulation's timer. Only used in a simulation.
+	 */
+	private boolean isBatchScheduled = false;
+
+	/**
+	 * A flag indicating whether the worker is parked, or about to park
+	 */
+	private volatile boolean isWorkerParked = false;
 
 	/**
 	 * The MessageWorkQueue constructor.
 	 */
 	protected MessageWorkQueue() {
-		new MessageWorkerThread().start();
+		// A generic array cannot be created, so the raw array is typed here
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		MpscLinkedQueue<QueuedMessage>[] lanes = new MpscLinkedQueue[PRIORITIES.length];
+		messageLanes = lanes;
+		for (int lane = 0; lane < PRIORITIES.length; lane++) {
+			messageLanes[lane] = new MpscLinkedQueue<>();
+			laneMetrics[lane] = new MessageLaneMetrics();
+		}
+		if (SubsystemExecutor.isSimulated()) {
+			simulationTimer = SubsystemExecutor.getTimer(null);
+		} else {
+			workerThread = SubsystemExecutor.startLoop(getClass().getSimpleName(), new MessageWorker());
+		}
 	}
 
 	/**
@@ -34,28 +206,194 @@ public abstract class MessageWorkQueue {
 	 */
 	protected abstract void handleMessage(Message message);
 
+	/**
+	 * Handle the given batch of messages, in the order they were taken. By
+	 * default, each message is handled in turn by handleMessage.
+	 *
+	 * The batch is reused by the worker once this returns, so it must not be
+	 * kept.
+	 *
+	 * @param messages the batch of messages
+	 */
+	protected void handleBatch(List<Message> messages) {
+		for (Message message : messages) {
+			handleMessage(message);
+		}
+	}
+
+	/**
+	 * Return the priority class of the given message, which decides its lane
+	 *
+	 * @param message the message
+	 * @return the priority class
+	 */
+	protected MessagePriority getPriority(Message message) {
+		return MessagePriority.of(message);
+	}
+
+	/**
+	 * Return the ordering key of the given message: the messages of the same key
+	 * are handled in the order they were enqueued
+	 *
+	 * @param message the message
+	 * @return the ordering key, or MessagePriority.NO_ORDERING_KEY
+	 */
+	protected int getOrderingKey(Message message) {
+		return MessagePriority.orderingKeyOf(message);
+	}
+
 	/**
 	 * Enqueue the given message
 	 *
 	 * @param message the given message
 	 */
 	public void enqueueMessage(Message message) {
+		int lane = getPriority(message).ordinal();
+		int orderingKey = getOrderingKey(message);
 
-		synchronized (messageWorkQueue) {
-			messageWorkQueue.add(message);
-			messageWorkQueue.notify();
+		if (orderingKey == MessagePriority.NO_ORDERING_KEY) {
+			offerMessage(lane, new QueuedMessage(message, clock.nanoTime(), null));
+		} else {
+			OrderingKeyMessages keyMessages = orderingKeyMessages.computeIfAbsent(orderingKey,
+					key -> new OrderingKeyMessages());
+
+			// The lane is chosen and the message offered under the lock of the key, so
+			// that the messages of the key are offered in the order of their lanes
+			synchronized (keyMessages) {
+				lane = keyMessages.addMessage(lane);
+				offerMessage(lane, new QueuedMessage(message, clock.nanoTime(), keyMessages));
+			}
 		}
 
+		if (simulationTimer != null) {
+			scheduleSimulatedBatch();
+		} else if (isWorkerParked) {
+			LockSupport.unpark(workerThread);
+		}
 	}
 
 	/**
-	 * This private class is a message worker thread that handles the messages in
-	 * the queue.
+	 * Offer the given message to the given lane
+	 *
+	 * @param lane          the lane
+	 * @param queuedMessage the message
+	 */
+	private void offerMessage(int lane, QueuedMessage queuedMessage) {
+		laneMetrics[lane].recordEnqueue();
+		messageLanes[lane].offer(queuedMessage);
+	}
+
+	/**
+	 * Schedule the handling of a batch on the simulation's timer, unless it is
+	 * already scheduled
+	 */
+	private void scheduleSimulatedBatch() {
+		if (isBatchScheduled) {
+			return;
+		}
+
+		isBatchScheduled = true;
+		simulationTimer.schedule(this::handleSimulatedBatch, 0);
+	}
+
+	/**
+	 * Handle the available messages, up to MAX_BATCH_SIZE, as the worker would,
+	 * and schedule the next batch if messages are left
+	 */
+	private void handleSimulatedBatch() {
+		isBatchScheduled = false;
+
+		ArrayList<Message> batch = new ArrayList<>();
+		Message message;
+		while (batch.size() < MAX_BATCH_SIZE && (message = pollNextMessage()) != null) {
+			batch.add(message);
+		}
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		handleBatch(batch);
+		if (hasMessages()) {
+			scheduleSimulatedBatch();
+		}
+	}
+
+	/**
+	 * @return true if a lane has messages
+	 */
+	private boolean hasMessages() {
+		for (MpscLinkedQueue<QueuedMessage> messageLane : messageLanes) {
+			if (!messageLane.isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return the metrics of the lane of the given priority class
+	 *
+	 * @param priority the priority class
+	 * @return the lane metrics
+	 */
+	public MessageLaneMetrics getLaneMetrics(MessagePriority priority) {
+		return laneMetrics[priority.ordinal()];
+	}
+
+	/**
+	 * Take the next message to handle: the head of the most urgent non-empty
+	 * lane, unless a less urgent lane has been passed over too many times. Only
+	 * the worker calls this.
+	 *
+	 * @return the message, or null if every lane is empty
+	 */
+	private Message pollNextMessage() {
+		int nextLane = -1;
+		for (int lane = 0; lane < PRIORITIES.length; lane++) {
+			if (messageLanes[lane].isEmpty()) {
+				continue;
+			}
+			if (nextLane == -1) {
+				nextLane = lane;
+			}
+			if (laneSkips[lane] >= STARVATION_LIMIT) {
+				nextLane = lane;
+				break;
+			}
+		}
+		if (nextLane == -1) {
+			return null;
+		}
+
+		for (int lane = 0; lane < PRIORITIES.length; lane++) {
+			if (lane == nextLane) {
+				laneSkips[lane] = 0;
+			} else if (!messageLanes[lane].isEmpty()) {
+				laneSkips[lane]++;
+			}
+		}
+
+		QueuedMessage queuedMessage = messageLanes[nextLane].poll();
+		laneMetrics[nextLane].recordDequeue(clock.nanoTime() - queuedMessage.enqueuedNanoseconds);
+		if (queuedMessage.orderingKeyMessages != null) {
+			queuedMessage.orderingKeyMessages.removeMessage(nextLane);
+		}
+		return queuedMessage.message;
+	}
+
+	/**
+	 * This private class is the message worker loop that handles the messages in
+	 * the queue, run by the SubsystemExecutor.
 	 *
 	 * @author paulokenne
 	 *
 	 */
-	private class MessageWorkerThread extends Thread {
+	private class MessageWorker implements Runnable {
+
+		/**
+		 * The batch of messages being handled
+		 */
+		private ArrayList<Message> batch = new ArrayList<>(MAX_BATCH_SIZE);
 
 		@Override
 		public void run() {
@@ -63,21 +401,32 @@ public abstract class MessageWorkQueue {
 			// The worker thread will check if we have work and address the work
 			// appropriately if we do.
 			while (true) {
-				Message message = null;
-				synchronized (messageWorkQueue) {
-
-					while (messageWorkQueue.isEmpty()) {
-						try {
-							messageWorkQueue.wait();
-						} catch (Exception e) {
-							return;
-						}
+				Message message = pollNextMessage();
+
+				while (message == null) {
+					isWorkerParked = true;
+
+					// Check again after raising the flag, so that an enqueue that missed
+					// the flag is not missed here
+					message = pollNextMessage();
+					if (message == null) {
+						LockSupport.park(MessageWorkQueue.this);
+						message = pollNextMessage();
 					}
+					isWorkerParked = false;
 
-					message = messageWorkQueue.pop();
+					if (message == null && Thread.currentThread().isInterrupted()) {
+						return;
+					}
 				}
 
-				handleMessage(message);
+				// Take the rest of the available messages along
+				do {
+					batch.add(message);
+				} while (batch.size() < MAX_BATCH_SIZE && (message = pollNextMessage()) != null);
+
+				handleBatch(batch);
+				batch.clear();
 			}
 		}
 	}
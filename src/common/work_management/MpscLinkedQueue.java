@@ -0,0 +1,107 @@
+/**
+ *
+ */
+package common.work_management;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class is an unbounded, lock-free queue for many producer threads and a
+ * single consumer thread.
+ *
+ * Producers swap their node into the tail with one atomic exchange and then
+ * link the previous tail to it. The consumer follows the links from a stub
+ * head node. Between the exchange and the link, the new node is not visible
+ * yet, so poll can return null for a moment while an offer is in progress;
+ * the producer is done, and visible, once offer returns.
+ *
+ * @author paulokenne
+ *
+ * @param <E> the element type
+ */
+public class MpscLinkedQueue<E> {
+
+	/**
+	 * A queue node
+	 *
+	 * @param <E> the element type
+	 */
+	private static class Node<E> {
+
+		/**
+		 * The element, or null once consumed
+		 */
+		private E value;
+
+		/**
+		 * The next node
+		 */
+		private volatile Node<E> next;
+
+		/**
+		 * A Node constructor
+		 *
+		 * @param value the element
+		 */
+		private Node(E value) {
+			this.value = value;
+		}
+	}
+
+	/**
+	 * The last node. Shared by the producers.
+	 */
+	private AtomicReference<Node<E>> tail;
+
+	/**
+	 * The node before the first element. Only used by the consumer.
+	 */
+	private Node<E> head;
+
+	/**
+	 * A MpscLinkedQueue constructor
+	 */
+	public MpscLinkedQueue() {
+		Node<E> stub = new Node<>(null);
+		head = stub;
+		tail = new AtomicReference<>(stub);
+	}
+
+	/**
+	 * Add an element at the tail. Any thread may call this.
+	 *
+	 * @param value the element, which must not be null
+	 */
+	public void offer(E value) {
+		Node<E> node = new Node<>(value);
+		Node<E> previousTail = tail.getAndSet(node);
+		previousTail.next = node;
+	}
+
+	/**
+	 * Remove and return the element at the head. Only the consumer calls this.
+	 *
+	 * @return the element, or null if the queue is empty
+	 */
+	public E poll() {
+		Node<E> next = head.next;
+		if (next == null) {
+			return null;
+		}
+
+		E value = next.value;
+		next.value = null;
+		head = next;
+		return value;
+	}
+
+	/**
+	 * Return whether the queue has no visible element. Only the consumer calls
+	 * this.
+	 *
+	 * @return true if the queue is empty
+	 */
+	public boolean isEmpty() {
+		return head.next == null;
+	}
+}
@@ -0,0 +1,21 @@
+/**
+ *
+ */
+package common.work_management;
+
+/**
+ * This interface represents a task scheduled on a TaskTimer, which may be
+ * cancelled until it runs.
+ *
+ * @author paulokenne
+ *
+ */
+public interface ScheduledTask {
+
+	/**
+	 * Cancel the task, unless it has already run
+	 *
+	 * @return true if the task will not run
+	 */
+	public boolean cancel();
+}
@@ -0,0 +1,196 @@
+/**
+ *
+ */
+package common.work_management;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class runs the threads of the subsystems: their receive loops, their
+ * work queue workers and their input threads. Their short delayed tasks, such
+ * as the floor arrival notifications, run on timers instead.
+ *
+ * On a JDK with virtual threads, every loop runs on a virtual thread, so a loop
+ * costs no OS thread. Virtual threads are looked up by reflection, as the
+ * project also builds on JDKs that do not have them. Without virtual threads,
+ * the loops run on platform threads.
+ *
+ * In a discrete-event simulation, the subsystems run on the single thread of
+ * the simulation instead: their work queues, message receivers and timers
+ * hand their work to the simulation's timer, by its virtual clock.
+ *
+ * @author paulokenne
+ *
+ */
+public class SubsystemExecutor {
+
+	/**
+	 * The system property that selects the threads. With "auto", the default,
+	 * virtual threads are used when the JDK has them, and platform threads
+	 * otherwise. With "virtual" or "platform", that model is used; "platform"
+	 * starts a platform thread for every loop, as the subsystems used to.
+	 */
+	public static final String THREADS_PROPERTY = "elevator.threads";
+
+	/**
+	 * The model that picks virtual threads when it can
+	 */
+	public static final String AUTO_THREADS = "auto";
+
+	/**
+	 * The model that runs everything on virtual threads
+	 */
+	public static final String VIRTUAL_THREADS = "virtual";
+
+	/**
+	 * The model that starts a platform thread for every loop
+	 */
+	public static final String PLATFORM_THREADS = "platform";
+
+	/**
+	 * The factory of virtual threads, or null if they are not used
+	 */
+	private static final ThreadFactory VIRTUAL_THREAD_FACTORY = createVirtualThreadFactory();
+
+	/**
+	 * The thread that keeps the process running while only virtual threads, which
+	 * do not, are left
+	 */
+	private static Thread keepAliveThread;
+
+	/**
+	 * The timer of the discrete-event simulation the subsystems run in, or null
+	 * if they run by the wall clock
+	 */
+	private static volatile TaskTimer simulationTimer;
+
+	/**
+	 * A private SubsystemExecutor constructor, as this class is not instantiated
+	 */
+	private SubsystemExecutor() {
+	}
+
+	/**
+	 * Start a long-running loop on its own thread. Like the platform threads the
+	 * subsystems used to start, the loop keeps the process running.
+	 *
+	 * @param name the name of the thread
+	 * @param loop the loop
+	 * @return the thread
+	 */
+	public static Thread startLoop(String name, Runnable loop) {
+		Thread thread;
+		if (VIRTUAL_THREAD_FACTORY != null) {
+			keepProcessAlive();
+			thread = VIRTUAL_THREAD_FACTORY.newThread(loop);
+			thread.setName(name);
+		} else {
+			thread = new Thread(loop, name);
+		}
+		thread.start();
+		return thread;
+	}
+
+	/**
+	 * Run the subsystems created from now on in the discrete-event simulation of
+	 * the given timer, or by the wall clock again
+	 *
+	 * @param timer the timer of the simulation, or null for the wall clock
+	 */
+	public static void setSimulationTimer(TaskTimer timer) {
+		simulationTimer = timer;
+	}
+
+	/**
+	 * @return true if the subsystems run in a discrete-event simulation
+	 */
+	public static boolean isSimulated() {
+		return simulationTimer != null;
+	}
+
+	/**
+	 * Return the timer to schedule the delayed tasks on: the timer of the
+	 * simulation, or the given timer outside a simulation
+	 *
+	 * @param wallClockTimer the timer outside a simulation
+	 * @return the timer
+	 */
+	public static TaskTimer getTimer(TaskTimer wallClockTimer) {
+		TaskTimer timer = simulationTimer;
+		return timer != null ? timer : wallClockTimer;
+	}
+
+	/**
+	 * @return the clock the subsystems run by: the virtual clock of the
+	 *         simulation, or the wall clock
+	 */
+	public static Clock getClock() {
+		TaskTimer timer = simulationTimer;
+		return timer != null ? timer : Clock.SYSTEM_CLOCK;
+	}
+
+	/**
+	 * @return true if the loops and tasks run on virtual threads
+	 */
+	public static boolean isVirtual() {
+		return VIRTUAL_THREAD_FACTORY != null;
+	}
+
+	/**
+	 * Return the configured threads model
+	 *
+	 * @return the threads model
+	 */
+	private static String getThreadsModel() {
+		return System.getProperty(THREADS_PROPERTY, AUTO_THREADS).toLowerCase();
+	}
+
+	/**
+	 * Create the virtual thread factory, if virtual threads are selected and the
+	 * JDK has them
+	 *
+	 * @return the factory, or null
+	 */
+	private static ThreadFactory createVirtualThreadFactory() {
+		String threadsModel = getThreadsModel();
+		if (!threadsModel.equals(AUTO_THREADS) && !threadsModel.equals(VIRTUAL_THREADS)) {
+			return null;
+		}
+
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			ThreadFactory factory = (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory")
+					.invoke(builder);
+
+			// Preview releases only allow virtual threads when previews are enabled
+			factory.newThread(() -> {
+			});
+			return factory;
+		} catch (Exception e) {
+			if (threadsModel.equals(VIRTUAL_THREADS)) {
+				System.out.println("Virtual threads are not available, falling back to platform threads: " + e);
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Start the keep alive thread, if it is not running yet
+	 */
+	private static synchronized void keepProcessAlive() {
+		if (keepAliveThread != null) {
+			return;
+		}
+
+		keepAliveThread = new Thread("SubsystemExecutor-KeepAlive") {
+			@Override
+			public void run() {
+				while (true) {
+					LockSupport.park(this);
+				}
+			}
+		};
+		keepAliveThread.start();
+	}
+}
@@ -0,0 +1,22 @@
+/**
+ *
+ */
+package common.work_management;
+
+/**
+ * This interface represents a timer that runs delayed tasks by its clock.
+ *
+ * @author paulokenne
+ *
+ */
+public interface TaskTimer extends Clock {
+
+	/**
+	 * Run the given task once the delay has passed
+	 *
+	 * @param task              the task
+	 * @param delayMilliseconds the delay
+	 * @return the scheduled task, to cancel it
+	 */
+	public ScheduledTask schedule(Runnable task, long delayMilliseconds);
+}
@@ -2,15 +2,21 @@ package tests.ElevatorSubsystem;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import ElevatorSubsystem.ElevatorAutoFixing;
 import ElevatorSubsystem.ElevatorDoor;
+import ElevatorSubsystem.ElevatorDoor.DoorState;
 
 class TestElevatorDoor {
 	private ElevatorDoor elevatorDoor;
 	private static final double DOOR_SPEED = 3000;
+	private static final double FAST_DOOR_SPEED = 100;
 	
 	@BeforeEach
 	void setup() {
@@ -33,5 +39,36 @@ class TestElevatorDoor {
 		elevatorDoor.closeDoor();
 		assertEquals(elevatorDoor.isOpen(), false);
 	}
+	
+	@Test
+	void testDoorMovesAsynchronously() throws InterruptedException {
+		ElevatorDoor door = new ElevatorDoor(FAST_DOOR_SPEED);
+		CountDownLatch opened = new CountDownLatch(1);
+		
+		assertTrue(door.startOpening(opened::countDown));
+		assertEquals(DoorState.OPENING, door.getState());
+		assertTrue(door.isMoving());
+		assertFalse(door.startOpening(opened::countDown));
+		
+		assertTrue(opened.await(5, TimeUnit.SECONDS));
+		assertEquals(DoorState.OPEN, door.getState());
+		
+		CountDownLatch closed = new CountDownLatch(1);
+		assertTrue(door.startClosing(closed::countDown));
+		assertEquals(DoorState.CLOSING, door.getState());
+		assertTrue(closed.await(5, TimeUnit.SECONDS));
+		assertEquals(DoorState.CLOSED, door.getState());
+	}
+	
+	@Test
+	void testStuckDoorReopensAfterClosing() {
+		ElevatorDoor door = new ElevatorDoor(FAST_DOOR_SPEED);
+		door.openDoor();
+		
+		assertFalse(door.closeDoor(ElevatorAutoFixing.AUTO_FIXING_FAILURE));
+		assertEquals(DoorState.OPEN, door.getState());
+		assertTrue(door.closeDoor(ElevatorAutoFixing.AUTO_FIXING_SUCCESS));
+		assertEquals(DoorState.CLOSED, door.getState());
+	}
 
 }
@@ -0,0 +1,71 @@
+package tests.ElevatorSubsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ElevatorSubsystem.ElevatorMotionProfile;
+import ElevatorSubsystem.ElevatorMotor;
+
+class TestElevatorMotionProfile {
+	private ElevatorMotionProfile motionProfile;
+	private static final double TOP_SPEED = 3;
+	private static final double ACCELERATION = 1.5;
+	private static final double FLOOR_TO_FLOOR_DISTANCE = 4.5;
+	private static final double DELTA = 0.1;
+
+	@BeforeEach
+	void setup() {
+		this.motionProfile = new ElevatorMotionProfile(TOP_SPEED, ACCELERATION, FLOOR_TO_FLOOR_DISTANCE);
+	}
+
+	@Test
+	void testSingleFloorTravel() {
+		// The car cannot reach its top speed within a floor
+		assertEquals(2000 * Math.sqrt(FLOOR_TO_FLOOR_DISTANCE / ACCELERATION), motionProfile.getTravelMilliseconds(1),
+				DELTA);
+	}
+
+	@Test
+	void testMultiFloorTravelIsShorterThanSingleFloorRuns() {
+		assertEquals(5000, motionProfile.getTravelMilliseconds(2), DELTA);
+		assertEquals(17_000, motionProfile.getTravelMilliseconds(10), DELTA);
+		assertTrue(motionProfile.getTravelMilliseconds(10) < 10 * motionProfile.getTravelMilliseconds(1));
+		assertEquals(0, motionProfile.getTravelMilliseconds(0));
+	}
+
+	@Test
+	void testTopSpeedIsCappedToStopWithinAFloor() {
+		ElevatorMotionProfile fastProfile = new ElevatorMotionProfile(10, ACCELERATION, FLOOR_TO_FLOOR_DISTANCE);
+		assertEquals(Math.sqrt(2 * ACCELERATION * FLOOR_TO_FLOOR_DISTANCE), fastProfile.getTopSpeed(), 1e-9);
+		assertEquals(TOP_SPEED, motionProfile.getTopSpeed());
+	}
+
+	@Test
+	void testNextFloorVelocity() {
+		assertEquals(TOP_SPEED, motionProfile.getNextFloorVelocity(0, false), 1e-9);
+		assertEquals(TOP_SPEED, motionProfile.getNextFloorVelocity(TOP_SPEED, false), 1e-9);
+		assertEquals(0, motionProfile.getNextFloorVelocity(TOP_SPEED, true));
+	}
+
+	@Test
+	void testFloorTimes() {
+		assertEquals(2500, motionProfile.getFloorMilliseconds(0, false), DELTA);
+		assertEquals(1500, motionProfile.getFloorMilliseconds(TOP_SPEED, false), DELTA);
+		assertEquals(2500, motionProfile.getFloorMilliseconds(TOP_SPEED, true), DELTA);
+	}
+
+	@Test
+	void testArrivalFromMovingCar() {
+		assertEquals(2500, motionProfile.getArrivalMilliseconds(TOP_SPEED, 1), DELTA);
+		assertEquals(4000, motionProfile.getArrivalMilliseconds(TOP_SPEED, 2), DELTA);
+		assertTrue(motionProfile.getArrivalMilliseconds(TOP_SPEED, 3) < motionProfile.getTravelMilliseconds(3));
+	}
+
+	@Test
+	void testWithoutAcceleration() {
+		ElevatorMotionProfile constantSpeedProfile = new ElevatorMotionProfile(new ElevatorMotor(TOP_SPEED));
+		assertEquals(1000 * 2 * 4.5 / TOP_SPEED, constantSpeedProfile.getTravelMilliseconds(2), DELTA);
+	}
+}
@@ -18,6 +18,7 @@ import common.messages.Message;
 import common.messages.elevator.ElevatorFloorSignalRequestMessage;
 import common.messages.elevator.ElevatorLeavingFloorMessage;
 import common.messages.elevator.ElevatorStatusMessage;
+import common.messages.elevator.ElevatorStatusRequest;
 import common.messages.scheduler.ElevatorCommand;
 import common.messages.scheduler.SchedulerElevatorCommand;
 import common.remote_procedure.SubsystemCommunicationRPC;
@@ -93,6 +94,50 @@ class TestElevatorSchedulerMessageWorkQueue {
 		}
 	}
 	
+	@Test
+	void testStatusRequestServedWhileDoorMoves() throws Exception {
+		workQueue.enqueueMessage(new SchedulerElevatorCommand(ElevatorCommand.STOP, ELEVATOR_ID));
+		workQueue.enqueueMessage(new SchedulerElevatorCommand(ElevatorCommand.OPEN_DOORS, ELEVATOR_ID));
+		workQueue.enqueueMessage(new ElevatorStatusRequest(ELEVATOR_ID));
+		long startTime = System.currentTimeMillis();
+		
+		// Skip the GUI updates of the other tests
+		ElevatorStatusMessage status;
+		do {
+			status = (ElevatorStatusMessage) schedulerElevatorSubsystemCommunication.receiveMessage();
+		} while (status.isGUIOnly());
+		
+		assertTrue(System.currentTimeMillis() - startTime < ELEVATOR_SPEED);
+		assertTrue(status.isDoorOpen());
+		
+		// Leave the door closed for the other tests
+		workQueue.enqueueMessage(new SchedulerElevatorCommand(ElevatorCommand.CLOSE_DOORS, ELEVATOR_ID));
+		Thread.sleep(3 * ELEVATOR_SPEED);
+	}
+	
+	@Test
+	void testStopWhileIdleWithDoorsOpen() throws Exception {
+		workQueue.enqueueMessage(new SchedulerElevatorCommand(ElevatorCommand.OPEN_DOORS, ELEVATOR_ID));
+		Thread.sleep(2 * ELEVATOR_SPEED);
+
+		// A passenger calls the elevator, idle at its floor with its doors open
+		workQueue.enqueueMessage(new SchedulerElevatorCommand(ElevatorCommand.STOP, ELEVATOR_ID));
+		workQueue.enqueueMessage(new ElevatorStatusRequest(ELEVATOR_ID));
+
+		// Skip the GUI updates of the door
+		ElevatorStatusMessage status;
+		do {
+			status = (ElevatorStatusMessage) schedulerElevatorSubsystemCommunication.receiveMessage();
+		} while (status.isGUIOnly());
+
+		assertTrue(status.isDoorOpen());
+		assertNull(status.getErrorState());
+
+		// Leave the door closed for the other tests
+		workQueue.enqueueMessage(new SchedulerElevatorCommand(ElevatorCommand.CLOSE_DOORS, ELEVATOR_ID));
+		Thread.sleep(3 * ELEVATOR_SPEED);
+	}
+
 	private void simulateFloorMessageWaiting() {
 		(new Thread() {
 			@Override
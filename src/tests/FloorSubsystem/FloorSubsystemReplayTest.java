@@ -0,0 +1,47 @@
+package tests.FloorSubsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import FloorSubsystem.FloorSubsystem;
+import common.SimulationFloorInputData;
+
+/**
+ * Tests the replay of the requests of the input file by the FloorSubsystem.
+ *
+ * @author paulokenne
+ *
+ */
+class FloorSubsystemReplayTest {
+
+	/**
+	 * Test that a trace going past midnight is replayed on the next day
+	 */
+	@Test
+	void testReplayTimesCrossMidnight() {
+		long[] replayTimesMilliseconds = FloorSubsystem
+				.getReplayTimesMilliseconds(Arrays.asList(new SimulationFloorInputData(0, "23:59:30.0 2 UP 5"),
+						new SimulationFloorInputData(1, "23:59:45.5 7 DOWN 1"),
+						new SimulationFloorInputData(2, "00:00:30.0 3 UP 9")));
+
+		assertEquals(3, replayTimesMilliseconds.length);
+		assertEquals(0, replayTimesMilliseconds[0]);
+		assertEquals(15_500, replayTimesMilliseconds[1]);
+		assertEquals(60_000, replayTimesMilliseconds[2]);
+	}
+
+	/**
+	 * Test that a replay speed up that is not positive and finite is rejected
+	 */
+	@Test
+	void testInvalidReplaySpeedUpIsRejected() {
+		assertEquals(10, FloorSubsystem.validateReplaySpeedUp(10));
+		for (double replaySpeedUp : new double[] { 0, -1, Double.NaN, Double.POSITIVE_INFINITY }) {
+			assertThrows(IllegalArgumentException.class, () -> FloorSubsystem.validateReplaySpeedUp(replaySpeedUp));
+		}
+	}
+}
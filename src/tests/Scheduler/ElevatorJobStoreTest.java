@@ -0,0 +1,147 @@
+/**
+ *
+ */
+package tests.Scheduler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import Scheduler.ElevatorJobManagement;
+import Scheduler.ElevatorJobSnapshot;
+import Scheduler.ElevatorJobStore;
+import common.Direction;
+import common.messages.ElevatorJobMessage;
+import common.messages.elevator.ElevatorTransportRequest;
+
+/**
+ * This class tests the floor-indexed job store of the elevators
+ *
+ * @author paulokenne
+ *
+ */
+public class ElevatorJobStoreTest {
+
+	/**
+	 * Test that the floor lookups and counts follow the added and removed jobs
+	 */
+	@Test
+	void testLookupsFollowAddedAndRemovedJobs() {
+		ElevatorJobStore store = new ElevatorJobStore();
+		ElevatorJobMessage upJobAtFloor3 = createJob(3, Direction.UP, 1);
+		ElevatorJobMessage upJobAtFloor7 = createJob(7, Direction.UP, 2);
+		ElevatorJobMessage downJobAtFloor3 = createJob(3, Direction.DOWN, 3);
+
+		assertTrue(store.add(upJobAtFloor3));
+		assertTrue(store.add(upJobAtFloor7));
+		assertTrue(store.add(downJobAtFloor3));
+		assertFalse(store.add(createJob(7, Direction.UP, 2)));
+
+		assertEquals(3, store.size());
+		assertEquals(2, store.getNumberOfJobs(Direction.UP));
+		assertEquals(1, store.getNumberOfJobs(Direction.DOWN));
+		assertEquals(3, store.getSmallestFloor(Direction.UP));
+		assertEquals(7, store.getLargestFloor(Direction.UP));
+		assertEquals(List.of(upJobAtFloor3, downJobAtFloor3), store.getJobsAtFloor(3));
+
+		assertTrue(store.remove(upJobAtFloor3));
+		assertFalse(store.remove(upJobAtFloor3));
+
+		assertEquals(7, store.getSmallestFloor(Direction.UP));
+		assertEquals(List.of(downJobAtFloor3), store.getJobsAtFloor(3));
+		assertEquals(1, store.getNumberOfJobs(Direction.UP));
+
+		assertTrue(store.remove(downJobAtFloor3));
+		assertEquals(-1, store.getSmallestFloor(Direction.DOWN));
+		assertEquals(-1, store.getLargestFloor(Direction.DOWN));
+		assertEquals(0, store.getNumberOfJobs(Direction.DOWN));
+	}
+
+	/**
+	 * Test that the stop masks find the nearest floors with jobs above and below
+	 * a floor, in buildings taller than a word of floors
+	 */
+	@Test
+	void testNearestFloorsFromStopMasks() {
+		ElevatorJobStore store = new ElevatorJobStore();
+		store.add(createJob(2, Direction.UP, 1));
+		store.add(createJob(70, Direction.UP, 2));
+		store.add(createJob(500, Direction.UP, 3));
+		store.add(createJob(40, Direction.DOWN, 4));
+
+		assertEquals(70, store.getFloorAtOrAbove(Direction.UP, 3));
+		assertEquals(70, store.getFloorAtOrAbove(Direction.UP, 70));
+		assertEquals(500, store.getFloorAtOrAbove(Direction.UP, 71));
+		assertEquals(-1, store.getFloorAtOrAbove(Direction.UP, 501));
+		assertEquals(70, store.getFloorAtOrBelow(Direction.UP, 499));
+		assertEquals(-1, store.getFloorAtOrBelow(Direction.UP, 1));
+		assertEquals(40, store.getFloorAtOrBelow(Direction.DOWN, 1000));
+		assertEquals(500, store.getLargestFloor(Direction.UP));
+
+		store.remove(createJob(70, Direction.UP, 2));
+		assertEquals(500, store.getFloorAtOrAbove(Direction.UP, 3));
+	}
+
+	/**
+	 * Test that the snapshot published by an elevator job management follows its
+	 * changes, and that a published snapshot is not changed afterwards
+	 */
+	@Test
+	void testPublishedSnapshotFollowsChanges() {
+		ElevatorJobManagement elevator = new ElevatorJobManagement(3);
+		assertFalse(elevator.getPublishedSnapshot().isReadyForJob());
+
+		elevator.setErrorState(null);
+		elevator.setCurrentFloorNumber(4);
+		elevator.setElevatorDirection(Direction.UP);
+		ElevatorJobSnapshot snapshot = elevator.getPublishedSnapshot();
+		elevator.addJob(createJob(9, Direction.UP, 1));
+
+		assertTrue(snapshot.isReadyForJob());
+		assertEquals(4, snapshot.getCurrentFloorNumber());
+		assertEquals(0, snapshot.getNumberOfJobs());
+		assertEquals(1, elevator.getPublishedSnapshot().getNumberOfJobs());
+		assertEquals(9, elevator.getPublishedSnapshot().getSmallestDestinationFloor(Direction.UP));
+	}
+
+	/**
+	 * Test that a status that changes nothing the dispatch strategies read does
+	 * not publish a new snapshot
+	 */
+	@Test
+	void testUnchangedStatusKeepsPublishedSnapshot() {
+		ElevatorJobManagement elevator = new ElevatorJobManagement(3);
+		elevator.setErrorState(null);
+		elevator.setCurrentFloorNumber(4);
+		elevator.addJob(createJob(9, Direction.UP, 1));
+		ElevatorJobSnapshot snapshot = elevator.getPublishedSnapshot();
+
+		elevator.setCurrentFloorNumber(4);
+		elevator.setErrorState(null);
+		elevator.setErrorState(null, true);
+		assertSame(snapshot, elevator.getPublishedSnapshot());
+
+		// A move publishes a new snapshot of the same jobs
+		elevator.setCurrentFloorNumber(5);
+		assertEquals(5, elevator.getPublishedSnapshot().getCurrentFloorNumber());
+		assertEquals(9, elevator.getPublishedSnapshot().getSmallestDestinationFloor(Direction.UP));
+		assertEquals(4, snapshot.getCurrentFloorNumber());
+	}
+
+	/**
+	 * Create a drop off job
+	 *
+	 * @param destinationFloor the destination floor
+	 * @param direction        the direction
+	 * @param floorInputId     the floor input id
+	 * @return the job
+	 */
+	private ElevatorJobMessage createJob(int destinationFloor, Direction direction, int floorInputId) {
+		return new ElevatorTransportRequest(destinationFloor, 0, direction, null, null, floorInputId);
+	}
+}
@@ -0,0 +1,73 @@
+/**
+ *
+ */
+package tests.Scheduler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import Scheduler.ElevatorStatusCoalescer;
+import common.Direction;
+import common.messages.Message;
+import common.messages.elevator.ElevatorStatusMessage;
+import common.messages.elevator.ElevatorTransportRequest;
+
+/**
+ * This class tests which elevator status messages the scheduler collapses
+ *
+ * @author paulokenne
+ *
+ */
+public class ElevatorStatusCoalescerTest {
+
+	/**
+	 * Test that only the latest of the stale status messages of an elevator is
+	 * kept, and that the other elevators are not affected
+	 */
+	@Test
+	void testStaleStatusMessagesAreCollapsed() {
+		ElevatorStatusCoalescer coalescer = new ElevatorStatusCoalescer();
+		Message otherElevatorStatus = createStatusMessage(1, 2, false);
+		Message latestStatus = createStatusMessage(0, 3, false);
+
+		List<Message> coalescedMessages = coalescer.coalesce(List.of(createStatusMessage(0, 1, false),
+				createStatusMessage(0, 2, false).forGuiOnly(), otherElevatorStatus, latestStatus));
+
+		assertEquals(List.of(otherElevatorStatus, latestStatus), coalescedMessages);
+		assertEquals(2, coalescer.getCollapsedMessages());
+		assertEquals(1, coalescer.getCollapsedGUIOnlyMessages());
+	}
+
+	/**
+	 * Test that the command-issuing and error status messages are never collapsed,
+	 * nor a status that a GUI-only status or a job follows
+	 */
+	@Test
+	void testStatusMessagesWithEffectsAreKept() {
+		ElevatorStatusCoalescer coalescer = new ElevatorStatusCoalescer();
+		List<Message> messages = List.of(createStatusMessage(0, 1, true),
+				new ElevatorStatusMessage(0, Direction.UP, 2, new Exception("Door fault"), false, false, true),
+				new ElevatorStatusMessage(0, Direction.UP, 2, null, true, false, true),
+				createStatusMessage(0, 2, false), createStatusMessage(0, 3, false).forGuiOnly(),
+				new ElevatorTransportRequest(5, 0, Direction.UP, null, null, 0), createStatusMessage(0, 4, false));
+
+		assertEquals(messages, coalescer.coalesce(messages));
+		assertEquals(0, coalescer.getCollapsedMessages());
+	}
+
+	/**
+	 * Create a status message that does not report an error
+	 *
+	 * @param elevatorId       the elevator id
+	 * @param floorNumber      the floor number
+	 * @param issueNextCommand a flag indicating if the scheduler should issue the
+	 *                         next command
+	 * @return the status message
+	 */
+	private ElevatorStatusMessage createStatusMessage(int elevatorId, int floorNumber, boolean issueNextCommand) {
+		return new ElevatorStatusMessage(elevatorId, Direction.UP, floorNumber, null, false, issueNextCommand, false);
+	}
+}
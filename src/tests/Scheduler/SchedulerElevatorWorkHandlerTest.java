@@ -3,6 +3,8 @@
  */
 package tests.Scheduler;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayDeque;
@@ -15,11 +17,13 @@ import org.junit.jupiter.api.Test;
 import ElevatorSubsystem.ElevatorController;
 import FloorSubsystem.Floor;
 import FloorSubsystem.FloorElevatorMessageWorkQueue;
+import FloorSubsystem.FloorInputFault;
 import FloorSubsystem.FloorSchedulerMessageWorkQueue;
 import FloorSubsystem.FloorSubsystem;
 import Scheduler.ElevatorJobManagement;
 import Scheduler.SchedulerElevatorWorkHandler;
 import common.Direction;
+import common.exceptions.ElevatorStateException;
 import common.messages.Message;
 import common.messages.elevator.ElevatorStatusMessage;
 import common.messages.elevator.ElevatorTransportRequest;
@@ -27,6 +31,8 @@ import common.messages.scheduler.ElevatorCommand;
 import common.messages.scheduler.SchedulerElevatorCommand;
 import common.remote_procedure.SubsystemCommunicationRPC;
 import common.remote_procedure.SubsystemComponentType;
+import common.simulation.DiscreteEventScheduler;
+import common.work_management.SubsystemExecutor;
 
 /**
  * This class tests how the scheduler communicates with the Elevator and manages
@@ -181,6 +187,70 @@ public class SchedulerElevatorWorkHandlerTest {
 		assertTrue(receivedSchedulerElevatorCommand.getCommand() == ElevatorCommand.OPEN_DOORS);
 	}
 
+	/**
+	 * Test that an elevator reporting a fault stays out of service when an older
+	 * status of the elevator is queued ahead of the fault, in the same batch
+	 */
+	@Test
+	void testOlderStatusDoesNotClearNewerFault() {
+		int elevatorId = 0;
+		ElevatorJobManagement[] jobManagements = { new ElevatorJobManagement(elevatorId) };
+
+		// In a simulation, the messages enqueued before it runs are handled in one
+		// batch
+		DiscreteEventScheduler simulation = new DiscreteEventScheduler();
+		SubsystemExecutor.setSimulationTimer(simulation);
+		try {
+			SchedulerElevatorWorkHandler workHandler = new SchedulerElevatorWorkHandler(schedulerFloorCommunication,
+					schedulerElevatorCommunication, jobManagements);
+
+			workHandler.enqueueMessage(new ElevatorStatusMessage(elevatorId, Direction.UP, 3, null, false, false));
+			workHandler.enqueueMessage(new ElevatorStatusMessage(elevatorId, Direction.UP, 4,
+					new ElevatorStateException(FloorInputFault.DOOR_STUCK_OPEN_FAULT, 4, "Door stuck"), false,
+					true));
+			simulation.run();
+		} finally {
+			SubsystemExecutor.setSimulationTimer(null);
+		}
+
+		assertFalse(jobManagements[elevatorId].isReadyForJob());
+		assertEquals(4, jobManagements[elevatorId].getCurrentFloorNumber());
+	}
+
+	/**
+	 * Test that the stale status messages of an elevator are collapsed in the
+	 * order they arrived, whatever the lanes of the newer statuses
+	 */
+	@Test
+	void testStaleStatusMessagesAreCollapsedInArrivalOrder() {
+		int elevatorId = 0;
+		ElevatorJobManagement[] jobManagements = { new ElevatorJobManagement(elevatorId) };
+
+		DiscreteEventScheduler simulation = new DiscreteEventScheduler();
+		SubsystemExecutor.setSimulationTimer(simulation);
+		SchedulerElevatorWorkHandler workHandler;
+		try {
+			workHandler = new SchedulerElevatorWorkHandler(schedulerFloorCommunication,
+					schedulerElevatorCommunication, jobManagements);
+
+			// A GUI-only status, two statuses that issue no command, and a fault
+			workHandler.enqueueMessage(
+					new ElevatorStatusMessage(elevatorId, Direction.UP, 1, null, false, false, false).forGuiOnly());
+			workHandler.enqueueMessage(new ElevatorStatusMessage(elevatorId, Direction.UP, 2, null, false, false, false));
+			workHandler.enqueueMessage(new ElevatorStatusMessage(elevatorId, Direction.UP, 3, null, false, false, false));
+			workHandler.enqueueMessage(new ElevatorStatusMessage(elevatorId, Direction.UP, 3,
+					new ElevatorStateException(FloorInputFault.DOOR_STUCK_OPEN_FAULT, 3, "Door stuck"), false,
+					true));
+			simulation.run();
+		} finally {
+			SubsystemExecutor.setSimulationTimer(null);
+		}
+
+		assertEquals(3, workHandler.getCollapsedStatusMessages());
+		assertEquals(1, workHandler.getCollapsedGUIOnlyStatusMessages());
+		assertFalse(jobManagements[elevatorId].isReadyForJob());
+	}
+
 	/**
 	 * Simulate the elevator subsystem waiting for a command. Update the
 	 * elevatorReceivedMessage
@@ -3,8 +3,12 @@
  */
 package tests.Scheduler;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -14,6 +18,7 @@ import Scheduler.ElevatorJobManagement;
 import Scheduler.SchedulerFloorWorkHandler;
 import common.Direction;
 import common.messages.Message;
+import common.messages.SchedulerElevatorTargetedMessage;
 import common.messages.floor.ElevatorFloorRequest;
 import common.messages.floor.ElevatorNotArrived;
 import common.messages.scheduler.ElevatorCommand;
@@ -187,4 +192,59 @@ public class SchedulerFloorWorkHandlerTest {
 		assertTrue(receivedSchedulerElevatorCommand.getCommand() == ElevatorCommand.SHUT_DOWN);
 
 	}
+
+	/**
+	 * Test that the scheduler sends an elevator to the pick up floor with a single
+	 * MOVE_TO command, and retargets it when a nearer pick up is on its way
+	 *
+	 */
+	@Test
+	void testSchedulerRetargetsMovingElevator() {
+		List<SchedulerElevatorTargetedMessage> sentCommands = new ArrayList<>();
+		ElevatorJobManagement[] elevator = { new ElevatorJobManagement(0) };
+		elevator[0].setReadyForJob(true);
+
+		// The commands are captured rather than sent
+		SchedulerFloorWorkHandler workHandler = new SchedulerFloorWorkHandler(null, null, elevator) {
+			@Override
+			protected void sendToElevator(SchedulerElevatorTargetedMessage command) {
+				synchronized (sentCommands) {
+					sentCommands.add(command);
+				}
+			}
+		};
+		workHandler.setMovingToTargetFloor(true);
+
+		workHandler.enqueueMessage(new ElevatorFloorRequest(10, Direction.UP, 0));
+		try {
+			Thread.sleep(100);
+		} catch (Exception e) {
+		}
+
+		// The elevator reported floor 3 on its way, and a passenger calls it at floor 6
+		synchronized (elevator[0]) {
+			elevator[0].setCurrentFloorNumber(3);
+		}
+		workHandler.enqueueMessage(new ElevatorFloorRequest(6, Direction.UP, 1));
+
+		// A passenger behind the elevator does not change its target floor
+		workHandler.enqueueMessage(new ElevatorFloorRequest(2, Direction.UP, 2));
+		try {
+			Thread.sleep(100);
+		} catch (Exception e) {
+		}
+
+		synchronized (sentCommands) {
+			assertEquals(2, sentCommands.size());
+
+			SchedulerElevatorCommand moveToCommand = (SchedulerElevatorCommand) sentCommands.get(0);
+			assertEquals(ElevatorCommand.MOVE_TO, moveToCommand.getCommand());
+			assertEquals(10, moveToCommand.getTargetFloor());
+
+			SchedulerElevatorCommand retargetCommand = (SchedulerElevatorCommand) sentCommands.get(1);
+			assertEquals(ElevatorCommand.RETARGET, retargetCommand.getCommand());
+			assertEquals(6, retargetCommand.getTargetFloor());
+		}
+		assertEquals(6, elevator[0].getTripTargetFloor());
+	}
 }
@@ -0,0 +1,110 @@
+/**
+ *
+ */
+package tests.Scheduler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import ElevatorSubsystem.ElevatorDoor;
+import ElevatorSubsystem.ElevatorMotor;
+import Scheduler.ElevatorJobManagement;
+import Scheduler.ElevatorJobSnapshot;
+import Scheduler.TimeToServeDispatchStrategy;
+import common.Direction;
+import common.messages.elevator.ElevatorTransportRequest;
+import common.messages.floor.ElevatorFloorRequest;
+
+/**
+ * This class tests the estimates and choices of the time to serve dispatch
+ * strategy
+ *
+ * @author paulokenne
+ *
+ */
+public class TimeToServeDispatchStrategyTest {
+
+	/**
+	 * The strategy, with elevators of 3 m/s accelerating at 1.5 m/s^2 and a 3 s
+	 * door
+	 */
+	private TimeToServeDispatchStrategy strategy = new TimeToServeDispatchStrategy(new ElevatorMotor(3, 1.5),
+			new ElevatorDoor(3000));
+
+	/**
+	 * Test that an elevator passing the floor on its way is preferred to a closer
+	 * elevator that must first finish its stops the other way
+	 */
+	@Test
+	void testElevatorOnItsWayIsPreferred() {
+		ElevatorJobManagement goingUp = createElevator(0, 2, Direction.UP);
+		goingUp.addJob(new ElevatorTransportRequest(15, 0, Direction.UP, null, null, 1));
+
+		ElevatorJobManagement goingDown = createElevator(1, 9, Direction.DOWN);
+		goingDown.addJob(new ElevatorTransportRequest(0, 1, Direction.DOWN, null, null, 2));
+
+		ElevatorFloorRequest pickUp = new ElevatorFloorRequest(10, Direction.UP, 3);
+		ElevatorJobSnapshot goingUpSnapshot = goingUp.snapshot();
+		ElevatorJobSnapshot goingDownSnapshot = goingDown.snapshot();
+		assertTrue(strategy.estimateTimeToServe(goingUpSnapshot, 10, Direction.UP) < strategy
+				.estimateTimeToServe(goingDownSnapshot, 10, Direction.UP));
+		assertSame(goingUpSnapshot,
+				strategy.selectElevator(new ElevatorJobSnapshot[] { goingDownSnapshot, goingUpSnapshot }, pickUp));
+	}
+
+	/**
+	 * Test that the stops on the way add the door time to the estimate, and that
+	 * elevators out of service are not chosen
+	 */
+	@Test
+	void testStopsOnTheWayAndOutOfServiceElevators() {
+		ElevatorJobManagement elevator = createElevator(0, 0, Direction.UP);
+		elevator.addJob(new ElevatorTransportRequest(12, 0, Direction.UP, null, null, 1));
+		double directTime = strategy.estimateTimeToServe(elevator.snapshot(), 10, Direction.UP);
+
+		elevator.addJob(new ElevatorTransportRequest(5, 0, Direction.UP, null, null, 2));
+		double timeWithStop = strategy.estimateTimeToServe(elevator.snapshot(), 10, Direction.UP);
+		assertEquals(2 * 3000 + 2000, timeWithStop - directTime, 1e-6);
+
+		elevator.setErrorState(new Exception());
+		assertNull(strategy.selectElevator(new ElevatorJobSnapshot[] { elevator.snapshot() },
+				new ElevatorFloorRequest(10, Direction.UP, 3)));
+	}
+
+	/**
+	 * Test that a group large enough to be scored in parallel makes the same
+	 * choice as the sequential scoring, the first of the equally good elevators
+	 */
+	@Test
+	void testParallelScoringOfLargeGroup() {
+		ElevatorJobSnapshot[] elevators = new ElevatorJobSnapshot[4
+				* TimeToServeDispatchStrategy.PARALLEL_SCORING_THRESHOLD];
+		for (int i = 0; i < elevators.length; i++) {
+			elevators[i] = createElevator(i, i % 2 == 0 ? 20 : 6, Direction.IDLE).snapshot();
+		}
+
+		ElevatorJobSnapshot selectedElevator = strategy.selectElevator(elevators,
+				new ElevatorFloorRequest(4, Direction.UP, 1));
+		assertEquals(1, selectedElevator.getElevatorId());
+	}
+
+	/**
+	 * Create an elevator job management ready for jobs
+	 *
+	 * @param elevatorId  the elevator id
+	 * @param floorNumber the current floor
+	 * @param direction   the direction
+	 * @return the elevator job management
+	 */
+	private ElevatorJobManagement createElevator(int elevatorId, int floorNumber, Direction direction) {
+		ElevatorJobManagement elevator = new ElevatorJobManagement(elevatorId);
+		elevator.setErrorState(null);
+		elevator.setCurrentFloorNumber(floorNumber);
+		elevator.setElevatorDirection(direction);
+		return elevator;
+	}
+}
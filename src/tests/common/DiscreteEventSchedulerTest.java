@@ -0,0 +1,137 @@
+package tests.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import common.messages.Message;
+import common.messages.MessageType;
+import common.simulation.DiscreteEventScheduler;
+import common.work_management.MessagePriority;
+import common.work_management.MessageWorkQueue;
+import common.work_management.ScheduledTask;
+import common.work_management.SubsystemExecutor;
+
+/**
+ * This class tests that the DiscreteEventScheduler runs its events in virtual
+ * time order, and that the work queues created in a simulation run on it, by
+ * its virtual clock.
+ *
+ * @author paulokenne
+ *
+ */
+public class DiscreteEventSchedulerTest {
+
+	/**
+	 * Run the subsystems of the other tests by the wall clock again
+	 */
+	@AfterEach
+	void tearDown() {
+		SubsystemExecutor.setSimulationTimer(null);
+	}
+
+	/**
+	 * Test that the events run in time order, those of the same time in the order
+	 * they were scheduled, with the virtual clock at their time
+	 */
+	@Test
+	void testEventsRunInVirtualTimeOrder() {
+		DiscreteEventScheduler simulation = new DiscreteEventScheduler();
+		List<String> ranEvents = new ArrayList<>();
+
+		simulation.schedule(() -> ranEvents.add("c@" + simulation.currentTimeMillis()), 3_600_000);
+		simulation.schedule(() -> ranEvents.add("a@" + simulation.currentTimeMillis()), 10);
+		simulation.schedule(() -> {
+			ranEvents.add("b@" + simulation.currentTimeMillis());
+			simulation.schedule(() -> ranEvents.add("d@" + simulation.currentTimeMillis()), 0);
+		}, 10);
+		simulation.run();
+
+		assertEquals(List.of("a@10", "b@10", "d@10", "c@3600000"), ranEvents);
+		assertEquals(3_600_000, simulation.currentTimeMillis());
+		assertEquals(4, simulation.getProcessedEvents());
+	}
+
+	/**
+	 * Test that a cancelled event does not run, and that runUntil stops at its
+	 * time
+	 */
+	@Test
+	void testCancelAndRunUntil() {
+		DiscreteEventScheduler simulation = new DiscreteEventScheduler();
+		boolean[] isCancelledEventRun = { false };
+		boolean[] isLaterEventRun = { false };
+
+		ScheduledTask cancelledEvent = simulation.schedule(() -> isCancelledEventRun[0] = true, 20);
+		simulation.schedule(() -> isLaterEventRun[0] = true, 100);
+		assertTrue(cancelledEvent.cancel());
+
+		simulation.runUntil(50);
+		assertFalse(isCancelledEventRun[0]);
+		assertFalse(isLaterEventRun[0]);
+		assertEquals(50, simulation.currentTimeMillis());
+
+		simulation.run();
+		assertTrue(isLaterEventRun[0]);
+		assertFalse(isCancelledEventRun[0]);
+	}
+
+	/**
+	 * Test that a work queue created in a simulation handles its messages on the
+	 * simulation's thread, when the simulation runs
+	 */
+	@Test
+	void testWorkQueueRunsInSimulation() {
+		DiscreteEventScheduler simulation = new DiscreteEventScheduler();
+		SubsystemExecutor.setSimulationTimer(simulation);
+		List<Long> handledTimes = new ArrayList<>();
+		Thread simulationThread = Thread.currentThread();
+
+		MessageWorkQueue workQueue = new MessageWorkQueue() {
+			@Override
+			protected void handleMessage(Message message) {
+				assertEquals(simulationThread, Thread.currentThread());
+				handledTimes.add(simulation.currentTimeMillis());
+			}
+		};
+
+		workQueue.enqueueMessage(new Message(MessageType.ELEVATOR_STATUS_REQUEST));
+		simulation.schedule(() -> workQueue.enqueueMessage(new Message(MessageType.ELEVATOR_STATUS_REQUEST)), 500);
+		assertTrue(handledTimes.isEmpty());
+
+		simulation.run();
+		assertEquals(List.of(0L, 500L), handledTimes);
+	}
+
+	/**
+	 * Test that the subsystems created in a simulation read its virtual clock, so
+	 * a work queue measures the waits of its messages in virtual time
+	 */
+	@Test
+	void testWorkQueueWaitsAreMeasuredInVirtualTime() throws Exception {
+		DiscreteEventScheduler simulation = new DiscreteEventScheduler();
+		SubsystemExecutor.setSimulationTimer(simulation);
+		long[] virtualNanoseconds = new long[1];
+		simulation.schedule(() -> virtualNanoseconds[0] = SubsystemExecutor.getClock().nanoTime(), 500);
+
+		MessageWorkQueue workQueue = new MessageWorkQueue() {
+			@Override
+			protected void handleMessage(Message message) {
+			}
+		};
+		workQueue.enqueueMessage(new Message(MessageType.ELEVATOR_STATUS_REQUEST));
+
+		// The message waits on the wall clock, but not in virtual time
+		Thread.sleep(5);
+		simulation.run();
+
+		assertEquals(500_000_000L, virtualNanoseconds[0]);
+		assertEquals(1, workQueue.getLaneMetrics(MessagePriority.COMMAND).getWaitTimes().getBucketCount(0));
+	}
+}
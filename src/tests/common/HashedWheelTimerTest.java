@@ -0,0 +1,69 @@
+package tests.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import common.work_management.HashedWheelTimer;
+import common.work_management.HashedWheelTimer.Timeout;
+
+/**
+ * This class tests that the HashedWheelTimer runs its tasks after their delay,
+ * including delays longer than a turn of the wheel, and not once cancelled.
+ *
+ * @author paulokenne
+ *
+ */
+public class HashedWheelTimerTest {
+
+	/**
+	 * Test that the tasks run in deadline order, no earlier than their delay
+	 */
+	@Test
+	void testTasksRunAfterTheirDelay() throws Exception {
+		// A turn of this wheel lasts 20ms, shorter than the longer delays
+		HashedWheelTimer timer = new HashedWheelTimer("TestTimer", 5, 4);
+		long[] delaysMilliseconds = { 60, 0, 35, 10 };
+		List<Long> ranDelays = new ArrayList<>();
+		CountDownLatch ranTasks = new CountDownLatch(delaysMilliseconds.length);
+		long startTime = System.nanoTime();
+
+		for (long delayMilliseconds : delaysMilliseconds) {
+			timer.schedule(() -> {
+				// A task run too early is recorded as -1
+				boolean isEarly = System.nanoTime() - startTime < TimeUnit.MILLISECONDS.toNanos(delayMilliseconds);
+				ranDelays.add(isEarly ? -1 : delayMilliseconds);
+				ranTasks.countDown();
+			}, delayMilliseconds);
+		}
+
+		assertTrue(ranTasks.await(5, TimeUnit.SECONDS));
+		assertEquals(List.of(0L, 10L, 35L, 60L), ranDelays);
+	}
+
+	/**
+	 * Test that a cancelled task does not run
+	 */
+	@Test
+	void testCancelledTaskDoesNotRun() throws Exception {
+		HashedWheelTimer timer = new HashedWheelTimer("TestTimer", 5, 8);
+		CountDownLatch laterTask = new CountDownLatch(1);
+		boolean[] isCancelledTaskRun = { false };
+
+		Timeout timeout = timer.schedule(() -> isCancelledTaskRun[0] = true, 20);
+		timer.schedule(laterTask::countDown, 40);
+		assertTrue(timeout.cancel());
+
+		assertTrue(laterTask.await(5, TimeUnit.SECONDS));
+		assertFalse(isCancelledTaskRun[0]);
+		assertTrue(timeout.isCancelled());
+		assertFalse(timeout.cancel());
+	}
+}
@@ -0,0 +1,66 @@
+package tests.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+import ElevatorSubsystem.ElevatorMotor;
+import common.Direction;
+import common.messages.Message;
+import common.messages.MessageType;
+import common.messages.elevator.ElevatorFloorSignalRequestMessage;
+import common.remote_procedure.InProcessMessageTransport;
+import common.remote_procedure.SubsystemCommunicationRPC;
+import common.remote_procedure.SubsystemComponentType;
+
+/**
+ * This class tests that the links between subsystems that share a process hand
+ * their messages over in process.
+ *
+ * @author paulokenne
+ *
+ */
+public class InProcessMessageTransportTest {
+
+	/**
+	 * Test that a message sent to a subsystem in the same process is received as
+	 * the same object
+	 */
+	@Test
+	void testMessageIsHandedOverInProcess() throws Exception {
+		SubsystemCommunicationRPC floorCommunication = new SubsystemCommunicationRPC(
+				SubsystemComponentType.FLOOR_SUBSYSTEM, SubsystemComponentType.SCHEDULER);
+		SubsystemCommunicationRPC schedulerCommunication = new SubsystemCommunicationRPC(
+				SubsystemComponentType.SCHEDULER, SubsystemComponentType.FLOOR_SUBSYSTEM);
+
+		Message message = new Message(MessageType.TEST_REQUEST);
+		schedulerCommunication.sendAsync(message).get();
+
+		assertSame(message, floorCommunication.receiveMessage());
+		assertEquals(0, schedulerCommunication.getSendMetrics().getAverageSendLatencyMilliseconds());
+	}
+
+	/**
+	 * Test that a subsystem without an inbox in the process cannot be connected to
+	 */
+	@Test
+	void testTargetOutsideProcessIsNotConnected() {
+		assertNull(InProcessMessageTransport.connect(SubsystemComponentType.GUI, SubsystemComponentType.SCHEDULER));
+	}
+
+	/**
+	 * Test that a floor signal request keeps the motor state it was created with
+	 */
+	@Test
+	void testFloorSignalRequestSnapshotsMotor() {
+		ElevatorMotor motor = new ElevatorMotor(3, 1.5);
+		motor.goUp();
+
+		ElevatorFloorSignalRequestMessage request = new ElevatorFloorSignalRequestMessage(1, 2, motor, false);
+		motor.turnOff();
+
+		assertEquals(Direction.UP, request.getElevatorMotor().getDirection());
+	}
+}
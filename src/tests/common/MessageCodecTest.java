@@ -0,0 +1,185 @@
+package tests.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import ElevatorSubsystem.ElevatorAutoFixing;
+import ElevatorSubsystem.ElevatorMotor;
+import FloorSubsystem.FloorInputFault;
+import common.Direction;
+import common.exceptions.ElevatorStateException;
+import common.exceptions.MessageTooLargeException;
+import common.messages.Message;
+import common.messages.MessageType;
+import common.messages.elevator.ElevatorFloorSignalRequestMessage;
+import common.messages.elevator.ElevatorStatusMessage;
+import common.messages.elevator.ElevatorTransportRequest;
+import common.messages.floor.ElevatorFloorRequest;
+import common.messages.scheduler.ElevatorCommand;
+import common.messages.scheduler.FloorCommand;
+import common.messages.scheduler.PassengerDropoffCompletedMessage;
+import common.messages.scheduler.SchedulerElevatorCommand;
+import common.messages.scheduler.SchedulerFloorCommand;
+import common.remote_procedure.MessageCodec;
+
+/**
+ * This class tests that messages survive a round trip through the MessageCodec.
+ *
+ * @author paulokenne
+ *
+ */
+public class MessageCodecTest {
+
+	/**
+	 * Encode and decode the given message
+	 *
+	 * @param message the message
+	 * @return the decoded message
+	 */
+	private Message roundTrip(Message message) throws Exception {
+		byte[] messageBytes = MessageCodec.encode(message);
+		return MessageCodec.decode(messageBytes, 0, messageBytes.length);
+	}
+
+	/**
+	 * Test that a message carrying only its type is decoded
+	 */
+	@Test
+	void testTypeOnlyMessage() throws Exception {
+		Message decodedMessage = roundTrip(new Message(MessageType.TEST_REQUEST));
+		assertEquals(MessageType.TEST_REQUEST, decodedMessage.getMessageType());
+	}
+
+	/**
+	 * Test that an elevator status message with an error state is decoded
+	 */
+	@Test
+	void testElevatorStatusMessage() throws Exception {
+		ElevatorStateException errorState = new ElevatorStateException(FloorInputFault.DOOR_STUCK_OPEN_FAULT, 4,
+				"The door is stuck");
+		ElevatorStatusMessage statusMessage = new ElevatorStatusMessage(2, Direction.UP, 4, errorState, true, false,
+				true).forGuiOnly();
+
+		ElevatorStatusMessage decodedMessage = (ElevatorStatusMessage) roundTrip(statusMessage);
+
+		assertEquals(2, decodedMessage.getElevatorId());
+		assertEquals(Direction.UP, decodedMessage.getDirection());
+		assertEquals(4, decodedMessage.getFloorNumber());
+		assertEquals(statusMessage.getTimestamp(), decodedMessage.getTimestamp());
+		assertTrue(decodedMessage.isResolvingError());
+		assertEquals(false, decodedMessage.shouldIssueNextCommand());
+		assertTrue(decodedMessage.isDoorOpen());
+		assertTrue(decodedMessage.isGUIOnly());
+
+		ElevatorStateException decodedErrorState = (ElevatorStateException) decodedMessage.getErrorState();
+		assertEquals(FloorInputFault.DOOR_STUCK_OPEN_FAULT, decodedErrorState.getFault());
+		assertEquals(4, decodedErrorState.getFloorNumber());
+		assertEquals("The door is stuck", decodedErrorState.getMessage());
+	}
+
+	/**
+	 * Test that a string longer than a signed 2 byte length is decoded, and that a
+	 * string longer than MAX_STRING_LENGTH bytes is rejected
+	 */
+	@Test
+	void testLongStrings() throws Exception {
+		String longMessage = "x".repeat(40_000);
+		ElevatorStatusMessage decodedMessage = (ElevatorStatusMessage) roundTrip(
+				new ElevatorStatusMessage(2, Direction.UP, 4, new Exception(longMessage), false, true));
+		assertEquals(longMessage, decodedMessage.getErrorState().getMessage());
+
+		String tooLongMessage = "x".repeat(MessageCodec.MAX_STRING_LENGTH + 1);
+		Exception exception = assertThrows(Exception.class, () -> MessageCodec
+				.encode(new ElevatorStatusMessage(2, Direction.UP, 4, new Exception(tooLongMessage), false, true)));
+		assertTrue(exception.getMessage().contains("longer than " + MessageCodec.MAX_STRING_LENGTH));
+
+		// Only a message too large for its buffer is worth encoding again in a larger
+		// one
+		ByteBuffer smallBuffer = ByteBuffer.allocate(1024);
+		assertThrows(MessageTooLargeException.class, () -> MessageCodec.encode(
+				new ElevatorStatusMessage(2, Direction.UP, 4, new Exception(longMessage), false, true), smallBuffer));
+		smallBuffer.clear();
+		exception = assertThrows(Exception.class, () -> MessageCodec.encode(
+				new ElevatorStatusMessage(2, Direction.UP, 4, new Exception(tooLongMessage), false, true), smallBuffer));
+		assertFalse(exception instanceof MessageTooLargeException);
+	}
+
+	/**
+	 * Test that the job messages are decoded
+	 */
+	@Test
+	void testJobMessages() throws Exception {
+		ElevatorFloorRequest floorRequest = (ElevatorFloorRequest) roundTrip(
+				new ElevatorFloorRequest(5, Direction.DOWN, 7, FloorInputFault.STUCK_AT_FLOOR_FAULT, 3));
+
+		assertEquals(new ElevatorFloorRequest(5, Direction.DOWN, 7), floorRequest);
+		assertEquals(FloorInputFault.STUCK_AT_FLOOR_FAULT, floorRequest.getFault());
+		assertEquals(3, floorRequest.getFaultFloorNumber());
+
+		ElevatorTransportRequest transportRequest = (ElevatorTransportRequest) roundTrip(
+				new ElevatorTransportRequest(1, 3, Direction.DOWN, null, ElevatorAutoFixing.AUTO_FIXING_FAILURE, 7));
+
+		assertEquals(new ElevatorTransportRequest(1, 3, Direction.DOWN, null, null, 7), transportRequest);
+		assertNull(transportRequest.getFloorFault());
+		assertEquals(ElevatorAutoFixing.AUTO_FIXING_FAILURE, transportRequest.getAutoFixing());
+	}
+
+	/**
+	 * Test that the scheduler commands are decoded
+	 */
+	@Test
+	void testSchedulerCommands() throws Exception {
+		SchedulerElevatorCommand elevatorCommand = (SchedulerElevatorCommand) roundTrip(
+				new SchedulerElevatorCommand(ElevatorCommand.SHUT_DOWN, 1,
+						new ElevatorStateException(FloorInputFault.STUCK_AT_FLOOR_FAULT, 9, "Elevator is stuck")));
+
+		assertEquals(ElevatorCommand.SHUT_DOWN, elevatorCommand.getCommand());
+		assertEquals(1, elevatorCommand.getElevatorId());
+		assertEquals(9, elevatorCommand.getException().getFloorNumber());
+
+		SchedulerElevatorCommand moveToCommand = (SchedulerElevatorCommand) roundTrip(
+				new SchedulerElevatorCommand(ElevatorCommand.MOVE_TO, 2, 17));
+
+		assertEquals(ElevatorCommand.MOVE_TO, moveToCommand.getCommand());
+		assertEquals(17, moveToCommand.getTargetFloor());
+		assertEquals(SchedulerElevatorCommand.NO_TARGET_FLOOR, elevatorCommand.getTargetFloor());
+
+		SchedulerFloorCommand floorCommand = (SchedulerFloorCommand) roundTrip(
+				new SchedulerFloorCommand(FloorCommand.TURN_OFF_FLOOR_LAMP, 6, Direction.UP, 2, 11));
+
+		assertEquals(FloorCommand.TURN_OFF_FLOOR_LAMP, floorCommand.getCommand());
+		assertEquals(6, floorCommand.getFloorId());
+		assertEquals(Direction.UP, floorCommand.getLampButtonDirection());
+		assertEquals(2, floorCommand.getElevatorId());
+		assertEquals(11, floorCommand.getInputDataId());
+
+		Message dropOffMessage = roundTrip(new PassengerDropoffCompletedMessage(12));
+		assertEquals(12, ((PassengerDropoffCompletedMessage) dropOffMessage).getFloorInputDataId());
+	}
+
+	/**
+	 * Test that the floor signal request keeps the elevator motor state
+	 */
+	@Test
+	void testFloorSignalRequest() throws Exception {
+		ElevatorMotor motor = new ElevatorMotor(3, 1.5);
+		motor.goDown();
+
+		ElevatorFloorSignalRequestMessage signalRequest = (ElevatorFloorSignalRequestMessage) roundTrip(
+				new ElevatorFloorSignalRequestMessage(0, 8, motor, true));
+
+		assertEquals(0, signalRequest.getElevatorId());
+		assertEquals(8, signalRequest.getFloorId());
+		assertTrue(signalRequest.isFloorFinalDestination());
+		assertEquals(Direction.DOWN, signalRequest.getElevatorMotor().getDirection());
+		assertTrue(signalRequest.getElevatorMotor().getIsRunning());
+		assertEquals(3, signalRequest.getElevatorMotor().getTopSpeed());
+	}
+}
@@ -0,0 +1,71 @@
+package tests.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import common.remote_procedure.MessageReassembler;
+import common.remote_procedure.SlidingWindowFrame;
+
+/**
+ * This class tests that the MessageReassembler drops the partial messages that
+ * time out or do not fit under its memory cap.
+ *
+ * @author paulokenne
+ *
+ */
+public class MessageReassemblerTest {
+
+	/**
+	 * The length of the partial messages used by the tests
+	 */
+	private static final int MESSAGE_LENGTH = SlidingWindowFrame.MAX_FRAGMENTED_MESSAGE_SIZE;
+
+	/**
+	 * Test that a partial message is dropped once its reassembly times out
+	 */
+	@Test
+	void testPartialMessageTimesOut() {
+		MessageReassembler reassembler = new MessageReassembler(0);
+
+		assertNull(addFirstFragment(reassembler, 1));
+		assertEquals(1, reassembler.getPartialMessageCount());
+
+		assertNull(addFirstFragment(reassembler, 2));
+		assertEquals(1, reassembler.getPartialMessageCount());
+		assertEquals(1, reassembler.getDroppedMessages());
+	}
+
+	/**
+	 * Test that the oldest partial messages are dropped to keep under the memory
+	 * cap
+	 */
+	@Test
+	void testPartialMessagesStayUnderMemoryCap() {
+		MessageReassembler reassembler = new MessageReassembler();
+		int messagesUnderCap = MessageReassembler.MAX_REASSEMBLY_BYTES / MESSAGE_LENGTH;
+
+		for (int messageId = 0; messageId <= messagesUnderCap; messageId++) {
+			assertNull(addFirstFragment(reassembler, messageId));
+		}
+
+		assertEquals(messagesUnderCap, reassembler.getPartialMessageCount());
+		assertEquals(messagesUnderCap * MESSAGE_LENGTH, reassembler.getReassemblyBytes());
+		assertEquals(1, reassembler.getDroppedMessages());
+	}
+
+	/**
+	 * Add the first fragment of a message
+	 *
+	 * @param reassembler the reassembler
+	 * @param messageId   the message id
+	 * @return the reassembled message
+	 */
+	private Object addFirstFragment(MessageReassembler reassembler, int messageId) {
+		return reassembler.addFragment(1, messageId, 0, SlidingWindowFrame.getFragmentCount(MESSAGE_LENGTH),
+				MESSAGE_LENGTH, ByteBuffer.allocate(SlidingWindowFrame.MAX_FRAGMENT_SIZE));
+	}
+}
@@ -0,0 +1,197 @@
+package tests.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import FloorSubsystem.FloorInputFault;
+import common.Direction;
+import common.exceptions.ElevatorStateException;
+import common.messages.Message;
+import common.messages.MessageType;
+import common.messages.elevator.ElevatorStatusMessage;
+import common.messages.floor.ElevatorFloorRequest;
+import common.messages.floor.ElevatorNotArrived;
+import common.work_management.MessagePriority;
+import common.work_management.MessageWorkQueue;
+
+/**
+ * This class tests that the MessageWorkQueue hands the messages available to
+ * its worker over in batches.
+ *
+ * @author paulokenne
+ *
+ */
+public class MessageWorkQueueTest {
+
+	/**
+	 * A work queue that records its batches, and holds its first message until
+	 * released
+	 */
+	private static class RecordingWorkQueue extends MessageWorkQueue {
+
+		/**
+		 * The sizes of the handled batches
+		 */
+		private List<Integer> batchSizes = new ArrayList<>();
+
+		/**
+		 * The handled messages, in order
+		 */
+		private List<Message> handledMessageOrder = new ArrayList<>();
+
+		/**
+		 * Counted down when the first message is being handled
+		 */
+		private CountDownLatch firstMessageStarted = new CountDownLatch(1);
+
+		/**
+		 * Counted down to let the first message be handled
+		 */
+		private CountDownLatch firstMessageReleased = new CountDownLatch(1);
+
+		/**
+		 * Counted down for each handled message
+		 */
+		private CountDownLatch handledMessages;
+
+		/**
+		 * A RecordingWorkQueue constructor
+		 *
+		 * @param messageCount the number of messages of the test
+		 */
+		private RecordingWorkQueue(int messageCount) {
+			handledMessages = new CountDownLatch(messageCount);
+		}
+
+		@Override
+		protected void handleBatch(List<Message> messages) {
+			synchronized (batchSizes) {
+				batchSizes.add(messages.size());
+			}
+			super.handleBatch(messages);
+		}
+
+		@Override
+		protected void handleMessage(Message message) {
+			firstMessageStarted.countDown();
+			try {
+				firstMessageReleased.await();
+			} catch (InterruptedException e) {
+				return;
+			}
+			synchronized (handledMessageOrder) {
+				handledMessageOrder.add(message);
+			}
+			handledMessages.countDown();
+		}
+	}
+
+	/**
+	 * Test that the messages enqueued while the worker is busy are handled in a
+	 * single batch
+	 */
+	@Test
+	void testMessagesEnqueuedWhileBusyAreBatched() throws Exception {
+		int messageCount = 1 + MessageWorkQueue.MAX_BATCH_SIZE + 1;
+		RecordingWorkQueue queue = new RecordingWorkQueue(messageCount);
+
+		queue.enqueueMessage(new Message(MessageType.TEST_REQUEST));
+		assertTrue(queue.firstMessageStarted.await(5, TimeUnit.SECONDS));
+		for (int i = 1; i < messageCount; i++) {
+			queue.enqueueMessage(new Message(MessageType.TEST_REQUEST));
+		}
+		queue.firstMessageReleased.countDown();
+
+		assertTrue(queue.handledMessages.await(5, TimeUnit.SECONDS));
+		synchronized (queue.batchSizes) {
+			assertEquals(List.of(1, MessageWorkQueue.MAX_BATCH_SIZE, 1), queue.batchSizes);
+		}
+	}
+
+	/**
+	 * Test that a fault is handled before the jobs and GUI traffic queued ahead of
+	 * it, and that the other lanes keep their order
+	 */
+	@Test
+	void testFaultIsHandledBeforeQueuedTraffic() throws Exception {
+		Message guiMessage = new Message(MessageType.GUI_MESSAGE);
+		Message job = new ElevatorFloorRequest(1, Direction.UP, 0);
+		Message commandStatus = new ElevatorStatusMessage(1, Direction.UP, 1, null, false, true, false);
+		Message fault = new ElevatorNotArrived(1, 0);
+		Message firstMessage = new Message(MessageType.TEST_REQUEST);
+
+		RecordingWorkQueue queue = runWhileBusy(firstMessage, List.of(guiMessage, job, commandStatus, fault));
+
+		assertEquals(List.of(firstMessage, fault, commandStatus, job, guiMessage), queue.handledMessageOrder);
+		assertEquals(1, queue.getLaneMetrics(MessagePriority.SAFETY).getWaitTimes().getCount());
+		assertEquals(0, queue.getLaneMetrics(MessagePriority.GUI).getDepth());
+		assertEquals(1, queue.getLaneMetrics(MessagePriority.GUI).getMaxDepth());
+	}
+
+	/**
+	 * Test that a fault status of an elevator is not handled before an older
+	 * status of the same elevator, but still goes ahead of the other elevators'
+	 */
+	@Test
+	void testStatusesOfAnElevatorKeepTheirOrder() throws Exception {
+		Message olderStatus = new ElevatorStatusMessage(0, Direction.UP, 1, null, false, true, false);
+		Message faultStatus = new ElevatorStatusMessage(0, Direction.UP, 2,
+				new ElevatorStateException(FloorInputFault.DOOR_STUCK_OPEN_FAULT, 2, "Door stuck"), false, true,
+				true);
+		Message otherElevatorFaultStatus = new ElevatorStatusMessage(1, Direction.UP, 4,
+				new ElevatorStateException(FloorInputFault.DOOR_STUCK_OPEN_FAULT, 4, "Door stuck"), false, true,
+				true);
+		Message firstMessage = new Message(MessageType.TEST_REQUEST);
+
+		RecordingWorkQueue queue = runWhileBusy(firstMessage,
+				List.of(olderStatus, faultStatus, otherElevatorFaultStatus));
+
+		assertEquals(List.of(firstMessage, otherElevatorFaultStatus, olderStatus, faultStatus),
+				queue.handledMessageOrder);
+	}
+
+	/**
+	 * Test that a less urgent lane is served after being passed over
+	 * STARVATION_LIMIT times
+	 */
+	@Test
+	void testLessUrgentLaneIsNotStarved() throws Exception {
+		Message guiMessage = new Message(MessageType.GUI_MESSAGE);
+		List<Message> messages = new ArrayList<>();
+		messages.add(guiMessage);
+		for (int i = 0; i < 2 * MessageWorkQueue.STARVATION_LIMIT; i++) {
+			messages.add(new Message(MessageType.TEST_REQUEST));
+		}
+
+		RecordingWorkQueue queue = runWhileBusy(new Message(MessageType.TEST_REQUEST), messages);
+
+		assertEquals(1 + MessageWorkQueue.STARVATION_LIMIT, queue.handledMessageOrder.indexOf(guiMessage));
+	}
+
+	/**
+	 * Enqueue the given messages while the worker is busy with a first message,
+	 * and wait until they are all handled
+	 *
+	 * @param firstMessage the message that keeps the worker busy
+	 * @param messages     the messages enqueued meanwhile
+	 * @return the work queue
+	 */
+	private RecordingWorkQueue runWhileBusy(Message firstMessage, List<Message> messages) throws Exception {
+		RecordingWorkQueue queue = new RecordingWorkQueue(1 + messages.size());
+
+		queue.enqueueMessage(firstMessage);
+		assertTrue(queue.firstMessageStarted.await(5, TimeUnit.SECONDS));
+		messages.forEach(queue::enqueueMessage);
+		queue.firstMessageReleased.countDown();
+
+		assertTrue(queue.handledMessages.await(5, TimeUnit.SECONDS));
+		return queue;
+	}
+}
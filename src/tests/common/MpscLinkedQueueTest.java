@@ -0,0 +1,79 @@
+package tests.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import common.work_management.MpscLinkedQueue;
+
+/**
+ * This class tests that the MpscLinkedQueue keeps the order of each producer's
+ * elements and loses none of them.
+ *
+ * @author paulokenne
+ *
+ */
+public class MpscLinkedQueueTest {
+
+	/**
+	 * The number of elements offered by each producer
+	 */
+	private static final int ELEMENTS_PER_PRODUCER = 20000;
+
+	/**
+	 * Test that elements are polled in the order they were offered
+	 */
+	@Test
+	void testElementsArePolledInOrder() {
+		MpscLinkedQueue<Integer> queue = new MpscLinkedQueue<>();
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll());
+
+		for (int i = 0; i < 3; i++) {
+			queue.offer(i);
+		}
+		for (int i = 0; i < 3; i++) {
+			assertEquals(Integer.valueOf(i), queue.poll());
+		}
+		assertNull(queue.poll());
+	}
+
+	/**
+	 * Test that concurrent producers lose no element and keep their own order
+	 */
+	@Test
+	void testConcurrentProducersKeepTheirOrder() throws Exception {
+		MpscLinkedQueue<int[]> queue = new MpscLinkedQueue<>();
+		int producerCount = 4;
+		Thread[] producers = new Thread[producerCount];
+
+		for (int producer = 0; producer < producerCount; producer++) {
+			int producerId = producer;
+			producers[producer] = new Thread(() -> {
+				for (int i = 0; i < ELEMENTS_PER_PRODUCER; i++) {
+					queue.offer(new int[] { producerId, i });
+				}
+			});
+			producers[producer].start();
+		}
+
+		int[] nextElements = new int[producerCount];
+		int polledElements = 0;
+		while (polledElements < producerCount * ELEMENTS_PER_PRODUCER) {
+			int[] element = queue.poll();
+			if (element == null) {
+				Thread.yield();
+				continue;
+			}
+			assertEquals(nextElements[element[0]]++, element[1]);
+			polledElements++;
+		}
+
+		for (Thread producer : producers) {
+			producer.join();
+		}
+		assertTrue(queue.isEmpty());
+	}
+}
@@ -0,0 +1,103 @@
+package tests.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import common.messages.elevator.ElevatorStatusRequest;
+import common.remote_procedure.Acknowledgement;
+import common.remote_procedure.MessageInbox;
+import common.remote_procedure.SharedMemoryMessageTransport;
+import common.remote_procedure.SubsystemCommunicationConfigurations;
+import common.remote_procedure.SubsystemComponentType;
+
+/**
+ * This class tests that the SharedMemoryMessageTransport sends without
+ * blocking, publishes the messages sent before the target opened its ring once
+ * it does, and receives on every link from a single consumer thread.
+ *
+ * @author paulokenne
+ *
+ */
+public class SharedMemoryMessageTransportTest {
+
+	/**
+	 * Test that a message sent before the target opens its ring is left pending,
+	 * and published in order once the ring is opened
+	 */
+	@Test
+	void testSendToRingNotOpenYetDoesNotBlock() throws Exception {
+		Path directory = Files.createTempDirectory("elevator-link-test");
+		System.setProperty(SubsystemCommunicationConfigurations.SHARED_MEMORY_DIRECTORY_PROPERTY,
+				directory.toString());
+		try {
+			SharedMemoryMessageTransport schedulerTransport = new SharedMemoryMessageTransport(
+					SubsystemComponentType.SCHEDULER, SubsystemComponentType.ELEVATOR_SUBSYSTEM, new MessageInbox());
+
+			long startTime = System.nanoTime();
+			CompletableFuture<Acknowledgement> firstAcknowledgement = schedulerTransport
+					.sendAsync(new ElevatorStatusRequest(1));
+			CompletableFuture<Acknowledgement> secondAcknowledgement = schedulerTransport
+					.sendAsync(new ElevatorStatusRequest(2));
+			assertTrue(System.nanoTime() - startTime < TimeUnit.MILLISECONDS.toNanos(500));
+			assertFalse(firstAcknowledgement.isDone());
+
+			// The elevator subsystem opens its ring
+			MessageInbox elevatorInbox = new MessageInbox();
+			new SharedMemoryMessageTransport(SubsystemComponentType.ELEVATOR_SUBSYSTEM,
+					SubsystemComponentType.SCHEDULER, elevatorInbox);
+
+			assertEquals(0, firstAcknowledgement.get(5, TimeUnit.SECONDS).getSequenceNumber());
+			assertEquals(1, secondAcknowledgement.get(5, TimeUnit.SECONDS).getSequenceNumber());
+			assertEquals(1, ((ElevatorStatusRequest) elevatorInbox.take()).getElevatorId());
+			assertEquals(2, ((ElevatorStatusRequest) elevatorInbox.take()).getElevatorId());
+		} finally {
+			System.clearProperty(SubsystemCommunicationConfigurations.SHARED_MEMORY_DIRECTORY_PROPERTY);
+		}
+	}
+
+	/**
+	 * Test that the receive rings of all the links of the process are drained by
+	 * a single consumer thread
+	 */
+	@Test
+	void testOneConsumerThreadReceivesOnEveryLink() throws Exception {
+		Path directory = Files.createTempDirectory("elevator-link-test");
+		System.setProperty(SubsystemCommunicationConfigurations.SHARED_MEMORY_DIRECTORY_PROPERTY,
+				directory.toString());
+		try {
+			SubsystemComponentType[] targetSubsystemTypes = { SubsystemComponentType.ELEVATOR_SUBSYSTEM,
+					SubsystemComponentType.FLOOR_SUBSYSTEM };
+			for (int i = 0; i < targetSubsystemTypes.length; i++) {
+				MessageInbox schedulerInbox = new MessageInbox();
+				MessageInbox targetInbox = new MessageInbox();
+				SharedMemoryMessageTransport schedulerTransport = new SharedMemoryMessageTransport(
+						SubsystemComponentType.SCHEDULER, targetSubsystemTypes[i], schedulerInbox);
+				SharedMemoryMessageTransport targetTransport = new SharedMemoryMessageTransport(
+						targetSubsystemTypes[i], SubsystemComponentType.SCHEDULER, targetInbox);
+
+				schedulerTransport.sendAsync(new ElevatorStatusRequest(i)).get(5, TimeUnit.SECONDS);
+				targetTransport.sendAsync(new ElevatorStatusRequest(i + 10)).get(5, TimeUnit.SECONDS);
+				assertEquals(i, ((ElevatorStatusRequest) targetInbox.take()).getElevatorId());
+				assertEquals(i + 10, ((ElevatorStatusRequest) schedulerInbox.take()).getElevatorId());
+			}
+
+			int consumerThreads = 0;
+			for (Thread thread : Thread.getAllStackTraces().keySet()) {
+				if (thread.getName().startsWith("SharedMemory") && !thread.getName().equals("SharedMemoryRetryTimer")) {
+					consumerThreads++;
+				}
+			}
+			assertEquals(1, consumerThreads);
+		} finally {
+			System.clearProperty(SubsystemCommunicationConfigurations.SHARED_MEMORY_DIRECTORY_PROPERTY);
+		}
+	}
+}
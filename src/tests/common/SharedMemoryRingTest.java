@@ -0,0 +1,161 @@
+package tests.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import common.Direction;
+import common.messages.elevator.ElevatorStatusMessage;
+import common.messages.elevator.ElevatorStatusRequest;
+import common.remote_procedure.MessageCodec;
+import common.remote_procedure.MessageInbox;
+import common.remote_procedure.SharedMemoryRing;
+
+/**
+ * This class tests that the SharedMemoryRing hands encoded messages from its
+ * producer to its consumer in order.
+ *
+ * @author paulokenne
+ *
+ */
+public class SharedMemoryRingTest {
+
+	/**
+	 * The ring file
+	 */
+	private Path path;
+
+	/**
+	 * The consumer's end of the ring
+	 */
+	private SharedMemoryRing consumer;
+
+	/**
+	 * The producer's end of the ring
+	 */
+	private SharedMemoryRing producer;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		path = Files.createTempFile("elevator-link-test", ".ring");
+		consumer = SharedMemoryRing.openConsumer(path);
+		producer = SharedMemoryRing.openProducer(path);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		producer.close();
+		consumer.close();
+		Files.deleteIfExists(path);
+	}
+
+	/**
+	 * Test that the messages are received in the order they were offered
+	 */
+	@Test
+	void testMessagesAreReceivedInOrder() throws Exception {
+		assertTrue(producer.offer(encode(1), 0));
+		assertTrue(producer.offer(encode(2), 1));
+
+		MessageInbox inbox = new MessageInbox();
+		assertEquals(2, consumer.drain(inbox));
+		assertEquals(1, ((ElevatorStatusRequest) inbox.poll()).getElevatorId());
+		assertEquals(2, ((ElevatorStatusRequest) inbox.poll()).getElevatorId());
+		assertEquals(0, consumer.drain(inbox));
+	}
+
+	/**
+	 * Test that the producer stops at a full ring and that the records wrap around
+	 * the end of the ring once the consumer frees space
+	 */
+	@Test
+	void testRecordsWrapAroundTheRing() throws Exception {
+		MessageInbox inbox = new MessageInbox();
+
+		// A 40 byte record leaves an 8 byte gap at the end once the ring is full of
+		// 16 byte records
+		assertTrue(producer.offer(
+				ByteBuffer.wrap(MessageCodec.encode(new ElevatorStatusMessage(2, Direction.UP, 4, null, false, true))),
+				0));
+		int offeredMessages = 0;
+		while (producer.offer(encode(offeredMessages), offeredMessages + 1)) {
+			offeredMessages++;
+		}
+		assertEquals(offeredMessages + 1, consumer.drain(inbox));
+
+		// These records do not fit in the gap, so they start at the beginning
+		for (int i = 0; i < 3; i++) {
+			assertTrue(producer.offer(encode(offeredMessages + i), offeredMessages + i + 1));
+		}
+		assertEquals(3, consumer.drain(inbox));
+
+		assertTrue(inbox.poll() instanceof ElevatorStatusMessage);
+		for (int i = 0; i < offeredMessages + 3; i++) {
+			assertEquals(i, ((ElevatorStatusRequest) inbox.poll()).getElevatorId());
+		}
+	}
+
+	/**
+	 * Test that a ring has at most one consumer and that a producer only opens a
+	 * ring with a live consumer
+	 */
+	@Test
+	void testProducerOnlyOpensLiveRing() throws Exception {
+		assertNotNull(producer);
+		assertThrows(IOException.class, () -> SharedMemoryRing.openConsumer(path));
+
+		Path missingPath = path.resolveSibling(path.getFileName() + ".missing");
+		assertNull(SharedMemoryRing.openProducer(missingPath));
+
+		Path leftBehindPath = Files.createTempFile("elevator-link-test", ".ring");
+		try {
+			SharedMemoryRing.openConsumer(leftBehindPath).close();
+			assertNull(SharedMemoryRing.openProducer(leftBehindPath));
+		} finally {
+			Files.deleteIfExists(leftBehindPath);
+		}
+		assertFalse(Files.exists(missingPath));
+	}
+
+	/**
+	 * Test that a producer finds out that the consumer of its ring has gone
+	 */
+	@Test
+	void testProducerDetectsConsumerGone() throws Exception {
+		Path restartedPath = Files.createTempFile("elevator-link-test", ".ring");
+		try {
+			SharedMemoryRing restartedConsumer = SharedMemoryRing.openConsumer(restartedPath);
+			SharedMemoryRing restartedProducer = SharedMemoryRing.openProducer(restartedPath);
+			assertTrue(restartedProducer.hasLiveConsumer());
+
+			restartedConsumer.close();
+			Thread.sleep(20);
+			assertFalse(restartedProducer.hasLiveConsumer());
+			restartedProducer.close();
+		} finally {
+			Files.deleteIfExists(restartedPath);
+		}
+	}
+
+	/**
+	 * Encode a status request for the given elevator
+	 *
+	 * @param elevatorId the elevator id
+	 * @return the encoded message
+	 */
+	private ByteBuffer encode(int elevatorId) throws Exception {
+		return ByteBuffer.wrap(MessageCodec.encode(new ElevatorStatusRequest(elevatorId)));
+	}
+}
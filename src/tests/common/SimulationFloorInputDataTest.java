@@ -0,0 +1,53 @@
+package tests.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.security.InvalidParameterException;
+
+import org.junit.jupiter.api.Test;
+
+import common.Direction;
+import common.SimulationFloorInputData;
+
+/**
+ * This class tests that SimulationFloorInputData keeps the arrival time of a
+ * line of the input file, to the millisecond, so the trace can be replayed at
+ * its recorded times.
+ *
+ * @author paulokenne
+ *
+ */
+public class SimulationFloorInputDataTest {
+
+	/**
+	 * Test that the arrival time is parsed with the fraction of its seconds
+	 */
+	@Test
+	void testArrivalTimeMilliseconds() {
+		SimulationFloorInputData floorInputData = new SimulationFloorInputData(0, "14:05:15.5 2 UP 5");
+
+		assertEquals(((14 * 60 + 5) * 60 + 15) * 1000 + 500, floorInputData.getArrivalTimeMilliseconds());
+		assertEquals(2, (int) floorInputData.getCurrentFloor());
+		assertEquals(Direction.UP, floorInputData.getFloorDirectionButton());
+	}
+
+	/**
+	 * Test that the arrival times of two lines a minute apart are a minute apart
+	 */
+	@Test
+	void testArrivalTimesKeepTheirSpacing() {
+		SimulationFloorInputData first = new SimulationFloorInputData(0, "08:59:30.0 0 UP 10");
+		SimulationFloorInputData second = new SimulationFloorInputData(1, "09:00:30.0 12 DOWN 3");
+
+		assertEquals(60_000, second.getArrivalTimeMilliseconds() - first.getArrivalTimeMilliseconds());
+	}
+
+	/**
+	 * Test that a line without a valid arrival time is rejected
+	 */
+	@Test
+	void testInvalidArrivalTime() {
+		assertThrows(InvalidParameterException.class, () -> new SimulationFloorInputData(0, "14h05 2 UP 5"));
+	}
+}
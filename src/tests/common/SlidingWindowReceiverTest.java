@@ -0,0 +1,264 @@
+package tests.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import FloorSubsystem.FloorInputFault;
+import common.Direction;
+import common.exceptions.ElevatorStateException;
+import common.messages.Message;
+import common.messages.elevator.ElevatorStatusMessage;
+import common.messages.elevator.ElevatorStatusRequest;
+import common.remote_procedure.MessageCodec;
+import common.remote_procedure.SlidingWindowFrame;
+import common.remote_procedure.SlidingWindowReceiver;
+import common.remote_procedure.SubsystemCommunicationRPC;
+
+/**
+ * This class tests that the SlidingWindowReceiver releases messages in order
+ * and acknowledges them cumulatively and selectively.
+ *
+ * @author paulokenne
+ *
+ */
+public class SlidingWindowReceiverTest {
+
+	/**
+	 * The sender session id used by the tests
+	 */
+	private static final int SESSION_ID = 42;
+
+	/**
+	 * The receiver
+	 */
+	private SlidingWindowReceiver receiver;
+
+	@BeforeEach
+	void setUp() {
+		receiver = new SlidingWindowReceiver();
+	}
+
+	/**
+	 * Test that messages received out of order are held until the gap is filled
+	 * and that the held messages are acknowledged selectively
+	 */
+	@Test
+	void testOutOfOrderMessagesAreReleasedInOrder() throws Exception {
+		assertAcknowledgement(handleDataFrame(createDataFrame(0, 0)), 0, 0);
+		assertEquals(0, nextElevatorId());
+
+		// 2 and 3 arrive before 1
+		assertAcknowledgement(handleDataFrame(createDataFrame(2, 1)), 0, 0b10);
+		assertAcknowledgement(handleDataFrame(createDataFrame(3, 1)), 0, 0b110);
+		assertNull(receiver.pollDeliverableMessage());
+
+		assertAcknowledgement(handleDataFrame(createDataFrame(1, 1)), 3, 0);
+		assertEquals(1, nextElevatorId());
+		assertEquals(2, nextElevatorId());
+		assertEquals(3, nextElevatorId());
+		assertNull(receiver.pollDeliverableMessage());
+	}
+
+	/**
+	 * Test that a retransmitted message is acknowledged again but not released
+	 * twice
+	 */
+	@Test
+	void testDuplicateMessagesAreNotReleasedTwice() throws Exception {
+		handleDataFrame(createDataFrame(0, 0));
+		assertAcknowledgement(handleDataFrame(createDataFrame(0, 0)), 0, 0);
+
+		assertEquals(0, nextElevatorId());
+		assertNull(receiver.pollDeliverableMessage());
+	}
+
+	/**
+	 * Test that the receiver stops waiting for a message that the sender
+	 * abandoned
+	 */
+	@Test
+	void testAbandonedMessagesAreSkipped() throws Exception {
+		handleDataFrame(createDataFrame(0, 0));
+		handleDataFrame(createDataFrame(2, 1));
+		assertEquals(0, nextElevatorId());
+		assertNull(receiver.pollDeliverableMessage());
+
+		// The sender gave up on 1, so its window now starts at 2
+		assertAcknowledgement(handleDataFrame(createDataFrame(3, 2)), 3, 0);
+		assertEquals(2, nextElevatorId());
+		assertEquals(3, nextElevatorId());
+	}
+
+	/**
+	 * Test that the messages of a batched frame are released in the order they
+	 * were packed, and only once the frame's turn comes
+	 */
+	@Test
+	void testBatchedMessagesAreUnbatchedInOrder() throws Exception {
+		assertAcknowledgement(handleDataFrame(createDataFrame(1, 0, 11, 12, 13)), -1, 0b10);
+		assertNull(receiver.pollDeliverableMessage());
+
+		assertAcknowledgement(handleDataFrame(createDataFrame(0, 0, 10)), 1, 0);
+		assertEquals(10, nextElevatorId());
+		assertEquals(11, nextElevatorId());
+		assertEquals(12, nextElevatorId());
+		assertEquals(13, nextElevatorId());
+		assertNull(receiver.pollDeliverableMessage());
+	}
+
+	/**
+	 * Test that a fragmented message is reassembled from fragments received out
+	 * of order and released between the messages sent before and after it
+	 */
+	@Test
+	void testFragmentedMessageIsReassembledInOrder() throws Exception {
+		String faultDescription = "stuck ".repeat(1000);
+		byte[] encodedMessage = MessageCodec.encode(new ElevatorStatusMessage(7, Direction.UP, 4,
+				new ElevatorStateException(FloorInputFault.DOOR_STUCK_OPEN_FAULT, 4, faultDescription), true, false));
+		int fragmentCount = SlidingWindowFrame.getFragmentCount(encodedMessage.length);
+		assertEquals(3, fragmentCount);
+
+		handleDataFrame(createDataFrame(0, 0));
+		handleDataFrame(createDataFrame(4, 0));
+		handleDataFrame(createFragmentFrame(3, encodedMessage, 2));
+		handleDataFrame(createFragmentFrame(1, encodedMessage, 0));
+		assertEquals(0, nextElevatorId());
+		assertNull(receiver.pollDeliverableMessage());
+
+		assertAcknowledgement(handleDataFrame(createFragmentFrame(2, encodedMessage, 1)), 4, 0);
+		ElevatorStatusMessage statusMessage = (ElevatorStatusMessage) receiver.pollDeliverableMessage();
+		assertEquals(7, statusMessage.getElevatorId());
+		assertEquals(faultDescription, statusMessage.getErrorState().getMessage());
+		assertEquals(4, nextElevatorId());
+	}
+
+	/**
+	 * Test that ordering, duplicate detection and the window base skip hold when
+	 * the sequence numbers wrap around past Integer.MAX_VALUE
+	 */
+	@Test
+	void testSequenceNumbersWrapAround() throws Exception {
+		int first = Integer.MAX_VALUE - 1;
+		assertAcknowledgement(handleDataFrame(createDataFrame(first, first, 1)), first, 0);
+		assertEquals(1, nextElevatorId());
+
+		// Integer.MIN_VALUE, past the wrap, arrives before Integer.MAX_VALUE
+		assertAcknowledgement(handleDataFrame(createDataFrame(Integer.MIN_VALUE, first, 3)), first, 0b10);
+		assertNull(receiver.pollDeliverableMessage());
+		assertAcknowledgement(handleDataFrame(createDataFrame(Integer.MAX_VALUE, first, 2)), Integer.MIN_VALUE, 0);
+		assertEquals(2, nextElevatorId());
+		assertEquals(3, nextElevatorId());
+
+		// A retransmission from before the wrap is not released again
+		assertAcknowledgement(handleDataFrame(createDataFrame(Integer.MAX_VALUE, first, 2)), Integer.MIN_VALUE, 0);
+		assertNull(receiver.pollDeliverableMessage());
+
+		// The sender gave up on Integer.MIN_VALUE + 1, so its window now starts after
+		// it
+		handleDataFrame(createDataFrame(Integer.MIN_VALUE + 2, Integer.MIN_VALUE + 1, 5));
+		assertNull(receiver.pollDeliverableMessage());
+		assertAcknowledgement(handleDataFrame(createDataFrame(Integer.MIN_VALUE + 3, Integer.MIN_VALUE + 2, 6)),
+				Integer.MIN_VALUE + 3, 0);
+		assertEquals(5, nextElevatorId());
+		assertEquals(6, nextElevatorId());
+	}
+
+	/**
+	 * Create a data frame whose message carries the sequence number as its
+	 * elevator id
+	 *
+	 * @param sequenceNumber the sequence number
+	 * @param windowBase     the sender window base
+	 * @return the data frame
+	 */
+	private ByteBuffer createDataFrame(int sequenceNumber, int windowBase) throws Exception {
+		return createDataFrame(sequenceNumber, windowBase, sequenceNumber);
+	}
+
+	/**
+	 * Create a data frame that batches a message per given elevator id
+	 *
+	 * @param sequenceNumber the sequence number
+	 * @param windowBase     the sender window base
+	 * @param elevatorIds    the elevator ids of the messages
+	 * @return the data frame
+	 */
+	private ByteBuffer createDataFrame(int sequenceNumber, int windowBase, int... elevatorIds) throws Exception {
+		ByteBuffer frame = ByteBuffer.allocate(SubsystemCommunicationRPC.MAX_BUFFER_SIZE);
+		frame.position(SlidingWindowFrame.DATA_HEADER_SIZE);
+		for (int elevatorId : elevatorIds) {
+			byte[] encodedMessage = MessageCodec.encode(new ElevatorStatusRequest(elevatorId));
+			SlidingWindowFrame.putMessage(frame, ByteBuffer.wrap(encodedMessage));
+		}
+		SlidingWindowFrame.putDataHeader(frame, SESSION_ID, sequenceNumber, windowBase, elevatorIds.length);
+		frame.flip();
+		return frame;
+	}
+
+	/**
+	 * Create the fragment frame of one fragment of an encoded message
+	 *
+	 * @param sequenceNumber the sequence number
+	 * @param encodedMessage the encoded message
+	 * @param fragmentIndex  the index of the fragment
+	 * @return the fragment frame
+	 */
+	private ByteBuffer createFragmentFrame(int sequenceNumber, byte[] encodedMessage, int fragmentIndex) {
+		int fragmentOffset = fragmentIndex * SlidingWindowFrame.MAX_FRAGMENT_SIZE;
+		int fragmentSize = Math.min(SlidingWindowFrame.MAX_FRAGMENT_SIZE, encodedMessage.length - fragmentOffset);
+
+		ByteBuffer frame = ByteBuffer.allocate(SlidingWindowFrame.FRAGMENT_HEADER_SIZE + fragmentSize);
+		frame.position(SlidingWindowFrame.FRAGMENT_HEADER_SIZE);
+		frame.put(encodedMessage, fragmentOffset, fragmentSize);
+		SlidingWindowFrame.putFragmentHeader(frame, SESSION_ID, sequenceNumber, 0, 0, fragmentIndex,
+				SlidingWindowFrame.getFragmentCount(encodedMessage.length), encodedMessage.length);
+		frame.flip();
+		return frame;
+	}
+
+	/**
+	 * Pass the data frame to the receiver and return the acknowledgement frame
+	 *
+	 * @param frame the data frame
+	 * @return the acknowledgement frame
+	 */
+	private ByteBuffer handleDataFrame(ByteBuffer frame) {
+		ByteBuffer acknowledgement = ByteBuffer.allocate(SlidingWindowFrame.ACKNOWLEDGEMENT_FRAME_SIZE);
+		assertTrue(receiver.handleDataFrame(frame, acknowledgement));
+		acknowledgement.flip();
+		return acknowledgement;
+	}
+
+	/**
+	 * Return the elevator id of the next released message
+	 *
+	 * @return the elevator id
+	 */
+	private int nextElevatorId() {
+		Message message = receiver.pollDeliverableMessage();
+		return ((ElevatorStatusRequest) message).getElevatorId();
+	}
+
+	/**
+	 * Assert the contents of an acknowledgement frame
+	 *
+	 * @param acknowledgement                      the acknowledgement frame
+	 * @param expectedCumulativeAcknowledgement    the expected cumulative
+	 *                                             acknowledgement
+	 * @param expectedSelectiveAcknowledgementBits the expected selective
+	 *                                             acknowledgement bits
+	 */
+	private void assertAcknowledgement(ByteBuffer acknowledgement, int expectedCumulativeAcknowledgement,
+			long expectedSelectiveAcknowledgementBits) {
+		assertEquals(SlidingWindowFrame.ACKNOWLEDGEMENT_FRAME, acknowledgement.get());
+		assertEquals(SESSION_ID, acknowledgement.getInt());
+		assertEquals(expectedCumulativeAcknowledgement, acknowledgement.getInt());
+		assertEquals(expectedSelectiveAcknowledgementBits, acknowledgement.getLong());
+	}
+}